@@ -18,12 +18,27 @@ package com.prowidesoftware.swift;
 import com.prowidesoftware.swift.model.mx.MxRead;
 import com.prowidesoftware.swift.model.mx.MxWrite;
 
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+
 /**
  * Helper class to find implementation of interfaces
  *
+ * <p>Since 8.0.2 the {@link MxRead} and {@link MxWrite} implementations are resolved once and cached. The resolution
+ * looks for implementations registered with the {@link ServiceLoader} mechanism, in a
+ * <code>META-INF/services/com.prowidesoftware.swift.model.mx.MxRead</code> (or MxWrite) file; then for the Prowide
+ * Integrator implementations by class name; and finally defaults to the Prowide Core implementations. A specific
+ * implementation can also be set programmatically at startup with {@link #register(MxRead)} and
+ * {@link #register(MxWrite)}. Since the resolved instances are shared, implementations must be thread safe.
+ *
  * @since 7.6
  */
 public class Resolver {
+	private static final transient java.util.logging.Logger log = java.util.logging.Logger.getLogger(Resolver.class.getName());
+
+	private static volatile MxWrite mxWrite = null;
+	private static volatile MxRead mxRead = null;
 
 	private Resolver() {}
 	
@@ -32,11 +47,12 @@ public class Resolver {
 	 * @return a specific implementation of the MxWrite interface
 	 */
 	public static MxWrite mxWrite() {
-		try {
-			return (MxWrite) Class.forName("com.prowidesoftware.swift.model.mx.MxWriteIntegartorV1").newInstance();
-		} catch (Exception ignored) {
-			return new MxWriteCoreV1();
+		MxWrite result = mxWrite;
+		if (result == null) {
+			result = resolve(MxWrite.class, "com.prowidesoftware.swift.model.mx.MxWriteIntegartorV1", MxWriteCoreV1.class);
+			mxWrite = result;
 		}
+		return result;
 	}
 
 	/**
@@ -44,10 +60,57 @@ public class Resolver {
 	 * @return a specific implementation of the MxRead interface
 	 */
 	public static MxRead mxRead() {
+		MxRead result = mxRead;
+		if (result == null) {
+			result = resolve(MxRead.class, "com.prowidesoftware.swift.model.mx.MxReadIntegratorV1", MxReadCoreV1.class);
+			mxRead = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Sets the implementation to return by {@link #mxWrite()}, replacing the resolved one
+	 * @param impl the implementation to use, or null to resolve it again on next use
+	 * @since 8.0.2
+	 */
+	public static void register(final MxWrite impl) {
+		mxWrite = impl;
+	}
+
+	/**
+	 * Sets the implementation to return by {@link #mxRead()}, replacing the resolved one
+	 * @param impl the implementation to use, or null to resolve it again on next use
+	 * @since 8.0.2
+	 */
+	public static void register(final MxRead impl) {
+		mxRead = impl;
+	}
+
+	/**
+	 * Finds the implementation for the service interface, in the order described in the class documentation
+	 */
+	private static <T> T resolve(final Class<T> service, final String legacyClassName, final Class<? extends T> defaultImpl) {
+		try {
+			for (final T impl : ServiceLoader.load(service)) {
+				if (impl.getClass() != defaultImpl) {
+					log.fine("Using " + impl.getClass().getName() + " registered as " + service.getSimpleName() + " service");
+					return impl;
+				}
+			}
+		} catch (final ServiceConfigurationError e) {
+			log.log(Level.WARNING, "Error loading " + service.getSimpleName() + " service", e);
+		}
+		try {
+			return service.cast(Class.forName(legacyClassName).newInstance());
+		} catch (final ClassNotFoundException ignored) {
+			// not running with Prowide Integrator
+		} catch (final Exception e) {
+			log.log(Level.WARNING, "Error creating " + legacyClassName, e);
+		}
 		try {
-			return (MxRead) Class.forName("com.prowidesoftware.swift.model.mx.MxReadIntegratorV1").newInstance();
-		} catch (Exception ignored) {
-			return new MxReadCoreV1();
+			return defaultImpl.newInstance();
+		} catch (final ReflectiveOperationException e) {
+			throw new IllegalStateException("cannot create default " + service.getSimpleName() + " implementation", e);
 		}
 	}
 }
@@ -15,6 +15,7 @@
  */
 package com.prowidesoftware.swift.io;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -23,6 +24,9 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import com.prowidesoftware.swift.io.writer.FINByteWriter;
 
 /**
  * Base implementation for message writers.
@@ -37,6 +41,9 @@ import java.io.Writer;
  * <li>Instantiating the writer for a particular File or stream, calling
  * the write methods and closing the writer when all messages has been written</li>
  * </ul>
+ * When the writer is created for a file or stream, message objects are serialized directly into bytes
+ * with a {@link FINByteWriter} instead of going through the character writer. Both messages and plain
+ * text are written into the stream in UTF-8.
  * 
  * @author sebastian@prowidesoftware.com
  * @since 7.8
@@ -44,6 +51,15 @@ import java.io.Writer;
 public abstract class AbstractWriter {
 	protected Writer writer = null;
 
+	/**
+	 * Underlying stream when the writer is created for a file or stream, null when created for a Writer
+	 * @since 8.0.2
+	 */
+	protected OutputStream stream = null;
+
+	private FINByteWriter finWriter = null;
+	private boolean pendingChars = false;
+
 	/**
 	 * Constructs a writer to write content into a given Writer instance.
 	 * @param writer
@@ -58,7 +74,7 @@ public abstract class AbstractWriter {
 	 * @throws FileNotFoundException 
 	 */
 	public AbstractWriter(final File file) throws FileNotFoundException {
-		this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file))); 
+		this(new FileOutputStream(file));
 	}
 	
 	/**
@@ -67,15 +83,52 @@ public abstract class AbstractWriter {
 	 * @throws FileNotFoundException 
 	 */
 	public AbstractWriter(final String filename) throws FileNotFoundException {
-		this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename))); 
+		this(new FileOutputStream(filename));
 	}
 	
 	/**
-	 * Constructs a writer to write content into a given stream.
+	 * Constructs a writer to write content into a given stream, encoded in UTF-8.
 	 * @param stream
 	 */
 	public AbstractWriter(final OutputStream stream) {
-		this.writer = new BufferedWriter(new OutputStreamWriter(stream));
+		this.stream = new BufferedOutputStream(stream);
+		this.writer = new BufferedWriter(new OutputStreamWriter(this.stream, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Returns the writer to append characters, keeping track of them to be flushed before any
+	 * further write into the underlying stream.
+	 * @return the internal writer
+	 * @since 8.0.2
+	 */
+	protected Writer charWriter() {
+		this.pendingChars = true;
+		return this.writer;
+	}
+
+	/**
+	 * Returns the underlying stream to append bytes, flushing any previous characters written into the writer.
+	 * @return the underlying stream or null if this writer was created for a Writer
+	 * @throws IOException if an I/O error occurs
+	 * @since 8.0.2
+	 */
+	protected OutputStream byteStream() throws IOException {
+		if (this.pendingChars) {
+			this.writer.flush();
+			this.pendingChars = false;
+		}
+		return this.stream;
+	}
+
+	/**
+	 * @return the reusable writer to serialize messages into bytes
+	 * @since 8.0.2
+	 */
+	protected FINByteWriter finWriter() {
+		if (this.finWriter == null) {
+			this.finWriter = new FINByteWriter();
+		}
+		return this.finWriter;
 	}
     
     /**
@@ -0,0 +1,514 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io;
+
+import com.prowidesoftware.ProwideException;
+import com.prowidesoftware.swift.model.*;
+import org.apache.commons.lang3.Validate;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary serialization for {@link SwiftMessage}, intended for caches and queues where the message is stored
+ * and restored many times; it is smaller than both the Java serialization and the FIN text, and it is decoded
+ * without parsing.
+ *
+ * <p>The encoded message starts with a four bytes header, the "SWB" magic and the format version, followed by a
+ * bit mask of the present header, text and trailer blocks and their content. Lengths and counts are written as
+ * unsigned varints (7 bits per byte, least significant group first), well-known tag names are replaced by their
+ * index in a fixed dictionary, and strings are written as plain ASCII bytes, falling back to UTF-8 only when they
+ * contain other characters.
+ *
+ * <p>The blocks content, the user blocks and the unparsed texts of the message and its blocks are encoded.
+ * Persistence identifiers and the unparsed texts attached to single tags are not part of the format, and empty
+ * lists of user blocks or unparsed texts are decoded as null.
+ *
+ * <p>The format of an encoded version is never changed, so data stored with a previous version of this class can
+ * always be decoded. Instances hold no state and can be shared between threads.
+ *
+ * @since 8.0.2
+ */
+public class BinaryMessageCodec {
+
+	/**
+	 * Current format version, written in the header of every encoded message
+	 */
+	public static final int VERSION = 1;
+
+	private static final byte[] MAGIC = {'S', 'W', 'B'};
+
+	private static final int BLOCK1 = 1;
+	private static final int BLOCK2 = 1 << 1;
+	private static final int BLOCK3 = 1 << 2;
+	private static final int BLOCK4 = 1 << 3;
+	private static final int BLOCK5 = 1 << 4;
+
+	/**
+	 * Well-known tag names for format version 1, encoded as their one-based index.
+	 * This list is part of the format and must not be modified.
+	 */
+	private static final String[] DICTIONARY = {
+			// block 3
+			"103", "106", "108", "111", "113", "115", "119", "121", "165", "423", "424", "433", "434",
+			// block 4, payments and cash management
+			"11S", "12", "13C", "20", "21", "21R", "23B", "23E", "25", "26T", "28C", "28D", "32A", "32B", "33B", "36",
+			"50A", "50F", "50K", "51A", "52A", "52D", "53A", "53B", "53D", "54A", "54D", "56A", "56D", "57A", "57B", "57D",
+			"58A", "58D", "59", "59A", "59F", "60F", "60M", "61", "62F", "62M", "64", "65", "70", "71A", "71F", "71G",
+			"72", "77B", "77E", "77T", "79", "86", "90C", "90D",
+			// block 4, securities
+			"11A", "13A", "16R", "16S", "19A", "20C", "22F", "22H", "23G", "25D", "35B", "36B", "69A", "70E", "90A",
+			"90B", "92A", "93B", "94B", "95C", "95P", "95Q", "95R", "97A", "98A", "98C",
+			// block 4, treasury
+			"15A", "15B", "15C", "17R", "22A", "22C", "30T", "30V", "30P", "37G", "82A", "87A", "83A", "14C", "30F",
+			// block 4, system messages
+			"177", "451", "405",
+			// block 5
+			"CHK", "TNG", "PDE", "PDM", "DLM", "MRF", "SYS", "MAC", "PAC"
+	};
+
+	private static final Map<String, Integer> DICTIONARY_INDEX = new HashMap<>();
+	static {
+		for (int i = 0; i < DICTIONARY.length; i++) {
+			DICTIONARY_INDEX.put(DICTIONARY[i], i + 1);
+		}
+	}
+
+	/**
+	 * Writes the message into the buffer, starting at its current position.
+	 *
+	 * @param msg the message to encode
+	 * @param target the buffer to write into
+	 * @return the number of bytes written
+	 * @throws IllegalArgumentException if any of the parameters is null
+	 * @throws BufferOverflowException if the remaining space in the buffer is not enough, see {@link #encodedLength(SwiftMessage)}
+	 */
+	public int encode(final SwiftMessage msg, final ByteBuffer target) {
+		Validate.notNull(msg, "message to encode cannot be null");
+		Validate.notNull(target, "target buffer cannot be null");
+		final int start = target.position();
+		target.put(MAGIC);
+		target.put((byte) VERSION);
+
+		int mask = 0;
+		mask |= msg.getBlock1() != null ? BLOCK1 : 0;
+		mask |= msg.getBlock2() != null ? BLOCK2 : 0;
+		mask |= msg.getBlock3() != null ? BLOCK3 : 0;
+		mask |= msg.getBlock4() != null ? BLOCK4 : 0;
+		mask |= msg.getBlock5() != null ? BLOCK5 : 0;
+		target.put((byte) mask);
+
+		final SwiftBlock1 b1 = msg.getBlock1();
+		if (b1 != null) {
+			putString(target, b1.getApplicationId());
+			putString(target, b1.getServiceId());
+			putString(target, b1.getLogicalTerminal());
+			putString(target, b1.getSessionNumber());
+			putString(target, b1.getSequenceNumber());
+			putTexts(target, blockTexts(b1));
+		}
+		final SwiftBlock2 b2 = msg.getBlock2();
+		if (b2 != null) {
+			if (b2 instanceof SwiftBlock2Output) {
+				final SwiftBlock2Output o = (SwiftBlock2Output) b2;
+				target.put((byte) 'O');
+				putString(target, o.getSenderInputTime());
+				putString(target, o.getMIRDate());
+				putString(target, o.getMIRLogicalTerminal());
+				putString(target, o.getMIRSessionNumber());
+				putString(target, o.getMIRSequenceNumber());
+				putString(target, o.getReceiverOutputDate());
+				putString(target, o.getReceiverOutputTime());
+			} else {
+				final SwiftBlock2Input i = (SwiftBlock2Input) b2;
+				target.put((byte) 'I');
+				putString(target, i.getReceiverAddress());
+				putString(target, i.getDeliveryMonitoring());
+				putString(target, i.getObsolescencePeriod());
+			}
+			putString(target, b2.getMessageType());
+			putString(target, b2.getMessagePriority());
+			putTexts(target, blockTexts(b2));
+		}
+		putTagBlock(target, msg.getBlock3());
+		putTagBlock(target, msg.getBlock4());
+		putTagBlock(target, msg.getBlock5());
+
+		final List<SwiftBlockUser> userBlocks = msg.getUserBlocks();
+		final int userBlocksCount = userBlocks != null ? userBlocks.size() : 0;
+		putVarint(target, userBlocksCount);
+		for (int i = 0; i < userBlocksCount; i++) {
+			final SwiftBlockUser b = userBlocks.get(i);
+			putString(target, b.getName());
+			putVarint(target, b.getSortKey() != null ? b.getSortKey() + 1 : 0);
+			putTagBlock(target, b);
+		}
+		putTexts(target, msg.getUnparsedTextsSize() > 0 ? msg.getUnparsedTexts().getTexts() : null);
+		return target.position() - start;
+	}
+
+	/**
+	 * Encodes the message into a new array of the exact encoded length.
+	 *
+	 * @param msg the message to encode
+	 * @return the encoded message
+	 * @throws IllegalArgumentException if the message is null
+	 */
+	public byte[] encode(final SwiftMessage msg) {
+		final byte[] bytes = new byte[encodedLength(msg)];
+		encode(msg, ByteBuffer.wrap(bytes));
+		return bytes;
+	}
+
+	/**
+	 * Computes the number of bytes {@link #encode(SwiftMessage, ByteBuffer)} will write for the message.
+	 *
+	 * @param msg the message to encode
+	 * @return the encoded length in bytes
+	 * @throws IllegalArgumentException if the message is null
+	 */
+	public int encodedLength(final SwiftMessage msg) {
+		Validate.notNull(msg, "message to encode cannot be null");
+		int length = MAGIC.length + 2;
+		final SwiftBlock1 b1 = msg.getBlock1();
+		if (b1 != null) {
+			length += stringLength(b1.getApplicationId()) + stringLength(b1.getServiceId()) + stringLength(b1.getLogicalTerminal())
+					+ stringLength(b1.getSessionNumber()) + stringLength(b1.getSequenceNumber()) + textsLength(blockTexts(b1));
+		}
+		final SwiftBlock2 b2 = msg.getBlock2();
+		if (b2 != null) {
+			length += 1;
+			if (b2 instanceof SwiftBlock2Output) {
+				final SwiftBlock2Output o = (SwiftBlock2Output) b2;
+				length += stringLength(o.getSenderInputTime()) + stringLength(o.getMIRDate()) + stringLength(o.getMIRLogicalTerminal())
+						+ stringLength(o.getMIRSessionNumber()) + stringLength(o.getMIRSequenceNumber())
+						+ stringLength(o.getReceiverOutputDate()) + stringLength(o.getReceiverOutputTime());
+			} else {
+				final SwiftBlock2Input i = (SwiftBlock2Input) b2;
+				length += stringLength(i.getReceiverAddress()) + stringLength(i.getDeliveryMonitoring()) + stringLength(i.getObsolescencePeriod());
+			}
+			length += stringLength(b2.getMessageType()) + stringLength(b2.getMessagePriority()) + textsLength(blockTexts(b2));
+		}
+		length += tagBlockLength(msg.getBlock3()) + tagBlockLength(msg.getBlock4()) + tagBlockLength(msg.getBlock5());
+
+		final List<SwiftBlockUser> userBlocks = msg.getUserBlocks();
+		final int userBlocksCount = userBlocks != null ? userBlocks.size() : 0;
+		length += varintLength(userBlocksCount);
+		for (int i = 0; i < userBlocksCount; i++) {
+			final SwiftBlockUser b = userBlocks.get(i);
+			length += stringLength(b.getName()) + varintLength(b.getSortKey() != null ? b.getSortKey() + 1 : 0) + tagBlockLength(b);
+		}
+		length += textsLength(msg.getUnparsedTextsSize() > 0 ? msg.getUnparsedTexts().getTexts() : null);
+		return length;
+	}
+
+	/**
+	 * Reads a message from the buffer, starting at its current position. When the method returns the buffer is
+	 * positioned after the decoded message, so several messages written in sequence can be read with subsequent calls.
+	 *
+	 * @param source the buffer to read from
+	 * @return the decoded message
+	 * @throws IllegalArgumentException if the buffer is null
+	 * @throws ProwideException if the content is not a valid encoded message or its format version is not supported
+	 */
+	public SwiftMessage decode(final ByteBuffer source) {
+		Validate.notNull(source, "source buffer cannot be null");
+		try {
+			for (final byte b : MAGIC) {
+				if (source.get() != b) {
+					throw new ProwideException("Invalid binary message, header not found");
+				}
+			}
+			final int version = source.get();
+			if (version != VERSION) {
+				throw new ProwideException("Unsupported binary message format version " + version);
+			}
+			final int mask = source.get();
+			final SwiftMessage msg = new SwiftMessage(false);
+			if ((mask & BLOCK1) != 0) {
+				final SwiftBlock1 b1 = new SwiftBlock1();
+				b1.setApplicationId(getString(source));
+				b1.setServiceId(getString(source));
+				b1.setLogicalTerminal(getString(source));
+				b1.setSessionNumber(getString(source));
+				b1.setSequenceNumber(getString(source));
+				b1.setUnparsedTexts(getTexts(source));
+				msg.setBlock1(b1);
+			}
+			if ((mask & BLOCK2) != 0) {
+				final SwiftBlock2 b2;
+				final int direction = source.get();
+				if (direction == 'O') {
+					final SwiftBlock2Output o = new SwiftBlock2Output();
+					o.setSenderInputTime(getString(source));
+					o.setMIRDate(getString(source));
+					o.setMIRLogicalTerminal(getString(source));
+					o.setMIRSessionNumber(getString(source));
+					o.setMIRSequenceNumber(getString(source));
+					o.setReceiverOutputDate(getString(source));
+					o.setReceiverOutputTime(getString(source));
+					b2 = o;
+				} else if (direction == 'I') {
+					final SwiftBlock2Input i = new SwiftBlock2Input();
+					i.setReceiverAddress(getString(source));
+					i.setDeliveryMonitoring(getString(source));
+					i.setObsolescencePeriod(getString(source));
+					b2 = i;
+				} else {
+					throw new ProwideException("Invalid binary message, unexpected block 2 direction " + direction);
+				}
+				b2.setMessageType(getString(source));
+				b2.setMessagePriority(getString(source));
+				b2.setUnparsedTexts(getTexts(source));
+				msg.setBlock2(b2);
+			}
+			if ((mask & BLOCK3) != 0) {
+				msg.setBlock3(getTagBlock(source, new SwiftBlock3()));
+			}
+			if ((mask & BLOCK4) != 0) {
+				msg.setBlock4(getTagBlock(source, new SwiftBlock4()));
+			}
+			if ((mask & BLOCK5) != 0) {
+				msg.setBlock5(getTagBlock(source, new SwiftBlock5()));
+			}
+			final int userBlocksCount = getVarint(source);
+			for (int i = 0; i < userBlocksCount; i++) {
+				final String name = getString(source);
+				final SwiftBlockUser b = name != null && SwiftBlockUser.isValidName(name) ? new SwiftBlockUser(name) : new SwiftBlockUser();
+				final int sortKey = getVarint(source);
+				if (sortKey > 0) {
+					b.setSortKey(sortKey - 1);
+				}
+				msg.addUserBlock(getTagBlock(source, b));
+			}
+			msg.setUnparsedTexts(getTexts(source));
+			return msg;
+		} catch (final BufferUnderflowException e) {
+			throw new ProwideException("Invalid binary message, unexpected end of content", e);
+		}
+	}
+
+	/**
+	 * Decodes a message from the array.
+	 *
+	 * @param bytes the encoded message
+	 * @return the decoded message
+	 * @throws IllegalArgumentException if the array is null
+	 * @throws ProwideException if the content is not a valid encoded message or its format version is not supported
+	 * @see #decode(ByteBuffer)
+	 */
+	public SwiftMessage decode(final byte[] bytes) {
+		Validate.notNull(bytes, "bytes to decode cannot be null");
+		return decode(ByteBuffer.wrap(bytes));
+	}
+
+	private static List<String> blockTexts(final SwiftBlock b) {
+		return b.getUnparsedTextsSize() > 0 ? b.getUnparsedTexts().getTexts() : null;
+	}
+
+	private static void putTagBlock(final ByteBuffer target, final SwiftTagListBlock b) {
+		if (b == null) {
+			return;
+		}
+		final List<Tag> tags = b.getTags();
+		putVarint(target, tags.size());
+		for (int i = 0; i < tags.size(); i++) {
+			final Tag t = tags.get(i);
+			final Integer index = t.getName() != null ? DICTIONARY_INDEX.get(t.getName()) : null;
+			if (index != null) {
+				putVarint(target, index);
+			} else {
+				target.put((byte) 0);
+				putString(target, t.getName());
+			}
+			putString(target, t.getValue());
+		}
+		putTexts(target, blockTexts(b));
+	}
+
+	private static int tagBlockLength(final SwiftTagListBlock b) {
+		if (b == null) {
+			return 0;
+		}
+		final List<Tag> tags = b.getTags();
+		int length = varintLength(tags.size());
+		for (int i = 0; i < tags.size(); i++) {
+			final Tag t = tags.get(i);
+			final Integer index = t.getName() != null ? DICTIONARY_INDEX.get(t.getName()) : null;
+			length += index != null ? varintLength(index) : 1 + stringLength(t.getName());
+			length += stringLength(t.getValue());
+		}
+		return length + textsLength(blockTexts(b));
+	}
+
+	private static <T extends SwiftTagListBlock> T getTagBlock(final ByteBuffer source, final T b) {
+		final int count = getVarint(source);
+		for (int i = 0; i < count; i++) {
+			final int index = getVarint(source);
+			final String name;
+			if (index == 0) {
+				name = getString(source);
+			} else if (index <= DICTIONARY.length) {
+				name = DICTIONARY[index - 1];
+			} else {
+				throw new ProwideException("Invalid binary message, unknown tag name index " + index);
+			}
+			final Tag t = new Tag();
+			t.setName(name);
+			t.setValue(getString(source));
+			b.append(t);
+		}
+		b.setUnparsedTexts(getTexts(source));
+		return b;
+	}
+
+	/**
+	 * Unparsed texts are written as the count plus one, with zero meaning no texts
+	 */
+	private static void putTexts(final ByteBuffer target, final List<String> texts) {
+		if (texts == null || texts.isEmpty()) {
+			target.put((byte) 0);
+			return;
+		}
+		putVarint(target, texts.size() + 1);
+		for (final String text : texts) {
+			putString(target, text);
+		}
+	}
+
+	private static int textsLength(final List<String> texts) {
+		if (texts == null || texts.isEmpty()) {
+			return 1;
+		}
+		int length = varintLength(texts.size() + 1);
+		for (final String text : texts) {
+			length += stringLength(text);
+		}
+		return length;
+	}
+
+	private static UnparsedTextList getTexts(final ByteBuffer source) {
+		final int count = getVarint(source) - 1;
+		if (count <= 0) {
+			return null;
+		}
+		final UnparsedTextList texts = new UnparsedTextList();
+		for (int i = 0; i < count; i++) {
+			texts.addText(getString(source));
+		}
+		return texts;
+	}
+
+	/**
+	 * Strings are written with a varint header, zero for null, or the byte length shifted left plus one, with the
+	 * lowest bit set when the content is UTF-8 instead of plain ASCII
+	 */
+	private static void putString(final ByteBuffer target, final String s) {
+		if (s == null) {
+			target.put((byte) 0);
+			return;
+		}
+		final int length = s.length();
+		if (isAscii(s)) {
+			putVarint(target, (length << 1) + 1);
+			for (int i = 0; i < length; i++) {
+				target.put((byte) s.charAt(i));
+			}
+		} else {
+			final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			putVarint(target, ((bytes.length << 1) | 1) + 1);
+			target.put(bytes);
+		}
+	}
+
+	private static int stringLength(final String s) {
+		if (s == null) {
+			return 1;
+		}
+		if (isAscii(s)) {
+			return varintLength((s.length() << 1) + 1) + s.length();
+		}
+		final int length = s.getBytes(StandardCharsets.UTF_8).length;
+		return varintLength(((length << 1) | 1) + 1) + length;
+	}
+
+	private static String getString(final ByteBuffer source) {
+		final int header = getVarint(source);
+		if (header == 0) {
+			return null;
+		}
+		final int length = (header - 1) >>> 1;
+		if (length > source.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		final boolean utf8 = ((header - 1) & 1) != 0;
+		final String s;
+		if (source.hasArray()) {
+			s = new String(source.array(), source.arrayOffset() + source.position(), length, utf8 ? StandardCharsets.UTF_8 : StandardCharsets.US_ASCII);
+			source.position(source.position() + length);
+		} else {
+			final byte[] bytes = new byte[length];
+			source.get(bytes);
+			s = new String(bytes, utf8 ? StandardCharsets.UTF_8 : StandardCharsets.US_ASCII);
+		}
+		return s;
+	}
+
+	private static boolean isAscii(final String s) {
+		for (int i = 0; i < s.length(); i++) {
+			if (s.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void putVarint(final ByteBuffer target, int value) {
+		while ((value & ~0x7F) != 0) {
+			target.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		target.put((byte) value);
+	}
+
+	private static int varintLength(final int value) {
+		int length = 1;
+		int v = value >>> 7;
+		while (v != 0) {
+			length++;
+			v >>>= 7;
+		}
+		return length;
+	}
+
+	private static int getVarint(final ByteBuffer source) {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			final byte b = source.get();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new ProwideException("Invalid binary message, malformed length");
+	}
+
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io;
+
+import com.prowidesoftware.ProwideException;
+import com.prowidesoftware.swift.model.MxSwiftMessage;
+import com.prowidesoftware.swift.model.mx.AbstractMX;
+import com.prowidesoftware.swift.utils.SafeXmlUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Helper class to read files with many MX messages, the MX counterpart of {@link RJEReader}.
+ *
+ * <p>The content can use any proprietary wrapper. The reader finds each AppHdr and Document element with StAX,
+ * wherever they are in the wrapper structure, and a header followed by a document is read as one message. A document
+ * without a preceding header, or a header not followed by a document, is read as a message on its own. Each element
+ * is copied into a new XML, declaring the namespaces inherited from the wrapper when used, and a message with both
+ * header and document is wrapped in a {@link AbstractMX#DEFAULT_ROOT_ELEMENT} element.
+ *
+ * <p>The messages are created as {@link MxSwiftMessage} by a pool of worker threads, while the file is being read,
+ * and the iterator returns them in the same order as in the file. The number of messages read ahead is bounded by
+ * twice the number of workers, so memory does not depend on the size of the file. Errors reading the XML are
+ * thrown as {@link ProwideException} from {@link #hasNext()} or {@link #next()}.
+ *
+ * <p>When the reader creates its own pool, it is shut down when the iteration ends or the reader is closed.
+ * Instances are not thread safe, the iteration must be done by a single thread.
+ *
+ * @since 8.0.2
+ */
+public class MxBatchReader implements Iterator<MxSwiftMessage>, Closeable {
+	private static final transient java.util.logging.Logger log = java.util.logging.Logger.getLogger(MxBatchReader.class.getName());
+
+	private static final String HEADER = "AppHdr";
+	private static final String DOCUMENT = "Document";
+
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+	static {
+		OUTPUT_FACTORY.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, true);
+	}
+
+	private final Reader source;
+	private final XMLStreamReader reader;
+	private final ExecutorService executor;
+	private final boolean ownExecutor;
+	private final int window;
+	private final ArrayDeque<Future<MxSwiftMessage>> pending = new ArrayDeque<>();
+
+	private String pendingHeader = null;
+	private boolean finished = false;
+
+	/**
+	 * Constructs a reader for the content of the parameter reader, using a pool with one worker per available processor
+	 * @throws IllegalArgumentException if the reader is null
+	 * @throws ProwideException if the StAX reader cannot be created
+	 */
+	public MxBatchReader(final Reader r) {
+		this(r, null);
+	}
+
+	/**
+	 * Constructs a reader for the content of the parameter reader, creating the messages in the given executor
+	 * @param r the source content
+	 * @param executor the worker pool to use, it is not shut down by this reader; if null a pool with one worker
+	 * 	per available processor is created
+	 * @throws IllegalArgumentException if the reader is null
+	 * @throws ProwideException if the StAX reader cannot be created
+	 */
+	public MxBatchReader(final Reader r, final ExecutorService executor) {
+		Validate.notNull(r, "reader must not be null");
+		this.source = r;
+		try {
+			this.reader = SafeXmlUtils.createXMLStreamReader(this.source);
+		} catch (final XMLStreamException e) {
+			throw new ProwideException("error reading MX batch", e);
+		}
+		if (executor != null) {
+			this.executor = executor;
+			this.ownExecutor = false;
+			this.window = 2 * Runtime.getRuntime().availableProcessors();
+		} else {
+			final int threads = Runtime.getRuntime().availableProcessors();
+			this.executor = Executors.newFixedThreadPool(threads, task -> {
+				final Thread t = new Thread(task, "MxBatchReader");
+				t.setDaemon(true);
+				return t;
+			});
+			this.ownExecutor = true;
+			this.window = 2 * threads;
+		}
+	}
+
+	/**
+	 * Constructs a reader to read messages from a string
+	 * @see #MxBatchReader(Reader)
+	 */
+	public MxBatchReader(final String string) {
+		this(new StringReader(Validate.notNull(string, "string must not be null")));
+	}
+
+	/**
+	 * Constructs a reader to read messages from a stream encoded in UTF-8
+	 * @see #MxBatchReader(Reader)
+	 */
+	public MxBatchReader(final InputStream stream) {
+		this(new InputStreamReader(Validate.notNull(stream, "stream must not be null"), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Constructs a reader to read messages from a file encoded in UTF-8
+	 * @throws FileNotFoundException if the file cannot be opened
+	 * @see #MxBatchReader(Reader)
+	 */
+	public MxBatchReader(final File file) throws FileNotFoundException {
+		this(new FileInputStream(Validate.notNull(file, "file must not be null")));
+	}
+
+	/**
+	 * @return true if there are more messages in the content
+	 * @throws ProwideException if the XML cannot be read
+	 */
+	@Override
+	public boolean hasNext() {
+		fill();
+		if (this.pending.isEmpty()) {
+			close();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the next message, waiting for its creation by the workers if necessary
+	 * @throws NoSuchElementException if there are no more messages
+	 * @throws ProwideException if the XML cannot be read or the message creation fails
+	 */
+	@Override
+	public MxSwiftMessage next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final Future<MxSwiftMessage> future = this.pending.poll();
+		fill();
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ProwideException("interrupted while waiting for MX message", e);
+		} catch (final ExecutionException e) {
+			throw new ProwideException("error creating MX message", e.getCause());
+		}
+	}
+
+	/**
+	 * Closes the source and shuts down the worker pool if it was created by this reader.
+	 * Messages not yet returned are discarded.
+	 */
+	@Override
+	public void close() {
+		if (this.ownExecutor) {
+			this.executor.shutdownNow();
+		}
+		this.finished = true;
+		try {
+			this.reader.close();
+			this.source.close();
+		} catch (final XMLStreamException | IOException e) {
+			log.log(java.util.logging.Level.FINE, "error closing MX batch source", e);
+		}
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("remove() not available in this implementation");
+	}
+
+	/**
+	 * Submits messages to the workers until the read ahead window is full or the content ends
+	 */
+	private void fill() {
+		while (!this.finished && this.pending.size() < this.window) {
+			final String xml = nextXml();
+			if (xml != null) {
+				this.pending.add(this.executor.submit(() -> new MxSwiftMessage(xml)));
+			}
+		}
+	}
+
+	/**
+	 * Reads up to the next complete message
+	 * @return the message XML or null if the content ended
+	 */
+	private String nextXml() {
+		try {
+			while (this.reader.hasNext()) {
+				final int event = this.reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					final String name = this.reader.getLocalName();
+					if (HEADER.equals(name)) {
+						final String header = element();
+						if (this.pendingHeader != null) {
+							final String result = this.pendingHeader;
+							this.pendingHeader = header;
+							return result;
+						}
+						this.pendingHeader = header;
+					} else if (DOCUMENT.equals(name)) {
+						final String document = element();
+						if (this.pendingHeader != null) {
+							final String result = "<" + AbstractMX.DEFAULT_ROOT_ELEMENT + ">" + this.pendingHeader + document + "</" + AbstractMX.DEFAULT_ROOT_ELEMENT + ">";
+							this.pendingHeader = null;
+							return result;
+						}
+						return document;
+					}
+				}
+			}
+		} catch (final XMLStreamException e) {
+			throw new ProwideException("error reading MX batch", e);
+		}
+		this.finished = true;
+		final String result = this.pendingHeader;
+		this.pendingHeader = null;
+		return result;
+	}
+
+	/**
+	 * Copies the current element into a new document and returns it as text. The writer repairs the namespaces, so
+	 * the prefixes declared in the enclosing elements are declared in the copy when used.
+	 */
+	private String element() throws XMLStreamException {
+		final StringWriter result = new StringWriter();
+		final XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(result);
+		int level = 0;
+		while (true) {
+			switch (this.reader.getEventType()) {
+				case XMLStreamConstants.START_ELEMENT:
+					level++;
+					writer.writeStartElement(StringUtils.defaultString(this.reader.getPrefix()), this.reader.getLocalName(), StringUtils.defaultString(this.reader.getNamespaceURI()));
+					for (int i = 0; i < this.reader.getNamespaceCount(); i++) {
+						writer.writeNamespace(StringUtils.defaultString(this.reader.getNamespacePrefix(i)), StringUtils.defaultString(this.reader.getNamespaceURI(i)));
+					}
+					for (int i = 0; i < this.reader.getAttributeCount(); i++) {
+						writer.writeAttribute(StringUtils.defaultString(this.reader.getAttributePrefix(i)), StringUtils.defaultString(this.reader.getAttributeNamespace(i)), this.reader.getAttributeLocalName(i), this.reader.getAttributeValue(i));
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					level--;
+					writer.writeEndElement();
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.SPACE:
+					writer.writeCharacters(this.reader.getText());
+					break;
+				case XMLStreamConstants.CDATA:
+					writer.writeCData(this.reader.getText());
+					break;
+				case XMLStreamConstants.COMMENT:
+					writer.writeComment(this.reader.getText());
+					break;
+				default:
+					break;
+			}
+			if (level == 0) {
+				break;
+			}
+			this.reader.next();
+		}
+		writer.close();
+		return result.toString();
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io;
+
+import com.google.gson.JsonParseException;
+import com.prowidesoftware.swift.model.SwiftMessage;
+import com.prowidesoftware.swift.utils.JsonUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.*;
+import java.util.logging.Logger;
+
+/**
+ * Reader for newline delimited JSON files, with one message JSON per line.
+ *
+ * <p>Each line can contain either the {@link SwiftMessage#toJson()} or the
+ * {@link com.prowidesoftware.swift.model.mt.AbstractMT#toJson()} structure, as written by {@link NDJsonWriter}.
+ * Blank lines are ignored.
+ *
+ * @see NDJsonWriter
+ * @since 8.0.2
+ */
+public class NDJsonReader extends AbstractReader {
+	private static final Logger log = Logger.getLogger(NDJsonReader.class.getName());
+
+	private BufferedReader lines;
+	private String nextLine = null;
+
+	/**
+	 * Constructs a NDJsonReader to read messages from a given Reader instance
+	 */
+	public NDJsonReader(final Reader r) {
+		super(r);
+	}
+
+	/**
+	 * Constructs a NDJsonReader to read messages from a string
+	 */
+	public NDJsonReader(final String string) {
+		super(string);
+	}
+
+	/**
+	 * Constructs a NDJsonReader to read messages from a stream
+	 */
+	public NDJsonReader(final InputStream stream) {
+		super(stream);
+	}
+
+	/**
+	 * Constructs a NDJsonReader to read messages from a file
+	 */
+	public NDJsonReader(final File file) throws FileNotFoundException {
+		super(file);
+	}
+
+	/**
+	 * Returns true if the iterator has more messages
+	 */
+	@Override
+	public boolean hasNext() {
+		if (this.reader == null) {
+			throw new IllegalStateException("reader is null");
+		}
+		if (this.lines == null) {
+			this.lines = this.reader instanceof BufferedReader ? (BufferedReader) this.reader : new BufferedReader(this.reader);
+		}
+		try {
+			while (this.nextLine == null) {
+				final String line = this.lines.readLine();
+				if (line == null) {
+					return false;
+				}
+				if (StringUtils.isNotBlank(line)) {
+					this.nextLine = line;
+				}
+			}
+		} catch (final IOException e) {
+			log.severe("IOException while reading: " + e);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the next message in the iterator in its raw JSON format
+	 */
+	@Override
+	public String next() {
+		if (!hasNext()) {
+			throw new java.util.NoSuchElementException("no more messages to read");
+		}
+		final String line = this.nextLine;
+		this.nextLine = null;
+		return line;
+	}
+
+	/**
+	 * Reads the next line and deserializes its JSON content into a message.
+	 *
+	 * @return parsed message or null if there are no more lines
+	 * @throws IOException if the line content cannot be parsed as a message JSON
+	 */
+	@Override
+	public SwiftMessage nextSwiftMessage() throws IOException {
+		if (!hasNext()) {
+			return null;
+		}
+		try {
+			return JsonUtils.gson().fromJson(next(), SwiftMessage.class);
+		} catch (final JsonParseException e) {
+			throw new IOException("Invalid message JSON: " + e.getMessage(), e);
+		}
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io;
+
+import com.google.gson.stream.JsonWriter;
+import com.prowidesoftware.swift.model.SwiftMessage;
+import com.prowidesoftware.swift.model.mt.AbstractMT;
+import com.prowidesoftware.swift.utils.JsonUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.io.*;
+
+/**
+ * Writer for newline delimited JSON files, with one message JSON per line.
+ *
+ * <p>Messages are streamed into the output with the shared Gson instance from {@link JsonUtils}, in the compact form
+ * of {@link SwiftMessage#toJson()} and {@link AbstractMT#toJson()}, without building the intermediate String.
+ *
+ * @see NDJsonReader
+ * @see AbstractWriter
+ * @since 8.0.2
+ */
+public class NDJsonWriter extends AbstractWriter {
+
+	private static final String MESSAGE_TO_WRITE_CONDITION = "message to write cannot be null";
+	private static final String WRITER_MESSAGE = "writer has not been initialized";
+
+	/**
+	 * Constructs a NDJsonWriter to write content into a given Writer instance.
+	 * @param writer
+	 */
+	public NDJsonWriter(final Writer writer) {
+		super(writer);
+	}
+
+	/**
+	 * Constructs a NDJsonWriter to write content into a file.
+	 * @param file
+	 * @throws FileNotFoundException
+	 */
+	public NDJsonWriter(final File file) throws FileNotFoundException {
+		super(file);
+	}
+
+	/**
+	 * Constructs a NDJsonWriter to write content into a file.
+	 * @param filename file to create
+	 * @throws FileNotFoundException
+	 */
+	public NDJsonWriter(final String filename) throws FileNotFoundException {
+		super(filename);
+	}
+
+	/**
+	 * Constructs a NDJsonWriter to write content into a given stream.
+	 * @param stream
+	 */
+	public NDJsonWriter(final OutputStream stream) {
+		super(stream);
+	}
+
+	/**
+	 * Writes the message JSON, as in {@link SwiftMessage#toJson()}, followed by a line break.
+	 * @param msg message to write
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void write(final SwiftMessage msg) throws IOException {
+		Validate.notNull(msg, MESSAGE_TO_WRITE_CONDITION);
+		write(msg, SwiftMessage.class);
+	}
+
+	/**
+	 * Writes the message JSON, as in {@link AbstractMT#toJson()}, followed by a line break.
+	 * @param msg message to write
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void write(final AbstractMT msg) throws IOException {
+		Validate.notNull(msg, MESSAGE_TO_WRITE_CONDITION);
+		write(msg, AbstractMT.class);
+	}
+
+	private void write(final Object msg, final Class<?> type) throws IOException {
+		Validate.notNull(this.writer, WRITER_MESSAGE);
+		final Writer w = charWriter();
+		final JsonWriter json = JsonUtils.gson().newJsonWriter(w);
+		JsonUtils.gson().toJson(msg, type, json);
+		w.write('\n');
+	}
+
+}
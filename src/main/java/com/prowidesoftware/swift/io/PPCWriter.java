@@ -23,6 +23,8 @@ import java.io.Writer;
 
 import org.apache.commons.lang3.Validate;
 
+import com.prowidesoftware.swift.io.writer.FINByteWriter;
+import com.prowidesoftware.swift.model.SwiftMessage;
 import com.prowidesoftware.swift.model.mt.AbstractMT;
 
 /**
@@ -80,7 +82,7 @@ public class PPCWriter extends AbstractWriter {
 	 * @throws IOException if an I/O error occurs
 	 */	
     public void write(final String msg) throws IOException {
-    	write(msg, super.writer);
+    	write(msg, charWriter());
     }
     
     /**
@@ -89,7 +91,34 @@ public class PPCWriter extends AbstractWriter {
      * @throws IOException if an I/O error occurs
      */
     public void write(final AbstractMT msg) throws IOException {
-    	write(msg, this.writer);
+    	Validate.notNull(msg, "message to write cannot be null");
+    	write(msg.getSwiftMessage());
+    }
+
+    /**
+     * Writes the message into the internal writer in DOS-PPC format.
+     * When this writer was created for a file or stream, the message is serialized directly into bytes
+     * and the sector padding is computed from the encoded length.
+     * @param msg message to write
+     * @throws IOException if an I/O error occurs
+     * @since 8.0.2
+     */
+    public void write(final SwiftMessage msg) throws IOException {
+    	Validate.notNull(msg, "message to write cannot be null");
+    	final OutputStream out = byteStream();
+    	if (out == null) {
+    		write(new ConversionService().getFIN(msg), this.writer);
+    		return;
+    	}
+    	final FINByteWriter fin = finWriter();
+    	final int length = fin.write(msg);
+    	out.write(PPCReader.BEGIN);
+    	fin.writeTo(out);
+    	out.write(PPCReader.END);
+    	final int pad = requiredPadding(length + 2);
+    	for (int i=0; i<pad; i++) {
+    		out.write(PPCReader.EMPTY);
+    	}
     }
     
     /**
@@ -15,7 +15,9 @@
  */
 package com.prowidesoftware.swift.io;
 
+import com.prowidesoftware.swift.io.writer.FINByteWriter;
 import com.prowidesoftware.swift.io.writer.FINWriterVisitor;
+import com.prowidesoftware.swift.model.SwiftMessage;
 import com.prowidesoftware.swift.model.mt.AbstractMT;
 import org.apache.commons.lang3.Validate;
 
@@ -77,7 +79,7 @@ public class RJEWriter extends AbstractWriter {
 	 * @throws IOException if an I/O error occurs
 	 */	
     public void write(final String msg) throws IOException {
-    	_write(msg, super.writer);
+    	_write(msg, charWriter());
     }
     
     /**
@@ -86,7 +88,35 @@ public class RJEWriter extends AbstractWriter {
      * @throws IOException if an I/O error occurs
      */
     public void write(final AbstractMT msg) throws IOException {
-    	_write(msg.message(), this.writer);
+    	Validate.notNull(msg, MESSAGE_TO_WRITE_CONDITION);
+    	write(msg.getSwiftMessage());
+    }
+
+    /**
+     * Writes the message into the internal writer in RJE format.
+     * When this writer was created for a file or stream, the message is serialized directly into bytes.
+     * @param msg message to write
+     * @throws IOException if an I/O error occurs
+     * @since 8.0.2
+     */
+    public void write(final SwiftMessage msg) throws IOException {
+    	Validate.notNull(msg, MESSAGE_TO_WRITE_CONDITION);
+    	final OutputStream out = byteStream();
+    	if (out == null) {
+    		_write(new ConversionService().getFIN(msg), this.writer);
+    		return;
+    	}
+    	final FINByteWriter fin = finWriter();
+    	fin.write(msg);
+    	if (count > 0) {
+    		out.write('\r');
+    		out.write('\n');
+    		out.write(splitChar);
+    		out.write('\r');
+    		out.write('\n');
+    	}
+    	fin.writeTo(out);
+    	count++;
     }
 
     private void _write(final String msg, final Writer writer) throws IOException {
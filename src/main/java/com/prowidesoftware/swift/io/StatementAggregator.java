@@ -0,0 +1,443 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io;
+
+import com.prowidesoftware.ProwideException;
+import com.prowidesoftware.swift.model.SwiftBlock4;
+import com.prowidesoftware.swift.model.SwiftMessage;
+import com.prowidesoftware.swift.model.Tag;
+import com.prowidesoftware.swift.model.field.Field61;
+import com.prowidesoftware.swift.model.field.Field86;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Joins the pages of multi-page MT940 and MT950 account statements read from an {@link AbstractReader}
+ * into logical statements.
+ *
+ * <p>Pages are linked by the account identification in field 25 and the statement number in field 28C,
+ * while the page number is taken from the second component of field 28C. A statement ends with the page
+ * containing the final closing balance (62F). Pages must be read in sequence, meaning the pages of a
+ * statement are not interleaved with pages of other statements; a page belonging to a different statement
+ * ends the current one, that is then reported as incomplete.
+ *
+ * <p>Only one page is kept in memory at a time. The statement lines (field 61 with its optional field 86)
+ * are exposed through an iterator that reads the following pages from the reader on demand, thus the
+ * statement and page details such as the closing balance or the missing pages are complete only after the
+ * lines have been iterated. Calling {@link #next()} before finishing the iteration of a statement skips its
+ * remaining lines.
+ *
+ * <p>Messages other than MT940 and MT950 found in the reader are ignored.
+ *
+ * @since 8.0.2
+ */
+public class StatementAggregator implements Iterator<StatementAggregator.Statement>, Iterable<StatementAggregator.Statement> {
+	private static final Logger log = Logger.getLogger(StatementAggregator.class.getName());
+
+	private final AbstractReader reader;
+
+	/**
+	 * Page read from the reader and not yet consumed by a statement
+	 */
+	private SwiftMessage lookahead;
+
+	/**
+	 * Statement being iterated
+	 */
+	private Statement current;
+
+	/**
+	 * Last ended statement, used to detect repeated pages after its final page
+	 */
+	private Statement lastStatement;
+
+	/**
+	 * Creates a new aggregator for the pages in the given reader
+	 * @param reader a reader with MT940 or MT950 messages
+	 */
+	public StatementAggregator(final AbstractReader reader) {
+		Validate.notNull(reader, "reader must not be null");
+		this.reader = reader;
+	}
+
+	/**
+	 * @return true if there are more pages to read and thus another statement
+	 */
+	@Override
+	public boolean hasNext() {
+		finishCurrent();
+		return peek() != null;
+	}
+
+	/**
+	 * Gets the next statement, skipping any remaining line of the previous one
+	 * @return the next statement
+	 * @throws NoSuchElementException if there are no more statements
+	 * @throws ProwideException if a page cannot be parsed
+	 */
+	@Override
+	public Statement next() {
+		finishCurrent();
+		final SwiftMessage page = peek();
+		if (page == null) {
+			throw new NoSuchElementException("no more statements");
+		}
+		lookahead = null;
+		current = new Statement(page);
+		return current;
+	}
+
+	@Override
+	public Iterator<Statement> iterator() {
+		return this;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("remove() not available in this implementation");
+	}
+
+	private void finishCurrent() {
+		if (current != null) {
+			while (current.nextLine() != null) {
+				// skip lines not consumed
+			}
+			current = null;
+		}
+		skipDuplicates();
+	}
+
+	/**
+	 * Drops pages repeated from a statement that was already completed
+	 */
+	private void skipDuplicates() {
+		if (lastStatement != null) {
+			SwiftMessage page;
+			while ((page = peek()) != null && lastStatement.isDuplicate(page)) {
+				lastStatement.duplicatePages.add(page(page));
+				lookahead = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns the next statement page, reading from the reader if necessary
+	 */
+	private SwiftMessage peek() {
+		while (lookahead == null && reader.hasNext()) {
+			final SwiftMessage m;
+			try {
+				m = reader.nextSwiftMessage();
+			} catch (final IOException e) {
+				throw new ProwideException("Error parsing statement page: " + e.getMessage(), e);
+			}
+			if (m != null) {
+				if (m.isType(940, 950)) {
+					lookahead = m;
+				} else {
+					log.fine("Ignoring MT" + m.getType() + " found in statement reader");
+				}
+			}
+		}
+		return lookahead;
+	}
+
+	private static String account(final SwiftMessage page) {
+		final SwiftBlock4 b4 = page.getBlock4();
+		final String account = b4.getTagValue("25");
+		return account != null ? account : b4.getTagValue("25P");
+	}
+
+	private static String statementNumber(final SwiftMessage page) {
+		return StringUtils.substringBefore(page.getBlock4().getTagValue("28C"), "/");
+	}
+
+	/**
+	 * Page number from field 28C, defaults to 1 when the page number is not present
+	 */
+	private static int page(final SwiftMessage page) {
+		final String number = StringUtils.substringAfter(page.getBlock4().getTagValue("28C"), "/");
+		try {
+			return StringUtils.isBlank(number) ? 1 : Integer.parseInt(number.trim());
+		} catch (final NumberFormatException e) {
+			log.warning("Invalid page number in field 28C: " + number);
+			return 1;
+		}
+	}
+
+	/**
+	 * A logical statement composed by one or more pages.
+	 */
+	public class Statement implements Iterable<Line> {
+		private final String type;
+		private final String reference;
+		private final String account;
+		private final String statementNumber;
+		private final Tag openingBalance;
+		private Tag closingBalance;
+		private int pageCount = 0;
+		private int lastPage = 0;
+		private boolean complete = false;
+		private boolean ended = false;
+		private final List<Integer> missingPages = new ArrayList<>();
+		private final List<Integer> duplicatePages = new ArrayList<>();
+
+		private List<Tag> tags;
+		private int index;
+
+		Statement(final SwiftMessage first) {
+			this.type = first.getType();
+			this.reference = first.getBlock4().getTagValue("20");
+			this.account = account(first);
+			this.statementNumber = statementNumber(first);
+			final SwiftBlock4 b4 = first.getBlock4();
+			final int i = b4.indexOfAnyFirst("60F", "60M");
+			this.openingBalance = i >= 0 ? b4.getTag(i) : null;
+			accept(first);
+		}
+
+		private boolean sameStatement(final SwiftMessage page) {
+			return StringUtils.equals(account, account(page)) && StringUtils.equals(statementNumber, statementNumber(page));
+		}
+
+		private boolean isDuplicate(final SwiftMessage page) {
+			return sameStatement(page) && page(page) <= lastPage;
+		}
+
+		private void accept(final SwiftMessage page) {
+			final int number = page(page);
+			for (int i = lastPage + 1; i < number; i++) {
+				missingPages.add(i);
+			}
+			lastPage = number;
+			pageCount++;
+			tags = page.getBlock4().getTags();
+			index = 0;
+			final SwiftBlock4 b4 = page.getBlock4();
+			final int i = b4.indexOfAnyFirst("62F", "62M");
+			if (i >= 0) {
+				closingBalance = b4.getTag(i);
+				complete = StringUtils.equals(closingBalance.getName(), "62F");
+			}
+		}
+
+		/**
+		 * Returns the next line, moving to the next page when the current one is exhausted
+		 * @return the next line or null if the statement has no more lines
+		 */
+		private Line nextLine() {
+			while (!ended) {
+				while (index < tags.size()) {
+					final Tag t = tags.get(index++);
+					if (StringUtils.equals(t.getName(), Field61.NAME)) {
+						Tag t86 = null;
+						if (index < tags.size() && StringUtils.equals(tags.get(index).getName(), Field86.NAME)) {
+							t86 = tags.get(index++);
+						}
+						return new Line(t, t86, lastPage);
+					}
+				}
+				nextPage();
+			}
+			return null;
+		}
+
+		private void nextPage() {
+			if (complete) {
+				end();
+				return;
+			}
+			SwiftMessage page;
+			while ((page = peek()) != null && sameStatement(page)) {
+				lookahead = null;
+				if (page(page) <= lastPage) {
+					duplicatePages.add(page(page));
+				} else {
+					accept(page);
+					return;
+				}
+			}
+			// reader exhausted or next page belongs to other statement
+			log.warning("Incomplete statement " + statementNumber + " for account " + account + ", last page read " + lastPage);
+			end();
+		}
+
+		private void end() {
+			ended = true;
+			tags = null;
+			lastStatement = this;
+		}
+
+		/**
+		 * Iterator over the statement lines, can be used only once.
+		 * Following pages are read from the underlying reader as the lines are consumed.
+		 */
+		@Override
+		public Iterator<Line> iterator() {
+			return new Iterator<Line>() {
+				private Line next = null;
+
+				@Override
+				public boolean hasNext() {
+					if (next == null) {
+						next = nextLine();
+					}
+					return next != null;
+				}
+
+				@Override
+				public Line next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException("no more statement lines");
+					}
+					final Line result = next;
+					next = null;
+					return result;
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException("remove() not available in this implementation");
+				}
+			};
+		}
+
+		/**
+		 * @return the message type of the first page, 940 or 950
+		 */
+		public String getType() {
+			return type;
+		}
+
+		/**
+		 * @return the transaction reference number (field 20) of the first page
+		 */
+		public String getReference() {
+			return reference;
+		}
+
+		/**
+		 * @return the account identification from field 25 or 25P
+		 */
+		public String getAccount() {
+			return account;
+		}
+
+		/**
+		 * @return the statement number from field 28C
+		 */
+		public String getStatementNumber() {
+			return statementNumber;
+		}
+
+		/**
+		 * @return the opening balance field (60F or 60M) of the first page
+		 */
+		public Tag getOpeningBalance() {
+			return openingBalance;
+		}
+
+		/**
+		 * @return the closing balance field (62F or 62M) of the last page read so far
+		 */
+		public Tag getClosingBalance() {
+			return closingBalance;
+		}
+
+		/**
+		 * @return the number of pages read so far, not including duplicates
+		 */
+		public int getPageCount() {
+			return pageCount;
+		}
+
+		/**
+		 * @return page numbers not found in the sequence of pages read so far
+		 */
+		public List<Integer> getMissingPages() {
+			return Collections.unmodifiableList(missingPages);
+		}
+
+		/**
+		 * @return page numbers found more than once, the repeated pages are skipped
+		 */
+		public List<Integer> getDuplicatePages() {
+			return Collections.unmodifiableList(duplicatePages);
+		}
+
+		/**
+		 * @return true if the final page, with the closing balance 62F, has been read and no pages are missing
+		 */
+		public boolean isComplete() {
+			return complete && missingPages.isEmpty();
+		}
+	}
+
+	/**
+	 * A statement line: field 61 and its optional information to account owner field 86.
+	 */
+	public static class Line {
+		private final Tag tag61;
+		private final Tag tag86;
+		private final int page;
+
+		Line(final Tag tag61, final Tag tag86, final int page) {
+			this.tag61 = tag61;
+			this.tag86 = tag86;
+			this.page = page;
+		}
+
+		/**
+		 * @return the statement line field as Tag
+		 */
+		public Tag getTag61() {
+			return tag61;
+		}
+
+		/**
+		 * @return the information to account owner as Tag, or null if the line has no field 86
+		 */
+		public Tag getTag86() {
+			return tag86;
+		}
+
+		/**
+		 * @return a new Field61 created from the statement line
+		 */
+		public Field61 getField61() {
+			return new Field61(tag61.getValue());
+		}
+
+		/**
+		 * @return a new Field86 created from the information to account owner or null if the line has no field 86
+		 */
+		public Field86 getField86() {
+			return tag86 == null ? null : new Field86(tag86.getValue());
+		}
+
+		/**
+		 * @return the number of the page containing this line
+		 */
+		public int getPage() {
+			return page;
+		}
+	}
+
+}
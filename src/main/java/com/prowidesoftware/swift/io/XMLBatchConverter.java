@@ -0,0 +1,151 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io;
+
+import com.prowidesoftware.swift.io.parser.XMLParser;
+import com.prowidesoftware.swift.io.writer.XMLWriterVisitor;
+import com.prowidesoftware.swift.model.SwiftMessage;
+import com.prowidesoftware.swift.utils.SafeXmlUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Converts batches of MT messages between RJE format and the internal XML representation
+ * (see {@link ConversionService#getXml(SwiftMessage)}).
+ *
+ * <p>All the messages in the RJE content are written into a single XML document, with a &lt;messages&gt; root
+ * element containing a &lt;message&gt; element for each message, and vice versa. The conversion is streamed in
+ * both directions, only one message is held in memory at a time, so it can be used for files of any size.
+ *
+ * <p>The reader and writer passed as parameters are not closed.
+ *
+ * @since 8.0.2
+ */
+public class XMLBatchConverter {
+	private static final transient java.util.logging.Logger log = java.util.logging.Logger.getLogger(XMLBatchConverter.class.getName());
+
+	/**
+	 * Name of the root element containing the messages in the XML document
+	 */
+	public static final String ROOT = "messages";
+
+	private static final String EOL = System.getProperties().getProperty("line.separator", "\n");
+	private boolean useField = false;
+
+	/**
+	 * Writes all messages from the RJE content into a single XML document.
+	 * Blank messages are ignored.
+	 *
+	 * @param rje the RJE content to read
+	 * @param xml the writer for the XML document
+	 * @return the number of converted messages
+	 * @throws IOException if an I/O error occurs or any message cannot be parsed
+	 * @throws IllegalArgumentException if any of the parameters is null
+	 */
+	public int rjeToXml(final Reader rje, final Writer xml) throws IOException {
+		Validate.notNull(rje, "RJE reader cannot be null");
+		Validate.notNull(xml, "XML writer cannot be null");
+		final RJEReader reader = new RJEReader(rje);
+		final XMLStreamWriter w = XMLWriterVisitor.createXMLStreamWriter(xml);
+		final XMLWriterVisitor visitor = new XMLWriterVisitor(w, this.useField);
+		int count = 0;
+		try {
+			w.writeStartElement(ROOT);
+			for (final String fin : reader) {
+				final SwiftMessage m = parse(fin);
+				if (m != null) {
+					w.writeCharacters(EOL);
+					m.visit(visitor);
+					count++;
+				}
+			}
+			w.writeCharacters(EOL);
+			w.writeEndElement();
+			w.flush();
+		} catch (final XMLStreamException e) {
+			throw new IOException("Error writing XML", e);
+		}
+		if (log.isLoggable(java.util.logging.Level.FINE)) {
+			log.fine(count + " messages converted from RJE into XML");
+		}
+		return count;
+	}
+
+	/**
+	 * Writes all &lt;message&gt; elements found in the XML document as a sequence of messages in RJE format.
+	 *
+	 * @param xml the XML document to read
+	 * @param rje the writer for the RJE content
+	 * @return the number of converted messages
+	 * @throws IOException if an I/O error occurs or the XML cannot be read
+	 * @throws IllegalArgumentException if any of the parameters is null
+	 */
+	public int xmlToRje(final Reader xml, final Writer rje) throws IOException {
+		Validate.notNull(xml, "XML reader cannot be null");
+		Validate.notNull(rje, "RJE writer cannot be null");
+		final RJEWriter writer = new RJEWriter(rje);
+		final XMLParser parser = new XMLParser();
+		int count = 0;
+		try {
+			final XMLStreamReader reader = SafeXmlUtils.createXMLStreamReader(xml);
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT && "message".equals(reader.getLocalName())) {
+					writer.write(parser.parse(reader));
+					count++;
+				}
+			}
+			reader.close();
+		} catch (final XMLStreamException e) {
+			throw new IOException("Error reading XML", e);
+		}
+		writer.flush();
+		if (log.isLoggable(java.util.logging.Level.FINE)) {
+			log.fine(count + " messages converted from XML into RJE");
+		}
+		return count;
+	}
+
+	private static SwiftMessage parse(final String fin) throws IOException {
+		if (StringUtils.isBlank(fin)) {
+			log.warning("Ignoring blank message");
+			return null;
+		}
+		return SwiftMessage.parse(fin);
+	}
+
+	/**
+	 * @return true if the text block fields are written as {@link com.prowidesoftware.swift.model.field.Field} with their components
+	 */
+	public boolean isUseField() {
+		return useField;
+	}
+
+	/**
+	 * @param useField true to write the text block fields with their components instead of plain tags (false by default)
+	 */
+	public void setUseField(final boolean useField) {
+		this.useField = useField;
+	}
+
+}
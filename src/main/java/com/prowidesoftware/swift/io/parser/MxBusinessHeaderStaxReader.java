@@ -0,0 +1,851 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io.parser;
+
+import com.prowidesoftware.swift.model.mx.BusinessHeader;
+import com.prowidesoftware.swift.model.mx.dic.*;
+import com.prowidesoftware.swift.utils.SafeXmlUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Non-public helper class used by {@link MxParser} to bind the business header in its two variants directly from a
+ * StAX reader, without building an {@link com.prowidesoftware.swift.model.MxNode} tree or using JAXB.
+ *
+ * <p>The binding covers all the elements of the {@link ApplicationHeader} and {@link BusinessApplicationHeaderV01}
+ * models. Elements are matched by local name, unknown elements are skipped. As in the {@link MxBusinessHeaderParser},
+ * invalid dates, booleans and codes are logged and left unset. The signature content is kept as a DOM element, or
+ * as its text when it has no nested elements.
+ *
+ * @since 8.0.2
+ */
+final class MxBusinessHeaderStaxReader {
+	private static final transient Logger log = Logger.getLogger(MxBusinessHeaderStaxReader.class.getName());
+
+	private static final DatatypeFactory DATATYPE_FACTORY = datatypeFactory();
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+	static {
+		OUTPUT_FACTORY.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, true);
+	}
+
+	private MxBusinessHeaderStaxReader() {
+	}
+
+	/**
+	 * Reads the header from the reader positioned at the AppHdr start element, leaving it positioned at the
+	 * corresponding end element.
+	 *
+	 * <p>The header is read as {@link ApplicationHeader} if the element is in the {@link BusinessHeader#NAMESPACE_AH}
+	 * namespace, or if it contains a From element at any level, as done by {@link MxParser#parseBusinessHeader()}
+	 * before the StAX binding. Otherwise it is read as a {@link BusinessApplicationHeaderV01}. The headers in the
+	 * {@link BusinessHeader#NAMESPACE_AH} and {@link BusinessHeader#NAMESPACE_BAH} namespaces are bound directly from
+	 * the reader, a From element in the ISO header is not part of its model and is ignored. Since the From element
+	 * can be anywhere in the header, when the namespace is missing or any other, for example a different header
+	 * version, the header is first copied into a buffer, and the model is bound from the copy.
+	 *
+	 * @throws XMLStreamException if the content is not well formed
+	 */
+	static BusinessHeader read(final XMLStreamReader reader) throws XMLStreamException {
+		if (StringUtils.equals(reader.getNamespaceURI(), BusinessHeader.NAMESPACE_AH)) {
+			return new BusinessHeader(applicationHeader(reader, nextChild(reader)));
+		}
+		if (StringUtils.equals(reader.getNamespaceURI(), BusinessHeader.NAMESPACE_BAH)) {
+			return new BusinessHeader(businessApplicationHeader(reader, nextChild(reader)));
+		}
+		final StringWriter buffer = new StringWriter();
+		final boolean from = copy(reader, buffer);
+		final XMLStreamReader copy = SafeXmlUtils.createXMLStreamReader(new StringReader(buffer.toString()));
+		try {
+			copy.nextTag();
+			final boolean child = nextChild(copy);
+			if (from) {
+				return new BusinessHeader(applicationHeader(copy, child));
+			}
+			return new BusinessHeader(businessApplicationHeader(copy, child));
+		} finally {
+			copy.close();
+		}
+	}
+
+	/**
+	 * Copies the current element into the writer, leaving the reader at the corresponding end element. The writer
+	 * repairs the namespaces, so the prefixes declared in the enclosing elements are declared in the copy when used.
+	 *
+	 * @return true if the copied content contains a From element
+	 */
+	private static boolean copy(final XMLStreamReader reader, final Writer out) throws XMLStreamException {
+		final XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out);
+		boolean from = false;
+		int level = 0;
+		while (true) {
+			switch (reader.getEventType()) {
+				case XMLStreamConstants.START_ELEMENT:
+					level++;
+					from |= StringUtils.equalsIgnoreCase(reader.getLocalName(), "From");
+					writer.writeStartElement(StringUtils.defaultString(reader.getPrefix()), reader.getLocalName(), StringUtils.defaultString(reader.getNamespaceURI()));
+					for (int i = 0; i < reader.getNamespaceCount(); i++) {
+						writer.writeNamespace(StringUtils.defaultString(reader.getNamespacePrefix(i)), StringUtils.defaultString(reader.getNamespaceURI(i)));
+					}
+					for (int i = 0; i < reader.getAttributeCount(); i++) {
+						writer.writeAttribute(StringUtils.defaultString(reader.getAttributePrefix(i)), StringUtils.defaultString(reader.getAttributeNamespace(i)), reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					level--;
+					writer.writeEndElement();
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.SPACE:
+					writer.writeCharacters(reader.getText());
+					break;
+				case XMLStreamConstants.CDATA:
+					writer.writeCData(reader.getText());
+					break;
+				default:
+					break;
+			}
+			if (level == 0) {
+				break;
+			}
+			reader.next();
+		}
+		writer.close();
+		return from;
+	}
+
+	/*
+	 * SWIFT application header
+	 */
+
+	private static ApplicationHeader applicationHeader(final XMLStreamReader reader, final boolean first) throws XMLStreamException {
+		final ApplicationHeader h = new ApplicationHeader();
+		for (boolean child = first; child; child = nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "From":
+					h.setFrom(entityIdentification(reader));
+					break;
+				case "To":
+					h.setTo(entityIdentification(reader));
+					break;
+				case "SvcName":
+					h.setSvcName(text(reader));
+					break;
+				case "MsgName":
+					h.setMsgName(text(reader));
+					break;
+				case "MsgRef":
+					h.setMsgRef(text(reader));
+					break;
+				case "CrDate":
+					h.setCrDate(dateTime(reader));
+					break;
+				case "Dup":
+					h.setDup(duplicateIndication(reader));
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return h;
+	}
+
+	private static EntityIdentification entityIdentification(final XMLStreamReader reader) throws XMLStreamException {
+		final EntityIdentification e = new EntityIdentification();
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "Type":
+					e.setType(text(reader));
+					break;
+				case "Id":
+					e.setId(text(reader));
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return e;
+	}
+
+	private static DuplicateIndication duplicateIndication(final XMLStreamReader reader) throws XMLStreamException {
+		final DuplicateIndication d = new DuplicateIndication();
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "Ref":
+					d.setRef(text(reader));
+					break;
+				case "Info":
+					d.setInfo(text(reader));
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return d;
+	}
+
+	/*
+	 * ISO business application header
+	 */
+
+	private static BusinessApplicationHeaderV01 businessApplicationHeader(final XMLStreamReader reader, final boolean first) throws XMLStreamException {
+		final BusinessApplicationHeaderV01 h = new BusinessApplicationHeaderV01();
+		for (boolean child = first; child; child = nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "CharSet":
+					h.setCharSet(text(reader));
+					break;
+				case "Fr":
+					h.setFr(party9Choice(reader));
+					break;
+				case "To":
+					h.setTo(party9Choice(reader));
+					break;
+				case "BizMsgIdr":
+					h.setBizMsgIdr(text(reader));
+					break;
+				case "MsgDefIdr":
+					h.setMsgDefIdr(text(reader));
+					break;
+				case "BizSvc":
+					h.setBizSvc(text(reader));
+					break;
+				case "CreDt":
+					h.setCreDt(dateTime(reader));
+					break;
+				case "CpyDplct":
+					h.setCpyDplct(copyDuplicate(reader));
+					break;
+				case "PssblDplct":
+					h.setPssblDplct(bool(reader));
+					break;
+				case "Prty":
+					h.setPrty(text(reader));
+					break;
+				case "Sgntr":
+					h.setSgntr(signatureEnvelope(reader));
+					break;
+				case "Rltd":
+					h.setRltd(businessApplicationHeader1(reader));
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return h;
+	}
+
+	private static BusinessApplicationHeader1 businessApplicationHeader1(final XMLStreamReader reader) throws XMLStreamException {
+		final BusinessApplicationHeader1 h = new BusinessApplicationHeader1();
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "CharSet":
+					h.setCharSet(text(reader));
+					break;
+				case "Fr":
+					h.setFr(party9Choice(reader));
+					break;
+				case "To":
+					h.setTo(party9Choice(reader));
+					break;
+				case "BizMsgIdr":
+					h.setBizMsgIdr(text(reader));
+					break;
+				case "MsgDefIdr":
+					h.setMsgDefIdr(text(reader));
+					break;
+				case "BizSvc":
+					h.setBizSvc(text(reader));
+					break;
+				case "CreDt":
+					h.setCreDt(dateTime(reader));
+					break;
+				case "CpyDplct":
+					h.setCpyDplct(copyDuplicate(reader));
+					break;
+				case "PssblDplct":
+					h.setPssblDplct(bool(reader));
+					break;
+				case "Prty":
+					h.setPrty(text(reader));
+					break;
+				case "Sgntr":
+					h.setSgntr(signatureEnvelope(reader));
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return h;
+	}
+
+	private static Party9Choice party9Choice(final XMLStreamReader reader) throws XMLStreamException {
+		final Party9Choice p = new Party9Choice();
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "OrgId":
+					p.setOrgId(partyIdentification42(reader));
+					break;
+				case "FIId":
+					p.setFIId(branchAndFinancialInstitutionIdentification5(reader));
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return p;
+	}
+
+	private static PartyIdentification42 partyIdentification42(final XMLStreamReader reader) throws XMLStreamException {
+		final PartyIdentification42 p = new PartyIdentification42();
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "Nm":
+					p.setNm(text(reader));
+					break;
+				case "PstlAdr":
+					p.setPstlAdr(postalAddress6(reader));
+					break;
+				case "Id":
+					p.setId(party10Choice(reader));
+					break;
+				case "CtryOfRes":
+					p.setCtryOfRes(text(reader));
+					break;
+				case "CtctDtls":
+					p.setCtctDtls(contactDetails2(reader));
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return p;
+	}
+
+	private static BranchAndFinancialInstitutionIdentification5 branchAndFinancialInstitutionIdentification5(final XMLStreamReader reader) throws XMLStreamException {
+		final BranchAndFinancialInstitutionIdentification5 b = new BranchAndFinancialInstitutionIdentification5();
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "FinInstnId":
+					b.setFinInstnId(financialInstitutionIdentification8(reader));
+					break;
+				case "BrnchId":
+					b.setBrnchId(branchData2(reader));
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return b;
+	}
+
+	private static FinancialInstitutionIdentification8 financialInstitutionIdentification8(final XMLStreamReader reader) throws XMLStreamException {
+		final FinancialInstitutionIdentification8 f = new FinancialInstitutionIdentification8();
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "BICFI":
+					f.setBICFI(text(reader));
+					break;
+				case "ClrSysMmbId":
+					f.setClrSysMmbId(clearingSystemMemberIdentification2(reader));
+					break;
+				case "Nm":
+					f.setNm(text(reader));
+					break;
+				case "PstlAdr":
+					f.setPstlAdr(postalAddress6(reader));
+					break;
+				case "Othr":
+					f.setOthr(genericFinancialIdentification1(reader));
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return f;
+	}
+
+	private static ClearingSystemMemberIdentification2 clearingSystemMemberIdentification2(final XMLStreamReader reader) throws XMLStreamException {
+		final ClearingSystemMemberIdentification2 c = new ClearingSystemMemberIdentification2();
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "ClrSysId":
+					final ClearingSystemIdentification2Choice id = new ClearingSystemIdentification2Choice();
+					while (nextChild(reader)) {
+						switch (reader.getLocalName()) {
+							case "Cd":
+								id.setCd(text(reader));
+								break;
+							case "Prtry":
+								id.setPrtry(text(reader));
+								break;
+							default:
+								skip(reader);
+						}
+					}
+					c.setClrSysId(id);
+					break;
+				case "MmbId":
+					c.setMmbId(text(reader));
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return c;
+	}
+
+	private static GenericFinancialIdentification1 genericFinancialIdentification1(final XMLStreamReader reader) throws XMLStreamException {
+		final GenericFinancialIdentification1 g = new GenericFinancialIdentification1();
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "Id":
+					g.setId(text(reader));
+					break;
+				case "SchmeNm":
+					final FinancialIdentificationSchemeName1Choice schmeNm = new FinancialIdentificationSchemeName1Choice();
+					while (nextChild(reader)) {
+						switch (reader.getLocalName()) {
+							case "Cd":
+								schmeNm.setCd(text(reader));
+								break;
+							case "Prtry":
+								schmeNm.setPrtry(text(reader));
+								break;
+							default:
+								skip(reader);
+						}
+					}
+					g.setSchmeNm(schmeNm);
+					break;
+				case "Issr":
+					g.setIssr(text(reader));
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return g;
+	}
+
+	private static BranchData2 branchData2(final XMLStreamReader reader) throws XMLStreamException {
+		final BranchData2 b = new BranchData2();
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "Id":
+					b.setId(text(reader));
+					break;
+				case "Nm":
+					b.setNm(text(reader));
+					break;
+				case "PstlAdr":
+					b.setPstlAdr(postalAddress6(reader));
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return b;
+	}
+
+	private static PostalAddress6 postalAddress6(final XMLStreamReader reader) throws XMLStreamException {
+		final PostalAddress6 a = new PostalAddress6();
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "AdrTp":
+					final String adrTp = text(reader);
+					try {
+						a.setAdrTp(AddressType2Code.fromValue(adrTp));
+					} catch (final IllegalArgumentException e) {
+						log.warning("exception " + e + " parsing header AdrTp [" + adrTp + "]");
+					}
+					break;
+				case "Dept":
+					a.setDept(text(reader));
+					break;
+				case "SubDept":
+					a.setSubDept(text(reader));
+					break;
+				case "StrtNm":
+					a.setStrtNm(text(reader));
+					break;
+				case "BldgNb":
+					a.setBldgNb(text(reader));
+					break;
+				case "PstCd":
+					a.setPstCd(text(reader));
+					break;
+				case "TwnNm":
+					a.setTwnNm(text(reader));
+					break;
+				case "CtrySubDvsn":
+					a.setCtrySubDvsn(text(reader));
+					break;
+				case "Ctry":
+					a.setCtry(text(reader));
+					break;
+				case "AdrLine":
+					a.getAdrLine().add(text(reader));
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return a;
+	}
+
+	private static Party10Choice party10Choice(final XMLStreamReader reader) throws XMLStreamException {
+		final Party10Choice p = new Party10Choice();
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "OrgId":
+					p.setOrgId(organisationIdentification7(reader));
+					break;
+				case "PrvtId":
+					p.setPrvtId(personIdentification5(reader));
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return p;
+	}
+
+	private static OrganisationIdentification7 organisationIdentification7(final XMLStreamReader reader) throws XMLStreamException {
+		final OrganisationIdentification7 o = new OrganisationIdentification7();
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "AnyBIC":
+					o.setAnyBIC(text(reader));
+					break;
+				case "Othr":
+					final GenericOrganisationIdentification1 othr = new GenericOrganisationIdentification1();
+					while (nextChild(reader)) {
+						switch (reader.getLocalName()) {
+							case "Id":
+								othr.setId(text(reader));
+								break;
+							case "SchmeNm":
+								final OrganisationIdentificationSchemeName1Choice schmeNm = new OrganisationIdentificationSchemeName1Choice();
+								while (nextChild(reader)) {
+									switch (reader.getLocalName()) {
+										case "Cd":
+											schmeNm.setCd(text(reader));
+											break;
+										case "Prtry":
+											schmeNm.setPrtry(text(reader));
+											break;
+										default:
+											skip(reader);
+									}
+								}
+								othr.setSchmeNm(schmeNm);
+								break;
+							case "Issr":
+								othr.setIssr(text(reader));
+								break;
+							default:
+								skip(reader);
+						}
+					}
+					o.getOthr().add(othr);
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return o;
+	}
+
+	private static PersonIdentification5 personIdentification5(final XMLStreamReader reader) throws XMLStreamException {
+		final PersonIdentification5 p = new PersonIdentification5();
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "DtAndPlcOfBirth":
+					p.setDtAndPlcOfBirth(dateAndPlaceOfBirth(reader));
+					break;
+				case "Othr":
+					final GenericPersonIdentification1 othr = new GenericPersonIdentification1();
+					while (nextChild(reader)) {
+						switch (reader.getLocalName()) {
+							case "Id":
+								othr.setId(text(reader));
+								break;
+							case "SchmeNm":
+								final PersonIdentificationSchemeName1Choice schmeNm = new PersonIdentificationSchemeName1Choice();
+								while (nextChild(reader)) {
+									switch (reader.getLocalName()) {
+										case "Cd":
+											schmeNm.setCd(text(reader));
+											break;
+										case "Prtry":
+											schmeNm.setPrtry(text(reader));
+											break;
+										default:
+											skip(reader);
+									}
+								}
+								othr.setSchmeNm(schmeNm);
+								break;
+							case "Issr":
+								othr.setIssr(text(reader));
+								break;
+							default:
+								skip(reader);
+						}
+					}
+					p.getOthr().add(othr);
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return p;
+	}
+
+	private static DateAndPlaceOfBirth dateAndPlaceOfBirth(final XMLStreamReader reader) throws XMLStreamException {
+		final DateAndPlaceOfBirth d = new DateAndPlaceOfBirth();
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "BirthDt":
+					d.setBirthDt(dateTime(reader));
+					break;
+				case "PrvcOfBirth":
+					d.setPrvcOfBirth(text(reader));
+					break;
+				case "CityOfBirth":
+					d.setCityOfBirth(text(reader));
+					break;
+				case "CtryOfBirth":
+					d.setCtryOfBirth(text(reader));
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return d;
+	}
+
+	private static ContactDetails2 contactDetails2(final XMLStreamReader reader) throws XMLStreamException {
+		final ContactDetails2 c = new ContactDetails2();
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "NmPrfx":
+					final String nmPrfx = text(reader);
+					try {
+						c.setNmPrfx(NamePrefix1Code.fromValue(nmPrfx));
+					} catch (final IllegalArgumentException e) {
+						log.warning("exception " + e + " parsing header NmPrfx [" + nmPrfx + "]");
+					}
+					break;
+				case "Nm":
+					c.setNm(text(reader));
+					break;
+				case "PhneNb":
+					c.setPhneNb(text(reader));
+					break;
+				case "MobNb":
+					c.setMobNb(text(reader));
+					break;
+				case "FaxNb":
+					c.setFaxNb(text(reader));
+					break;
+				case "EmailAdr":
+					c.setEmailAdr(text(reader));
+					break;
+				case "Othr":
+					c.setOthr(text(reader));
+					break;
+				default:
+					skip(reader);
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * The signature is kept as a DOM element when present, as done by JAXB for the lax any content, otherwise the
+	 * element text is kept
+	 */
+	private static SignatureEnvelope signatureEnvelope(final XMLStreamReader reader) throws XMLStreamException {
+		final SignatureEnvelope s = new SignatureEnvelope();
+		final StringBuilder text = new StringBuilder();
+		while (reader.hasNext()) {
+			final int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				if (s.getAny() == null) {
+					final Document doc = SafeXmlUtils.reusableDocumentBuilder(true).newDocument();
+					s.setAny(element(reader, doc));
+				} else {
+					skip(reader);
+				}
+			} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+				text.append(reader.getText());
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				break;
+			}
+		}
+		if (s.getAny() == null && text.length() > 0) {
+			s.setAny(text.toString());
+		}
+		return s;
+	}
+
+	/**
+	 * Copies the current element and its content into a DOM element
+	 */
+	private static Element element(final XMLStreamReader reader, final Document doc) throws XMLStreamException {
+		final Element e = doc.createElementNS(StringUtils.trimToNull(reader.getNamespaceURI()), qualifiedName(reader.getPrefix(), reader.getLocalName()));
+		for (int i = 0; i < reader.getNamespaceCount(); i++) {
+			final String prefix = reader.getNamespacePrefix(i);
+			e.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, StringUtils.isEmpty(prefix) ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix, reader.getNamespaceURI(i));
+		}
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			e.setAttributeNS(StringUtils.trimToNull(reader.getAttributeNamespace(i)), qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+		}
+		while (reader.hasNext()) {
+			final int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				e.appendChild(element(reader, doc));
+			} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) {
+				final Node last = e.getLastChild();
+				if (last != null && last.getNodeType() == Node.TEXT_NODE) {
+					last.setNodeValue(last.getNodeValue() + reader.getText());
+				} else {
+					e.appendChild(doc.createTextNode(reader.getText()));
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				break;
+			}
+		}
+		return e;
+	}
+
+	private static String qualifiedName(final String prefix, final String localName) {
+		return StringUtils.isEmpty(prefix) ? localName : prefix + ":" + localName;
+	}
+
+	private static XMLGregorianCalendar dateTime(final XMLStreamReader reader) throws XMLStreamException {
+		final String value = text(reader);
+		try {
+			return DATATYPE_FACTORY.newXMLGregorianCalendar(StringUtils.trim(value));
+		} catch (final IllegalArgumentException | NullPointerException e) {
+			log.warning("exception " + e + " parsing header date [" + value + "]");
+			return null;
+		}
+	}
+
+	private static Boolean bool(final XMLStreamReader reader) throws XMLStreamException {
+		final String value = StringUtils.trim(text(reader));
+		if ("true".equals(value) || "1".equals(value)) {
+			return Boolean.TRUE;
+		}
+		if ("false".equals(value) || "0".equals(value)) {
+			return Boolean.FALSE;
+		}
+		log.warning("invalid boolean parsing header PssblDplct [" + value + "]");
+		return null;
+	}
+
+	private static CopyDuplicate1Code copyDuplicate(final XMLStreamReader reader) throws XMLStreamException {
+		final String value = text(reader);
+		try {
+			return CopyDuplicate1Code.fromValue(value);
+		} catch (final IllegalArgumentException e) {
+			log.warning("exception " + e + " parsing header CpyDplct [" + value + "]");
+			return null;
+		}
+	}
+
+	/**
+	 * Reads the text content of the current element, leaving the reader at its end element. Unlike
+	 * {@link XMLStreamReader#getElementText()}, nested elements are skipped instead of failing, so an unexpected
+	 * markup inside a value does not discard the whole header.
+	 */
+	private static String text(final XMLStreamReader reader) throws XMLStreamException {
+		final StringBuilder text = new StringBuilder();
+		while (reader.hasNext()) {
+			final int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				skip(reader);
+			} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+					|| event == XMLStreamConstants.SPACE || event == XMLStreamConstants.ENTITY_REFERENCE) {
+				text.append(reader.getText());
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				break;
+			}
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Moves to the next child of the current element
+	 * @return true if positioned at the start of a child element, false if positioned at the end of the current element
+	 */
+	private static boolean nextChild(final XMLStreamReader reader) throws XMLStreamException {
+		while (reader.hasNext()) {
+			final int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				return true;
+			}
+			if (event == XMLStreamConstants.END_ELEMENT) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Skips the current element and its content
+	 */
+	private static void skip(final XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0 && reader.hasNext()) {
+			final int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	private static DatatypeFactory datatypeFactory() {
+		try {
+			return DatatypeFactory.newInstance();
+		} catch (final DatatypeConfigurationException e) {
+			log.log(Level.SEVERE, "error creating the datatype factory", e);
+			return null;
+		}
+	}
+
+}
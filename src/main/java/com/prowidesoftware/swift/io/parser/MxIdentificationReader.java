@@ -0,0 +1,248 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io.parser;
+
+import com.prowidesoftware.swift.model.MxId;
+import com.prowidesoftware.swift.model.MxNode;
+import com.prowidesoftware.swift.utils.SafeXmlUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Non-public helper class used by {@link MxParser#analyzeIdentification()} to read in a single StAX pass the
+ * message type, the application header and the group header identification of an MX message.
+ *
+ * <p>When the reading is driven by this class, the AppHdr is bound directly from the reader by the
+ * {@link MxBusinessHeaderStaxReader}. When the events are fed by the caller, the AppHdr subtree is converted into an
+ * {@link MxNode} tree (the same structure produced by {@link MxParser#parse()}) in order to reuse the header parser.
+ * From the group header, only the sender, receiver and reference elements are read. The reading stops as soon as all the information needed is found.
+ *
+ * @since 8.0.2
+ */
+final class MxIdentificationReader {
+	private static final transient Logger log = Logger.getLogger(MxIdentificationReader.class.getName());
+
+	private static final String GROUP_HEADER_LOCALNAME = "GrpHdr";
+	private static final String[] SENDER_PATH = {"InstgAgt", "FinInstnId", "BIC"};
+	private static final String[] RECEIVER_PATH = {"InstdAgt", "FinInstnId", "BIC"};
+	private static final String[] REFERENCE_PATH = {"MsgId"};
+
+	private final MxParser.MxIdentification result = new MxParser.MxIdentification();
+
+	private boolean documentRead = false;
+
+	/*
+	 * current node while reading the header, null outside the AppHdr
+	 */
+	private MxNode headerNode = null;
+	private boolean headerRead = false;
+
+	/*
+	 * element names from the group header to the current element, null outside the GrpHdr
+	 */
+	private List<String> groupHeaderPath = null;
+	private boolean groupHeaderRead = false;
+	private StringBuilder text = null;
+
+	MxIdentificationReader() {
+	}
+
+	/**
+	 * Reads the identification from the parameter XML
+	 * @throws XMLStreamException if the content is not well formed up to the point where the reading stopped
+	 */
+	static MxParser.MxIdentification read(final String xml) throws XMLStreamException {
+		final MxIdentificationReader r = new MxIdentificationReader();
+		final XMLStreamReader reader = SafeXmlUtils.createXMLStreamReader(new StringReader(xml));
+		try {
+			while (reader.hasNext() && !r.complete()) {
+				final int event = reader.next();
+				if (r.isHeaderStart(event, reader)) {
+					// the header is bound directly from the reader, which is left at the AppHdr end
+					r.result.businessHeader = MxBusinessHeaderStaxReader.read(reader);
+					r.headerRead = true;
+				} else {
+					r.handle(event, reader);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return r.result;
+	}
+
+	/**
+	 * Processes the current event of a reader driven by the caller, as done by the {@link MxSchemaRegistry} while
+	 * validating
+	 */
+	void handle(final int event, final XMLStreamReader reader) {
+		switch (event) {
+			case XMLStreamConstants.START_ELEMENT:
+				startElement(reader);
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				endElement();
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				characters(reader);
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * @return true if the event is the start of the AppHdr element to read
+	 */
+	private boolean isHeaderStart(final int event, final XMLStreamReader reader) {
+		return event == XMLStreamConstants.START_ELEMENT && !this.headerRead && this.headerNode == null && this.groupHeaderPath == null
+				&& StringUtils.equalsIgnoreCase(reader.getLocalName(), MxParser.HEADER_LOCALNAME);
+	}
+
+	/**
+	 * @return the identification read so far
+	 */
+	MxParser.MxIdentification result() {
+		return this.result;
+	}
+
+	/**
+	 * The reading is complete when the Document element is found and the header provides the sender, receiver or
+	 * reference, or otherwise when the group header has been read. An AppHdr appearing after the group header is not
+	 * considered.
+	 */
+	private boolean complete() {
+		if (!this.documentRead || this.headerNode != null) {
+			return false;
+		}
+		if (this.headerRead && this.result.hasHeaderIdentification()) {
+			return true;
+		}
+		return this.groupHeaderRead;
+	}
+
+	private void startElement(final XMLStreamReader reader) {
+		final String localName = reader.getLocalName();
+		if (this.headerNode != null) {
+			this.headerNode = MxNodeStaxBuilder.node(reader, this.headerNode);
+
+		} else if (this.groupHeaderPath != null) {
+			this.groupHeaderPath.add(localName);
+			if (this.text == null && (isPending(SENDER_PATH, this.result.groupHeaderSender)
+					|| isPending(RECEIVER_PATH, this.result.groupHeaderReceiver)
+					|| isPending(REFERENCE_PATH, this.result.groupHeaderReference))) {
+				this.text = new StringBuilder();
+			}
+
+		} else if (!this.headerRead && StringUtils.equalsIgnoreCase(localName, MxParser.HEADER_LOCALNAME)) {
+			this.headerNode = MxNodeStaxBuilder.node(reader, null);
+
+		} else if (!this.groupHeaderRead && StringUtils.equalsIgnoreCase(localName, GROUP_HEADER_LOCALNAME)) {
+			this.groupHeaderPath = new ArrayList<>();
+
+		} else if (!this.documentRead && localName.equals(MxParser.DOCUMENT_LOCALNAME)) {
+			this.documentRead = true;
+			final String namespace = namespace(reader);
+			if (namespace != null) {
+				try {
+					this.result.mxId = new MxId(namespace);
+				} catch (final IllegalArgumentException e) {
+					log.log(Level.WARNING, "cannot detect message type from namespace " + namespace, e);
+				}
+			}
+		}
+	}
+
+	private void endElement() {
+		if (this.headerNode != null) {
+			if (this.headerNode.getParent() == null) {
+				this.result.businessHeader = MxParser.parseBusinessHeader(this.headerNode);
+				this.headerRead = true;
+			}
+			this.headerNode = this.headerNode.getParent();
+
+		} else if (this.groupHeaderPath != null) {
+			if (this.groupHeaderPath.isEmpty()) {
+				this.groupHeaderPath = null;
+				this.groupHeaderRead = true;
+				return;
+			}
+			if (this.text != null) {
+				final String value = this.text.toString();
+				if (isPending(SENDER_PATH, this.result.groupHeaderSender)) {
+					this.result.groupHeaderSender = value;
+				} else if (isPending(RECEIVER_PATH, this.result.groupHeaderReceiver)) {
+					this.result.groupHeaderReceiver = value;
+				} else if (isPending(REFERENCE_PATH, this.result.groupHeaderReference)) {
+					this.result.groupHeaderReference = value;
+				}
+				this.text = null;
+			}
+			this.groupHeaderPath.remove(this.groupHeaderPath.size() - 1);
+			if (this.result.groupHeaderSender != null && this.result.groupHeaderReceiver != null && this.result.groupHeaderReference != null) {
+				this.groupHeaderRead = true;
+			}
+		}
+	}
+
+	private void characters(final XMLStreamReader reader) {
+		if (this.headerNode != null) {
+			final String value = this.headerNode.getValue();
+			this.headerNode.setValue(value == null ? reader.getText() : value + reader.getText());
+		} else if (this.text != null) {
+			this.text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+		}
+	}
+
+	/**
+	 * @return true if the current group header path is the parameter path and its value has not been found yet
+	 */
+	private boolean isPending(final String[] path, final String value) {
+		if (value != null || this.groupHeaderPath.size() != path.length) {
+			return false;
+		}
+		for (int i = 0; i < path.length; i++) {
+			if (!StringUtils.equalsIgnoreCase(path[i], this.groupHeaderPath.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the namespace declared for the prefix of the current element, as done by {@link MxParser#detectMessage()}
+	 */
+	private static String namespace(final XMLStreamReader reader) {
+		final String elementPrefix = StringUtils.trimToNull(reader.getPrefix());
+		for (int nsIndex = 0; nsIndex < reader.getNamespaceCount(); nsIndex++) {
+			if (StringUtils.equals(StringUtils.trimToNull(reader.getNamespacePrefix(nsIndex)), elementPrefix)) {
+				return reader.getNamespaceURI(nsIndex);
+			}
+		}
+		return null;
+	}
+
+}
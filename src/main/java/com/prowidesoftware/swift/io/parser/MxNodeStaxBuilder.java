@@ -0,0 +1,130 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io.parser;
+
+import com.prowidesoftware.swift.model.MxNode;
+import com.prowidesoftware.swift.utils.SafeXmlUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+
+/**
+ * Non-public helper class used by {@link MxParser#parseCompact()} to parse an MX message into an {@link MxNode} tree
+ * with StAX.
+ *
+ * <p>The tree has the same structure as the one created by the {@link MxNodeContentHandler}, but the text values are
+ * set as ranges of the source XML whenever the text is found verbatim in the source, meaning it does not contain
+ * entity references, CDATA sections or normalized line breaks. Other values are copied as usual.
+ *
+ * @since 8.0.2
+ */
+final class MxNodeStaxBuilder {
+
+	private MxNodeStaxBuilder() {
+	}
+
+	/**
+	 * Parses the parameter XML
+	 * @return the root node or null if the XML contains no elements
+	 * @throws XMLStreamException if the content is not well formed
+	 */
+	static MxNode parse(final String xml) throws XMLStreamException {
+		final XMLStreamReader reader = SafeXmlUtils.createXMLStreamReader(new StringReader(xml));
+		MxNode root = null;
+		MxNode current = null;
+		// offset in the source where the current text starts, or -1 if unknown
+		int textStart = -1;
+		boolean inText = false;
+		try {
+			while (reader.hasNext()) {
+				final int event = reader.next();
+				switch (event) {
+					case XMLStreamConstants.START_ELEMENT:
+						current = node(reader, current);
+						if (root == null) {
+							root = current;
+						}
+						break;
+					case XMLStreamConstants.END_ELEMENT:
+						current = current.getParent();
+						break;
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.CDATA:
+					case XMLStreamConstants.SPACE:
+						if (current != null) {
+							if (inText) {
+								// contiguous chunks are joined
+								current.setValue(current.getValue() + reader.getText());
+							} else if (textStart >= 0 && matches(xml, textStart, reader)) {
+								current.setValue(xml, textStart, textStart + reader.getTextLength());
+							} else {
+								current.setValue(reader.getText());
+							}
+						}
+						break;
+					default:
+						break;
+				}
+				inText = event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE;
+				if (!inText) {
+					// the location after markup events is the end of the markup in the source
+					textStart = reader.getLocation().getCharacterOffset();
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return root;
+	}
+
+	/**
+	 * @return true if the current text of the reader is found in the source at the given offset
+	 */
+	private static boolean matches(final String xml, final int offset, final XMLStreamReader reader) {
+		final int length = reader.getTextLength();
+		if (offset + length > xml.length()) {
+			return false;
+		}
+		final char[] text = reader.getTextCharacters();
+		final int start = reader.getTextStart();
+		for (int i = 0; i < length; i++) {
+			if (xml.charAt(offset + i) != text[start + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Creates a node for the current element as done by the {@link MxNodeContentHandler}
+	 */
+	static MxNode node(final XMLStreamReader reader, final MxNode parent) {
+		final MxNode node = new MxNode(parent, reader.getLocalName());
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			node.addAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+		}
+		// the SAX parser reports an empty uri for elements without namespace
+		final String uri = StringUtils.defaultString(reader.getNamespaceURI());
+		if (parent == null || !StringUtils.equals(parent.getAttribute("xmlns"), uri)) {
+			node.addAttribute("xmlns", uri);
+		}
+		return node;
+	}
+
+}
@@ -15,6 +15,7 @@
  */
 package com.prowidesoftware.swift.io.parser;
 
+import com.prowidesoftware.ProwideException;
 import com.prowidesoftware.deprecation.ProwideDeprecated;
 import com.prowidesoftware.deprecation.TargetYear;
 import com.prowidesoftware.swift.model.MxId;
@@ -29,10 +30,14 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.xml.sax.XMLReader;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
+import java.util.Map;
 import java.util.Optional;
 import java.util.logging.Level;
 
@@ -112,14 +117,58 @@ public class MxParser {
 	 */
 	public MxNode parse() {
 		Validate.notNull(buffer, "the source must be initialized");
+		final XMLReader xmlReader = SafeXmlUtils.reusableReader(true);
 		try {
-			XMLReader xmlReader = SafeXmlUtils.reader(true, null);
 			final MxNodeContentHandler contentHandler = new MxNodeContentHandler();
 			xmlReader.setContentHandler(contentHandler);
 			xmlReader.parse(new org.xml.sax.InputSource(new StringReader(this.buffer)));
 			return contentHandler.getRootNode();
 		} catch (final Exception e) {
 			log.log(Level.SEVERE, "Error parsing XML", e);
+		} finally {
+			// the reader is kept by the thread, it must not retain the parsed tree
+			xmlReader.setContentHandler(null);
+		}
+		return null;
+	}
+
+	/**
+	 * Parses the complete message content into an {@link MxNode} tree structure, optimized for memory usage.
+	 *
+	 * <p>The resulting tree is equivalent to the one returned by {@link #parse()}, but the text values are kept as
+	 * ranges of the parser source instead of copies (see {@link MxNode#setValue(String, int, int)}), so the tree retains
+	 * the source XML in memory. This is convenient for large messages such as statements, where the source plus the
+	 * compact tree take a fraction of the memory needed by the default tree.
+	 *
+	 * @return the root node or null if the content cannot be parsed
+	 * @since 8.0.2
+	 */
+	public MxNode parseCompact() {
+		Validate.notNull(buffer, "the source must be initialized");
+		try {
+			return MxNodeStaxBuilder.parse(this.buffer);
+		} catch (final Exception e) {
+			log.log(Level.SEVERE, "Error parsing XML", e);
+		}
+		return null;
+	}
+
+	/**
+	 * Extracts the values for the parameter paths in a single pass, without parsing the complete message into a tree.
+	 * For repeated extractions of the same paths, compile the {@link MxProjection} once and reuse it.
+	 *
+	 * @param paths one or more path expressions, see {@link MxProjection} for details
+	 * @return a map with each path and its value or null if not found, or null if the content cannot be parsed
+	 * @throws IllegalArgumentException if no path is given or if any of the paths is malformed
+	 * @since 8.0.2
+	 */
+	public Map<String, String> extract(final String... paths) {
+		Validate.notNull(buffer, "the source must be initialized");
+		final MxProjection projection = MxProjection.compile(paths);
+		try {
+			return projection.extract(this.buffer);
+		} catch (final ProwideException e) {
+			log.log(Level.SEVERE, "Error parsing XML", e);
 		}
 		return null;
 	}
@@ -129,15 +178,62 @@ public class MxParser {
 	 * Uses the namespace (if present) or an heuristic based on tags names.
 	 * <br>
 	 * By default ISO Business Application Header is expected and assumed for the AppHdr tag.
+	 * <br>
+	 * Since 8.0.2 the content is read with StAX only up to the end of the header, see
+	 * {@link #parseBusinessHeader(XMLStreamReader)}.
 	 * 
 	 * @return parsed header or null if the content cannot be parsed or the header is not present in the XML
 	 */
 	public BusinessHeader parseBusinessHeader() {
-		final BusinessHeader bh = new BusinessHeader();
-		final MxNode tree = parse();
+		Validate.notNull(buffer, "the source must be initialized");
+		try {
+			final XMLStreamReader reader = SafeXmlUtils.createXMLStreamReader(new StringReader(this.buffer));
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() == XMLStreamConstants.START_ELEMENT && StringUtils.equalsIgnoreCase(reader.getLocalName(), HEADER_LOCALNAME)) {
+						return parseBusinessHeader(reader);
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (final Exception e) {
+			log.log(Level.SEVERE, "Error parsing XML", e);
+		}
+		return null;
+	}
+
+	/**
+	 * Parses the business header from a reader positioned at the AppHdr start element, binding the header model
+	 * directly from the StAX events, without an intermediate {@link MxNode} tree or JAXB.
+	 *
+	 * <p>The header is read as legacy SWIFT Application Header if the element is in its namespace, or if it contains a
+	 * From element. Otherwise it is read as ISO Business Application Header. The reader is left positioned at the
+	 * AppHdr end element.
+	 *
+	 * @param reader a reader positioned at the AppHdr start element
+	 * @return the parsed header
+	 * @throws XMLStreamException if the content is not well formed
+	 * @throws IllegalArgumentException if the reader is null or it is not positioned at a start element
+	 * @see #parseBusinessHeader()
+	 * @since 8.0.2
+	 */
+	public static BusinessHeader parseBusinessHeader(final XMLStreamReader reader) throws XMLStreamException {
+		Validate.notNull(reader, "the reader cannot be null");
+		Validate.isTrue(reader.isStartElement(), "the reader must be positioned at the AppHdr start element");
+		return MxBusinessHeaderStaxReader.read(reader);
+	}
+
+	/**
+	 * Detects the type of header in the parameter tree and parses it
+	 * @see #parseBusinessHeader()
+	 * @since 8.0.2
+	 */
+	static BusinessHeader parseBusinessHeader(final MxNode tree) {
 		if (tree != null) {
 			MxNode appHdr = tree.findFirstByName(HEADER_LOCALNAME);
 			if (appHdr != null) {
+				final BusinessHeader bh = new BusinessHeader();
 				final String ns = appHdr.getAttribute("xmlns");
 				if ((ns != null && ns.equals(BusinessHeader.NAMESPACE_AH)) || (appHdr.findFirstByName("From") != null)) {
 					bh.setApplicationHeader(parseApplicationHeader(tree));
@@ -225,9 +321,8 @@ public class MxParser {
 			log.log(Level.SEVERE, "cannot detect message from null or empty content");
 			return null;
 		}
-		final javax.xml.stream.XMLInputFactory xif = SafeXmlUtils.inputFactory();
 		try {
-			final javax.xml.stream.XMLStreamReader reader = xif.createXMLStreamReader(new StringReader(this.buffer));
+			final javax.xml.stream.XMLStreamReader reader = SafeXmlUtils.createXMLStreamReader(new StringReader(this.buffer));
 			while (reader.hasNext()) {
 				int event = reader.next();
 				if (javax.xml.stream.XMLStreamConstants.START_ELEMENT == event && reader.getLocalName().equals(DOCUMENT_LOCALNAME)) {
@@ -251,6 +346,50 @@ public class MxParser {
 		return null;
 	}
 	
+	/**
+	 * Validates the message against its XSD schemas, reading the message identification in the same pass.
+	 *
+	 * @param registry the schemas to use
+	 * @return the validation result, including the identification as returned by {@link #analyzeIdentification()}
+	 * @see MxSchemaRegistry#validate(String)
+	 * @since 8.0.2
+	 */
+	public MxSchemaRegistry.ValidationResult validate(final MxSchemaRegistry registry) {
+		Validate.notNull(buffer, "the source must be initialized");
+		Validate.notNull(registry, "the schema registry cannot be null");
+		return registry.validate(this.buffer);
+	}
+
+	/**
+	 * Reads in a single pass the information needed to identify and route the message: the specific message type,
+	 * the application header, and the sender, receiver and reference.
+	 *
+	 * <p>The message type is detected from the Document namespace as in {@link #detectMessage()} and the header is
+	 * parsed as in {@link #parseBusinessHeader()}. When the header is not present or it does not contain any of the
+	 * sender, receiver and reference, those are read from the group header (GrpHdr) element present in a subset of
+	 * MX messages.
+	 *
+	 * <p>The implementation is based on {@link javax.xml.stream.XMLStreamReader} and only the header is loaded into
+	 * memory. The reading stops as soon as all the information is found, so most of the Document content is never
+	 * parsed. Notice the header is expected before the Document element, as in the envelopes produced by
+	 * {@link AbstractMX#message()}.
+	 *
+	 * @return the identification found, with null values for the items not present or if the content cannot be read
+	 * @since 8.0.2
+	 */
+	public MxIdentification analyzeIdentification() {
+		if (StringUtils.isBlank(this.buffer)) {
+			log.log(Level.WARNING, "cannot analyze message from null or empty content");
+			return new MxIdentification();
+		}
+		try {
+			return MxIdentificationReader.read(this.buffer);
+		} catch (final Exception e) {
+			log.log(Level.SEVERE, "error while analyzing message identification", e);
+		}
+		return new MxIdentification();
+	}
+
 	/**
 	 * @deprecated use {@link #analyzeMessage()} instead
 	 * @since 7.8.4
@@ -281,9 +420,8 @@ public class MxParser {
 			log.log(Level.WARNING, "cannot analyze message from null or empty content");
 			return this.info;
 		}
-		final javax.xml.stream.XMLInputFactory xif = SafeXmlUtils.inputFactory();
 		try {
-			final javax.xml.stream.XMLStreamReader reader = xif.createXMLStreamReader(new StringReader(this.buffer));
+			final javax.xml.stream.XMLStreamReader reader = SafeXmlUtils.createXMLStreamReader(new StringReader(this.buffer));
 			boolean first = true;
 			while (reader.hasNext()) {
 				int event = reader.next();
@@ -398,6 +536,68 @@ public class MxParser {
 		}
 	}
 	
+	/**
+	 * Helper bean used by {@link MxParser#analyzeIdentification()} to return the message type and routing
+	 * information from an MX message
+	 *
+	 * @since 8.0.2
+	 */
+	public static class MxIdentification {
+		MxId mxId = null;
+		BusinessHeader businessHeader = null;
+		String groupHeaderSender = null;
+		String groupHeaderReceiver = null;
+		String groupHeaderReference = null;
+
+		/**
+		 * @return the detected message type or null if it cannot be determined
+		 */
+		public MxId getMxId() {
+			return mxId;
+		}
+
+		/**
+		 * @return the parsed header or null if not present
+		 */
+		public BusinessHeader getBusinessHeader() {
+			return businessHeader;
+		}
+
+		/**
+		 * @return the header sender, or the group header instructing agent BIC if the header has no identification
+		 */
+		public String getSender() {
+			return hasHeaderIdentification() ? businessHeader.from() : groupHeaderSender;
+		}
+
+		/**
+		 * @return the header receiver, or the group header instructed agent BIC if the header has no identification
+		 */
+		public String getReceiver() {
+			return hasHeaderIdentification() ? businessHeader.to() : groupHeaderReceiver;
+		}
+
+		/**
+		 * @return the header reference, or the group header message id if the header has no identification
+		 */
+		public String getReference() {
+			return hasHeaderIdentification() ? businessHeader.reference() : groupHeaderReference;
+		}
+
+		/**
+		 * @return true if the header is present and contains at least one of the sender, receiver or reference
+		 */
+		boolean hasHeaderIdentification() {
+			return businessHeader != null && (businessHeader.from() != null || businessHeader.to() != null || businessHeader.reference() != null);
+		}
+
+		@Override
+		public String toString() {
+			return "MxIdentification [mxId=" + mxId + ", sender=" + getSender() + ", receiver=" + getReceiver()
+					+ ", reference=" + getReference() + "]";
+		}
+	}
+
 	/**
 	 * Distinguished Name structure: cn=name,ou=payment,o=bank,o=swift
 	 * <br>
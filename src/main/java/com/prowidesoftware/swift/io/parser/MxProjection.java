@@ -0,0 +1,262 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io.parser;
+
+import com.prowidesoftware.ProwideException;
+import com.prowidesoftware.swift.model.MxPath;
+import com.prowidesoftware.swift.utils.SafeXmlUtils;
+import org.apache.commons.lang3.Validate;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Extracts the values for a set of paths from an MX message, reading the XML once with StAX and without building an
+ * {@link com.prowidesoftware.swift.model.MxNode} tree.
+ *
+ * <p>This is intended for indexing and routing, where only a few values are needed from each message, for example:
+ * <pre>
+ * MxProjection projection = MxProjection.compile(
+ *     "/Document/FIToFICstmrCdtTrf/GrpHdr/MsgId",
+ *     "/Document/FIToFICstmrCdtTrf/CdtTrfTxInf/PmtId/UETR",
+ *     "/Document/FIToFICstmrCdtTrf/CdtTrfTxInf/IntrBkSttlmAmt");
+ * Map&lt;String, String&gt; values = projection.extract(xml);
+ * </pre>
+ *
+ * <p>Paths use the {@link MxPath} syntax, including predicates, and are evaluated from the root element. For each path
+ * the value of the first matching element in document order is returned, with the same semantic as
+ * {@link com.prowidesoftware.swift.model.MxNode#getValue()}. The reading stops as soon as all the paths are resolved,
+ * so content after the last needed element is never parsed.
+ *
+ * <p>The memory used is proportional to the number of paths and the depth of the XML, not to the message size.
+ * Instances are immutable and can be shared among threads.
+ *
+ * @since 8.0.2
+ */
+public final class MxProjection {
+
+	private final String[] expressions;
+	private final MxPath[] paths;
+
+	private MxProjection(final String[] expressions) {
+		this.expressions = expressions;
+		this.paths = new MxPath[expressions.length];
+		for (int i = 0; i < expressions.length; i++) {
+			this.paths[i] = MxPath.compile(expressions[i]);
+		}
+	}
+
+	/**
+	 * Creates a projection for the parameter paths
+	 * @param paths one or more path expressions
+	 * @return the compiled projection
+	 * @throws NullPointerException if any of the paths is null
+	 * @throws IllegalArgumentException if no path is given or if any of the paths is malformed
+	 */
+	public static MxProjection compile(final String... paths) {
+		Validate.notEmpty(paths, "at least one path is required");
+		return new MxProjection(paths.clone());
+	}
+
+	/**
+	 * Creates a projection for the parameter paths
+	 * @see #compile(String...)
+	 */
+	public static MxProjection compile(final Collection<String> paths) {
+		Validate.notEmpty(paths, "at least one path is required");
+		return new MxProjection(paths.toArray(new String[paths.size()]));
+	}
+
+	/**
+	 * Extracts the values from the parameter XML
+	 * @param xml an MX message
+	 * @return a map with each path expression, in the order they were given, and its value or null if not found
+	 * @throws ProwideException if the XML cannot be read up to the point where all paths are resolved
+	 */
+	public Map<String, String> extract(final String xml) {
+		Validate.notNull(xml, "xml cannot be null");
+		return extract(new StringReader(xml));
+	}
+
+	/**
+	 * Extracts the values from the parameter reader, the reader is not closed
+	 * @see #extract(String)
+	 */
+	public Map<String, String> extract(final Reader xml) {
+		Validate.notNull(xml, "xml cannot be null");
+		try {
+			return extract(SafeXmlUtils.createXMLStreamReader(xml));
+		} catch (final XMLStreamException e) {
+			throw new ProwideException("error reading MX message", e);
+		}
+	}
+
+	/**
+	 * Extracts the values from the parameter stream, the encoding is detected from the XML declaration and the
+	 * stream is not closed
+	 * @see #extract(String)
+	 */
+	public Map<String, String> extract(final InputStream xml) {
+		Validate.notNull(xml, "xml cannot be null");
+		try {
+			return extract(SafeXmlUtils.createXMLStreamReader(xml));
+		} catch (final XMLStreamException e) {
+			throw new ProwideException("error reading MX message", e);
+		}
+	}
+
+	private Map<String, String> extract(final XMLStreamReader reader) throws XMLStreamException {
+		final State state = new State(reader);
+		try {
+			while (state.pending > 0 && reader.hasNext()) {
+				switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT:
+						state.startElement();
+						break;
+					case XMLStreamConstants.END_ELEMENT:
+						state.endElement();
+						break;
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.CDATA:
+					case XMLStreamConstants.SPACE:
+						state.characters();
+						break;
+					default:
+						break;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		final Map<String, String> result = new LinkedHashMap<>();
+		for (int i = 0; i < this.expressions.length; i++) {
+			result.put(this.expressions[i], state.values[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the path expressions of this projection
+	 */
+	@Override
+	public String toString() {
+		return "MxProjection " + String.join(", ", this.expressions);
+	}
+
+	/**
+	 * Evaluation state for a single message
+	 */
+	private final class State {
+		private final XMLStreamReader reader;
+		private final Function<String, String> attributes;
+		/*
+		 * current element depth, 0 for the root element
+		 */
+		private int depth = -1;
+		/*
+		 * per path: number of segments matched by the current branch, sibling counters for positional predicates,
+		 * whether the current element is the target of the path, its text, and the extracted value
+		 */
+		private final int[] matched;
+		private final int[][] counts;
+		private final boolean[] capturing;
+		private final StringBuilder[] text;
+		private final boolean[] resolved;
+		private final String[] values;
+		private int pending;
+
+		State(final XMLStreamReader reader) {
+			this.reader = reader;
+			this.attributes = name -> reader.getAttributeValue(null, name);
+			final int size = paths.length;
+			this.matched = new int[size];
+			this.counts = new int[size][];
+			this.capturing = new boolean[size];
+			this.text = new StringBuilder[size];
+			this.resolved = new boolean[size];
+			this.values = new String[size];
+			this.pending = size;
+			for (int i = 0; i < size; i++) {
+				this.counts[i] = new int[paths[i].length()];
+				if (paths[i].length() == 0) {
+					this.resolved[i] = true;
+					this.pending--;
+				}
+			}
+		}
+
+		void startElement() {
+			this.depth++;
+			final String localName = this.reader.getLocalName();
+			for (int i = 0; i < paths.length; i++) {
+				if (this.resolved[i]) {
+					continue;
+				}
+				final MxPath path = paths[i];
+				if (this.capturing[i] && this.depth == path.length()) {
+					// the value of an element with children is the text after its last child
+					this.text[i] = null;
+				} else if (this.matched[i] == this.depth && this.depth < path.length() && path.matches(this.depth, localName, this.attributes)) {
+					final int position = ++this.counts[i][this.depth];
+					if (path.position(this.depth) == 0 || path.position(this.depth) == position) {
+						this.matched[i] = this.depth + 1;
+						if (this.matched[i] == path.length()) {
+							this.capturing[i] = true;
+						} else {
+							this.counts[i][this.depth + 1] = 0;
+						}
+					}
+				}
+			}
+		}
+
+		void endElement() {
+			for (int i = 0; i < paths.length; i++) {
+				if (!this.resolved[i] && this.matched[i] == this.depth + 1) {
+					if (this.capturing[i]) {
+						this.values[i] = this.text[i] != null ? this.text[i].toString() : null;
+						this.text[i] = null;
+						this.capturing[i] = false;
+						this.resolved[i] = true;
+						this.pending--;
+					}
+					this.matched[i] = this.depth;
+				}
+			}
+			this.depth--;
+		}
+
+		void characters() {
+			for (int i = 0; i < paths.length; i++) {
+				if (this.capturing[i] && this.depth + 1 == paths[i].length()) {
+					if (this.text[i] == null) {
+						this.text[i] = new StringBuilder();
+					}
+					this.text[i].append(this.reader.getTextCharacters(), this.reader.getTextStart(), this.reader.getTextLength());
+				}
+			}
+		}
+	}
+
+}
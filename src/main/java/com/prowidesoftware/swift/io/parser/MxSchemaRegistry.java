@@ -0,0 +1,397 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io.parser;
+
+import com.prowidesoftware.ProwideException;
+import com.prowidesoftware.swift.utils.SafeXmlUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import javax.xml.transform.stax.StAXSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of compiled XSD schemas for MX messages, to validate the messages against their ISO 20022 schema.
+ *
+ * <p>The schemas are loaded lazily from the classpath or from a directory, the first time a message with their
+ * namespace is validated, and compiled only once. The schema file name is the last part of the namespace plus the
+ * ".xsd" extension, for example "pacs.008.001.08.xsd" for "urn:iso:std:iso:20022:tech:xsd:pacs.008.001.08" or
+ * "head.001.001.01.xsd" for the ISO application header. Schemas can also be registered programmatically with
+ * {@link #register(String, Schema)}.
+ *
+ * <p>Since the namespace comes from the validated message, only file names made of letters, digits and dots are
+ * looked up, and always inside the configured directory or resource path. Namespaces without a schema are kept in a
+ * small bounded cache, so that unknown namespaces cannot grow the registry.
+ *
+ * <p>The validation reads the message once with StAX: the AppHdr and Document elements are validated against their
+ * schema, if found, while the message identification is read as in {@link MxParser#analyzeIdentification()}.
+ * The validators are pooled per schema and reused. This class is thread safe.
+ *
+ * @since 8.0.2
+ */
+public class MxSchemaRegistry {
+	private static final transient java.util.logging.Logger log = java.util.logging.Logger.getLogger(MxSchemaRegistry.class.getName());
+
+	private static final String EXTENSION = ".xsd";
+	private static final Pattern NAME = Pattern.compile("[A-Za-z0-9.]+");
+	private static final int MAX_MISSES = 256;
+
+	private final ClassLoader classLoader;
+	private final String prefix;
+	private final File directory;
+	private final int maxIdleValidators;
+	private final ConcurrentHashMap<String, Entry> schemas = new ConcurrentHashMap<>();
+	private final Entry missing = new Entry(null);
+	private final Map<String, Boolean> misses = Collections.synchronizedMap(new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest) {
+			return size() > MAX_MISSES;
+		}
+	});
+
+	/**
+	 * Creates a registry loading the schemas from the classpath
+	 * @param classLoader the class loader to use, null to use the loader of this class
+	 * @param prefix resource path containing the schema files, for example "xsd/"; empty for the classpath root
+	 */
+	public MxSchemaRegistry(final ClassLoader classLoader, final String prefix) {
+		this.classLoader = classLoader != null ? classLoader : MxSchemaRegistry.class.getClassLoader();
+		this.prefix = StringUtils.isEmpty(prefix) || prefix.endsWith("/") ? StringUtils.defaultString(prefix) : prefix + "/";
+		this.directory = null;
+		this.maxIdleValidators = Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Creates a registry loading the schemas from a directory
+	 * @param directory the directory containing the schema files
+	 * @throws IllegalArgumentException if the parameter is not an existing directory
+	 */
+	public MxSchemaRegistry(final File directory) {
+		Validate.isTrue(directory != null && directory.isDirectory(), "the schemas directory must exist");
+		this.classLoader = null;
+		this.prefix = null;
+		this.directory = directory;
+		this.maxIdleValidators = Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Registers a compiled schema for the namespace, replacing the one loaded from the files if any
+	 * @param namespace the message namespace
+	 * @param schema the schema to use
+	 */
+	public void register(final String namespace, final Schema schema) {
+		Validate.notNull(namespace, "namespace cannot be null");
+		Validate.notNull(schema, "schema cannot be null");
+		this.schemas.put(namespace, new Entry(schema));
+		this.misses.remove(namespace);
+	}
+
+	/**
+	 * Gets the compiled schema for the namespace, loading and compiling it the first time
+	 * @param namespace the message namespace
+	 * @return the schema or null if there is no schema file for the namespace
+	 * @throws ProwideException if the schema file cannot be compiled
+	 */
+	public Schema schema(final String namespace) {
+		return entry(namespace).schema;
+	}
+
+	/**
+	 * Validates the message and reads its identification
+	 * @param xml the message XML
+	 * @return the validation result
+	 */
+	public ValidationResult validate(final String xml) {
+		Validate.notNull(xml, "xml cannot be null");
+		return validate(new StringReader(xml));
+	}
+
+	/**
+	 * Validates the message and reads its identification
+	 * @param xml the message XML
+	 * @return the validation result
+	 */
+	public ValidationResult validate(final Reader xml) {
+		Validate.notNull(xml, "xml cannot be null");
+		try {
+			return validate(SafeXmlUtils.createXMLStreamReader(xml));
+		} catch (final XMLStreamException e) {
+			return error(e);
+		}
+	}
+
+	/**
+	 * Validates the message and reads its identification, the encoding is detected from the XML declaration
+	 * @param xml the message XML
+	 * @return the validation result
+	 */
+	public ValidationResult validate(final InputStream xml) {
+		Validate.notNull(xml, "xml cannot be null");
+		try {
+			return validate(SafeXmlUtils.createXMLStreamReader(xml));
+		} catch (final XMLStreamException e) {
+			return error(e);
+		}
+	}
+
+	private static ValidationResult error(final XMLStreamException e) {
+		final ValidationResult result = new ValidationResult(new MxParser.MxIdentification());
+		result.errors.add(e.getMessage());
+		return result;
+	}
+
+	private ValidationResult validate(final XMLStreamReader source) {
+		final MxIdentificationReader identification = new MxIdentificationReader();
+		final ValidationResult result = new ValidationResult(identification.result());
+		/*
+		 * the identification is read from all the events, including the ones consumed by the validator
+		 */
+		final XMLStreamReader reader = new StreamReaderDelegate(source) {
+			@Override
+			public int next() throws XMLStreamException {
+				final int event = super.next();
+				identification.handle(event, this);
+				return event;
+			}
+		};
+		try {
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+					final String localName = reader.getLocalName();
+					if (StringUtils.equals(localName, MxParser.HEADER_LOCALNAME) || StringUtils.equals(localName, MxParser.DOCUMENT_LOCALNAME)) {
+						validateElement(reader, result);
+					}
+				}
+			}
+		} catch (final XMLStreamException e) {
+			result.errors.add(e.getMessage());
+		} finally {
+			try {
+				reader.close();
+			} catch (final XMLStreamException e) {
+				log.log(Level.FINE, "error closing the XML reader", e);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Validates the subtree of the current element with the schema for its namespace, if any
+	 */
+	private void validateElement(final XMLStreamReader reader, final ValidationResult result) {
+		final String namespace = StringUtils.defaultString(reader.getNamespaceURI());
+		final Entry entry = entry(namespace);
+		if (entry.schema == null) {
+			log.fine("no schema found for namespace " + namespace);
+			return;
+		}
+		result.namespaces.add(namespace);
+		final Validator validator = entry.borrow();
+		try {
+			validator.setErrorHandler(result);
+			validator.validate(new StAXSource(reader));
+		} catch (final SAXParseException e) {
+			result.error(e);
+		} catch (final SAXException | IOException e) {
+			result.errors.add(e.getMessage());
+		} finally {
+			entry.release(validator);
+		}
+	}
+
+	/**
+	 * Gets the cached entry for the namespace or loads it; the schema is compiled outside of the map lock, if two
+	 * threads compile the same schema concurrently the first one registered is kept
+	 */
+	private Entry entry(final String namespace) {
+		Validate.notNull(namespace, "namespace cannot be null");
+		final Entry cached = this.schemas.get(namespace);
+		if (cached != null) {
+			return cached;
+		}
+		if (this.misses.containsKey(namespace)) {
+			return this.missing;
+		}
+		final Schema schema = load(namespace);
+		if (schema == null) {
+			this.misses.put(namespace, Boolean.TRUE);
+			return this.missing;
+		}
+		final Entry entry = new Entry(schema);
+		final Entry previous = this.schemas.putIfAbsent(namespace, entry);
+		return previous != null ? previous : entry;
+	}
+
+	/**
+	 * Loads and compiles the schema file for the namespace
+	 * @return the compiled schema or null if the namespace does not map to a valid schema file name or the file
+	 * is not found
+	 */
+	private Schema load(final String namespace) {
+		final String id = StringUtils.substringAfterLast(namespace, ":");
+		if (id.isEmpty()) {
+			return null;
+		}
+		if (!NAME.matcher(id).matches() || StringUtils.containsOnly(id, '.')) {
+			log.warning("ignoring namespace " + namespace + " with an invalid schema name");
+			return null;
+		}
+		final String name = id + EXTENSION;
+		try {
+			if (this.directory != null) {
+				final File file = new File(this.directory, name);
+				if (!file.getCanonicalFile().getParentFile().equals(this.directory.getCanonicalFile())) {
+					log.warning("ignoring schema " + file + " outside of the directory " + this.directory);
+					return null;
+				}
+				if (file.isFile()) {
+					return SafeXmlUtils.schemaFactory().newSchema(file);
+				}
+			} else {
+				final URL url = this.classLoader.getResource(this.prefix + name);
+				if (url != null) {
+					return SafeXmlUtils.schemaFactory().newSchema(url);
+				}
+			}
+		} catch (final SAXException e) {
+			throw new ProwideException("error compiling schema " + name + " for namespace " + namespace, e);
+		} catch (final IOException e) {
+			throw new ProwideException("error resolving schema " + name + " for namespace " + namespace, e);
+		}
+		return null;
+	}
+
+	/**
+	 * @return the number of namespaces cached, including the ones without schema
+	 */
+	int size() {
+		return this.schemas.size() + this.misses.size();
+	}
+
+	/**
+	 * Compiled schema with its pool of idle validators
+	 */
+	private final class Entry {
+		private final Schema schema;
+		private final Queue<Validator> validators = new ConcurrentLinkedQueue<>();
+
+		Entry(final Schema schema) {
+			this.schema = schema;
+		}
+
+		Validator borrow() {
+			final Validator validator = this.validators.poll();
+			return validator != null ? validator : SafeXmlUtils.validator(this.schema);
+		}
+
+		void release(final Validator validator) {
+			// reset() is not called because it drops the security properties set by SafeXmlUtils, the validator
+			// state is reinitialized on each validation anyway
+			validator.setErrorHandler(null);
+			if (this.validators.size() < maxIdleValidators) {
+				this.validators.offer(validator);
+			}
+		}
+	}
+
+	/**
+	 * Result of the message validation, with the errors found and the message identification
+	 */
+	public static class ValidationResult implements ErrorHandler {
+		private final MxParser.MxIdentification identification;
+		private final List<String> namespaces = new ArrayList<>();
+		private final List<String> errors = new ArrayList<>();
+
+		ValidationResult(final MxParser.MxIdentification identification) {
+			this.identification = identification;
+		}
+
+		/**
+		 * @return true if at least one schema was found and no errors were found
+		 */
+		public boolean isValid() {
+			return !this.namespaces.isEmpty() && this.errors.isEmpty();
+		}
+
+		/**
+		 * @return the namespaces of the elements validated, empty if no schema was found for the message
+		 */
+		public List<String> getNamespaces() {
+			return Collections.unmodifiableList(this.namespaces);
+		}
+
+		/**
+		 * @return the validation and well-formedness errors, with their line and column
+		 */
+		public List<String> getErrors() {
+			return Collections.unmodifiableList(this.errors);
+		}
+
+		/**
+		 * @return the message identification read while validating
+		 */
+		public MxParser.MxIdentification getIdentification() {
+			return this.identification;
+		}
+
+		@Override
+		public void warning(final SAXParseException e) {
+			log.fine("validation warning: " + e.getMessage());
+		}
+
+		@Override
+		public void error(final SAXParseException e) {
+			this.errors.add("line " + e.getLineNumber() + " column " + e.getColumnNumber() + ": " + e.getMessage());
+		}
+
+		@Override
+		public void fatalError(final SAXParseException e) throws SAXException {
+			throw e;
+		}
+
+		@Override
+		public String toString() {
+			return "ValidationResult [valid=" + isValid() + ", namespaces=" + this.namespaces + ", errors=" + this.errors + "]";
+		}
+	}
+
+}
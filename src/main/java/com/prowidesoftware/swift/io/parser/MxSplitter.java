@@ -0,0 +1,284 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io.parser;
+
+import com.prowidesoftware.ProwideException;
+import com.prowidesoftware.swift.model.MxNode;
+import com.prowidesoftware.swift.model.MxPath;
+import com.prowidesoftware.swift.utils.SafeXmlUtils;
+import org.apache.commons.lang3.Validate;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Iterates the occurrences of a repeating element in a large MX document, reading the XML with StAX and returning
+ * each occurrence as a standalone {@link MxNode} tree.
+ *
+ * <p>This is intended for bulk files such as a camt.053 with thousands of entries or a pain.001 with thousands of
+ * transactions, that are too big to be parsed into a single tree with {@link MxParser#parse()}. For example:
+ * <pre>
+ * try (MxSplitter splitter = new MxSplitter(stream, "/Document/BkToCstmrStmt/Stmt/Ntry")) {
+ *     while (splitter.hasNext()) {
+ *         MxNode entry = splitter.next();
+ *         String amount = entry.singlePathValue("./Amt");
+ *         String account = splitter.getContext().singlePathValue("/Document/BkToCstmrStmt/Stmt/Acct/Id/IBAN");
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>The repeating element is given as an absolute path in the {@link MxPath} syntax, and each returned node is the
+ * root of its own tree. The content outside the repeating elements, such as the group header or the statement
+ * account, is kept in a separate context tree available with {@link #getContext()}. The context contains the
+ * elements read so far: the header elements preceding the current occurrence and its enclosing elements. When an
+ * enclosing element ends, for example a statement or a payment information block, it is removed from the context, so
+ * the memory used is bounded by the size of the largest occurrence plus its context, not by the size of the file.
+ * Elements in the path that are not selected by its predicates, for example the first statement when the path is
+ * "/Document/BkToCstmrStmt/Stmt[2]/Ntry", are skipped while reading and are not part of the context.
+ *
+ * <p>Instances are not thread safe. The iterator does not close the source stream or reader.
+ *
+ * @since 8.0.2
+ */
+public class MxSplitter implements Iterator<MxNode>, Closeable {
+
+	private final XMLStreamReader reader;
+	private final MxPath path;
+	private final Function<String, String> attributes;
+
+	private MxNode context = null;
+	private MxNode contextCurrent = null;
+	private MxNode entry = null;
+	private MxNode entryCurrent = null;
+	private MxNode next = null;
+	private boolean inText = false;
+
+	/*
+	 * current element depth, number of path segments matched by the current branch, and sibling counters for the
+	 * positional predicates
+	 */
+	private int depth = -1;
+	private int matched = 0;
+	private final int[] counts;
+
+	/*
+	 * depth of the element being skipped, or -1
+	 */
+	private int skipped = -1;
+
+	/**
+	 * Creates a splitter for the XML in the parameter stream, the encoding is detected from the XML declaration
+	 * @param xml the source MX message
+	 * @param path absolute path of the repeating element, for example "/Document/BkToCstmrStmt/Stmt/Ntry"
+	 * @throws ProwideException if the reader cannot be created
+	 * @throws IllegalArgumentException if the path is malformed or empty
+	 */
+	public MxSplitter(final InputStream xml, final String path) {
+		this(path, createReader(xml));
+	}
+
+	/**
+	 * Creates a splitter for the XML in the parameter reader
+	 * @see #MxSplitter(InputStream, String)
+	 */
+	public MxSplitter(final Reader xml, final String path) {
+		this(path, createReader(xml));
+	}
+
+	private MxSplitter(final String path, final XMLStreamReader reader) {
+		this.path = MxPath.compile(path);
+		Validate.isTrue(this.path.length() > 0, "the repeating element path cannot be empty");
+		this.reader = reader;
+		this.attributes = name -> reader.getAttributeValue(null, name);
+		this.counts = new int[this.path.length()];
+	}
+
+	private static XMLStreamReader createReader(final Object xml) {
+		Validate.notNull(xml, "xml cannot be null");
+		try {
+			if (xml instanceof InputStream) {
+				return SafeXmlUtils.createXMLStreamReader((InputStream) xml);
+			}
+			return SafeXmlUtils.createXMLStreamReader((Reader) xml);
+		} catch (final XMLStreamException e) {
+			throw new ProwideException("error reading MX message", e);
+		}
+	}
+
+	/**
+	 * Reads the XML up to the end of the next occurrence of the repeating element
+	 * @return true if there is another occurrence
+	 * @throws ProwideException if the XML cannot be read
+	 */
+	@Override
+	public boolean hasNext() {
+		try {
+			while (this.next == null && this.reader.hasNext()) {
+				final int event = this.reader.next();
+				switch (event) {
+					case XMLStreamConstants.START_ELEMENT:
+						startElement();
+						break;
+					case XMLStreamConstants.END_ELEMENT:
+						endElement();
+						break;
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.CDATA:
+					case XMLStreamConstants.SPACE:
+						characters();
+						break;
+					default:
+						break;
+				}
+				this.inText = event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE;
+			}
+		} catch (final XMLStreamException e) {
+			throw new ProwideException("error reading MX message", e);
+		}
+		return this.next != null;
+	}
+
+	/**
+	 * @return the next occurrence of the repeating element, as the root of a standalone tree
+	 * @throws NoSuchElementException if there are no more occurrences
+	 */
+	@Override
+	public MxNode next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final MxNode result = this.next;
+		this.next = null;
+		return result;
+	}
+
+	/**
+	 * Returns the tree with the content read so far outside the repeating elements, from the root element. After a
+	 * call to {@link #next()}, the context includes the elements enclosing the returned occurrence and the elements
+	 * preceding it, such as the group header.
+	 *
+	 * @return the context root, or null if nothing has been read yet
+	 */
+	public MxNode getContext() {
+		return this.context;
+	}
+
+	/**
+	 * Convenient method to get the group header element from the context
+	 * @return the first GrpHdr element read, or null if not present
+	 */
+	public MxNode getGroupHeader() {
+		return this.context != null ? this.context.findFirstByName("GrpHdr") : null;
+	}
+
+	/**
+	 * Closes the StAX reader, the source stream or reader is not closed
+	 */
+	@Override
+	public void close() {
+		try {
+			this.reader.close();
+		} catch (final XMLStreamException e) {
+			throw new ProwideException("error closing MX reader", e);
+		}
+	}
+
+	private void startElement() {
+		this.depth++;
+		if (this.skipped >= 0) {
+			return;
+		}
+		if (this.entry != null) {
+			this.entryCurrent = MxNodeStaxBuilder.node(this.reader, this.entryCurrent);
+			return;
+		}
+		if (this.matched == this.depth && this.depth < this.path.length()
+				&& this.path.matchesName(this.depth, this.reader.getLocalName())) {
+			if (!selected()) {
+				// a sibling not selected by the path predicates, its content is not needed
+				this.skipped = this.depth;
+				return;
+			}
+			this.matched = this.depth + 1;
+			if (this.matched == this.path.length()) {
+				this.entry = MxNodeStaxBuilder.node(this.reader, null);
+				this.entryCurrent = this.entry;
+				return;
+			}
+			this.counts[this.depth + 1] = 0;
+		}
+		this.contextCurrent = MxNodeStaxBuilder.node(this.reader, this.contextCurrent);
+		if (this.context == null) {
+			this.context = this.contextCurrent;
+		}
+	}
+
+	/**
+	 * Checks the attribute and positional predicates for the current element, at the path depth
+	 */
+	private boolean selected() {
+		if (!this.path.matches(this.depth, this.reader.getLocalName(), this.attributes)) {
+			return false;
+		}
+		final int position = ++this.counts[this.depth];
+		return this.path.position(this.depth) == 0 || this.path.position(this.depth) == position;
+	}
+
+	private void endElement() {
+		if (this.skipped >= 0) {
+			if (this.skipped == this.depth) {
+				this.skipped = -1;
+			}
+		} else if (this.entry != null) {
+			if (this.entryCurrent == this.entry) {
+				this.next = this.entry;
+				this.entry = null;
+				this.matched = this.depth;
+			}
+			this.entryCurrent = this.entryCurrent.getParent();
+		} else {
+			final MxNode ended = this.contextCurrent;
+			this.contextCurrent = ended.getParent();
+			if (this.matched == this.depth + 1) {
+				this.matched = this.depth;
+				if (this.contextCurrent != null) {
+					// an enclosing element of the repeating element ended, its content is no longer needed
+					this.contextCurrent.getChildren().remove(ended);
+				}
+			}
+		}
+		this.depth--;
+	}
+
+	private void characters() {
+		if (this.skipped >= 0) {
+			return;
+		}
+		final MxNode node = this.entry != null ? this.entryCurrent : this.contextCurrent;
+		if (node != null) {
+			node.setValue(this.inText ? node.getValue() + this.reader.getText() : this.reader.getText());
+		}
+	}
+
+}
@@ -19,6 +19,7 @@ import com.prowidesoftware.ProwideException;
 import com.prowidesoftware.deprecation.DeprecationUtils;
 import com.prowidesoftware.deprecation.ProwideDeprecated;
 import com.prowidesoftware.deprecation.TargetYear;
+import com.prowidesoftware.swift.io.writer.ChecksumWriter;
 import com.prowidesoftware.swift.model.*;
 import com.prowidesoftware.swift.utils.Lib;
 import org.apache.commons.lang3.StringUtils;
@@ -72,6 +73,11 @@ public class SwiftParser {
 	 */
 	private SwiftParserConfiguration configuration = new SwiftParserConfiguration();
 
+	/**
+	 * @since 8.0.2
+	 */
+	private ChecksumWriter checksumWriter;
+
 	/**
 	 * Constructor with an input stream for parsing a message
 	 * @param is stream to read
@@ -157,6 +163,9 @@ public class SwiftParser {
 
 		// Clear all errors before starting the parse process
 		this.errors.clear();
+		if (this.checksumWriter != null) {
+			this.checksumWriter.reset();
+		}
 		try {
 			boolean done = false;
 			SwiftBlock b;
@@ -268,6 +277,11 @@ public class SwiftParser {
 		// create the block object
 		b = createBlock(blockId, s);
 
+		// feed the checksum computation with the raw block content
+		if (this.checksumWriter != null) {
+			this.checksumWriter.writeBlock(s, blockId == '4');
+		}
+
 		if (unparsed.length()>0) {
 			if (unparsedReceiver == null) {
 				log.warning("Unparsed text '"+unparsed+"' can not be reported since unparsedReceiver is null");
@@ -1122,6 +1136,27 @@ public class SwiftParser {
 	public void setConfiguration(final SwiftParserConfiguration configuration) {
 		this.configuration = configuration;
 	}
+
+	/**
+	 * Gets the writer receiving the raw content of the parsed blocks, if any
+	 * @since 8.0.2
+	 * @see #setChecksumWriter(ChecksumWriter)
+	 */
+	public ChecksumWriter getChecksumWriter() {
+		return checksumWriter;
+	}
+
+	/**
+	 * Sets a writer to compute the message checksums from the raw parsed content, avoiding a later serialization
+	 * of the message. The writer is reset on each call to {@link #message()} and after the parse its checksums
+	 * are available with {@link ChecksumWriter#getChecksum()} and {@link ChecksumWriter#getChecksumBody()}.
+	 *
+	 * @param checksumWriter the writer to feed, or null to disable the checksum computation (default)
+	 * @since 8.0.2
+	 */
+	public void setChecksumWriter(final ChecksumWriter checksumWriter) {
+		this.checksumWriter = checksumWriter;
+	}
 	
 	/**
 	 * Parses a string containing the text block of an MT message 
@@ -21,13 +21,13 @@ import com.prowidesoftware.swift.model.field.Field;
 import com.prowidesoftware.swift.utils.SafeXmlUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilder;
-import java.io.ByteArrayInputStream;
-import java.nio.charset.StandardCharsets;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 
 /**
@@ -37,6 +37,11 @@ import java.util.logging.Level;
  * Standard for FIN Messages.<br>
  * <br>
  *
+ * The XML is read with a StAX {@link XMLStreamReader}, building the message as the elements are found
+ * and without creating an intermediate DOM tree. Besides parsing a single message from a String, the
+ * {@link #parse(XMLStreamReader)} method can be used to parse each message in a larger document.<br>
+ * <br>
+ *
  * This implementation should be used by calling some of the the conversion
  * services.
  *
@@ -47,6 +52,7 @@ import java.util.logging.Level;
 public class XMLParser {
 	private static final transient java.util.logging.Logger log = java.util.logging.Logger.getLogger(XMLParser.class.getName());
 
+	private static final String MESSAGE = "message";
 	private static final String UNPARSEDTEXTS = "unparsedtexts";
 
 	/**
@@ -60,167 +66,154 @@ public class XMLParser {
 	 */
 	public SwiftMessage parse(final String xml) {
 		Validate.notNull(xml);
+		XMLStreamReader reader = null;
 		try {
-			final DocumentBuilder db = SafeXmlUtils.documentBuilder();
-			final Document doc = db.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
-			return createMessage(doc);
+			reader = SafeXmlUtils.createXMLStreamReader(new StringReader(xml));
+			SwiftMessage m = null;
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT && MESSAGE.equals(reader.getLocalName())) {
+					if (m != null) {
+						throw new IllegalArgumentException("more than one <message> tag found");
+					}
+					m = parse(reader);
+				}
+			}
+			if (m == null) {
+				throw new IllegalArgumentException("<message> tag not found");
+			}
+			return m;
 		} catch (final Exception e) {
 			log.log(Level.WARNING, "Error parsing XML", e);
 			return null;
+		} finally {
+			close(reader);
 		}
 	}
 
 	/**
-	 * Helper method for XML representation parsing.<br>
+	 * Parses a single message from a StAX reader positioned at the &lt;message&gt; start element.
+	 * When the method returns, the reader is positioned at the corresponding &lt;/message&gt; end element, so it
+	 * can be used to parse a sequence of messages from a larger document, one at a time.
 	 *
-	 * @param doc
-	 *            Document object containing a message in XML format
-	 * @return SwiftMessage object populated with the given XML message data
+	 * @param reader the reader positioned at the message start element
+	 * @return SwiftMessage object populated with the message data
+	 * @throws XMLStreamException if the XML cannot be read
+	 * @throws IllegalArgumentException if the reader is not positioned at a &lt;message&gt; start element
+	 * @since 8.0.2
 	 */
-	private SwiftMessage createMessage(final Document doc) {
-		final NodeList messageNL = doc.getElementsByTagName("message");
+	public SwiftMessage parse(final XMLStreamReader reader) throws XMLStreamException {
+		Validate.notNull(reader, "XML stream reader cannot be null");
+		Validate.isTrue(reader.isStartElement() && MESSAGE.equals(reader.getLocalName()), "reader must be positioned at the <message> start element");
 
-		if (messageNL.getLength() == 1) {
-			final Node message = messageNL.item(0);
-			final SwiftMessage m = new SwiftMessage(false);
-
-			final NodeList blocksNL = message.getChildNodes();
+		final SwiftMessage m = new SwiftMessage(false);
+		while (nextChild(reader)) {
+			final String blockName = reader.getLocalName();
 			if (log.isLoggable(Level.FINE)) {
-				log.fine("blocks in message: " + blocksNL.getLength());
+				log.fine("evaluating node " + blockName);
 			}
-
-			for (int i = 0; i < blocksNL.getLength(); i++) {
-				final Node blockNode = blocksNL.item(i);
-				if (log.isLoggable(Level.FINE)) {
-					log.fine("evaluating node " + blockNode.getNodeName());
-				}
-				if (blockNode.getNodeType()==Node.ELEMENT_NODE) {
-					final String blockName = blockNode.getNodeName();
-
-					if ("block1".equalsIgnoreCase(blockName)) {
-						m.setBlock1(getBlock1FromNode(blockNode));
-					} else if ("block2".equalsIgnoreCase(blockName)) {
-						m.setBlock2(getBlock2FromNode(blockNode));
-					} else if (UNPARSEDTEXTS.equalsIgnoreCase(blockName)) {
-						// unparsed texts at <message> level
-						m.setUnparsedTexts(getUnparsedTextsFromNode(blockNode));
-					} else {
-						// blocks 3, 4, 5 or user blocks
-						m.addBlock(getTagListBlockFromNode(blockNode));
-					}
+			if ("block1".equalsIgnoreCase(blockName)) {
+				m.setBlock1(getBlock1(reader));
+			} else if ("block2".equalsIgnoreCase(blockName)) {
+				m.setBlock2(getBlock2(reader));
+			} else if (UNPARSEDTEXTS.equalsIgnoreCase(blockName)) {
+				// unparsed texts at <message> level
+				m.setUnparsedTexts(getUnparsedTexts(reader));
+			} else {
+				// blocks 3, 4, 5 or user blocks
+				final SwiftTagListBlock b = getTagListBlock(reader);
+				if (b != null) {
+					m.addBlock(b);
 				}
-			} // end block list iteration
-			return m;
-		} else {
-			throw new IllegalArgumentException("<message> tag not found");
+			}
 		}
+		return m;
 	}
 
 	/**
 	 * Helper method for XML representation parsing.<br>
-	 * Given the &lt;block1&gt; node in the XML tree, returns the SwiftBlock1 object.
+	 * Reads the &lt;block1&gt; element, returns the SwiftBlock1 object.
 	 *
-	 * @param blockNode Node object of the &lt;block1&gt; tag in the XML message
+	 * @param reader the reader positioned at the &lt;block1&gt; start element
 	 * @return SwiftBlock1 object populated with the given portion of the XML message
 	 */
-	private SwiftBlock1 getBlock1FromNode(final Node blockNode) {
-		final NodeList fields = blockNode.getChildNodes();
-		if (log.isLoggable(Level.FINE)) {
-			log.fine(fields.getLength() + " children in <block1>");
-		}
-
+	private SwiftBlock1 getBlock1(final XMLStreamReader reader) throws XMLStreamException {
 		final SwiftBlock1 b1 = new SwiftBlock1();
 
-		for (int i = 0; i < fields.getLength(); i++) {
-			final Node n = fields.item(i);
-			if ("APPLICATIONID".equalsIgnoreCase(n.getNodeName())) {
-				b1.setApplicationId(getText(n));
-			} else if ("SERVICEID".equalsIgnoreCase(n.getNodeName())) {
-				b1.setServiceId(getText(n));
-			} else if ("LOGICALTERMINAL".equalsIgnoreCase(n.getNodeName())) {
-				b1.setLogicalTerminal(getText(n));
-			} else if ("SESSIONNUMBER".equalsIgnoreCase(n.getNodeName())) {
-				b1.setSessionNumber(getText(n));
-			} else if ("SEQUENCENUMBER".equalsIgnoreCase(n.getNodeName())) {
-				b1.setSequenceNumber(getText(n));
-			} else if (UNPARSEDTEXTS.equalsIgnoreCase(n.getNodeName())) {
-				b1.setUnparsedTexts(getUnparsedTextsFromNode(n));
+		while (nextChild(reader)) {
+			final String name = reader.getLocalName();
+			if ("APPLICATIONID".equalsIgnoreCase(name)) {
+				b1.setApplicationId(getText(reader));
+			} else if ("SERVICEID".equalsIgnoreCase(name)) {
+				b1.setServiceId(getText(reader));
+			} else if ("LOGICALTERMINAL".equalsIgnoreCase(name)) {
+				b1.setLogicalTerminal(getText(reader));
+			} else if ("SESSIONNUMBER".equalsIgnoreCase(name)) {
+				b1.setSessionNumber(getText(reader));
+			} else if ("SEQUENCENUMBER".equalsIgnoreCase(name)) {
+				b1.setSequenceNumber(getText(reader));
+			} else if (UNPARSEDTEXTS.equalsIgnoreCase(name)) {
+				b1.setUnparsedTexts(getUnparsedTexts(reader));
+			} else {
+				skip(reader);
 			}
 		}
 
 		return b1;
 	}
 
-	private String getText(final Node n) {
-		String text = null;
-		final Node c = n.getFirstChild();
-		if (c != null) {
-			if (c.getNodeType() == Node.TEXT_NODE) {
-				text = c.getNodeValue();
-			} else {
-				log.warning("Node is not TEXT_NODE: "+c);
-			}
-		}
-		return text;
-	}
-
 	/**
 	 * Helper method for XML representation parsing.<br>
-	 * Given the &lt;block2&gt; node in the XML tree, returns the SwiftBlock1 object.
+	 * Reads the &lt;block2&gt; element, returns the SwiftBlock2 object.
 	 * The method checks for the "type" attribute in the &lt;block2&gt; tag and
 	 * returns a SwiftBlock2Input or SwiftBlock2Output.
 	 *
-	 * @param blockNode Node object of the &lt;block2&gt; tag in the XML message
+	 * @param reader the reader positioned at the &lt;block2&gt; start element
 	 * @return SwiftBlock2 object populated with the given portion of the XML message
-	 * @see #getBlock2InputFromNode(Node)
-	 * @see #getBlock2OutputFromNode(Node)
+	 * @see #getBlock2Input(XMLStreamReader)
+	 * @see #getBlock2Output(XMLStreamReader)
 	 */
-	private SwiftBlock2 getBlock2FromNode(final Node blockNode) {
-		final String type = getNodeAttribute(blockNode, "type");
+	private SwiftBlock2 getBlock2(final XMLStreamReader reader) throws XMLStreamException {
+		final String type = reader.getAttributeValue(null, "type");
 
 		if (type == null) {
 			log.severe("atrribute 'type' was expected but not found at <block2> xml tag");
-			return null;
 		} else if ("input".equals(type)) {
-			return getBlock2InputFromNode(blockNode);
+			return getBlock2Input(reader);
 		} else if ("output".equals(type)) {
-			return getBlock2OutputFromNode(blockNode);
+			return getBlock2Output(reader);
 		} else {
 			log.severe("expected 'input' or 'output' value for 'type' atribute at <block2> xml tag, and found: " + type);
-			return null;
 		}
+		skip(reader);
+		return null;
 	}
 
 	/**
 	 * Helper method for XML representation parsing.<br>
-	 * Given the &lt;block2 type="input"&gt; node in the XML tree, returns the
-	 * SwiftBlock2Input object.
+	 * Reads the &lt;block2 type="input"&gt; element, returns the SwiftBlock2Input object.
 	 *
-	 * @param blockNode Node object of the &lt;block2&gt; tag in the XML message
+	 * @param reader the reader positioned at the &lt;block2&gt; start element
 	 * @return SwiftBlock2Input object populated with the given portion of the XML message
 	 */
-	private SwiftBlock2Input getBlock2InputFromNode(final Node blockNode) {
-		final NodeList fields = blockNode.getChildNodes();
-		if (log.isLoggable(Level.FINE)) {
-			log.fine(fields.getLength() + " childrens in <block2 type=\"input\">");
-		}
-
+	private SwiftBlock2Input getBlock2Input(final XMLStreamReader reader) throws XMLStreamException {
 		final SwiftBlock2Input b2 = new SwiftBlock2Input();
 
-		for (int i = 0; i < fields.getLength(); i++) {
-			final Node n = fields.item(i);
-			if ("MESSAGETYPE".equalsIgnoreCase(n.getNodeName())) {
-				b2.setMessageType(getText(n));
-			} else if ("RECEIVERADDRESS".equalsIgnoreCase(n.getNodeName())) {
-				b2.setReceiverAddress(getText(n));
-			} else if ("MESSAGEPRIORITY".equalsIgnoreCase(n.getNodeName())) {
-				b2.setMessagePriority(getText(n));
-			} else if ("DELIVERYMONITORING".equalsIgnoreCase(n.getNodeName())) {
-				b2.setDeliveryMonitoring(getText(n));
-			} else if ("OBSOLESCENCEPERIOD".equalsIgnoreCase(n.getNodeName())) {
-				b2.setObsolescencePeriod(getText(n));
-			} else if (UNPARSEDTEXTS.equalsIgnoreCase(n.getNodeName())) {
-				b2.setUnparsedTexts(getUnparsedTextsFromNode(n));
+		while (nextChild(reader)) {
+			final String name = reader.getLocalName();
+			if ("MESSAGETYPE".equalsIgnoreCase(name)) {
+				b2.setMessageType(getText(reader));
+			} else if ("RECEIVERADDRESS".equalsIgnoreCase(name)) {
+				b2.setReceiverAddress(getText(reader));
+			} else if ("MESSAGEPRIORITY".equalsIgnoreCase(name)) {
+				b2.setMessagePriority(getText(reader));
+			} else if ("DELIVERYMONITORING".equalsIgnoreCase(name)) {
+				b2.setDeliveryMonitoring(getText(reader));
+			} else if ("OBSOLESCENCEPERIOD".equalsIgnoreCase(name)) {
+				b2.setObsolescencePeriod(getText(reader));
+			} else if (UNPARSEDTEXTS.equalsIgnoreCase(name)) {
+				b2.setUnparsedTexts(getUnparsedTexts(reader));
+			} else {
+				skip(reader);
 			}
 		}
 
@@ -229,42 +222,38 @@ public class XMLParser {
 
 	/**
 	 * Helper method for XML representation parsing.<br>
-	 * Given the &lt;block2 type="output" node in the XML tree, returns the
-	 * SwiftBlock2Output object.
+	 * Reads the &lt;block2 type="output"&gt; element, returns the SwiftBlock2Output object.
 	 *
-	 * @param blockNode Node object of the &lt;block2&gt; tag in the XML message
+	 * @param reader the reader positioned at the &lt;block2&gt; start element
 	 * @return SwiftBlock2Output object populated with the given portion of the XML message
 	 */
-	private SwiftBlock2Output getBlock2OutputFromNode(final Node blockNode) {
-		final NodeList fields = blockNode.getChildNodes();
-		if (log.isLoggable(Level.FINE)) {
-			log.fine(fields.getLength() + " childrens in <block2 type=\"output\">");
-		}
-
+	private SwiftBlock2Output getBlock2Output(final XMLStreamReader reader) throws XMLStreamException {
 		final SwiftBlock2Output b2 = new SwiftBlock2Output();
 
-		for (int i = 0; i < fields.getLength(); i++) {
-			final Node n = fields.item(i);
-			if ("MESSAGETYPE".equalsIgnoreCase(n.getNodeName())) {
-				b2.setMessageType(getText(n));
-			} else if ("SENDERINPUTTIME".equalsIgnoreCase(n.getNodeName())) {
-				b2.setSenderInputTime(getText(n));
-			} else if ("MIRDATE".equalsIgnoreCase(n.getNodeName())) {
-				b2.setMIRDate(getText(n));
-			} else if ("MIRLOGICALTERMINAL".equalsIgnoreCase(n.getNodeName())) {
-				b2.setMIRLogicalTerminal(getText(n));
-			} else if ("MIRSESSIONNUMBER".equalsIgnoreCase(n.getNodeName())) {
-				b2.setMIRSessionNumber(getText(n));
-			} else if ("MIRSEQUENCENUMBER".equalsIgnoreCase(n.getNodeName())) {
-				b2.setMIRSequenceNumber(getText(n));
-			} else if ("RECEIVEROUTPUTDATE".equalsIgnoreCase(n.getNodeName())) {
-				b2.setReceiverOutputDate(getText(n));
-			} else if ("RECEIVEROUTPUTTIME".equalsIgnoreCase(n.getNodeName())) {
-				b2.setReceiverOutputTime(getText(n));
-			} else if ("MESSAGEPRIORITY".equalsIgnoreCase(n.getNodeName())) {
-				b2.setMessagePriority(getText(n));
-			} else if (UNPARSEDTEXTS.equalsIgnoreCase(n.getNodeName())) {
-				b2.setUnparsedTexts(getUnparsedTextsFromNode(n));
+		while (nextChild(reader)) {
+			final String name = reader.getLocalName();
+			if ("MESSAGETYPE".equalsIgnoreCase(name)) {
+				b2.setMessageType(getText(reader));
+			} else if ("SENDERINPUTTIME".equalsIgnoreCase(name)) {
+				b2.setSenderInputTime(getText(reader));
+			} else if ("MIRDATE".equalsIgnoreCase(name)) {
+				b2.setMIRDate(getText(reader));
+			} else if ("MIRLOGICALTERMINAL".equalsIgnoreCase(name)) {
+				b2.setMIRLogicalTerminal(getText(reader));
+			} else if ("MIRSESSIONNUMBER".equalsIgnoreCase(name)) {
+				b2.setMIRSessionNumber(getText(reader));
+			} else if ("MIRSEQUENCENUMBER".equalsIgnoreCase(name)) {
+				b2.setMIRSequenceNumber(getText(reader));
+			} else if ("RECEIVEROUTPUTDATE".equalsIgnoreCase(name)) {
+				b2.setReceiverOutputDate(getText(reader));
+			} else if ("RECEIVEROUTPUTTIME".equalsIgnoreCase(name)) {
+				b2.setReceiverOutputTime(getText(reader));
+			} else if ("MESSAGEPRIORITY".equalsIgnoreCase(name)) {
+				b2.setMessagePriority(getText(reader));
+			} else if (UNPARSEDTEXTS.equalsIgnoreCase(name)) {
+				b2.setUnparsedTexts(getUnparsedTexts(reader));
+			} else {
+				skip(reader);
 			}
 		}
 
@@ -273,15 +262,15 @@ public class XMLParser {
 
 	/**
 	 * Helper method for XML representation parsing.<br>
-	 * Given the &lt;block3&gt;, &lt;block4&gt;, &lt;block5&gt; or &lt;block&gt; (user block) node in
-	 * the XML tree, returns the corresponding SwiftTagListBlock object
+	 * Reads the &lt;block3&gt;, &lt;block4&gt;, &lt;block5&gt; or &lt;block&gt; (user block) element
+	 * and returns the corresponding SwiftTagListBlock object
 	 * populated with the given portion of the XML message.
 	 *
-	 * @param blockNode Node object of the &lt;block3&gt;, &lt;block4&gt;, &lt;block5&gt; or &lt;block&gt; tag in the XML message
-	 * @return SwiftTagListBlock object populated with the given portion of the XML message
+	 * @param reader the reader positioned at the block start element
+	 * @return SwiftTagListBlock object populated with the given portion of the XML message, or null if the element is not a block
 	 */
-	private SwiftTagListBlock getTagListBlockFromNode(final Node blockNode) {
-		final String blockName = blockNode.getNodeName();
+	private SwiftTagListBlock getTagListBlock(final XMLStreamReader reader) throws XMLStreamException {
+		final String blockName = reader.getLocalName();
 		SwiftTagListBlock b;
 		if ("block3".equalsIgnoreCase(blockName)) {
 			b = new SwiftBlock3();
@@ -290,31 +279,30 @@ public class XMLParser {
 		} else if ("block5".equalsIgnoreCase(blockName)) {
 			b = new SwiftBlock5();
 		} else if ("block".equalsIgnoreCase(blockName)) {
-			final String name = getNodeAttribute(blockNode, "name");
+			final String name = reader.getAttributeValue(null, "name");
 			if (name != null) {
 				b = new SwiftBlockUser(name);
 			} else {
 				b = new SwiftBlockUser();
 			}
 		} else {
+			skip(reader);
 			return null;
 		}
 
-		final NodeList fields = blockNode.getChildNodes();
-		if (log.isLoggable(Level.FINE)) {
-			log.fine(fields.getLength() + " children in tag list " + blockName);
-		}
-
-		for (int j = 0; j < fields.getLength(); j++) {
-			final Node t = fields.item(j);
-			if ("tag".equalsIgnoreCase(t.getNodeName())) {
-				final Tag tag = getTag(t);
-				b.append(tag);
-			} else if ("field".equalsIgnoreCase(t.getNodeName())) {
-					final Field field = getField(t);
+		while (nextChild(reader)) {
+			final String name = reader.getLocalName();
+			if ("tag".equalsIgnoreCase(name)) {
+				b.append(getTag(reader));
+			} else if ("field".equalsIgnoreCase(name)) {
+				final Field field = getField(reader);
+				if (field != null) {
 					b.append(field);
-			} else if (UNPARSEDTEXTS.equalsIgnoreCase(t.getNodeName())) {
-				b.setUnparsedTexts(getUnparsedTextsFromNode(t));
+				}
+			} else if (UNPARSEDTEXTS.equalsIgnoreCase(name)) {
+				b.setUnparsedTexts(getUnparsedTexts(reader));
+			} else {
+				skip(reader);
 			}
 		}
 
@@ -323,28 +311,25 @@ public class XMLParser {
 
 	/**
 	 * Helper method for XML representation parsing.<br>
-	 * Parses the given &lt;tag&gt; Node and returns a Tag object containing data from
+	 * Reads the given &lt;tag&gt; element and returns a Tag object containing data from
 	 * the expected &lt;name&gt; and &lt;value&gt; tags. If name or value are not found as
-	 * children of the given node, the Tag object is returned with empty values.
+	 * children of the given element, the Tag object is returned with empty values.
 	 *
-	 * @param t the XML node to parse for name-value pair
-	 * @return a Tag object containing the name and value of the given XML node.
+	 * @param reader the reader positioned at the &lt;tag&gt; start element
+	 * @return a Tag object containing the name and value of the given XML element.
 	 */
-	private Tag getTag(final Node t) {
+	private Tag getTag(final XMLStreamReader reader) throws XMLStreamException {
 		final Tag tag = new Tag();
-		final NodeList children = t.getChildNodes();
-		for (int i = 0; i < children.getLength(); i++) {
-			final Node n = children.item(i);
-			if ("name".equalsIgnoreCase(n.getNodeName())) {
-				tag.setName(getText(n));
-			}
-			if ("value".equalsIgnoreCase(n.getNodeName())) {
-				String text = getText(n);
-				//normalize line feeds (DOM parser removes carriage return characters from original XML file)
-				text = StringUtils.replace(text, "\n", FINWriterVisitor.SWIFT_EOL);
-				tag.setValue(text);
-			} else if (UNPARSEDTEXTS.equalsIgnoreCase(n.getNodeName())) {
-				tag.setUnparsedTexts(getUnparsedTextsFromNode(n));
+		while (nextChild(reader)) {
+			final String name = reader.getLocalName();
+			if ("name".equalsIgnoreCase(name)) {
+				tag.setName(getText(reader));
+			} else if ("value".equalsIgnoreCase(name)) {
+				tag.setValue(getMultilineText(reader));
+			} else if (UNPARSEDTEXTS.equalsIgnoreCase(name)) {
+				tag.setUnparsedTexts(getUnparsedTexts(reader));
+			} else {
+				skip(reader);
 			}
 		}
 		return tag;
@@ -352,37 +337,42 @@ public class XMLParser {
 	
 	/**
 	 * Helper method for XML representation parsing.<br>
-	 * Parses the given &gt;field&lt; Node and returns a Field object containing data from
+	 * Reads the given &lt;field&gt; element and returns a Field object containing data from
 	 * the expected &lt;name&gt; and &lt;component&gt; inner elements. 
 	 * If &lt;name&gt; element is not set it will return null. Otherwise it will return a Field
 	 * instance filled with content from &lt;component&gt; elements.
 	 *
-	 * @param t the XML node to parse for name-value pair
+	 * @param reader the reader positioned at the &lt;field&gt; start element
 	 * @return a Field object or null if "name" element is not present
 	 */
-	private Field getField(final Node t) {
-		final NodeList children = t.getChildNodes();
+	private Field getField(final XMLStreamReader reader) throws XMLStreamException {
 		String name = null;
-		for (int i = 0; i < children.getLength(); i++) {
-			final Node n = children.item(i);
-			if ("name".equalsIgnoreCase(n.getNodeName())) {
-				name = getText(n);
-				break;
+		// components are kept until the end of the element because the name could be found last
+		final List<Integer> numbers = new ArrayList<>();
+		final List<String> values = new ArrayList<>();
+		while (nextChild(reader)) {
+			final String element = reader.getLocalName();
+			if (name == null && "name".equalsIgnoreCase(element)) {
+				name = getText(reader);
+			} else if ("component".equalsIgnoreCase(element)) {
+				final String number = reader.getAttributeValue(null, "number");
+				final String text = getMultilineText(reader);
+				if (StringUtils.isNumeric(number)) {
+					numbers.add(Integer.valueOf(number));
+					values.add(text);
+				}
+			} else {
+				skip(reader);
 			}
 		}
 		if (name != null) {
-			Field field = Field.getField(name, null);
-			for (int i = 0; i < children.getLength(); i++) {
-				final Node n = children.item(i);
-				if ("component".equalsIgnoreCase(n.getNodeName())) {
-					final String number = getNodeAttribute(n, "number");
-					if (StringUtils.isNumeric(number)) {
-						String text = getText(n);
-						//normalize line feeds (DOM parser removes carriage return characters from original XML file)
-						text = StringUtils.replace(text, "\n", FINWriterVisitor.SWIFT_EOL);
-						field.setComponent(Integer.valueOf(number), text);
-					}
-				}
+			final Field field = Field.getField(name, null);
+			if (field == null) {
+				log.warning("Unknown field " + name + " in XML, the field is ignored");
+				return null;
+			}
+			for (int i = 0; i < numbers.size(); i++) {
+				field.setComponent(numbers.get(i), values.get(i));
 			}
 			return field;
 		}
@@ -391,43 +381,106 @@ public class XMLParser {
 
 	/**
 	 * Helper method for XML representation parsing.<br>
-	 * Given the &lt;unparsedtexts&gt; node in the XML tree, returns an
-	 * UnparsedTextList object populated with the contents of the <text> child
-	 * tags of &lt;unparsedtexts&gt;.
+	 * Reads the &lt;unparsedtexts&gt; element and returns an
+	 * UnparsedTextList object populated with the contents of the &lt;text&gt; children.
 	 *
-	 * @param blockNode Node object of the &lt;unparsedtexts&gt; tag in the XML message
+	 * @param reader the reader positioned at the &lt;unparsedtexts&gt; start element
 	 * @return UnparsedTextList object populated with the given &lt;text&gt; tags content of the &lt;unparsedtexts&gt;
 	 */
-	private UnparsedTextList getUnparsedTextsFromNode(final Node blockNode) {
+	private UnparsedTextList getUnparsedTexts(final XMLStreamReader reader) throws XMLStreamException {
 		final UnparsedTextList unparsedTexts = new UnparsedTextList();
+		while (nextChild(reader)) {
+			if ("text".equalsIgnoreCase(reader.getLocalName())) {
+				unparsedTexts.addText(getText(reader));
+			} else {
+				skip(reader);
+			}
+		}
+		return unparsedTexts;
+	}
 
-		final NodeList texts = blockNode.getChildNodes();
-		if (log.isLoggable(Level.FINE)) {
-			log.fine(texts.getLength() + " children in <unparsedtexts>");
+	/**
+	 * Text content with normalized line feeds
+	 * (the XML parser removes carriage return characters from original XML file)
+	 */
+	private static String getMultilineText(final XMLStreamReader reader) throws XMLStreamException {
+		return StringUtils.replace(getText(reader), "\n", FINWriterVisitor.SWIFT_EOL);
+	}
+
+	/**
+	 * Reads the text content of the current element, leaving the reader at its end element.
+	 * Text in nested elements is ignored.
+	 * @return the element text or null if the element is empty
+	 */
+	private static String getText(final XMLStreamReader reader) throws XMLStreamException {
+		StringBuilder text = null;
+		int depth = 1;
+		while (depth > 0) {
+			switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					if (depth == 1) {
+						log.warning("Unexpected element " + reader.getLocalName() + " in text content");
+					}
+					depth++;
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					depth--;
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					if (depth == 1) {
+						if (text == null) {
+							text = new StringBuilder();
+						}
+						text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+					}
+					break;
+				default:
+					break;
+			}
 		}
-		for (int j = 0; j < texts.getLength(); j++) {
-			final Node t = texts.item(j);
-			if ("text".equalsIgnoreCase(t.getNodeName())) {
-				unparsedTexts.addText(getText(t));
+		return text != null ? text.toString() : null;
+	}
+
+	/**
+	 * Moves the reader to the next child start element of the current element.
+	 * @return true if a child was found, false if the reader is at the end element of the current element
+	 */
+	private static boolean nextChild(final XMLStreamReader reader) throws XMLStreamException {
+		while (reader.hasNext()) {
+			final int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				return true;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				return false;
 			}
 		}
-		return unparsedTexts;
+		return false;
 	}
 
 	/**
-	 * Helper method for XML representation parsing.<br>
-	 * Gets the value of an expected attribute in a Node.
-	 *
-	 * @param n Node to analyze to find the attribute
-	 * @param attributeName the attribute name expected in the analyzed Node n
-	 * @return the value of the attribute expected, or null if the attribute was not found
+	 * Skips the current element and all its content
 	 */
-	private String getNodeAttribute(final Node n, final String attributeName) {
-		final Node attr = n.getAttributes().getNamedItem(attributeName);
-		if ((attr == null) || !attr.getNodeName().equals(attributeName)) {
-			return null;
-		} else {
-			return attr.getNodeValue();
+	private static void skip(final XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0 && reader.hasNext()) {
+			final int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	private static void close(final XMLStreamReader reader) {
+		if (reader != null) {
+			try {
+				reader.close();
+			} catch (final XMLStreamException e) {
+				log.log(Level.FINE, "Error closing XML reader", e);
+			}
 		}
 	}
 }
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io.writer;
+
+import com.prowidesoftware.ProwideException;
+import com.prowidesoftware.swift.model.SwiftBlock4;
+import com.prowidesoftware.swift.model.SwiftMessage;
+import com.prowidesoftware.swift.model.SwiftMessageUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Writer that computes the proprietary message checksums while the FIN content is written, without buffering
+ * the serialized message.
+ *
+ * <p>The written characters are encoded in UTF-8 and fed into two MD5 digests: one for the complete message and
+ * one for the text block (block 4). The resulting hashes are the same as the ones returned by
+ * {@link SwiftMessageUtils#calculateChecksum(SwiftMessage)} and {@link SwiftMessageUtils#calculateChecksum(SwiftBlock4)},
+ * but both are computed in a single serialization of the message.
+ *
+ * <p>Besides {@link #update(SwiftMessage)}, the writer can be fed with the raw message text, for example with
+ * {@link com.prowidesoftware.swift.io.parser.SwiftParser#setChecksumWriter(ChecksumWriter)} while parsing. In that case
+ * the checksums match the ones computed from the message object when the raw content is in canonical FIN format,
+ * meaning CRLF line breaks and no empty blocks.
+ *
+ * <p>Instances are reusable, calling {@link #reset()} or any update method starts a new computation, but they are
+ * not thread safe.
+ *
+ * @since 8.0.2
+ */
+public class ChecksumWriter extends Utf8Writer {
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	private static final int BUFFER_SIZE = 1024;
+
+	private final MessageDigest messageDigest;
+	private final MessageDigest bodyDigest;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private final char[] hex = new char[32];
+	private int pos = 0;
+	private boolean inBody = false;
+	private boolean bodyWritten = false;
+	private String checksum;
+	private String checksumBody;
+
+	/**
+	 * Creates a writer with its digests ready to use
+	 * @throws ProwideException if the MD5 algorithm is not available
+	 */
+	public ChecksumWriter() {
+		try {
+			this.messageDigest = MessageDigest.getInstance("MD5");
+			this.bodyDigest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new ProwideException("cannot create MD5 digest", e);
+		}
+	}
+
+	/**
+	 * Discards any written content and computed checksums
+	 */
+	public void reset() {
+		this.messageDigest.reset();
+		this.bodyDigest.reset();
+		this.pos = 0;
+		resetEncoder();
+		this.inBody = false;
+		this.bodyWritten = false;
+		this.checksum = null;
+		this.checksumBody = null;
+	}
+
+	/**
+	 * Computes the checksums of the message serialized in FIN format.
+	 *
+	 * <p>The text block is captured while the message is written; it is serialized again only when the message
+	 * writes block 4 in tag-block syntax (system and service messages) or when block 4 is empty, because in those
+	 * cases the standalone block 4 format differs from its content in the message.
+	 *
+	 * @param msg the message to write, must not be null
+	 * @return this writer, to get the checksums from
+	 */
+	public ChecksumWriter update(final SwiftMessage msg) {
+		Validate.notNull(msg, "msg cannot be null");
+		reset();
+		final Visitor v = new Visitor(this);
+		SwiftWriter.writeMessage(msg, v, true);
+		this.checksum = digest(this.messageDigest);
+		if (this.bodyWritten) {
+			this.checksumBody = digest(this.bodyDigest);
+		} else if (msg.getBlock4() != null) {
+			final String message = this.checksum;
+			update(msg.getBlock4());
+			this.checksum = message;
+		}
+		return this;
+	}
+
+	/**
+	 * Computes the checksum of the text block serialized in FIN format.
+	 * The whole message checksum is not available after this call.
+	 *
+	 * @param b4 the block to write, must not be null
+	 * @return this writer, to get {@link #getChecksumBody()} from
+	 */
+	public ChecksumWriter update(final SwiftBlock4 b4) {
+		Validate.notNull(b4, "b4 cannot be null");
+		reset();
+		beginBody();
+		SwiftWriter.writeBlock4(b4, this);
+		endBody();
+		this.checksumBody = digest(this.bodyDigest);
+		return this;
+	}
+
+	/**
+	 * Writes the raw content of a block, adding the block boundaries.
+	 * This is meant to be called for each block read from the raw message text, in order.
+	 *
+	 * @param content block content without the starting and ending brackets, for example "1:F01..."
+	 * @param textBlock true if the content is the text block (block 4)
+	 */
+	public void writeBlock(final CharSequence content, final boolean textBlock) {
+		if (textBlock) {
+			beginBody();
+		}
+		encode('{');
+		for (int i = 0; i < content.length(); i++) {
+			encode(content.charAt(i));
+		}
+		encode('}');
+		if (textBlock) {
+			endBody();
+		}
+	}
+
+	/**
+	 * Marks the beginning of the text block, all content written until {@link #endBody()} will also be included
+	 * in the text block checksum
+	 */
+	public void beginBody() {
+		flushBuffer();
+		this.inBody = true;
+		this.bodyWritten = true;
+	}
+
+	/**
+	 * Marks the end of the text block
+	 */
+	public void endBody() {
+		flushBuffer();
+		this.inBody = false;
+	}
+
+	/**
+	 * Gets the checksum of the complete written content, finishing the computation if necessary.
+	 * @return a 32 characters hexadecimal MD5 hash
+	 * @see SwiftMessageUtils#calculateChecksum(SwiftMessage)
+	 */
+	public String getChecksum() {
+		if (this.checksum == null) {
+			flushBuffer();
+			this.checksum = digest(this.messageDigest);
+		}
+		return this.checksum;
+	}
+
+	/**
+	 * Gets the checksum of the written text block, finishing the computation if necessary.
+	 * @return a 32 characters hexadecimal MD5 hash or null if no text block was written
+	 * @see SwiftMessageUtils#calculateChecksum(SwiftBlock4)
+	 */
+	public String getChecksumBody() {
+		if (this.checksumBody == null && this.bodyWritten) {
+			flushBuffer();
+			this.checksumBody = digest(this.bodyDigest);
+		}
+		return this.checksumBody;
+	}
+
+	@Override
+	void put(final int b) {
+		if (this.pos == BUFFER_SIZE) {
+			flushBuffer();
+		}
+		this.buffer[this.pos++] = (byte) b;
+	}
+
+	private void flushBuffer() {
+		endOfInput();
+		if (this.pos > 0) {
+			this.messageDigest.update(this.buffer, 0, this.pos);
+			if (this.inBody) {
+				this.bodyDigest.update(this.buffer, 0, this.pos);
+			}
+			this.pos = 0;
+		}
+	}
+
+	private String digest(final MessageDigest md) {
+		flushBuffer();
+		final byte[] hash = md.digest();
+		for (int i = 0; i < hash.length; i++) {
+			this.hex[i * 2] = HEX[(hash[i] >> 4) & 0x0F];
+			this.hex[i * 2 + 1] = HEX[hash[i] & 0x0F];
+		}
+		return new String(this.hex, 0, hash.length * 2);
+	}
+
+	/**
+	 * FIN writer marking the text block boundaries when it is written in text syntax
+	 */
+	private static final class Visitor extends FINWriterVisitor {
+		private final ChecksumWriter writer;
+
+		Visitor(final ChecksumWriter writer) {
+			super(writer);
+			this.writer = writer;
+		}
+
+		@Override
+		public void startBlock4(final SwiftBlock4 b) {
+			if (isBlock4asText()) {
+				this.writer.beginBody();
+			}
+			super.startBlock4(b);
+		}
+
+		@Override
+		public void endBlock4(final SwiftBlock4 b) {
+			final boolean text = isBlock4asText();
+			super.endBlock4(b);
+			if (text) {
+				this.writer.endBody();
+			}
+		}
+	}
+
+}
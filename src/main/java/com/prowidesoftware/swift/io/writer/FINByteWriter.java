@@ -0,0 +1,198 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io.writer;
+
+import com.prowidesoftware.swift.model.SwiftMessage;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes messages in FIN format directly as bytes, without building the intermediate String.
+ *
+ * <p>The output is the same as {@link com.prowidesoftware.swift.io.ConversionService#getFIN(SwiftMessage)} encoded in
+ * UTF-8 (plain ASCII for valid SWIFT content): empty blocks are skipped and line breaks are normalized to CRLF while
+ * writing, as done by {@link SwiftWriter#ensureEols(String)}, including the removal of a trailing line break.
+ * Field values can be optionally trimmed with {@link #setTrimTagValues(boolean)}.
+ *
+ * <p>The bytes are kept in an internal array that grows as needed and is reused for the next message, so a single
+ * instance can serialize a stream of messages without further allocation. Instances are not thread safe.
+ *
+ * @since 8.0.2
+ */
+public class FINByteWriter extends Utf8Writer {
+	private static final int DEFAULT_CAPACITY = 4096;
+
+	private byte[] bytes;
+	private int length = 0;
+	private boolean trimTagValues = false;
+	private boolean pendingEol = false;
+	private boolean lastCR = false;
+
+	/**
+	 * Creates a writer with a default initial capacity
+	 */
+	public FINByteWriter() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a writer with a specific initial capacity
+	 * @param initialCapacity initial size in bytes of the internal buffer
+	 * @throws IllegalArgumentException if the capacity is not positive
+	 */
+	public FINByteWriter(final int initialCapacity) {
+		Validate.isTrue(initialCapacity > 0, "initialCapacity must be positive");
+		this.bytes = new byte[initialCapacity];
+	}
+
+	/**
+	 * Serializes the message, replacing any previous content of the writer.
+	 *
+	 * @param msg the message to write
+	 * @return the encoded length in bytes
+	 * @throws IllegalArgumentException if the message is null
+	 */
+	public int write(final SwiftMessage msg) {
+		Validate.notNull(msg, "message to write cannot be null");
+		reset();
+		final FINWriterVisitor v = new FINWriterVisitor(this);
+		v.setTrimTagValues(this.trimTagValues);
+		SwiftWriter.writeMessage(msg, v, true);
+		endOfInput();
+		// the trailing line break, if any, is dropped
+		this.pendingEol = false;
+		this.lastCR = false;
+		return this.length;
+	}
+
+	/**
+	 * Discards the current content
+	 */
+	public void reset() {
+		this.length = 0;
+		this.pendingEol = false;
+		this.lastCR = false;
+		resetEncoder();
+	}
+
+	/**
+	 * @return the encoded length in bytes of the last written message
+	 */
+	public int length() {
+		return this.length;
+	}
+
+	/**
+	 * Returns a buffer wrapping the written bytes, from position zero to the encoded length.
+	 * The buffer shares the internal array and is valid until the next write.
+	 * @return a read only view of the current content
+	 */
+	public ByteBuffer toByteBuffer() {
+		return ByteBuffer.wrap(this.bytes, 0, this.length).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return a copy of the current content
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(this.bytes, this.length);
+	}
+
+	/**
+	 * Copies the current content into the stream
+	 * @param out the target stream
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void writeTo(final OutputStream out) throws IOException {
+		out.write(this.bytes, 0, this.length);
+	}
+
+	/**
+	 * Copies the current content into the buffer, starting at its current position
+	 * @param target the target buffer
+	 * @throws java.nio.BufferOverflowException if the remaining space in the target is less than {@link #length()}
+	 */
+	public void writeTo(final ByteBuffer target) {
+		target.put(this.bytes, 0, this.length);
+	}
+
+	/**
+	 * @return the current content decoded as String
+	 */
+	@Override
+	public String toString() {
+		return new String(this.bytes, 0, this.length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @see FINWriterVisitor#isTrimTagValues()
+	 */
+	public boolean isTrimTagValues() {
+		return trimTagValues;
+	}
+
+	/**
+	 * @see FINWriterVisitor#setTrimTagValues(boolean)
+	 */
+	public void setTrimTagValues(final boolean trimTagValues) {
+		this.trimTagValues = trimTagValues;
+	}
+
+	/**
+	 * Normalizes any CR, LF or CRLF into CRLF. Each line break is written when the next character arrives, so that
+	 * the last one is never written.
+	 */
+	@Override
+	void writeChar(final char c) {
+		if (c == '\r' || c == '\n') {
+			if (c == '\n' && this.lastCR) {
+				this.lastCR = false;
+				return;
+			}
+			if (this.pendingEol) {
+				putEol();
+			}
+			this.pendingEol = true;
+			this.lastCR = c == '\r';
+			return;
+		}
+		this.lastCR = false;
+		if (this.pendingEol) {
+			this.pendingEol = false;
+			putEol();
+		}
+		encode(c);
+	}
+
+	private void putEol() {
+		put('\r');
+		put('\n');
+	}
+
+	@Override
+	void put(final int b) {
+		if (this.length == this.bytes.length) {
+			this.bytes = Arrays.copyOf(this.bytes, this.bytes.length * 2);
+		}
+		this.bytes[this.length++] = (byte) b;
+	}
+
+}
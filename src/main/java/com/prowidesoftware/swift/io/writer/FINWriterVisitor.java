@@ -59,6 +59,14 @@ public class FINWriterVisitor implements IMessageVisitor {
 		this.trimTagValues = trimTagValues;
 	}
 
+	/**
+	 * @return true if block 4 is being written in text syntax, as determined in {@link #startMessage(SwiftMessage)}
+	 * @since 8.0.2
+	 */
+	boolean isBlock4asText() {
+		return block4asText;
+	}
+
 	/**
 	 * @param writer
 	 */
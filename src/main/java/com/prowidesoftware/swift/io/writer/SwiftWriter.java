@@ -91,7 +91,18 @@ public class SwiftWriter {
     	Validate.notNull(writer, WRITER_MESSAGE);
 		FINWriterVisitor v = new FINWriterVisitor(writer);
 		v.setTrimTagValues(trimTagValues);
+		writeMessage(msg, v, ignoreEmptyBlocks);
+	}
 
+	/**
+	 * Writes the given message content with the given visitor
+	 *
+	 * @param msg the message to write
+	 * @param v the visitor with the writer that will actually receive all the write operations
+	 * @param ignoreEmptyBlocks if true, empty blocks will not be written
+	 * @since 8.0.2
+	 */
+	static void writeMessage(SwiftMessage msg, FINWriterVisitor v, boolean ignoreEmptyBlocks) {
     	if (ignoreEmptyBlocks) {
 			// copy the blocks to a new message container
 			SwiftMessage copy = new SwiftMessage();
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io.writer;
+
+import java.io.Writer;
+
+/**
+ * Base writer encoding the written characters in UTF-8 into single bytes, without intermediate arrays or Strings.
+ * Malformed surrogates are replaced with '?' as {@link String#getBytes(java.nio.charset.Charset)} does.
+ *
+ * @since 8.0.2
+ */
+abstract class Utf8Writer extends Writer {
+	private char highSurrogate = 0;
+
+	/**
+	 * Receives each encoded byte
+	 */
+	abstract void put(int b);
+
+	/**
+	 * Receives each written character, by default it is just encoded
+	 */
+	void writeChar(final char c) {
+		encode(c);
+	}
+
+	/**
+	 * Flushes a pending high surrogate, to be called when no more characters will be written
+	 */
+	void endOfInput() {
+		if (this.highSurrogate != 0) {
+			this.highSurrogate = 0;
+			put('?');
+		}
+	}
+
+	/**
+	 * Discards a pending high surrogate
+	 */
+	void resetEncoder() {
+		this.highSurrogate = 0;
+	}
+
+	final void encode(final char c) {
+		if (this.highSurrogate != 0) {
+			final char high = this.highSurrogate;
+			this.highSurrogate = 0;
+			if (Character.isLowSurrogate(c)) {
+				final int cp = Character.toCodePoint(high, c);
+				put(0xF0 | (cp >> 18));
+				put(0x80 | ((cp >> 12) & 0x3F));
+				put(0x80 | ((cp >> 6) & 0x3F));
+				put(0x80 | (cp & 0x3F));
+				return;
+			}
+			put('?');
+		}
+		if (c < 0x80) {
+			put(c);
+		} else if (c < 0x800) {
+			put(0xC0 | (c >> 6));
+			put(0x80 | (c & 0x3F));
+		} else if (Character.isHighSurrogate(c)) {
+			this.highSurrogate = c;
+		} else if (Character.isLowSurrogate(c)) {
+			put('?');
+		} else {
+			put(0xE0 | (c >> 12));
+			put(0x80 | ((c >> 6) & 0x3F));
+			put(0x80 | (c & 0x3F));
+		}
+	}
+
+	@Override
+	public void write(final char[] cbuf, final int off, final int len) {
+		for (int i = off; i < off + len; i++) {
+			writeChar(cbuf[i]);
+		}
+	}
+
+	@Override
+	public void write(final String str, final int off, final int len) {
+		for (int i = off; i < off + len; i++) {
+			writeChar(str.charAt(i));
+		}
+	}
+
+	@Override
+	public void write(final int c) {
+		writeChar((char) c);
+	}
+
+	@Override
+	public void flush() {
+		// nothing to do, encoded bytes are handled by the implementation
+	}
+
+	@Override
+	public void close() {
+		// nothing to close
+	}
+
+}
@@ -20,8 +20,11 @@ import com.prowidesoftware.swift.model.*;
 import com.prowidesoftware.swift.model.field.Field;
 import com.prowidesoftware.swift.utils.IMessageVisitor;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
 
-import java.io.IOException;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import java.io.Writer;
 import java.util.List;
 import java.util.logging.Level;
@@ -29,6 +32,11 @@ import java.util.logging.Level;
 /**
  * Main class for XML generation, that is called from {@link SwiftMessage#visit(IMessageVisitor)}.
  * Presence of blocks is checked by the calling class so the methods below asume that blocks are not null.
+ *
+ * <p>The XML is streamed into a {@link XMLStreamWriter} as the message is visited, so element content is
+ * properly escaped and no intermediate strings are created. The stream writer is flushed at the end of each
+ * message but never closed, thus several messages can be written into a single document using
+ * {@link #XMLWriterVisitor(XMLStreamWriter, boolean)}.
  * 
  * @author www.prowidesoftware.com
  */
@@ -38,7 +46,9 @@ public class XMLWriterVisitor implements IMessageVisitor {
 	
 	private static final String EOL = System.getProperties().getProperty("line.separator", "\n");
 
-	private Writer writer;
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+	private final XMLStreamWriter xml;
 
 	private boolean useField;
 
@@ -48,7 +58,7 @@ public class XMLWriterVisitor implements IMessageVisitor {
 	 * @param writer
 	 */
 	public XMLWriterVisitor(Writer writer) {
-		this.writer = writer;
+		this(writer, false);
 	}
 	
 	/**
@@ -57,17 +67,45 @@ public class XMLWriterVisitor implements IMessageVisitor {
 	 * @param useField use {@link Field} for serialization, instead of Tag
 	 */
 	public XMLWriterVisitor(Writer writer, boolean useField) {
-		this.writer = writer;
+		this(createXMLStreamWriter(writer), useField);
+	}
+
+	/**
+	 * Constructor for XMLWriteVisitor from a StAX writer, to write the message elements at the current position
+	 * of a larger document.
+	 * @param xml the stream writer to write into
+	 * @param useField use {@link Field} for serialization, instead of Tag
+	 * @since 8.0.2
+	 */
+	public XMLWriterVisitor(XMLStreamWriter xml, boolean useField) {
+		Validate.notNull(xml, "XML stream writer cannot be null");
+		this.xml = xml;
 		this.useField = useField;
 	}
 
+	/**
+	 * Creates a StAX writer over the given writer, with the same factory used internally by this visitor
+	 * @param writer the target writer
+	 * @return a new stream writer
+	 * @throws ProwideException if the stream writer cannot be created
+	 * @since 8.0.2
+	 */
+	public static XMLStreamWriter createXMLStreamWriter(final Writer writer) {
+		Validate.notNull(writer, "writer cannot be null");
+		try {
+			return OUTPUT_FACTORY.createXMLStreamWriter(writer);
+		} catch (XMLStreamException e) {
+			throw new ProwideException("Error creating the XML stream writer", e);
+		}
+	}
+
 	////////////////////////////////////////////////////////////
 	//
 	// MESSAGE HANDLING
 	//
 	////////////////////////////////////////////////////////////
 	public void startMessage(SwiftMessage m) {
-		write("<message>");
+		start("message");
 	}
 
 	public void endMessage(SwiftMessage m) {
@@ -80,7 +118,13 @@ public class XMLWriterVisitor implements IMessageVisitor {
 		if (m.getUnparsedTextsSize().intValue() > 0)
 			write(m.getUnparsedTexts(), 0);
 
-		write(EOL+"</message>");
+		newLine("");
+		end();
+		try {
+			xml.flush();
+		} catch (XMLStreamException e) {
+			throw error(e);
+		}
 	}
 
 	////////////////////////////////////////////////////////////
@@ -89,25 +133,24 @@ public class XMLWriterVisitor implements IMessageVisitor {
 	//
 	////////////////////////////////////////////////////////////
 	public void startBlock1(SwiftBlock1 b) {
-		write(EOL+"<block1>");
+		newLine("");
+		start("block1");
 	}
 
 	public void value(SwiftBlock1  b, String v) {
 		// generate the attributes for this block
-		final StringBuilder sb = new StringBuilder();
 		if ( ! b.isEmpty()) {
-			appendElement(sb, "applicationId", b.getApplicationId());
-			appendElement(sb, "serviceId", b.getServiceId());
-			appendElement(sb, "logicalTerminal", b.getLogicalTerminal());
+			appendElement("applicationId", b.getApplicationId());
+			appendElement("serviceId", b.getServiceId());
+			appendElement("logicalTerminal", b.getLogicalTerminal());
 			if (b.getSessionNumber() != null) {
 				// optional for service messages
-				appendElement(sb, "sessionNumber", b.getSessionNumber());
+				appendElement("sessionNumber", b.getSessionNumber());
 			}
 			if (b.getSequenceNumber() != null) {
 				// optional for service messages
-				appendElement(sb, "sequenceNumber",	b.getSequenceNumber());
+				appendElement("sequenceNumber",	b.getSequenceNumber());
 			}
-			write(sb.toString());
 		}
 	}
 	
@@ -122,7 +165,8 @@ public class XMLWriterVisitor implements IMessageVisitor {
 			write(b.getUnparsedTexts(), 1);
 
 		// write block termination
-		write(EOL+"</block1>");
+		newLine("");
+		end();
 	}
 
 	////////////////////////////////////////////////////////////
@@ -131,15 +175,15 @@ public class XMLWriterVisitor implements IMessageVisitor {
 	//
 	////////////////////////////////////////////////////////////
 	public void startBlock2(SwiftBlock2 b) {
-		// decide on the tag to use
-		String xmlTag = "<block2>";
+		newLine("");
+		start("block2");
+		// decide on the type to use
 		if (!b.isEmpty()) {
 			if (b instanceof SwiftBlock2Input)
-				xmlTag = "<block2 type=\"input\">";
+				attribute("type", "input");
 			if (b instanceof SwiftBlock2Output)
-				xmlTag = "<block2 type=\"output\">";
+				attribute("type", "output");
 		}
-		write(EOL + xmlTag);
 	}
 
 	public void value(SwiftBlock2  b, String v) {
@@ -150,39 +194,36 @@ public class XMLWriterVisitor implements IMessageVisitor {
 		}
 		
 		// generate the attributes for this block
-		final StringBuilder sb = new StringBuilder();
 		if (b instanceof SwiftBlock2Input) {
 			SwiftBlock2Input b2 = (SwiftBlock2Input) b;
-			appendElement(sb, "messageType", b2.getMessageType());
-			appendElement(sb, "receiverAddress", b2.getReceiverAddress());
+			appendElement("messageType", b2.getMessageType());
+			appendElement("receiverAddress", b2.getReceiverAddress());
 			if (b2.getMessagePriority() != null) {
 				// optional for service messages
-				appendElement(sb, "messagePriority", b2.getMessagePriority());
+				appendElement("messagePriority", b2.getMessagePriority());
 			}
 			if (b2.getDeliveryMonitoring() != null)	{
 				// optional for service messages
-				appendElement(sb, "deliveryMonitoring",	b2.getDeliveryMonitoring());
+				appendElement("deliveryMonitoring",	b2.getDeliveryMonitoring());
 			}
 			if (b2.getObsolescencePeriod() != null)	{
 				// optional for service messages
-				appendElement(sb, "obsolescencePeriod",	b2.getObsolescencePeriod());
+				appendElement("obsolescencePeriod",	b2.getObsolescencePeriod());
 			}
 		}
 		if (b instanceof SwiftBlock2Output) {
 			SwiftBlock2Output b2 = (SwiftBlock2Output) b;
-			appendElement(sb, "messageType",		b2.getMessageType());
-			appendElement(sb, "senderInputTime",	b2.getSenderInputTime());
-			appendElement(sb, "MIRDate",			b2.getMIRDate());
-			appendElement(sb, "MIRLogicalTerminal",	b2.getMIRLogicalTerminal());
-			appendElement(sb, "MIRSessionNumber",	b2.getMIRSessionNumber());
-			appendElement(sb, "MIRSequenceNumber",	b2.getMIRSequenceNumber());
-			appendElement(sb, "receiverOutputDate",	b2.getReceiverOutputDate());
-			appendElement(sb, "receiverOutputTime",	b2.getReceiverOutputTime());
+			appendElement("messageType",		b2.getMessageType());
+			appendElement("senderInputTime",	b2.getSenderInputTime());
+			appendElement("MIRDate",			b2.getMIRDate());
+			appendElement("MIRLogicalTerminal",	b2.getMIRLogicalTerminal());
+			appendElement("MIRSessionNumber",	b2.getMIRSessionNumber());
+			appendElement("MIRSequenceNumber",	b2.getMIRSequenceNumber());
+			appendElement("receiverOutputDate",	b2.getReceiverOutputDate());
+			appendElement("receiverOutputTime",	b2.getReceiverOutputTime());
 			if (b2.getMessagePriority() != null)		// optional for service messages
-			appendElement(sb, "messagePriority",	b2.getMessagePriority());
+			appendElement("messagePriority",	b2.getMessagePriority());
 		}
-		
-		write(sb.toString());
 	}
 
 	public void endBlock2(SwiftBlock2 b) {
@@ -196,7 +237,8 @@ public class XMLWriterVisitor implements IMessageVisitor {
 			write(b.getUnparsedTexts(), 1);
 
 		// write block termination
-		write(EOL+"</block2>");
+		newLine("");
+		end();
 	}
 
 	////////////////////////////////////////////////////////////
@@ -205,7 +247,8 @@ public class XMLWriterVisitor implements IMessageVisitor {
 	//
 	////////////////////////////////////////////////////////////
 	public void startBlock3(SwiftBlock3 b) {
-		write(EOL+"<block3>");
+		newLine("");
+		start("block3");
 	}
 
 	public void tag(SwiftBlock3 b, Tag t) {
@@ -223,7 +266,8 @@ public class XMLWriterVisitor implements IMessageVisitor {
 			write(b.getUnparsedTexts(), 1);
 
 		// write block termination
-		write(EOL+"</block3>");
+		newLine("");
+		end();
 	}
 
 	////////////////////////////////////////////////////////////
@@ -232,7 +276,8 @@ public class XMLWriterVisitor implements IMessageVisitor {
 	//
 	////////////////////////////////////////////////////////////
 	public void startBlock4(SwiftBlock4 b) {
-		write(EOL+"<block4>");
+		newLine("");
+		start("block4");
 	}
 
 	public void tag(SwiftBlock4 b, Tag t) {
@@ -254,7 +299,8 @@ public class XMLWriterVisitor implements IMessageVisitor {
 			write(b.getUnparsedTexts(), 1);
 
 		// write block termination
-		write(EOL+"</block4>");
+		newLine("");
+		end();
 	}
 
 	////////////////////////////////////////////////////////////
@@ -263,7 +309,8 @@ public class XMLWriterVisitor implements IMessageVisitor {
 	//
 	////////////////////////////////////////////////////////////
 	public void startBlock5(SwiftBlock5 b) {
-		write(EOL+"<block5>");
+		newLine("");
+		start("block5");
 	}
 
 	public void tag(SwiftBlock5 b, Tag t) {
@@ -281,7 +328,8 @@ public class XMLWriterVisitor implements IMessageVisitor {
 			write(b.getUnparsedTexts(), 1);
 
 		// write block termination
-		write(EOL+"</block5>");
+		newLine("");
+		end();
 	}
 
 	////////////////////////////////////////////////////////////
@@ -290,7 +338,10 @@ public class XMLWriterVisitor implements IMessageVisitor {
 	//
 	////////////////////////////////////////////////////////////
 	public void startBlockUser(SwiftBlockUser b) {
-		write(EOL+"<block name=\"" + b.getName() + "\">");
+		newLine("");
+		start("block");
+		if (b.getName() != null)
+			attribute("name", b.getName());
 	}
 
 	public void tag(SwiftBlockUser b, Tag t) {
@@ -308,7 +359,8 @@ public class XMLWriterVisitor implements IMessageVisitor {
 			write(b.getUnparsedTexts(), 1);
 
 		// write block termination
-		write(EOL+"</block>");
+		newLine("");
+		end();
 	}
 
 	////////////////////////////////////////////////////////////
@@ -340,15 +392,10 @@ public class XMLWriterVisitor implements IMessageVisitor {
 	////////////////////////////////////////////////////////////
 	private final void appendTag(Tag t) {
 		// generate the xml tag
-		write(EOL+"\t<tag>");
-		write(EOL+"\t\t<name>");
-		if (t.getName() != null)			// otherwise, null name writes name "null"
-			write(t.getName());
-		write("</name>");
-		write(EOL+"\t\t<value>");
-		if (t.getValue() != null)			// otherwise, null value writes value "null" 
-			write(t.getValue());
-		write("</value>");
+		newLine("\t");
+		start("tag");
+		element("\t\t", "name", t.getName());
+		element("\t\t", "value", t.getValue());
 
 		// if tag has unparsed texts, write them down
 		//
@@ -359,7 +406,8 @@ public class XMLWriterVisitor implements IMessageVisitor {
 			write(t.getUnparsedTexts(), 2);
 
 		// write tag termination
-		write(EOL+"\t</tag>");
+		newLine("\t");
+		end();
 	}
 
 	private void appendField(Tag tag) {
@@ -370,31 +418,29 @@ public class XMLWriterVisitor implements IMessageVisitor {
 			// Something went wrong
 		} else {
 			// generate the xml tag
-			write(EOL+"\t<field>");
-			write(EOL+"\t\t<name>");
-			if (f.getName() != null)			// otherwise, null name writes name "null"
-				write(f.getName());
-			write("</name>");
+			newLine("\t");
+			start("field");
+			element("\t\t", "name", f.getName());
 			final List<String> components = f.getComponents();
 			for(int i=0;i<components.size();i++) {
-				final int id = i+1;
 				final String component = components.get(i);
 				if (component != null) {
-					write(EOL+"\t\t<component number=\""+id+"\">");
-					write(component);
-					write("</component>");
+					newLine("\t\t");
+					start("component");
+					attribute("number", String.valueOf(i+1));
+					characters(component);
+					end();
 				}
 			}
 
 			// write tag termination
-			write(EOL+"\t</field>");
+			newLine("\t");
+			end();
 		}
 	}
 
-	private final void appendElement(StringBuilder sb, String element, String value) {
-		sb.append(EOL+"\t<").append(element).append('>')
-		.append(value)
-		.append("</").append(element).append('>');
+	private void appendElement(String element, String value) {
+		element("\t", element, value);
 	}
 
 	private void write(UnparsedTextList texts, int level) {
@@ -408,22 +454,65 @@ public class XMLWriterVisitor implements IMessageVisitor {
 		
 		// write the unparsed texts (if any)
 		if (texts.size().intValue() > 0) {
-			write(EOL + prefix + "<unparsedTexts>");
+			newLine(prefix);
+			start("unparsedTexts");
 			for(int i = 0; i < texts.size().intValue(); i++) {
-				write(EOL + prefix + "\t<text>");
-				write(texts.getText(Integer.valueOf(i)));
-				write("</text>");
+				element(prefix + "\t", "text", texts.getText(Integer.valueOf(i)));
 			}
-			write(EOL + prefix + "</unparsedTexts>");
+			newLine(prefix);
+			end();
+		}
+	}
+
+	/**
+	 * Writes a simple element in a new line, null values are written as empty elements
+	 */
+	private void element(String indent, String name, String value) {
+		newLine(indent);
+		start(name);
+		if (value != null)
+			characters(value);
+		end();
+	}
+
+	private void newLine(String indent) {
+		characters(EOL + indent);
+	}
+
+	private void start(String name) {
+		try {
+			xml.writeStartElement(name);
+		} catch (XMLStreamException e) {
+			throw error(e);
+		}
+	}
+
+	private void attribute(String name, String value) {
+		try {
+			xml.writeAttribute(name, value);
+		} catch (XMLStreamException e) {
+			throw error(e);
 		}
 	}
 
-	private void write(String s) {
+	private void characters(String s) {
 		try {
-			writer.write(s);
-		} catch (IOException e) {
-			log.log(Level.SEVERE, "Caught exception in XMLWriterVisitor, method write", e);
-			throw new ProwideException(e);
+			xml.writeCharacters(s);
+		} catch (XMLStreamException e) {
+			throw error(e);
 		}
 	}
+
+	private void end() {
+		try {
+			xml.writeEndElement();
+		} catch (XMLStreamException e) {
+			throw error(e);
+		}
+	}
+
+	private static ProwideException error(XMLStreamException e) {
+		log.log(Level.SEVERE, "Caught exception in XMLWriterVisitor, method write", e);
+		return new ProwideException(e);
+	}
 }
@@ -15,12 +15,13 @@
  */
 package com.prowidesoftware.swift.model;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.prowidesoftware.JsonSerializable;
+import com.prowidesoftware.ProwideException;
+import com.prowidesoftware.swift.utils.JsonUtils;
 import com.prowidesoftware.swift.utils.Lib;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
 
 import javax.persistence.*;
 import javax.xml.bind.annotation.XmlTransient;
@@ -66,6 +67,13 @@ public abstract class AbstractSwiftMessage implements Serializable, JsonSerializ
 	private static final transient java.util.logging.Logger log = java.util.logging.Logger.getLogger(AbstractSwiftMessage.class.getName());
 	private static final long serialVersionUID = 3769865560736793606L;
 
+	/**
+	 * Default number of revisions from a full content snapshot to the last delta revision
+	 * @see #createDeltaRevision()
+	 * @since 8.0.2
+	 */
+	public static final int DEFAULT_REVISION_SNAPSHOT_INTERVAL = 10;
+
 	/**
 	 * Identifier constant for acknowledge service messages
 	 * @since 7.8.8
@@ -1017,6 +1025,80 @@ public abstract class AbstractSwiftMessage implements Serializable, JsonSerializ
 		return rev;
 	}
 
+	/**
+	 * Creates a new revision of the message storing only the difference with the previous revision, and adds it to
+	 * the revision list. For MT the difference is computed by block and field, and for MX by element.
+	 *
+	 * <p>A full content snapshot is stored instead for the first revision, every {@link #DEFAULT_REVISION_SNAPSHOT_INTERVAL}
+	 * revisions, and when the difference is not less than half the size of the content. The full content of any revision is
+	 * available with {@link #getRevisionContent(int)}.
+	 *
+	 * @see #createDeltaRevision(int)
+	 * @since 8.0.2
+	 * @return the revision added
+	 */
+	public SwiftMessageRevision createDeltaRevision() {
+		return createDeltaRevision(DEFAULT_REVISION_SNAPSHOT_INTERVAL);
+	}
+
+	/**
+	 * Creates a new revision of the message storing only the difference with the previous revision, and adds it to
+	 * the revision list.
+	 *
+	 * @param snapshotInterval maximum number of revisions from a full content snapshot to the last delta, including
+	 * 	the snapshot; this bounds the number of deltas to apply to get a revision content, 1 means all revisions are full
+	 * @return the revision added
+	 * @throws IllegalArgumentException if the interval is not positive
+	 * @see #createDeltaRevision()
+	 * @since 8.0.2
+	 */
+	public SwiftMessageRevision createDeltaRevision(final int snapshotInterval) {
+		Validate.isTrue(snapshotInterval > 0, "snapshotInterval must be positive");
+		final SwiftMessageRevision rev = new SwiftMessageRevision(this);
+		final int last = this.revisions != null ? this.revisions.size() - 1 : -1;
+		if (last >= 0 && rev.getMessage() != null) {
+			int deltas = 0;
+			while (deltas < last && this.revisions.get(last - deltas).isDelta()) {
+				deltas++;
+			}
+			if (deltas + 1 < snapshotInterval) {
+				final String base = getRevisionContent(last);
+				final String delta = base != null ? RevisionDelta.encode(base, rev.getMessage()) : null;
+				if (delta != null) {
+					rev.setMessage(delta);
+				}
+			}
+		}
+		addRevision(rev);
+		return rev;
+	}
+
+	/**
+	 * Gets the full message content of a revision, applying the differences from the previous full snapshot when the
+	 * revision was created with {@link #createDeltaRevision()}.
+	 *
+	 * @param index position of the revision in {@link #getRevisions()}
+	 * @return the message content of the revision
+	 * @throws IllegalArgumentException if there is no revision at the index
+	 * @throws ProwideException if a delta revision has no preceding full snapshot or it cannot be applied
+	 * @since 8.0.2
+	 */
+	public String getRevisionContent(final int index) {
+		Validate.isTrue(this.revisions != null && index >= 0 && index < this.revisions.size(), "no revision found at index " + index);
+		int snapshot = index;
+		while (snapshot >= 0 && this.revisions.get(snapshot).isDelta()) {
+			snapshot--;
+		}
+		if (snapshot < 0) {
+			throw new ProwideException("no full revision found before revision " + index);
+		}
+		String content = this.revisions.get(snapshot).getMessage();
+		for (int i = snapshot + 1; i <= index; i++) {
+			content = RevisionDelta.apply(content, this.revisions.get(i).getMessage());
+		}
+		return content;
+	}
+
 	/**
 	 * @since 7.10.8
 	 */
@@ -1345,10 +1427,7 @@ public abstract class AbstractSwiftMessage implements Serializable, JsonSerializ
 	 * @since 7.10.6
 	 */
 	protected String toJsonImpl(){
-		final Gson gson = new GsonBuilder()
-				.setPrettyPrinting()
-				.create();
-		return gson.toJson(this);
+		return JsonUtils.prettyGson().toJson(this);
 	}
 
 	/**
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model;
+
+import com.prowidesoftware.swift.utils.MessageCompressor;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * JPA converter to store the raw message content compressed, see {@link MessageCompressor} for the format.
+ *
+ * <p>The converter is not applied by default, since it changes the column type from a character to a binary large
+ * object. It can be enabled for the {@link AbstractSwiftMessage} and {@link SwiftMessageRevision} content with a mapping
+ * file, where the existing lob annotation is kept, for example:
+ * <pre>
+ * &lt;entity class="com.prowidesoftware.swift.model.AbstractSwiftMessage"&gt;
+ *     &lt;attributes&gt;
+ *         &lt;basic name="message"&gt;
+ *             &lt;column name="message_z"/&gt;
+ *             &lt;convert converter="com.prowidesoftware.swift.model.CompressedMessageConverter"/&gt;
+ *         &lt;/basic&gt;
+ *     &lt;/attributes&gt;
+ * &lt;/entity&gt;
+ * </pre>
+ * Since plain content is also accepted when reading, existing rows can be migrated by copying the UTF-8 text into
+ * the binary column, and compressed later by saving the entities again.
+ *
+ * @since 8.0.2
+ */
+@Converter
+public class CompressedMessageConverter implements AttributeConverter<String, byte[]> {
+
+	@Override
+	public byte[] convertToDatabaseColumn(final String content) {
+		return MessageCompressor.compress(content);
+	}
+
+	@Override
+	public String convertToEntityAttribute(final byte[] data) {
+		return MessageCompressor.decompress(data);
+	}
+
+}
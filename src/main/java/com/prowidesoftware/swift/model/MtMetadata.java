@@ -0,0 +1,78 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model;
+
+import java.util.Calendar;
+
+/**
+ * Main business attributes of an MT message, as extracted by {@link MtMetadataExtractor}.
+ *
+ * <p>Each attribute is null when it is not defined for the message type or not present in the message.
+ *
+ * @see SwiftMessageUtils#reference(SwiftMessage)
+ * @see SwiftMessageUtils#money(SwiftMessage)
+ * @see SwiftMessageUtils#valueDate(SwiftMessage)
+ * @see SwiftMessageUtils#tradeDate(SwiftMessage)
+ * @since 8.0.2
+ */
+public final class MtMetadata {
+	static final MtMetadata EMPTY = new MtMetadata(null, null, null, null);
+
+	private final String reference;
+	private final Money money;
+	private final Calendar valueDate;
+	private final Calendar tradeDate;
+
+	MtMetadata(final String reference, final Money money, final Calendar valueDate, final Calendar tradeDate) {
+		this.reference = reference;
+		this.money = money;
+		this.valueDate = valueDate;
+		this.tradeDate = tradeDate;
+	}
+
+	/**
+	 * @return the message reference
+	 * @see SwiftMessageUtils#reference(SwiftMessage)
+	 */
+	public String getReference() {
+		return reference;
+	}
+
+	/**
+	 * @return the message main currency and amount
+	 * @see SwiftMessageUtils#money(SwiftMessage)
+	 */
+	public Money getMoney() {
+		return money;
+	}
+
+	/**
+	 * @return the message value date
+	 * @see SwiftMessageUtils#valueDate(SwiftMessage)
+	 */
+	public Calendar getValueDate() {
+		return valueDate;
+	}
+
+	/**
+	 * @return the message trade date
+	 * @see SwiftMessageUtils#tradeDate(SwiftMessage)
+	 */
+	public Calendar getTradeDate() {
+		return tradeDate;
+	}
+
+}
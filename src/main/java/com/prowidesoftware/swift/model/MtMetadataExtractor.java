@@ -0,0 +1,548 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model;
+
+import com.prowidesoftware.swift.model.field.DateContainer;
+import com.prowidesoftware.swift.model.field.Field;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Extracts the reference, main amount, value date and trade date of MT messages in a single
+ * iteration of the text block.
+ *
+ * <p>The fields to extract for each message type are described by an extraction plan, precomputed
+ * and indexed by the message type number of the message {@link MtId}. While walking the block 4 tags
+ * the plan selects the candidate tags by name and qualifier, and only the selected tags are converted
+ * into {@link Field} instances.
+ *
+ * <p>This is the implementation behind {@link SwiftMessageUtils#reference(SwiftMessage)},
+ * {@link SwiftMessageUtils#money(SwiftMessage)}, {@link SwiftMessageUtils#valueDate(SwiftMessage)} and
+ * {@link SwiftMessageUtils#tradeDate(SwiftMessage)}; using {@link #extract(SwiftMessage)} is more efficient
+ * when more than one of these attributes is needed.
+ *
+ * @since 8.0.2
+ */
+/*
+ * Do not use API from MTs and Field classes here to avoid cyclic dependency in code generation.
+ */
+public final class MtMetadataExtractor {
+
+	static final int REFERENCE = 1;
+	static final int MONEY = 2;
+	static final int VALUE_DATE = 4;
+	static final int TRADE_DATE = 8;
+	static final int ALL = REFERENCE | MONEY | VALUE_DATE | TRADE_DATE;
+
+	private static final Map<Integer, Plan> PLANS = new HashMap<>();
+	private static final Map<Integer, Plan> DEFAULT_PLANS = new ConcurrentHashMap<>();
+
+	static {
+		/*
+		 * value date
+		 * when a message type is repeated the first definition prevails
+		 */
+		valueDate(Selector.name("30"), 101, 104, 107, 201, 203, 204, 207, 210, 604, 605);
+		valueDate(Selector.name("32A"), 102, 103, 200, 202, 205, 400, 450, 455, 800, 802, 900, 910);
+		valueDate(Selector.name("30V"), 300, 304, 320, 330, 350, 620);
+		valueDate(Selector.qualifier("NETPOS", "98", "NETT"), 370);
+		valueDate(Selector.name("33D"), 456);
+		valueDate(Selector.qualifier("AMT", "98", "VALU"), 502);
+		valueDate(Selector.qualifier("TRADE", "98", "SETT"), 509);
+		valueDate(Selector.qualifier("ORDRDET", "98", "SETT"), 513);
+		valueDate(Selector.qualifier("CONFDET", "98", "SETT"), 514, 515, 518);
+		valueDate(Selector.qualifier("TRADDET", "98", "SETT").orElse(Selector.qualifier("AMT", "98", "VALU")), 540, 541, 542, 543, 544, 545, 546, 547, 586);
+		valueDate(Selector.qualifier("TRANSDET", "98", "EXSE"), 537);
+		valueDate(Selector.qualifier("SETTRAN", "70", "SPRO"), 548);
+		valueDate(Selector.qualifier("CASHMOVE", "98", "PAYD"), 564);
+		valueDate(Selector.qualifier("CASHMOVE", "98", "POST"), 566);
+		valueDate(Selector.name("32D"), 730, 768, 769);
+		valueDate(Selector.name("33A"), 734, 752, 756);
+		valueDate(Selector.name("34A"), 742, 754);
+		valueDate(Selector.name("61"), 942, 950, 970, 972);
+
+		/*
+		 * main amount, from the first field found
+		 */
+		money(MoneyRule.FIRST, "32A", 102, 103, 200, 202, 205, 256, 450, 455, 643, 644, 646, 734, 802, 900, 910);
+		money(MoneyRule.FIRST, "32B", 191, 291, 300, 304, 305, 320, 391, 491, 591, 691, 791, 891, 991, 340, 341, 350, 360, 361, 364, 365, 620, 700, 705, 710, 720, 732, 740, 742, 756);
+		money(MoneyRule.FIRST, "19A", 321, 370, 508, 509, 535, 536, 537, 540, 541, 542, 543, 544, 545, 546, 547, 548, 558, 559, 569, 574, 575, 576, 578, 586);
+		money(MoneyRule.FIRST, "32H", 330, 362);
+		money(MoneyRule.FIRST, "34B", 306, 581, 707, 747);
+		money(MoneyRule.FIRST, "19B", 380, 381, 505, 564, 566, 567);
+		money(MoneyRule.FIRST, "33B", 800);
+		money(MoneyRule.FIRST, "62F", 941);
+
+		/*
+		 * main amount, from the first field found in the given names order
+		 */
+		money(new String[]{"34P", "34R"}, 600, 601);
+		money(new String[]{"68B", "68C"}, 609);
+		money(new String[]{"32A", "32B"}, 111, 112, 516, 649, 754);
+		money(new String[]{"32C", "32D"}, 190, 290, 390, 490, 590, 690, 790, 890, 990);
+		money(new String[]{"32B", "32D"}, 730, 768);
+		money(new String[]{"32A", "32B", "32K"}, 400, 410);
+		money(new String[]{"33A", "33K", "32A", "32K"}, 430);
+		money(new String[]{"34B", "32B"}, 750);
+		money(new String[]{"33A", "33B", "32B"}, 752);
+		money(new String[]{"32B", "32D", "33B", "34B"}, 769);
+		money(new String[]{"62F", "62M"}, 940, 950, 970);
+
+		/*
+		 * main amount, as the sum of all fields
+		 */
+		money(MoneyRule.SUM, "32B", 101, 201, 203, 204, 207, 210);
+		money(MoneyRule.SUM, "32a", 110, 416, 420, 422, 456);
+		money(MoneyRule.SUM, "33B", 801);
+		money(MoneyRule.SUM, "68A", 824);
+
+		/*
+		 * main amount from sequences
+		 * keep special case for 104 and 107 in sync with MT104 and MT107 getSequenceC logic
+		 */
+		money(new MoneyRule(MoneyRule.FIRST, Selector.name("32B").afterLast("59", "59A")), 104, 107);
+		money(new MoneyRule(MoneyRule.FIRST, Selector.name("ORDRDET", "19A")), 502, 513);
+		money(new MoneyRule(MoneyRule.FIRST, Selector.name("CONFDET", "19A")), 514, 515, 518);
+		money(new MoneyRule(MoneyRule.FIRST, Selector.name("SUMM", "19B")), 503, 504, 506);
+		money(new MoneyRule(MoneyRule.FIRST, Selector.name("DEALTRAN", "19A")), 527);
+
+		for (final Plan plan : PLANS.values()) {
+			plan.compile();
+		}
+	}
+
+	// Suppress default constructor for noninstantiability
+	private MtMetadataExtractor() {
+		throw new AssertionError();
+	}
+
+	private static Plan plan(final int type) {
+		return PLANS.computeIfAbsent(type, t -> new Plan(t >= 500 && t < 600));
+	}
+
+	private static void valueDate(final Selector selector, final int... types) {
+		for (final int type : types) {
+			final Plan plan = plan(type);
+			if (plan.valueDate == null) {
+				plan.valueDate = selector;
+			}
+		}
+	}
+
+	private static void money(final int kind, final String name, final int... types) {
+		money(new MoneyRule(kind, Selector.name(name)), types);
+	}
+
+	private static void money(final String[] names, final int... types) {
+		final Selector[] selectors = new Selector[names.length];
+		for (int i = 0; i < names.length; i++) {
+			selectors[i] = Selector.name(names[i]);
+		}
+		money(new MoneyRule(MoneyRule.FIRST, selectors), types);
+	}
+
+	private static void money(final MoneyRule rule, final int... types) {
+		for (final int type : types) {
+			final Plan plan = plan(type);
+			if (plan.money == null) {
+				plan.money = rule;
+			}
+		}
+	}
+
+	/**
+	 * Gets the plan for the message type, or a default plan with the reference and trade date only
+	 */
+	private static Plan planFor(final SwiftMessage m) {
+		// getTypeInt is avoided because it logs a warning when the message has no block 2
+		final String t = m.getType();
+		final Plan plan = StringUtils.isNumeric(t) ? PLANS.get(Integer.parseInt(t)) : null;
+		if (plan != null) {
+			return plan;
+		}
+		final boolean category5 = t != null && t.startsWith("5");
+		return DEFAULT_PLANS.computeIfAbsent(category5 ? 5 : 0, k -> {
+			final Plan p = new Plan(category5);
+			p.compile();
+			return p;
+		});
+	}
+
+	/**
+	 * Extracts the reference, main amount, value date and trade date from the message.
+	 *
+	 * @param m the message
+	 * @return the extracted attributes, or an instance with all attributes null if the message or its block 4 is null or empty
+	 */
+	public static MtMetadata extract(final SwiftMessage m) {
+		return extract(m, ALL);
+	}
+
+	/**
+	 * Extracts the reference, main amount, value date and trade date from each of the messages.
+	 *
+	 * @param messages the messages to process
+	 * @return a list with the extracted attributes for each message, in the same order as the parameter list
+	 * @see #extract(SwiftMessage)
+	 */
+	public static List<MtMetadata> extract(final List<SwiftMessage> messages) {
+		if (messages == null) {
+			return Collections.emptyList();
+		}
+		final List<MtMetadata> result = new ArrayList<>(messages.size());
+		for (final SwiftMessage m : messages) {
+			result.add(extract(m, ALL));
+		}
+		return result;
+	}
+
+	/**
+	 * @param m the message
+	 * @param what bit mask with the attributes to extract
+	 */
+	static MtMetadata extract(final SwiftMessage m, final int what) {
+		if (m == null) {
+			return MtMetadata.EMPTY;
+		}
+		final SwiftBlock4 b4 = m.getBlock4();
+		if (b4 == null || b4.isEmpty()) {
+			return MtMetadata.EMPTY;
+		}
+		int mask = what;
+		if ((mask & MONEY) != 0 && m.isServiceMessage21()) {
+			mask &= ~MONEY;
+		}
+		final Plan plan = planFor(m);
+		final Walk w = new Walk(plan, mask);
+		w.walk(b4.getTags());
+
+		return new MtMetadata(
+				(mask & REFERENCE) != 0 ? plan.reference(w) : null,
+				(mask & MONEY) != 0 && plan.money != null ? plan.money.money(w) : null,
+				(mask & VALUE_DATE) != 0 && plan.valueDate != null ? date(w.field(plan.valueDate)) : null,
+				(mask & TRADE_DATE) != 0 ? plan.tradeDate(w) : null);
+	}
+
+	private static Calendar date(final Field f) {
+		if (f instanceof DateContainer) {
+			final List<Calendar> dates = ((DateContainer) f).dates();
+			return dates.isEmpty() ? null : dates.get(0);
+		}
+		return null;
+	}
+
+	/**
+	 * Extraction plan for a message type
+	 */
+	private static final class Plan {
+		private final Selector ref20 = Selector.name("20");
+		private final Selector refSeme;
+		private final Selector ref108 = Selector.name("108");
+		private final Selector trade30T = Selector.name("30T");
+		private final Selector trade98 = Selector.qualifier(null, "98", "TRAD");
+		private Selector valueDate;
+		private MoneyRule money;
+		private Selector[] selectors;
+		private int[] groups;
+		/*
+		 * selectors are shared by the plans of several message types, so their position is kept per plan
+		 */
+		private final Map<Selector, Integer> index = new IdentityHashMap<>();
+
+		Plan(final boolean category5) {
+			this.refSeme = category5 ? Selector.qualifier(null, "20", "SEME") : null;
+		}
+
+		/**
+		 * Indexes all the selectors used by the plan
+		 */
+		void compile() {
+			final List<Selector> list = new ArrayList<>();
+			final List<Integer> g = new ArrayList<>();
+			add(list, g, REFERENCE, ref20, refSeme, ref108);
+			add(list, g, TRADE_DATE, trade30T, trade98);
+			if (valueDate != null) {
+				add(list, g, VALUE_DATE, valueDate, valueDate.fallback);
+			}
+			if (money != null) {
+				add(list, g, MONEY, money.selectors);
+			}
+			this.selectors = list.toArray(new Selector[list.size()]);
+			this.groups = new int[g.size()];
+			for (int i = 0; i < groups.length; i++) {
+				groups[i] = g.get(i);
+				index.put(selectors[i], i);
+			}
+		}
+
+		private static void add(final List<Selector> list, final List<Integer> groups, final int group, final Selector... selectors) {
+			for (final Selector s : selectors) {
+				if (s != null) {
+					list.add(s);
+					groups.add(group);
+				}
+			}
+		}
+
+		String reference(final Walk w) {
+			final Tag t20 = w.tag(ref20);
+			if (t20 != null) {
+				return t20.getValue();
+			}
+			if (refSeme != null) {
+				final Field f = w.field(refSeme);
+				if (f != null) {
+					return f.getComponent(2);
+				}
+			}
+			final Tag mur = w.tag(ref108);
+			return mur != null ? mur.getValue() : null;
+		}
+
+		Calendar tradeDate(final Walk w) {
+			Field f = w.field(trade30T);
+			if (f == null) {
+				f = w.field(trade98);
+			}
+			return date(f);
+		}
+	}
+
+	/**
+	 * Describes how to select a tag while iterating a block
+	 */
+	private static final class Selector {
+		/**
+		 * 16R qualifier of the sequence where the tag is searched, or null to search the whole block
+		 */
+		private final String sequence;
+		private final String name;
+		private final boolean wildcard;
+		private final String number;
+		private final String qualifier;
+		private boolean all = false;
+		private String[] resetNames;
+		private Selector fallback;
+
+		private Selector(final String sequence, final String name, final String number, final String qualifier) {
+			this.sequence = sequence;
+			this.name = name;
+			this.wildcard = name != null && name.endsWith("a");
+			this.number = number;
+			this.qualifier = qualifier;
+		}
+
+		/**
+		 * First tag with the given name, in the whole block
+		 */
+		static Selector name(final String name) {
+			return new Selector(null, name, null, null);
+		}
+
+		/**
+		 * First tag with the given name, in the given sequence
+		 */
+		static Selector name(final String sequence, final String name) {
+			return new Selector(sequence, name, null, null);
+		}
+
+		/**
+		 * First tag with the given number and qualifier, in the given sequence or in the whole block if the sequence is null
+		 */
+		static Selector qualifier(final String sequence, final String number, final String qualifier) {
+			return new Selector(sequence, null, number, qualifier);
+		}
+
+		/**
+		 * Selector to use when the sequence of this selector is not present
+		 */
+		Selector orElse(final Selector fallback) {
+			this.fallback = fallback;
+			return this;
+		}
+
+		/**
+		 * Select only tags found after the last occurrence of any of the given names
+		 */
+		Selector afterLast(final String... names) {
+			this.resetNames = names;
+			return this;
+		}
+
+		Selector all() {
+			this.all = true;
+			return this;
+		}
+
+		/**
+		 * Matches name or number, and qualifier through a cheap textual check
+		 * that must be confirmed by {@link #confirm(Tag)}
+		 */
+		boolean matches(final String tagName, final String value) {
+			if (name != null) {
+				if (wildcard ? !StringUtils.startsWith(tagName, name.substring(0, name.length() - 1)) : !StringUtils.equals(tagName, name)) {
+					return false;
+				}
+			} else if (tagName == null || !tagName.startsWith(number) || (tagName.length() > number.length() && Character.isDigit(tagName.charAt(number.length())))) {
+				return false;
+			}
+			return qualifier == null || StringUtils.contains(value, qualifier);
+		}
+
+		boolean confirm(final Tag t) {
+			if (qualifier == null) {
+				return true;
+			}
+			final Field f = t.asField();
+			return f != null && f.is(qualifier);
+		}
+	}
+
+	/**
+	 * Rule to create the message main amount from the selected tags
+	 */
+	private static final class MoneyRule {
+		static final int FIRST = 0;
+		static final int SUM = 1;
+
+		private final int kind;
+		private final Selector[] selectors;
+
+		MoneyRule(final int kind, final Selector... selectors) {
+			this.kind = kind;
+			this.selectors = selectors;
+			if (kind == SUM) {
+				for (final Selector s : selectors) {
+					s.all();
+				}
+			}
+		}
+
+		Money money(final Walk w) {
+			if (kind == SUM) {
+				final List<Tag> tags = w.tags(selectors[0]);
+				final List<Field> fields = new ArrayList<>(tags.size());
+				for (final Tag t : tags) {
+					final Field f = t.asField();
+					if (f != null) {
+						fields.add(f);
+					}
+				}
+				return Money.ofSum(fields.toArray(new Field[fields.size()]));
+			}
+			for (final Selector s : selectors) {
+				final Field f = w.field(s);
+				if (f != null) {
+					return Money.of(f);
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * State of a single iteration of a block for a given plan
+	 */
+	private static final class Walk {
+		private static final int NOT_FOUND = 0;
+		private static final int INSIDE = 1;
+		private static final int CLOSED = 2;
+
+		private final Plan plan;
+		private final int mask;
+		private final Tag[] found;
+		private final List<List<Tag>> foundAll;
+		private final int[] sequenceState;
+		private final boolean[] armed;
+
+		Walk(final Plan plan, final int mask) {
+			this.plan = plan;
+			this.mask = mask;
+			final int n = plan.selectors.length;
+			this.found = new Tag[n];
+			this.foundAll = new ArrayList<>(Collections.<List<Tag>>nCopies(n, null));
+			this.sequenceState = new int[n];
+			this.armed = new boolean[n];
+		}
+
+		void walk(final List<Tag> tags) {
+			final Selector[] selectors = plan.selectors;
+			for (final Tag t : tags) {
+				final String name = t.getName();
+				final String value = t.getValue();
+				if ("16R".equals(name) || "16S".equals(name)) {
+					final boolean start = "16R".equals(name);
+					for (int i = 0; i < selectors.length; i++) {
+						final Selector s = selectors[i];
+						if (s.sequence != null && StringUtils.equals(s.sequence, value)) {
+							if (start && sequenceState[i] == NOT_FOUND) {
+								sequenceState[i] = INSIDE;
+							} else if (!start && sequenceState[i] == INSIDE) {
+								sequenceState[i] = CLOSED;
+							}
+						}
+					}
+					continue;
+				}
+				for (int i = 0; i < selectors.length; i++) {
+					if ((plan.groups[i] & mask) == 0) {
+						continue;
+					}
+					final Selector s = selectors[i];
+					if (s.resetNames != null && StringUtils.equalsAny(name, s.resetNames)) {
+						armed[i] = true;
+						found[i] = null;
+						continue;
+					}
+					if ((s.sequence != null && sequenceState[i] != INSIDE) || (s.resetNames != null && !armed[i])) {
+						continue;
+					}
+					if ((found[i] == null || s.all) && s.matches(name, value) && s.confirm(t)) {
+						if (s.all) {
+							if (foundAll.get(i) == null) {
+								foundAll.set(i, new ArrayList<>());
+							}
+							foundAll.get(i).add(t);
+						} else {
+							found[i] = t;
+						}
+					}
+				}
+			}
+		}
+
+		Tag tag(final Selector s) {
+			final int i = plan.index.get(s);
+			if (s.fallback != null && sequenceState[i] == NOT_FOUND) {
+				return found[plan.index.get(s.fallback)];
+			}
+			return found[i];
+		}
+
+		Field field(final Selector s) {
+			final Tag t = tag(s);
+			return t != null ? t.asField() : null;
+		}
+
+		List<Tag> tags(final Selector s) {
+			final List<Tag> l = foundAll.get(plan.index.get(s));
+			return l != null ? l : Collections.<Tag>emptyList();
+		}
+	}
+
+}
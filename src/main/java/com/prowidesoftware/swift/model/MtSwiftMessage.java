@@ -15,12 +15,12 @@
  */
 package com.prowidesoftware.swift.model;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.prowidesoftware.swift.io.ConversionService;
+import com.prowidesoftware.swift.io.writer.ChecksumWriter;
 import com.prowidesoftware.swift.model.mt.AbstractMT;
 import com.prowidesoftware.swift.model.mt.MTVariant;
 import com.prowidesoftware.swift.model.mt.ServiceIdType;
+import com.prowidesoftware.swift.utils.JsonUtils;
 import org.apache.commons.lang3.EnumUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
@@ -193,18 +193,20 @@ public class MtSwiftMessage extends AbstractSwiftMessage {
 			setIdentifier(model.getMtId().id());
 			setReceiver(bic11(model.getReceiver()));
 			setDirection(model.getDirection());
-			setReference(SwiftMessageUtils.reference(model));
-			Money money = SwiftMessageUtils.money(model);
+			final MtMetadata metadata = MtMetadataExtractor.extract(model);
+			setReference(metadata.getReference());
+			Money money = metadata.getMoney();
 			if (money != null) {
 				setCurrency(money.getCurrency());
 				setAmount(money.getAmount());
 			}
-			setValueDate(SwiftMessageUtils.valueDate(model));
-			setTradeDate(SwiftMessageUtils.tradeDate(model));
+			setValueDate(metadata.getValueDate());
+			setTradeDate(metadata.getTradeDate());
 		}
 		setSender(bic11(model.getSender()));
-		setChecksum(SwiftMessageUtils.calculateChecksum(model));
-		setChecksumBody(SwiftMessageUtils.calculateChecksum(model.getBlock4()));
+		final ChecksumWriter checksums = SwiftMessageUtils.checksums(model);
+		setChecksum(checksums.getChecksum());
+		setChecksumBody(checksums.getChecksumBody());
 		setPde(model.getPDE());
 		setPdm(model.getPDM());
 		setMir(model.getMIR());
@@ -499,8 +501,7 @@ public class MtSwiftMessage extends AbstractSwiftMessage {
 	 * @since 7.10.3
 	 */
 	public static MtSwiftMessage fromJson(String json){
-		final Gson gson = new GsonBuilder().create();
-		return gson.fromJson(json, MtSwiftMessage.class);
+		return JsonUtils.gson().fromJson(json, MtSwiftMessage.class);
 	}
 
 	/**
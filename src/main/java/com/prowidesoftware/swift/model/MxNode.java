@@ -17,13 +17,21 @@
 package com.prowidesoftware.swift.model;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
 
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
 import java.util.logging.Level;
 
 /**
@@ -36,6 +44,10 @@ import java.util.logging.Level;
  * For more information on the full MX model implementation please check:
  * <a href="http://www.prowidesoftware.com/products/integrator">Prowide Integrator</a>
  *
+ * <p>The node is designed to keep large trees compact in memory: element names are interned and shared among all
+ * nodes, children and attributes are only allocated when present, and the value can be kept as a range of the source
+ * XML (see {@link #setValue(String, int, int)}) instead of a copy of the text.
+ *
  * @since 7.6
  */
 public class MxNode {
@@ -43,20 +55,28 @@ public class MxNode {
 
 	public static  final transient String PATH_SEPARATOR = "/";
 	private MxNode parent;
-	private final List<MxNode> children;
+	private List<MxNode> children = null;
 	private String value;
 	private String localName;
-	private Map<String, String> attributes = null;
+	/*
+	 * attribute names and values in consecutive positions
+	 */
+	private String[] attributes = null;
+	/*
+	 * source and range for a value not yet extracted from the XML
+	 */
+	private String source = null;
+	private int valueStart;
+	private int valueEnd;
 
 	public MxNode() {
 		this.parent = null;
-		this.children = new ArrayList<>();
 		this.value = null;
 	}
 
 	public MxNode(final MxNode parent, final String localName) {
 		this();
-		this.localName = localName;
+		this.localName = localName != null ? localName.intern() : null;
 		if (parent != null) {
 			bindParent(parent);
 		}
@@ -68,6 +88,9 @@ public class MxNode {
 	}
 
 	private void addChild(final MxNode child) {
+		if (this.children == null) {
+			this.children = new ArrayList<>(2);
+		}
 		this.children.add(child);
 	}
 
@@ -79,6 +102,20 @@ public class MxNode {
 		return null;
 	}
 
+	/**
+	 * Finds the first node matching the compiled path and returns its value
+	 * @param path compiled path
+	 * @return found node value or null if the node is not found or it has no value
+	 * @since 8.0.2
+	 */
+	public String singlePathValue(final MxPath path) {
+		final MxNode first = findFirst(path);
+		if (first != null) {
+			return first.getValue();
+		}
+		return null;
+	}
+
 	/**
 	 * Given a basic path, find the first instance of a node matching the
 	 * path parameter.<br>
@@ -86,17 +123,23 @@ public class MxNode {
 	 * If the path starts with '/' it will search from the root element,
 	 * else it will search from this node.
 	 *
-	 * @param path absolute or relative path to find
+	 * @param path absolute or relative path to find, see {@link MxPath} for the supported predicates
 	 * @return found node or null
 	 * @since 7.7
 	 */
 	public MxNode findFirst(final String path) {
-		final List<MxNode> found = find(path);
-		if (!found.isEmpty()) {
-			return found.get(0);
-		} else {
-			return null;
-		}
+		return findFirst(MxPath.cached(path));
+	}
+
+	/**
+	 * Finds the first node matching the compiled path, evaluated from this node
+	 * @param path compiled path
+	 * @return found node or null
+	 * @since 8.0.2
+	 */
+	public MxNode findFirst(final MxPath path) {
+		Validate.notNull(path, "path cannot be null");
+		return path.findFirst(this);
 	}
 
 	/**
@@ -105,47 +148,23 @@ public class MxNode {
 	 * If the path starts with '/' it will search from the root element,
 	 * else it will search from this node.
 	 *
-	 * @param path absolute or relative path to find
+	 * @param path absolute or relative path to find, see {@link MxPath} for the supported predicates
 	 * @return found node or null
 	 * @since 7.7
 	 */
 	public List<MxNode> find(final String path) {
-		final String[] segments = StringUtils.split(path, PATH_SEPARATOR);
-		final MxNode start = path != null && path.startsWith(PATH_SEPARATOR) ? getRoot() : this;
-		return _find2(0, segments, start);
+		return find(MxPath.cached(path));
 	}
 
-	private List<MxNode> _find2(int index, final String[] segments, final MxNode node) {
-		if (index >= segments.length) {
-			return new ArrayList<>();
-		}
-		final List<MxNode> result = new ArrayList<>();
-		final String segment = segments[index];
-		int nextIndex = index + 1;
-		
-		//TODO en vez de remover el predicado, habria que soportarlo, devolviendo la/s instancia/s pedidas
-		if (StringUtils.equals(".", segment) || StringUtils.equalsIgnoreCase(node.localName, removePredicate(segment))) {
-			if (nextIndex == segments.length) {
-				result.add(node);
-				return result;
-			} else if (node.children != null) {
-				for (final MxNode n : node.children) {
-					result.addAll(_find2(nextIndex, segments, n));
-				}
-				return result;
-			}
-
-		}
-		return result;
-	}
-
-	private String removePredicate(final String segment) {
-		int index = segment.indexOf('[');
-		if (index > 0) {
-			return segment.substring(0, index);
-		} else {
-			return segment;
-		}
+	/**
+	 * Finds all nodes matching the compiled path, evaluated from this node
+	 * @param path compiled path
+	 * @return found nodes, an empty list if none matches
+	 * @since 8.0.2
+	 */
+	public List<MxNode> find(final MxPath path) {
+		Validate.notNull(path, "path cannot be null");
+		return path.find(this);
 	}
 
 	public MxNode getRoot() {
@@ -160,11 +179,34 @@ public class MxNode {
 	}
 
 	public String getValue() {
+		if (this.source != null) {
+			return this.source.substring(this.valueStart, this.valueEnd);
+		}
 		return value;
 	}
 
 	public void setValue(final String value) {
 		this.value = value;
+		this.source = null;
+	}
+
+	/**
+	 * Sets the value as a range of the source XML. The text is not copied, it is extracted on each call to
+	 * {@link #getValue()}, so the node keeps a reference to the source for as long as the value is not replaced.
+	 *
+	 * @param source the XML content the node was parsed from
+	 * @param start start index of the value in the source, inclusive
+	 * @param end end index of the value in the source, exclusive
+	 * @throws IllegalArgumentException if the source is null or the range is not within its bounds
+	 * @since 8.0.2
+	 */
+	public void setValue(final String source, final int start, final int end) {
+		Validate.notNull(source, "source cannot be null");
+		Validate.isTrue(start >= 0 && start <= end && end <= source.length(), "invalid value range");
+		this.value = null;
+		this.source = source;
+		this.valueStart = start;
+		this.valueEnd = end;
 	}
 
 	@Override
@@ -192,11 +234,19 @@ public class MxNode {
 		}
 		w.write((node.localName + "\n").getBytes());
 		int nextLevel = level + 1;
-		for(final MxNode child : node.children) {
+		for(final MxNode child : node.getChildren()) {
 			_print(nextLevel, child, w );
 		}
 	}
 
+	/**
+	 * @return the element name, without prefix
+	 * @since 8.0.2
+	 */
+	public String getLocalName() {
+		return localName;
+	}
+
 	public MxNode getParent() {
 		return parent;
 	}
@@ -232,25 +282,38 @@ public class MxNode {
 	}
 
 	/**
+	 * The returned list is a live view of the node children, changes to it are reflected in the node. The list is
+	 * empty if the node has no children.
 	 * @since 7.8
 	 * @return returns this node children nodes
 	 */
 	public List<MxNode> getChildren() {
-		return children;
+		return new ChildrenView();
 	}
 
 	/**
+	 * The returned map is a live view of the node attributes, changes to it are reflected in the node.
 	 * @since 7.8
+	 * @return a map with the node attributes or null if the node does not contain attributes
 	 */
 	public Map<String, String> getAttributes() {
-		return attributes;
+		if (this.attributes == null) {
+			return null;
+		}
+		return new AttributesView();
 	}
 
 	/**
+	 * Replaces the node attributes with the content of the parameter map
 	 * @since 7.8
 	 */
 	public void setAttributes(Map<String, String> attributes) {
-		this.attributes = attributes;
+		this.attributes = null;
+		if (attributes != null) {
+			for (final Map.Entry<String, String> e : attributes.entrySet()) {
+				addAttribute(e.getKey(), e.getValue());
+			}
+		}
 	}
 	
 	/**
@@ -259,11 +322,19 @@ public class MxNode {
 	 * @since 7.8
 	 */
 	public void addAttribute(final String name, final String value) {
+		final int i = attributeIndex(name);
+		if (i >= 0) {
+			this.attributes[i + 1] = value;
+			return;
+		}
 		if (this.attributes == null) {
-			this.attributes = new HashMap<>();
+			this.attributes = new String[] {name, value};
+			return;
 		}
-		this.attributes.remove(name);
-		this.attributes.put(name, value);
+		final int length = this.attributes.length;
+		this.attributes = Arrays.copyOf(this.attributes, length + 2);
+		this.attributes[length] = name;
+		this.attributes[length + 1] = value;
 	}
 
 	/**
@@ -271,10 +342,29 @@ public class MxNode {
 	 * @return found attribute value or null if not found or node does not contain attributes
 	 */
 	public String getAttribute(final String name) {
+		final int i = attributeIndex(name);
+		return i >= 0 ? this.attributes[i + 1] : null;
+	}
+
+	/**
+	 * @return the position of the attribute name in the attributes array, or -1 if not found
+	 */
+	private int attributeIndex(final Object name) {
 		if (this.attributes != null) {
-			return this.attributes.get(name);
+			for (int i = 0; i < this.attributes.length; i += 2) {
+				if (Objects.equals(this.attributes[i], name)) {
+					return i;
+				}
+			}
 		}
-		return null;
+		return -1;
+	}
+
+	private void removeAttributeAt(final int i) {
+		final String[] a = new String[this.attributes.length - 2];
+		System.arraycopy(this.attributes, 0, a, 0, i);
+		System.arraycopy(this.attributes, i + 2, a, i, a.length - i);
+		this.attributes = a;
 	}
 	
 	/**
@@ -289,4 +379,146 @@ public class MxNode {
 			return this.parent.path() + PATH_SEPARATOR + this.localName;
 		}
 	}
+
+	/**
+	 * Children list backed by the node, the internal list is allocated when the first child is added
+	 */
+	private final class ChildrenView extends AbstractList<MxNode> {
+		@Override
+		public MxNode get(final int index) {
+			if (children == null) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: 0");
+			}
+			return children.get(index);
+		}
+
+		@Override
+		public int size() {
+			return children != null ? children.size() : 0;
+		}
+
+		@Override
+		public MxNode set(final int index, final MxNode element) {
+			if (children == null) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: 0");
+			}
+			return children.set(index, element);
+		}
+
+		@Override
+		public void add(final int index, final MxNode element) {
+			if (children == null) {
+				children = new ArrayList<>(2);
+			}
+			children.add(index, element);
+			modCount++;
+		}
+
+		@Override
+		public MxNode remove(final int index) {
+			if (children == null) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: 0");
+			}
+			modCount++;
+			return children.remove(index);
+		}
+	}
+
+	/**
+	 * Attributes map backed by the node attributes array
+	 */
+	private final class AttributesView extends AbstractMap<String, String> {
+		@Override
+		public int size() {
+			return attributes != null ? attributes.length / 2 : 0;
+		}
+
+		@Override
+		public boolean containsKey(final Object key) {
+			return attributeIndex(key) >= 0;
+		}
+
+		@Override
+		public String get(final Object key) {
+			final int i = attributeIndex(key);
+			return i >= 0 ? attributes[i + 1] : null;
+		}
+
+		@Override
+		public String put(final String key, final String value) {
+			final String previous = get(key);
+			addAttribute(key, value);
+			return previous;
+		}
+
+		@Override
+		public String remove(final Object key) {
+			final int i = attributeIndex(key);
+			if (i < 0) {
+				return null;
+			}
+			final String previous = attributes[i + 1];
+			removeAttributeAt(i);
+			return previous;
+		}
+
+		@Override
+		public void clear() {
+			if (attributes != null) {
+				attributes = new String[0];
+			}
+		}
+
+		@Override
+		public Set<Map.Entry<String, String>> entrySet() {
+			return new AbstractSet<Map.Entry<String, String>>() {
+				@Override
+				public int size() {
+					return AttributesView.this.size();
+				}
+
+				@Override
+				public Iterator<Map.Entry<String, String>> iterator() {
+					return new Iterator<Map.Entry<String, String>>() {
+						private int next = 0;
+						private int current = -1;
+
+						@Override
+						public boolean hasNext() {
+							return attributes != null && next < attributes.length;
+						}
+
+						@Override
+						public Map.Entry<String, String> next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+							current = next;
+							next += 2;
+							final int i = current;
+							return new AbstractMap.SimpleEntry<String, String>(attributes[i], attributes[i + 1]) {
+								private static final long serialVersionUID = 1L;
+
+								@Override
+								public String setValue(final String value) {
+									attributes[i + 1] = value;
+									return super.setValue(value);
+								}
+							};
+						}
+
+						@Override
+						public void remove() {
+							if (current < 0) {
+								throw new IllegalStateException();
+							}
+							removeAttributeAt(current);
+							next = current;
+							current = -1;
+						}
+					};
+				}
+			};
+		}
+	}
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Index of the elements of an {@link MxNode} tree by name, to speed up repeated queries on large trees.
+ *
+ * <p>The index is a snapshot of the tree at creation time: nodes added afterwards are not indexed.
+ * Names are indexed ignoring case, consistently with the path evaluation.
+ *
+ * @see MxPath#find(MxNode, MxNodeIndex)
+ * @since 8.0.2
+ */
+public final class MxNodeIndex {
+
+	private final Map<String, List<MxNode>> byName = new HashMap<>();
+
+	/**
+	 * Indexes all the nodes in the tree the parameter node belongs to
+	 * @param node any node of the tree, the index is always built from the root
+	 * @throws NullPointerException if the node is null
+	 */
+	public MxNodeIndex(final MxNode node) {
+		Validate.notNull(node, "node to index cannot be null");
+		add(node.getRoot());
+	}
+
+	private void add(final MxNode node) {
+		if (node.getLocalName() != null) {
+			final String key = node.getLocalName().toLowerCase(Locale.ROOT);
+			List<MxNode> nodes = this.byName.get(key);
+			if (nodes == null) {
+				nodes = new ArrayList<>();
+				this.byName.put(key, nodes);
+			}
+			nodes.add(node);
+		}
+		for (final MxNode child : node.getChildren()) {
+			add(child);
+		}
+	}
+
+	/**
+	 * @param localName an element name, compared ignoring case
+	 * @return the nodes with the given name in document order, or an empty list if none
+	 */
+	public List<MxNode> get(final String localName) {
+		final List<MxNode> nodes = localName != null ? this.byName.get(localName.toLowerCase(Locale.ROOT)) : null;
+		return nodes != null ? Collections.unmodifiableList(nodes) : Collections.<MxNode>emptyList();
+	}
+
+}
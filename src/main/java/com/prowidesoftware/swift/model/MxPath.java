@@ -0,0 +1,465 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Compiled path expression to find nodes in an {@link MxNode} tree.
+ *
+ * <p>The syntax is the one supported by {@link MxNode#find(String)}: a sequence of element names separated by '/'.
+ * If the path starts with '/' it is evaluated from the root element, else from the context node, and in both cases the
+ * first segment must match the starting node itself. The segment "." matches any element. Element names are compared
+ * ignoring case and prefixes.
+ *
+ * <p>Each segment can be followed by one or more predicates:
+ * <ul>
+ * <li>positional, for example <code>CdtTrfTxInf[2]</code> selects the second CdtTrfTxInf child of its parent
+ * (1-based, counting only the siblings that match the segment name and its attribute predicates)</li>
+ * <li>attribute value, for example <code>Amt[@Ccy='EUR']</code> or <code>Amt[@Ccy="EUR"]</code></li>
+ * <li>attribute presence, for example <code>Amt[@Ccy]</code></li>
+ * </ul>
+ * Example: <code>MxPath.compile("/Document/FIToFICstmrCdtTrf/CdtTrfTxInf[2]/IntrBkSttlmAmt[@Ccy='USD']")</code>
+ *
+ * <p>Instances are immutable and thread safe, so a path can be compiled once and evaluated on any number of trees.
+ * Evaluation is done depth first, in document order, without intermediate collections. When the same tree is queried
+ * many times, an {@link MxNodeIndex} can be used to avoid traversing the branches that do not contain the searched
+ * element.
+ *
+ * @since 8.0.2
+ */
+public final class MxPath {
+
+	/*
+	 * paths compiled from the string API in MxNode, the size is bounded in case the paths are created dynamically
+	 */
+	private static final int CACHE_MAX_SIZE = 1000;
+	private static final Map<String, MxPath> cache = new ConcurrentHashMap<>();
+
+	private final String path;
+	private final boolean absolute;
+	private final Step[] steps;
+
+	private MxPath(final String path, final boolean absolute, final Step[] steps) {
+		this.path = path;
+		this.absolute = absolute;
+		this.steps = steps;
+	}
+
+	/**
+	 * Compiles the parameter path expression
+	 * @param path an absolute or relative path, with optional predicates
+	 * @return the compiled path
+	 * @throws NullPointerException if the path is null
+	 * @throws IllegalArgumentException if the path contains malformed predicates
+	 */
+	public static MxPath compile(final String path) {
+		Validate.notNull(path, "path to compile cannot be null");
+		final List<Step> steps = new ArrayList<>();
+		final StringBuilder segment = new StringBuilder();
+		char quote = 0;
+		boolean inPredicate = false;
+		for (int i = 0; i < path.length(); i++) {
+			final char c = path.charAt(i);
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (inPredicate && (c == '\'' || c == '"')) {
+				quote = c;
+			} else if (c == '[') {
+				inPredicate = true;
+			} else if (c == ']') {
+				inPredicate = false;
+			} else if (c == '/' && !inPredicate) {
+				if (segment.length() > 0) {
+					steps.add(Step.parse(segment.toString(), path));
+					segment.setLength(0);
+				}
+				continue;
+			}
+			segment.append(c);
+		}
+		Validate.isTrue(quote == 0 && !inPredicate, "unterminated predicate in path %s", path);
+		if (segment.length() > 0) {
+			steps.add(Step.parse(segment.toString(), path));
+		}
+		return new MxPath(path, path.startsWith(MxNode.PATH_SEPARATOR), steps.toArray(new Step[steps.size()]));
+	}
+
+	/**
+	 * Gets a compiled path for the string API in {@link MxNode}, reusing previously compiled instances
+	 */
+	static MxPath cached(final String path) {
+		MxPath compiled = cache.get(path);
+		if (compiled == null) {
+			compiled = compile(path);
+			if (cache.size() < CACHE_MAX_SIZE) {
+				cache.put(path, compiled);
+			}
+		}
+		return compiled;
+	}
+
+	/**
+	 * Finds the first node matching this path
+	 * @param context node to evaluate relative paths, or any node of the tree for absolute paths
+	 * @return the first node in document order or null if none matches
+	 */
+	public MxNode findFirst(final MxNode context) {
+		Validate.notNull(context, "context node cannot be null");
+		final MxNode start = start(context);
+		if (this.steps.length == 0 || !matchesWithPosition(this.steps[0], start)) {
+			return null;
+		}
+		return first(start, 0);
+	}
+
+	/**
+	 * Finds all nodes matching this path
+	 * @param context node to evaluate relative paths, or any node of the tree for absolute paths
+	 * @return the nodes in document order, an empty list if none matches
+	 */
+	public List<MxNode> find(final MxNode context) {
+		Validate.notNull(context, "context node cannot be null");
+		final List<MxNode> result = new ArrayList<>();
+		final MxNode start = start(context);
+		if (this.steps.length > 0 && matchesWithPosition(this.steps[0], start)) {
+			collect(start, 0, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the first node matching this path, using the index to get the candidates for the last segment instead of
+	 * traversing the tree.
+	 * @param context node to evaluate relative paths, or any node of the tree for absolute paths
+	 * @param index index of the tree the context node belongs to
+	 * @return the first node in document order or null if none matches
+	 */
+	public MxNode findFirst(final MxNode context, final MxNodeIndex index) {
+		final List<MxNode> result = find(context, index, true);
+		return result.isEmpty() ? null : result.get(0);
+	}
+
+	/**
+	 * Finds all nodes matching this path, using the index to get the candidates for the last segment instead of
+	 * traversing the tree.
+	 * @param context node to evaluate relative paths, or any node of the tree for absolute paths
+	 * @param index index of the tree the context node belongs to
+	 * @return the nodes in document order, an empty list if none matches
+	 */
+	public List<MxNode> find(final MxNode context, final MxNodeIndex index) {
+		return find(context, index, false);
+	}
+
+	private List<MxNode> find(final MxNode context, final MxNodeIndex index, final boolean firstOnly) {
+		Validate.notNull(context, "context node cannot be null");
+		Validate.notNull(index, "index cannot be null");
+		if (this.steps.length == 0) {
+			return new ArrayList<>();
+		}
+		final Step last = this.steps[this.steps.length - 1];
+		if (last.any) {
+			return firstOnly ? asList(findFirst(context)) : find(context);
+		}
+		final MxNode start = start(context);
+		final List<MxNode> result = new ArrayList<>();
+		for (final MxNode candidate : index.get(last.name)) {
+			if (matchesUpwards(candidate, start)) {
+				result.add(candidate);
+				if (firstOnly) {
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	private static List<MxNode> asList(final MxNode node) {
+		final List<MxNode> result = new ArrayList<>(1);
+		if (node != null) {
+			result.add(node);
+		}
+		return result;
+	}
+
+	private MxNode start(final MxNode context) {
+		return this.absolute ? context.getRoot() : context;
+	}
+
+	/**
+	 * @param node a node matching the step at the parameter position
+	 */
+	private MxNode first(final MxNode node, final int step) {
+		if (step == this.steps.length - 1) {
+			return node;
+		}
+		final Step next = this.steps[step + 1];
+		int position = 0;
+		for (final MxNode child : node.getChildren()) {
+			if (next.matches(child)) {
+				position++;
+				if (next.position == 0 || next.position == position) {
+					final MxNode found = first(child, step + 1);
+					if (found != null || next.position != 0) {
+						return found;
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param node a node matching the step at the parameter position
+	 */
+	private void collect(final MxNode node, final int step, final List<MxNode> result) {
+		if (step == this.steps.length - 1) {
+			result.add(node);
+			return;
+		}
+		final Step next = this.steps[step + 1];
+		int position = 0;
+		for (final MxNode child : node.getChildren()) {
+			if (next.matches(child)) {
+				position++;
+				if (next.position == 0 || next.position == position) {
+					collect(child, step + 1, result);
+					if (next.position != 0) {
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks the path from the candidate up to the start node
+	 */
+	private boolean matchesUpwards(final MxNode candidate, final MxNode start) {
+		MxNode node = candidate;
+		for (int i = this.steps.length - 1; i >= 0; i--) {
+			if (node == null || !matchesWithPosition(this.steps[i], node)) {
+				return false;
+			}
+			if (i > 0) {
+				node = node.getParent();
+			}
+		}
+		return node == start;
+	}
+
+	/**
+	 * Checks the step including the positional predicate, computed among the node siblings
+	 */
+	private static boolean matchesWithPosition(final Step step, final MxNode node) {
+		if (!step.matches(node)) {
+			return false;
+		}
+		if (step.position == 0) {
+			return true;
+		}
+		if (node.getParent() == null) {
+			return step.position == 1;
+		}
+		int position = 0;
+		for (final MxNode sibling : node.getParent().getChildren()) {
+			if (step.matches(sibling)) {
+				position++;
+				if (sibling == node) {
+					return position == step.position;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the number of segments in the path
+	 */
+	public int length() {
+		return this.steps.length;
+	}
+
+	/**
+	 * Checks an element against a path segment, including the attribute predicates but not the positional one.
+	 * This is intended for streaming evaluation, where the element is not available as {@link MxNode}.
+	 *
+	 * @param segment index of the segment to check, from 0 to {@link #length()} - 1
+	 * @param localName the element name
+	 * @param attributes function returning the element attribute value for a given attribute name, or null if the
+	 * element does not have the attribute
+	 * @return true if the element matches the segment name and attribute predicates
+	 */
+	public boolean matches(final int segment, final String localName, final Function<String, String> attributes) {
+		return this.steps[segment].matches(localName, attributes);
+	}
+
+	/**
+	 * Checks an element name against a path segment, ignoring the predicates.
+	 *
+	 * @param segment index of the segment to check, from 0 to {@link #length()} - 1
+	 * @param localName the element name
+	 * @return true if the element matches the segment name or the segment is a wildcard
+	 */
+	public boolean matchesName(final int segment, final String localName) {
+		return this.steps[segment].nameMatches(localName);
+	}
+
+	/**
+	 * @param segment index of the segment, from 0 to {@link #length()} - 1
+	 * @return the 1-based position required by the segment predicate, or 0 if the segment has no positional predicate
+	 */
+	public int position(final int segment) {
+		return this.steps[segment].position;
+	}
+
+	/**
+	 * @return the source expression
+	 */
+	@Override
+	public String toString() {
+		return this.path;
+	}
+
+	/**
+	 * A path segment with its predicates
+	 */
+	private static final class Step {
+		private final String name;
+		private final boolean any;
+		/*
+		 * 1-based position, 0 if not specified
+		 */
+		private int position = 0;
+		/*
+		 * attribute names and expected values in consecutive positions, null values are presence checks
+		 */
+		private String[] attributes = new String[0];
+
+		private Step(final String name) {
+			this.name = name;
+			this.any = ".".equals(name);
+		}
+
+		static Step parse(final String segment, final String path) {
+			final int bracket = segment.indexOf('[');
+			final Step step = new Step(bracket < 0 ? segment : segment.substring(0, bracket));
+			Validate.isTrue(!step.name.isEmpty(), "missing element name in path %s", path);
+			int start = bracket;
+			while (start >= 0) {
+				final int end = predicateEnd(segment, start);
+				Validate.isTrue(end > start, "malformed predicate in path %s", path);
+				step.addPredicate(segment.substring(start + 1, end).trim(), path);
+				if (end + 1 < segment.length()) {
+					Validate.isTrue(segment.charAt(end + 1) == '[', "unexpected content after predicate in path %s", path);
+					start = end + 1;
+				} else {
+					start = -1;
+				}
+			}
+			return step;
+		}
+
+		/**
+		 * @return the index of the bracket closing the predicate that starts at the parameter index
+		 */
+		private static int predicateEnd(final String segment, final int start) {
+			char quote = 0;
+			for (int i = start + 1; i < segment.length(); i++) {
+				final char c = segment.charAt(i);
+				if (quote != 0) {
+					if (c == quote) {
+						quote = 0;
+					}
+				} else if (c == '\'' || c == '"') {
+					quote = c;
+				} else if (c == ']') {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private void addPredicate(final String predicate, final String path) {
+			if (predicate.startsWith("@")) {
+				final int eq = predicate.indexOf('=');
+				final String attribute = (eq < 0 ? predicate.substring(1) : predicate.substring(1, eq)).trim();
+				Validate.isTrue(!attribute.isEmpty(), "missing attribute name in path %s", path);
+				String value = null;
+				if (eq >= 0) {
+					value = predicate.substring(eq + 1).trim();
+					Validate.isTrue(value.length() >= 2 && (value.charAt(0) == '\'' || value.charAt(0) == '"')
+							&& value.charAt(value.length() - 1) == value.charAt(0), "attribute value must be quoted in path %s", path);
+					value = value.substring(1, value.length() - 1);
+				}
+				final int length = this.attributes.length;
+				this.attributes = Arrays.copyOf(this.attributes, length + 2);
+				this.attributes[length] = attribute;
+				this.attributes[length + 1] = value;
+			} else {
+				Validate.isTrue(StringUtils.isNumeric(predicate) && predicate.length() < 10 && Integer.parseInt(predicate) > 0, "invalid predicate [%s] in path %s", predicate, path);
+				Validate.isTrue(this.position == 0, "more than one positional predicate in path %s", path);
+				this.position = Integer.parseInt(predicate);
+			}
+		}
+
+		/**
+		 * Checks the name and attribute predicates
+		 */
+		boolean matches(final MxNode node) {
+			if (!nameMatches(node.getLocalName())) {
+				return false;
+			}
+			for (int i = 0; i < this.attributes.length; i += 2) {
+				if (!valueMatches(i, node.getAttribute(this.attributes[i]))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		boolean matches(final String localName, final Function<String, String> attributeValues) {
+			if (!nameMatches(localName)) {
+				return false;
+			}
+			for (int i = 0; i < this.attributes.length; i += 2) {
+				if (!valueMatches(i, attributeValues.apply(this.attributes[i]))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean nameMatches(final String localName) {
+			return this.any || StringUtils.equalsIgnoreCase(localName, this.name);
+		}
+
+		private boolean valueMatches(final int attribute, final String value) {
+			return value != null && (this.attributes[attribute + 1] == null || value.equals(this.attributes[attribute + 1]));
+		}
+	}
+
+}
@@ -16,8 +16,6 @@
 package com.prowidesoftware.swift.model;
 
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.prowidesoftware.deprecation.DeprecationUtils;
 import com.prowidesoftware.deprecation.ProwideDeprecated;
 import com.prowidesoftware.deprecation.TargetYear;
@@ -25,6 +23,7 @@ import com.prowidesoftware.swift.io.parser.MxParser;
 import com.prowidesoftware.swift.model.mx.AbstractMX;
 import com.prowidesoftware.swift.model.mx.BusinessHeader;
 import com.prowidesoftware.swift.model.mx.dic.ApplicationHeader;
+import com.prowidesoftware.swift.utils.JsonUtils;
 import org.apache.commons.lang3.Validate;
 
 import javax.persistence.*;
@@ -184,18 +183,15 @@ public class MxSwiftMessage extends AbstractSwiftMessage {
 			 * update sender, receiver and reference
 			 * from business header or group header
 			 */
-			MxParser parser = new MxParser(this.message());
-			BusinessHeader h = parser.parseBusinessHeader();
-			if (!_update(h)) {
-				_update(parser.parse());
-			}
+			final MxParser.MxIdentification identification = new MxParser(this.message()).analyzeIdentification();
+			_update(identification);
 			/*
 			 * update identifier and namespace
 			 */
 			if (id != null) {
 				_update(id);
 			} else {
-				_update(parser.detectMessage());
+				_update(identification.getMxId());
 			}
 		}
 	}
@@ -242,8 +238,7 @@ public class MxSwiftMessage extends AbstractSwiftMessage {
 		 * from business header or group header
 		 */
 		if (!_update(mx.getBusinessHeader())) {
-			MxParser parser = new MxParser(this.message());
-			_update(parser.parse());
+			_update(new MxParser(this.message()).analyzeIdentification());
 		}
 		/*
 		 * update identifier and namespace
@@ -298,28 +293,26 @@ public class MxSwiftMessage extends AbstractSwiftMessage {
 	}
 	
 	/**
-	 * Updates sender, receiver and reference from the group header element (only present in a subset of Mx messages)
+	 * Updates sender, receiver and reference from the header or the group header element (only present in a subset
+	 * of Mx messages), as read by the parser
 	 * @return true if at least some property was updated
 	 */
-	private boolean _update(MxNode n) {
+	private boolean _update(final MxParser.MxIdentification identification) {
 		boolean updated = false;
-		final MxNode groupHeader = n != null? n.findFirstByName("GrpHdr") : null;
-		if (groupHeader != null) {
-			MxNode senderBic = groupHeader.findFirst("./InstgAgt/FinInstnId/BIC");
-			if (senderBic != null) {
-				sender = bic11(senderBic.getValue());
-				updated = true;
-			}
-			MxNode receiverBic = groupHeader.findFirst("./InstdAgt/FinInstnId/BIC");
-			if (receiverBic != null) {
-				receiver = bic11(receiverBic.getValue());
-				updated = true;
-			}
-			MxNode reference = groupHeader.findFirst("./MsgId");
-			if (reference != null) {
-				setReference(reference.getValue());
-				updated = true;
-			}
+		final String from = identification.getSender();
+		if (from != null) {
+			sender = bic11(from);
+			updated = true;
+		}
+		final String to = identification.getReceiver();
+		if (to != null) {
+			receiver = bic11(to);
+			updated = true;
+		}
+		final String reference = identification.getReference();
+		if (reference != null) {
+			setReference(reference);
+			updated = true;
 		}
 		return updated;
 	}
@@ -446,8 +439,7 @@ public class MxSwiftMessage extends AbstractSwiftMessage {
 	 * @since 7.10.3
 	 */
 	public static MxSwiftMessage fromJson(String json){
-		final Gson gson = new GsonBuilder().create();
-		return gson.fromJson(json, MxSwiftMessage.class);
+		return JsonUtils.gson().fromJson(json, MxSwiftMessage.class);
 	}
 
 	/**
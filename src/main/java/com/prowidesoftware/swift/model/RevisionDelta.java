@@ -0,0 +1,312 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model;
+
+import com.prowidesoftware.ProwideException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Non-public helper class used by {@link AbstractSwiftMessage} to store a revision content as the difference with the
+ * previous revision.
+ *
+ * <p>The content is split into segments starting at each '{' and '&lt;', and at each ':' following a line break.
+ * For MT this gives one segment per header block and per field of blocks 3 to 5, and for MX one segment per start
+ * or end tag with the text following it. The delta is an edit script over the segments of the base content,
+ * so the reconstruction is exact, including line breaks and indentation.
+ *
+ * <p>The segments are compared with the linear space variant of the Myers O(ND) difference algorithm, so the cost
+ * grows with the size of the content times the number of differences, and distant edits on large MX messages
+ * produce small deltas. A delta is only kept when it is less than half the size of the target content, otherwise
+ * storing the full content is preferred since it does not add a step to the reconstruction.
+ *
+ * <p>The encoded delta is a text starting with {@link #PREFIX}, followed by operations: "=n" copies the next n base
+ * segments, "-n" skips the next n base segments and "+n:text" inserts the n characters text.
+ *
+ * @since 8.0.2
+ */
+final class RevisionDelta {
+
+	/**
+	 * Start of a delta content, cannot be the start of a FIN or XML message
+	 */
+	static final String PREFIX = "@delta:1\n";
+
+	/*
+	 * maximum number of differences searched in each half of a range, beyond it the range is replaced
+	 */
+	private static final int MAX_EDITS = 1_000;
+
+	private RevisionDelta() {
+	}
+
+	/**
+	 * @return true if the content is a delta created by {@link #encode(String, String)}
+	 */
+	static boolean isDelta(final String content) {
+		return content != null && content.startsWith(PREFIX);
+	}
+
+	/**
+	 * Creates the delta from the base to the target content
+	 * @return the delta, or null if it is not less than half the size of the target content
+	 */
+	static String encode(final String base, final String target) {
+		final List<String> from = split(base);
+		final List<String> to = split(target);
+		final Encoder encoder = new Encoder();
+		diff(from, 0, from.size(), to, 0, to.size(), encoder);
+		final String delta = encoder.toString();
+		return delta.length() < target.length() / 2 ? delta : null;
+	}
+
+	/**
+	 * Applies a delta created by {@link #encode(String, String)} to its base content
+	 * @throws ProwideException if the delta is malformed or it does not correspond to the base content
+	 */
+	static String apply(final String base, final String delta) {
+		final List<String> from = split(base);
+		final StringBuilder result = new StringBuilder(base.length() + delta.length());
+		int segment = 0;
+		int i = PREFIX.length();
+		try {
+			while (i < delta.length()) {
+				final char op = delta.charAt(i++);
+				final int digits = i;
+				while (i < delta.length() && Character.isDigit(delta.charAt(i))) {
+					i++;
+				}
+				if (i == digits) {
+					throw new ProwideException("malformed revision delta at " + i);
+				}
+				final int number = Integer.parseInt(delta.substring(digits, i));
+				if (op == '=') {
+					for (int k = 0; k < number; k++) {
+						result.append(from.get(segment++));
+					}
+				} else if (op == '-') {
+					segment += number;
+				} else if (op == '+' && delta.charAt(i) == ':') {
+					result.append(delta, i + 1, i + 1 + number);
+					i += 1 + number;
+				} else {
+					throw new ProwideException("malformed revision delta at " + digits);
+				}
+			}
+		} catch (final IndexOutOfBoundsException e) {
+			throw new ProwideException("revision delta does not match its base content", e);
+		}
+		if (segment != from.size()) {
+			throw new ProwideException("revision delta does not match its base content");
+		}
+		return result.toString();
+	}
+
+	static List<String> split(final String content) {
+		final List<String> segments = new ArrayList<>();
+		int start = 0;
+		for (int i = 1; i < content.length(); i++) {
+			final char c = content.charAt(i);
+			if (c == '{' || c == '<' || (c == ':' && content.charAt(i - 1) == '\n')) {
+				segments.add(content.substring(start, i));
+				start = i;
+			}
+		}
+		if (start < content.length()) {
+			segments.add(content.substring(start));
+		}
+		return segments;
+	}
+
+	/**
+	 * Writes the operations to transform the base segments in [aStart, aEnd) into the target segments in
+	 * [bStart, bEnd), splitting the ranges at the middle snake of the shortest edit script
+	 */
+	private static void diff(final List<String> a, int aStart, int aEnd, final List<String> b, int bStart, int bEnd, final Encoder encoder) {
+		int prefix = 0;
+		while (aStart < aEnd && bStart < bEnd && a.get(aStart).equals(b.get(bStart))) {
+			aStart++;
+			bStart++;
+			prefix++;
+		}
+		int suffix = 0;
+		while (aStart < aEnd && bStart < bEnd && a.get(aEnd - 1).equals(b.get(bEnd - 1))) {
+			aEnd--;
+			bEnd--;
+			suffix++;
+		}
+		encoder.copy(prefix);
+		if (aStart == aEnd || bStart == bEnd) {
+			replace(b, aStart, aEnd, bStart, bEnd, encoder);
+		} else {
+			final int[] split = middleSnake(a, aStart, aEnd, b, bStart, bEnd);
+			if (split == null) {
+				replace(b, aStart, aEnd, bStart, bEnd, encoder);
+			} else {
+				diff(a, aStart, split[0], b, bStart, split[1], encoder);
+				diff(a, split[0], aEnd, b, split[1], bEnd, encoder);
+			}
+		}
+		encoder.copy(suffix);
+	}
+
+	private static void replace(final List<String> b, final int aStart, final int aEnd, final int bStart, final int bEnd, final Encoder encoder) {
+		encoder.skip(aEnd - aStart);
+		for (int j = bStart; j < bEnd; j++) {
+			encoder.insert(b.get(j));
+		}
+	}
+
+	/**
+	 * Searches the shortest edit script from both ends of the ranges at the same time, until the paths overlap.
+	 * @return the position in the base and target segments where the paths meet, or null if the ranges have no
+	 * common segments or they differ in more than {@link #MAX_EDITS} segments at each side
+	 */
+	private static int[] middleSnake(final List<String> a, final int aStart, final int aEnd, final List<String> b, final int bStart, final int bEnd) {
+		final int n = aEnd - aStart;
+		final int m = bEnd - bStart;
+		final int max = (n + m + 1) / 2;
+		final int offset = max;
+		final int length = 2 * max + 2;
+		// furthest x reached in each diagonal k = x - y, forward and backward from the ends
+		final int[] forward = new int[length];
+		final int[] backward = new int[length];
+		Arrays.fill(forward, -1);
+		Arrays.fill(backward, -1);
+		forward[offset + 1] = 0;
+		backward[offset + 1] = 0;
+		final int delta = n - m;
+		// with an odd delta the forward path is the one that overlaps first
+		final boolean odd = delta % 2 != 0;
+		int kForwardStart = 0;
+		int kForwardEnd = 0;
+		int kBackwardStart = 0;
+		int kBackwardEnd = 0;
+		for (int d = 0; d < Math.min(max, MAX_EDITS); d++) {
+			for (int k = -d + kForwardStart; k <= d - kForwardEnd; k += 2) {
+				final int i = offset + k;
+				int x = k == -d || (k != d && forward[i - 1] < forward[i + 1]) ? forward[i + 1] : forward[i - 1] + 1;
+				int y = x - k;
+				while (x < n && y < m && a.get(aStart + x).equals(b.get(bStart + y))) {
+					x++;
+					y++;
+				}
+				forward[i] = x;
+				if (x > n) {
+					kForwardEnd += 2;
+				} else if (y > m) {
+					kForwardStart += 2;
+				} else if (odd) {
+					final int j = offset + delta - k;
+					if (j >= 0 && j < length && backward[j] != -1 && x >= n - backward[j]) {
+						return split(x, y, n, m, aStart, bStart);
+					}
+				}
+			}
+			for (int k = -d + kBackwardStart; k <= d - kBackwardEnd; k += 2) {
+				final int i = offset + k;
+				int x = k == -d || (k != d && backward[i - 1] < backward[i + 1]) ? backward[i + 1] : backward[i - 1] + 1;
+				int y = x - k;
+				while (x < n && y < m && a.get(aEnd - 1 - x).equals(b.get(bEnd - 1 - y))) {
+					x++;
+					y++;
+				}
+				backward[i] = x;
+				if (x > n) {
+					kBackwardEnd += 2;
+				} else if (y > m) {
+					kBackwardStart += 2;
+				} else if (!odd) {
+					final int j = offset + delta - k;
+					if (j >= 0 && j < length && forward[j] != -1) {
+						final int fx = forward[j];
+						if (fx >= n - x) {
+							return split(fx, offset + fx - j, n, m, aStart, bStart);
+						}
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the absolute split position, or null if it would not reduce the ranges
+	 */
+	private static int[] split(final int x, final int y, final int n, final int m, final int aStart, final int bStart) {
+		if ((x == 0 && y == 0) || (x == n && y == m)) {
+			return null;
+		}
+		return new int[] { aStart + x, bStart + y };
+	}
+
+	/**
+	 * Writes the operations, merging consecutive copies, skips and inserts
+	 */
+	private static final class Encoder {
+		private final StringBuilder sb = new StringBuilder(PREFIX);
+		private char pending = 0;
+		private int count = 0;
+		private final StringBuilder inserted = new StringBuilder();
+
+		void copy(final int n) {
+			add('=', n);
+		}
+
+		void skip(final int n) {
+			add('-', n);
+		}
+
+		void insert(final String text) {
+			if (this.pending != '+') {
+				flush();
+				this.pending = '+';
+			}
+			this.inserted.append(text);
+		}
+
+		private void add(final char op, final int n) {
+			if (n == 0) {
+				return;
+			}
+			if (this.pending != op) {
+				flush();
+				this.pending = op;
+			}
+			this.count += n;
+		}
+
+		private void flush() {
+			if (this.pending == '+') {
+				this.sb.append('+').append(this.inserted.length()).append(':').append(this.inserted);
+				this.inserted.setLength(0);
+			} else if (this.pending != 0) {
+				this.sb.append(this.pending).append(this.count);
+			}
+			this.pending = 0;
+			this.count = 0;
+		}
+
+		@Override
+		public String toString() {
+			flush();
+			return this.sb.toString();
+		}
+	}
+
+}
@@ -15,9 +15,8 @@
  */
 package com.prowidesoftware.swift.model;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.prowidesoftware.swift.model.mt.ServiceIdType;
+import com.prowidesoftware.swift.utils.JsonUtils;
 import org.apache.commons.lang3.Validate;
 
 import java.io.Serializable;
@@ -553,8 +552,7 @@ public class SwiftBlock1 extends SwiftValueBlock implements Serializable {
      * @since 7.5
      */
 	public String toJson() {
-		final Gson gson = new GsonBuilder().create();
-		return gson.toJson(this);
+		return JsonUtils.gson().toJson(this);
 	}
 
     /**
@@ -563,8 +561,7 @@ public class SwiftBlock1 extends SwiftValueBlock implements Serializable {
      * @since 7.9.8
      */
     public static SwiftBlock1 fromJson(String json){
-        final Gson gson = new GsonBuilder().create();
-        return gson.fromJson(json,SwiftBlock1.class);
+        return JsonUtils.gson().fromJson(json,SwiftBlock1.class);
     }
 
 	/**
@@ -15,8 +15,7 @@
  */
 package com.prowidesoftware.swift.model;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.prowidesoftware.swift.utils.JsonUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
@@ -212,11 +211,7 @@ public abstract class SwiftBlock2 extends SwiftValueBlock implements Serializabl
 	 * @since 7.9.8 current block 2 implementation, based on Gson (method signature with null implementation is available since 7.5)
 	 */
 	public String toJson(){
-		final Gson gson = new GsonBuilder()
-			.registerTypeAdapter(SwiftBlock2.class, new SwiftBlock2Adapter())
-			.setPrettyPrinting()
-			.create();
-		return gson.toJson(this,SwiftBlock2.class);
+		return JsonUtils.prettyGson().toJson(this,SwiftBlock2.class);
 	}
 
 	/**
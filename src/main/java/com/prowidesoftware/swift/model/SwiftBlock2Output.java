@@ -15,11 +15,10 @@
  */
 package com.prowidesoftware.swift.model;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.prowidesoftware.deprecation.DeprecationUtils;
 import com.prowidesoftware.deprecation.ProwideDeprecated;
 import com.prowidesoftware.deprecation.TargetYear;
+import com.prowidesoftware.swift.utils.JsonUtils;
 import org.apache.commons.lang3.Validate;
 
 import java.io.Serializable;
@@ -703,7 +702,6 @@ public class SwiftBlock2Output extends SwiftBlock2 implements Serializable {
 	 * @since 7.9.8
 	 */
 	public static SwiftBlock2Output fromJson(String json){
-		final Gson gson = new GsonBuilder().create();
-		return gson.fromJson(json, SwiftBlock2Output.class);
+		return JsonUtils.gson().fromJson(json, SwiftBlock2Output.class);
 	}
 }
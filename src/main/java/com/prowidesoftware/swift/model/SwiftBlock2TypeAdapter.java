@@ -0,0 +1,148 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.prowidesoftware.swift.utils.JsonUtils;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Streaming JSON serialization for the application header block, writing and reading the same structure as
+ * {@link SwiftBlock2Adapter} directly from the Gson stream, without intermediate JSON trees.
+ *
+ * @see JsonUtils
+ * @since 8.0.2
+ */
+public class SwiftBlock2TypeAdapter extends TypeAdapter<SwiftBlock2> {
+
+	private static final String DIRECTION = "direction";
+
+	@Override
+	public void write(final JsonWriter out, final SwiftBlock2 b2) throws IOException {
+		if (b2 == null) {
+			out.nullValue();
+			return;
+		}
+		out.beginObject();
+		if (b2 instanceof SwiftBlock2Input) {
+			final SwiftBlock2Input in = (SwiftBlock2Input) b2;
+			property(out, "receiverAddress", in.getReceiverAddress());
+			property(out, "deliveryMonitoring", in.getDeliveryMonitoring());
+			property(out, "obsolescencePeriod", in.getObsolescencePeriod());
+		} else if (b2 instanceof SwiftBlock2Output) {
+			final SwiftBlock2Output o = (SwiftBlock2Output) b2;
+			property(out, "senderInputTime", o.getSenderInputTime());
+			property(out, "MIRDate", o.getMIRDate());
+			property(out, "MIRLogicalTerminal", o.getMIRLogicalTerminal());
+			property(out, "MIRSessionNumber", o.getMIRSessionNumber());
+			property(out, "MIRSequenceNumber", o.getMIRSequenceNumber());
+			property(out, "receiverOutputDate", o.getReceiverOutputDate());
+			property(out, "receiverOutputTime", o.getReceiverOutputTime());
+		}
+		property(out, "messagePriority", b2.getMessagePriority());
+		property(out, "messageType", b2.getMessageType());
+		writeBlockProperties(out, b2);
+		out.name(DIRECTION).value(b2.isInput() ? "I" : "O");
+		out.endObject();
+	}
+
+	@Override
+	public SwiftBlock2 read(final JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		// the direction could be found after the other properties
+		final Map<String, String> values = new HashMap<>();
+		in.beginObject();
+		while (in.hasNext()) {
+			final String name = in.nextName();
+			if (in.peek() == JsonToken.STRING || in.peek() == JsonToken.NUMBER) {
+				values.put(name, in.nextString());
+			} else {
+				in.skipValue();
+			}
+		}
+		in.endObject();
+
+		final SwiftBlock2 b2;
+		if ("O".equals(values.get(DIRECTION))) {
+			final SwiftBlock2Output o = new SwiftBlock2Output();
+			set(values, "senderInputTime", o::setSenderInputTime);
+			set(values, "MIRDate", o::setMIRDate);
+			set(values, "MIRLogicalTerminal", o::setMIRLogicalTerminal);
+			set(values, "MIRSessionNumber", o::setMIRSessionNumber);
+			set(values, "MIRSequenceNumber", o::setMIRSequenceNumber);
+			set(values, "receiverOutputDate", o::setReceiverOutputDate);
+			set(values, "receiverOutputTime", o::setReceiverOutputTime);
+			b2 = o;
+		} else {
+			// default to input
+			final SwiftBlock2Input i = new SwiftBlock2Input();
+			set(values, "receiverAddress", i::setReceiverAddress);
+			set(values, "deliveryMonitoring", i::setDeliveryMonitoring);
+			set(values, "obsolescencePeriod", i::setObsolescencePeriod);
+			b2 = i;
+		}
+		set(values, "messageType", b2::setMessageType);
+		set(values, "messagePriority", b2::setMessagePriority);
+		return b2;
+	}
+
+	private static void set(final Map<String, String> values, final String name, final Consumer<String> setter) {
+		final String value = values.get(name);
+		if (value != null) {
+			setter.accept(value);
+		}
+	}
+
+	/**
+	 * Properties from the base block class, written only when present.
+	 * The deprecated persistence id has no replacement accessor (getId is deprecated as well and logs a notice), so
+	 * the field is read directly to keep it in the JSON as the reflective serialization did.
+	 */
+	@SuppressWarnings("deprecation")
+	private static void writeBlockProperties(final JsonWriter out, final SwiftBlock b) throws IOException {
+		if (b.id != null) {
+			out.name("id").value(b.id);
+		}
+		if (b.unparsedTexts != null) {
+			out.name("unparsedTexts");
+			JsonUtils.gson().getAdapter(UnparsedTextList.class).write(out, b.unparsedTexts);
+		}
+		if (b.input != null) {
+			out.name("input").value(b.input);
+		}
+		if (b.output != null) {
+			out.name("output").value(b.output);
+		}
+		property(out, "blockType", b.blockType);
+	}
+
+	private static void property(final JsonWriter out, final String name, final String value) throws IOException {
+		if (value != null) {
+			out.name(name).value(value);
+		}
+	}
+
+}
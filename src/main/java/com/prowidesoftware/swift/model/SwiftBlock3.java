@@ -15,9 +15,8 @@
  */
 package com.prowidesoftware.swift.model;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.prowidesoftware.swift.model.field.Field108;
+import com.prowidesoftware.swift.utils.JsonUtils;
 import org.apache.commons.lang3.Validate;
 
 import java.io.Serializable;
@@ -137,8 +136,7 @@ public class SwiftBlock3 extends SwiftTagListBlock implements Serializable {
 	 * @since 7.9.8
 	 */
 	public static SwiftBlock3 fromJson(String json){
-		final Gson gson = new GsonBuilder().create();
-		return gson.fromJson(json, SwiftBlock3.class);
+		return JsonUtils.gson().fromJson(json, SwiftBlock3.class);
 	}
 
 }
\ No newline at end of file
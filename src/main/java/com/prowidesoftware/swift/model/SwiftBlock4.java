@@ -15,6 +15,7 @@
  */
 package com.prowidesoftware.swift.model;
 
+import com.prowidesoftware.swift.utils.JsonUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 
@@ -22,8 +23,6 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Stack;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 
 /**
  * Base class for SWIFT <b>Body Block (block 4)</b>.<br>
@@ -156,8 +155,7 @@ public class SwiftBlock4 extends SwiftTagListBlock implements Serializable {
 	 * @since 7.9.8
 	 */
 	public static SwiftBlock4 fromJson(String json){
-		final Gson gson = new GsonBuilder().create();
-		return gson.fromJson(json, SwiftBlock4.class);
+		return JsonUtils.gson().fromJson(json, SwiftBlock4.class);
 	}
 
 }
\ No newline at end of file
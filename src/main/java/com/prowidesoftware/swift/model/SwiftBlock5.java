@@ -15,6 +15,7 @@
  */
 package com.prowidesoftware.swift.model;
 
+import com.prowidesoftware.swift.utils.JsonUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 
@@ -22,8 +23,6 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.Optional;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 
 /**
  * Base class for SWIFT <b>Trailer Block (block 5)</b>.
@@ -108,8 +107,7 @@ public class SwiftBlock5 extends SwiftTagListBlock implements Serializable {
 	 * @since 7.9.8
 	 */
 	public static SwiftBlock5 fromJson(String json){
-		final Gson gson = new GsonBuilder().create();
-		return gson.fromJson(json, SwiftBlock5.class);
+		return JsonUtils.gson().fromJson(json, SwiftBlock5.class);
 	}
 
 	/**
@@ -15,14 +15,13 @@
  */
 package com.prowidesoftware.swift.model;
 
+import com.prowidesoftware.swift.utils.JsonUtils;
 import org.apache.commons.lang3.Validate;
 
 import java.io.Serializable;
 import java.util.List;
 import java.util.Objects;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 
 /**
  * Base class for SWIFT <b>User "ad-hoc" Blocks</b> (blocks with number other than 1-5 or names).<br>
@@ -315,7 +314,6 @@ public class SwiftBlockUser extends SwiftTagListBlock implements Serializable {
 	 * @since 7.9.8
 	 */
 	public static SwiftBlockUser fromJson(String json){
-		final Gson gson = new GsonBuilder().create();
-		return gson.fromJson(json, SwiftBlockUser.class);
+		return JsonUtils.gson().fromJson(json, SwiftBlockUser.class);
 	}
 }
@@ -15,8 +15,6 @@
  */
 package com.prowidesoftware.swift.model;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.prowidesoftware.JsonSerializable;
 import com.prowidesoftware.deprecation.DeprecationUtils;
 import com.prowidesoftware.deprecation.ProwideDeprecated;
@@ -29,6 +27,7 @@ import com.prowidesoftware.swift.io.writer.XMLWriterVisitor;
 import com.prowidesoftware.swift.model.field.*;
 import com.prowidesoftware.swift.model.mt.*;
 import com.prowidesoftware.swift.utils.IMessageVisitor;
+import com.prowidesoftware.swift.utils.JsonUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -1586,12 +1585,7 @@ public class SwiftMessage implements Serializable, JsonSerializable {
 	 */
 	@Override
 	public String toJson() {
-		final Gson gson = new GsonBuilder()
-			.registerTypeAdapter(SwiftMessage.class, new SwiftMessageAdapter())
-			.registerTypeAdapter(SwiftBlock2.class, new SwiftBlock2Adapter())
-			.setPrettyPrinting()
-			.create();
-		return gson.toJson(this);
+		return JsonUtils.prettyGson().toJson(this);
 	}
 
 	/**
@@ -1601,11 +1595,7 @@ public class SwiftMessage implements Serializable, JsonSerializable {
 	 * @since 7.9.8
 	 */
 	public static SwiftMessage fromJson(String json){
-		final Gson gson = new GsonBuilder()
-			.registerTypeAdapter(SwiftMessage.class, new SwiftMessageAdapter())
-			.registerTypeAdapter(SwiftBlock2.class, new SwiftBlock2Adapter())
-			.create();
-		return gson.fromJson(json,SwiftMessage.class);
+		return JsonUtils.gson().fromJson(json,SwiftMessage.class);
 	}
 
 	/**
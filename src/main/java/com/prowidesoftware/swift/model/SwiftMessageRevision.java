@@ -25,6 +25,10 @@ import static javax.persistence.FetchType.LAZY;
  * A revision is a snapshot of message content and is used to track the history of changes in a message.
  * Applications may use to store revisions each time a message is edited.
  *
+ * <p>The message content is normally the complete message. Revisions created with
+ * {@link AbstractSwiftMessage#createDeltaRevision()} may instead contain the difference with the previous revision,
+ * see {@link #isDelta()}, and their content is obtained with {@link AbstractSwiftMessage#getRevisionContent(int)}.
+ *
  * <p>XML metadata may be used to override or augment these JPA annotations.
  * 
  * @author sebastian@prowidesoftware.com
@@ -120,6 +124,15 @@ public class SwiftMessageRevision {
 		this.message = message;
 	}
 
+	/**
+	 * Tells if the message content is the difference with the previous revision instead of the complete message.
+	 * @see AbstractSwiftMessage#getRevisionContent(int)
+	 * @since 8.0.2
+	 */
+	public boolean isDelta() {
+		return RevisionDelta.isDelta(this.message);
+	}
+
 	public String getJson() {
 		return json;
 	}
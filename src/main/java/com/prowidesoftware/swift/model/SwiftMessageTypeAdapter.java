@@ -0,0 +1,310 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.prowidesoftware.swift.model.field.Field;
+import com.prowidesoftware.swift.utils.JsonUtils;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streaming JSON serialization for {@link SwiftMessage}, writing the same structure as {@link SwiftMessageAdapter}
+ * directly into the Gson stream, without building intermediate JSON trees.
+ *
+ * <p>The reader accepts both the message structure, with the blocks inside the "data" property, and the MT structure
+ * written by {@link #writeMT(JsonWriter, SwiftMessage)} with the blocks as "basicHeaderBlock", "applicationHeaderBlock",
+ * "userHeaderBlock", "textBlock" and "trailerBlock".
+ *
+ * <p>Unlike {@link SwiftMessageAdapter}, user blocks are written as well, in the "userBlocks" array, so that they are
+ * kept in a round trip.
+ *
+ * <p>Instances hold no state and can be shared between threads.
+ *
+ * @see JsonUtils
+ * @since 8.0.2
+ */
+public class SwiftMessageTypeAdapter extends TypeAdapter<SwiftMessage> {
+
+	private static final String BLOCK1_FINAL_NAME = "basicHeaderBlock";
+	private static final String BLOCK2_FINAL_NAME = "applicationHeaderBlock";
+	private static final String BLOCK3_FINAL_NAME = "userHeaderBlock";
+	private static final String BLOCK4_FINAL_NAME = "textBlock";
+	private static final String BLOCK5_FINAL_NAME = "trailerBlock";
+	private static final String FIELDS = "fields";
+
+	private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.ENGLISH).withZone(ZoneOffset.UTC);
+
+	private static final SwiftBlock2TypeAdapter BLOCK2_ADAPTER = new SwiftBlock2TypeAdapter();
+
+	@Override
+	public void write(final JsonWriter out, final SwiftMessage msg) throws IOException {
+		if (msg == null) {
+			out.nullValue();
+			return;
+		}
+		out.beginObject();
+		out.name("timestamp").value(TIMESTAMP.format(Instant.now()));
+		out.name("version").value(SwiftMessage.JSON_VERSION);
+		out.name("data");
+		out.beginObject();
+		writeBlock(out, "block1", msg.getBlock1(), SwiftBlock1.class);
+		if (msg.getBlock2() != null) {
+			out.name("block2");
+			BLOCK2_ADAPTER.write(out, msg.getBlock2());
+		}
+		writeBlock(out, "block3", msg.getBlock3(), SwiftBlock3.class);
+		writeBlock(out, "block4", msg.getBlock4(), SwiftBlock4.class);
+		writeBlock(out, "block5", msg.getBlock5(), SwiftBlock5.class);
+		if (msg.getUserBlocks() != null && !msg.getUserBlocks().isEmpty()) {
+			final TypeAdapter<SwiftBlockUser> adapter = JsonUtils.gson().getAdapter(SwiftBlockUser.class);
+			out.name("userBlocks");
+			out.beginArray();
+			for (final SwiftBlockUser b : msg.getUserBlocks()) {
+				adapter.write(out, b);
+			}
+			out.endArray();
+		}
+		out.endObject();
+		out.endObject();
+	}
+
+	/**
+	 * Writes the message with the structure used for the MT classes, with the header blocks as in the message
+	 * structure, and the user header and text block with the expanded fields content.
+	 *
+	 * @param out the JSON stream
+	 * @param msg the message to write
+	 * @throws IOException if an error occurs writing the stream
+	 * @see com.prowidesoftware.swift.model.mt.AbstractMT#toJson()
+	 */
+	public static void writeMT(final JsonWriter out, final SwiftMessage msg) throws IOException {
+		out.beginObject();
+		out.name("type").value("MT");
+		writeBlock(out, BLOCK1_FINAL_NAME, msg.getBlock1(), SwiftBlock1.class);
+		if (msg.getBlock2() != null) {
+			out.name(BLOCK2_FINAL_NAME);
+			BLOCK2_ADAPTER.write(out, msg.getBlock2());
+		}
+		writeFields(out, BLOCK3_FINAL_NAME, msg.getBlock3());
+		writeFields(out, BLOCK4_FINAL_NAME, msg.getBlock4());
+		if (msg.getBlock5() != null && !msg.getBlock5().isEmpty()) {
+			// default serialization from SwiftMessage with tags renamed to fields
+			final TypeAdapter<Tag> tagAdapter = JsonUtils.gson().getAdapter(Tag.class);
+			out.name(BLOCK5_FINAL_NAME);
+			out.beginObject();
+			out.name(FIELDS);
+			out.beginArray();
+			for (final Tag t : msg.getBlock5().getTags()) {
+				tagAdapter.write(out, t);
+			}
+			out.endArray();
+			out.endObject();
+		}
+		out.endObject();
+	}
+
+	private static <T extends SwiftBlock> void writeBlock(final JsonWriter out, final String name, final T block, final Class<T> type) throws IOException {
+		if (block != null) {
+			out.name(name);
+			JsonUtils.gson().getAdapter(type).write(out, block);
+		}
+	}
+
+	private static void writeFields(final JsonWriter out, final String name, final SwiftTagListBlock block) throws IOException {
+		if (block == null || block.isEmpty()) {
+			return;
+		}
+		out.name(name);
+		out.beginObject();
+		out.name(FIELDS);
+		out.beginArray();
+		for (final Tag t : block.getTags()) {
+			final Field f = t.asField();
+			if (f != null) {
+				f.toJson(out);
+			} else {
+				// unrecognized field
+				out.beginObject();
+				out.name("name").value(t.getName());
+				if (t.getValue() != null) {
+					out.name("value").value(t.getValue());
+				}
+				out.endObject();
+			}
+		}
+		out.endArray();
+		out.endObject();
+	}
+
+	@Override
+	public SwiftMessage read(final JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		final SwiftMessage sm = new SwiftMessage();
+		in.beginObject();
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+				case "data":
+					readData(in, sm);
+					break;
+				case BLOCK1_FINAL_NAME:
+					addBlock(sm, JsonUtils.gson().getAdapter(SwiftBlock1.class).read(in));
+					break;
+				case BLOCK2_FINAL_NAME:
+					addBlock(sm, BLOCK2_ADAPTER.read(in));
+					break;
+				case BLOCK3_FINAL_NAME:
+					addBlock(sm, readFields(in, new SwiftBlock3()));
+					break;
+				case BLOCK4_FINAL_NAME:
+					addBlock(sm, readFields(in, new SwiftBlock4()));
+					break;
+				case BLOCK5_FINAL_NAME:
+					addBlock(sm, readFields(in, new SwiftBlock5()));
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+		return sm;
+	}
+
+	private static void readData(final JsonReader in, final SwiftMessage sm) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return;
+		}
+		in.beginObject();
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+				case "block1":
+					addBlock(sm, JsonUtils.gson().getAdapter(SwiftBlock1.class).read(in));
+					break;
+				case "block2":
+					addBlock(sm, BLOCK2_ADAPTER.read(in));
+					break;
+				case "block3":
+					addBlock(sm, JsonUtils.gson().getAdapter(SwiftBlock3.class).read(in));
+					break;
+				case "block4":
+					addBlock(sm, JsonUtils.gson().getAdapter(SwiftBlock4.class).read(in));
+					break;
+				case "block5":
+					addBlock(sm, JsonUtils.gson().getAdapter(SwiftBlock5.class).read(in));
+					break;
+				case "userBlocks":
+					readUserBlocks(in, sm);
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+	}
+
+	private static void readUserBlocks(final JsonReader in, final SwiftMessage sm) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return;
+		}
+		final TypeAdapter<SwiftBlockUser> adapter = JsonUtils.gson().getAdapter(SwiftBlockUser.class);
+		final List<SwiftBlockUser> blocks = new ArrayList<>();
+		in.beginArray();
+		while (in.hasNext()) {
+			blocks.add(adapter.read(in));
+		}
+		in.endArray();
+		if (!blocks.isEmpty()) {
+			sm.setUserBlocks(blocks);
+		}
+	}
+
+	/**
+	 * Reads the content of an MT block, with the field objects in the "fields" array. The expanded fields content is
+	 * used for the user header and text block, while the trailer fields are plain name and value tags.
+	 *
+	 * @return the block with the read fields, or null if the "fields" property is not present
+	 */
+	private static <T extends SwiftTagListBlock> T readFields(final JsonReader in, final T block) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		boolean found = false;
+		in.beginObject();
+		while (in.hasNext()) {
+			if (FIELDS.equals(in.nextName()) && in.peek() == JsonToken.BEGIN_ARRAY) {
+				found = true;
+				in.beginArray();
+				while (in.hasNext()) {
+					if (block instanceof SwiftBlock5) {
+						block.append(readTag(in));
+					} else {
+						final Field f = Field.fromJson(in);
+						if (f != null) {
+							block.append(f);
+						}
+					}
+				}
+				in.endArray();
+			} else {
+				in.skipValue();
+			}
+		}
+		in.endObject();
+		return found ? block : null;
+	}
+
+	private static Tag readTag(final JsonReader in) throws IOException {
+		final Tag tag = new Tag();
+		in.beginObject();
+		while (in.hasNext()) {
+			final String name = in.nextName();
+			if (in.peek() == JsonToken.NULL) {
+				// trailer tags can have null value (for example PDE field)
+				in.nextNull();
+			} else if ("name".equals(name)) {
+				tag.setName(in.nextString());
+			} else if ("value".equals(name)) {
+				tag.setValue(in.nextString());
+			} else {
+				in.skipValue();
+			}
+		}
+		in.endObject();
+		return tag;
+	}
+
+	private static void addBlock(final SwiftMessage sm, final SwiftBlock block) {
+		if (block != null) {
+			sm.addBlock(block);
+		}
+	}
+
+}
@@ -16,20 +16,14 @@
 package com.prowidesoftware.swift.model;
 
 import com.prowidesoftware.ProwideException;
-import com.prowidesoftware.swift.io.writer.SwiftWriter;
+import com.prowidesoftware.swift.io.writer.ChecksumWriter;
 import com.prowidesoftware.swift.model.field.CurrencyContainer;
-import com.prowidesoftware.swift.model.field.DateContainer;
 import com.prowidesoftware.swift.model.field.Field;
-import com.prowidesoftware.swift.model.field.Field30T;
 import com.prowidesoftware.swift.model.mt.AbstractMT;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 
-import java.io.StringWriter;
 import java.lang.reflect.Method;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -42,6 +36,11 @@ import java.util.logging.Logger;
  */
 public class SwiftMessageUtils {
 	private static final Logger log = Logger.getLogger(SwiftMessageUtils.class.getName());
+
+	/*
+	 * checksum digests are reused by each thread
+	 */
+	private static final ThreadLocal<ChecksumWriter> CHECKSUM_WRITER = ThreadLocal.withInitial(ChecksumWriter::new);
 	private final SwiftMessage msg;
 
 	public SwiftMessageUtils() {
@@ -156,95 +155,11 @@ public class SwiftMessageUtils {
 	 *
 	 * @param m the message where the value date is to be found
 	 * @return found date or null if the message does not defines a value date, or if the defined value date field is not present in the message
+	 * @see MtMetadataExtractor
 	 * @since 7.7
 	 */
 	public static Calendar valueDate(final SwiftMessage m) {
-		if (m != null) {
-			final SwiftBlock4 b4 = m.getBlock4();
-			if (b4 != null && !b4.isEmpty()) {
-				Tag t = null;
-				Field f = null;
-				if (m.isType(101, 104, 107, 201, 203, 204, 207, 210, 604,605)) {
-					t = b4.getTagByName("30");
-				} else if (m.isType(102, 103, 200, 202, 205, 400, 450, 455, 800, 802, 900, 910)) {
-					t = b4.getTagByName("32A");
-				} else if (m.isType(300, 304, 320, 330, 350, 620)) {
-					t = b4.getTagByName("30V");
-                } else if (m.isType(370)) {
-                    final SwiftTagListBlock seq = b4.getSubBlock("NETPOS");
-                    if (seq != null) {
-                        f = seq.getFieldByNumber(98, "NETT");
-                    }
-                } else if (m.isType(456)) {
-					t = b4.getTagByName("33D");
-				} else if (m.isType(502)) {
-                    final SwiftTagListBlock seq = b4.getSubBlock("AMT");
-                    if (seq != null) {
-                        f = seq.getFieldByNumber(98, "VALU");
-                    }
-                } else if (m.isType(509)) {
-                    final SwiftTagListBlock seq = b4.getSubBlock("TRADE");
-                    if (seq != null) {
-                        f = seq.getFieldByNumber(98, "SETT");
-                    }
-                } else if (m.isType(513)) {
-					final SwiftTagListBlock seq = b4.getSubBlock("ORDRDET");
-					if (seq != null) {
-						f = seq.getFieldByNumber(98, "SETT");
-					}
-				} else if (m.isType(514, 515, 518)) {
-					final SwiftTagListBlock seq = b4.getSubBlock("CONFDET");
-					if (seq != null) {
-						f = seq.getFieldByNumber(98, "SETT");
-					}
-				} else if (m.isType(540, 541, 542, 543, 544, 545, 546, 547, 586)) {
-					final SwiftTagListBlock seq = b4.getSubBlock("TRADDET");
-					if (seq != null) {
-						f = seq.getFieldByNumber(98, "SETT");
-					} else {
-                        final SwiftTagListBlock seq2 = b4.getSubBlock("AMT");
-                        if (seq2 != null) {
-                            f = seq2.getFieldByNumber(98, "VALU");
-                        }
-                    }
-				} else if (m.isType(537)) {
-                    final SwiftTagListBlock seq = b4.getSubBlock("TRANSDET");
-                    if (seq != null) {
-                        f = seq.getFieldByNumber(98, "EXSE");
-                    }
-                } else if (m.isType(548)) {
-                    final SwiftTagListBlock seq = b4.getSubBlock("SETTRAN");
-                    if (seq != null) {
-                        f = seq.getFieldByNumber(70, "SPRO");
-                    }
-                } else if (m.isType(564)) {
-					final SwiftTagListBlock seq = b4.getSubBlock("CASHMOVE");
-					if (seq != null) {
-						f = seq.getFieldByNumber(98, "PAYD");
-					}
-				} else if (m.isType(566)) {
-					final SwiftTagListBlock seq = b4.getSubBlock("CASHMOVE");
-					if (seq != null) {
-						f = seq.getFieldByNumber(98, "POST");
-					}
-				} else if (m.isType(730, 768, 769)) {
-					t = b4.getTagByName("32D");
-				} else if (m.isType(734, 752, 756)) {
-					t = b4.getTagByName("33A");
-				} else if (m.isType(742, 754)) {
-					t = b4.getTagByName("34A");
-				} else if (m.isType(942, 950, 970, 972)){
-					t = b4.getTagByName("61");
-				}
-				if (t != null) {
-					f = t.asField();
-				}
-				if (f != null && f instanceof DateContainer) {
-					return ((DateContainer) f).dates().get(0);
-				}
-			}
-		}
-		return null;
+		return MtMetadataExtractor.extract(m, MtMetadataExtractor.VALUE_DATE).getValueDate();
 	}
 
 	/**
@@ -258,23 +173,11 @@ public class SwiftMessageUtils {
 	 *
 	 * @param m the message where the value date is to be found
 	 * @return found date or null if the message does not defines a trade date, or if the defined trade date field is not present in the message
+	 * @see MtMetadataExtractor
 	 * @since 7.10.4
 	 */
 	public static Calendar tradeDate(final SwiftMessage m) {
-		if (m != null) {
-			final SwiftBlock4 b4 = m.getBlock4();
-			if (b4 != null && !b4.isEmpty()) {
-
-				Field f = m.getBlock4().getFieldByName(Field30T.NAME);
-				if (f == null) {
-					f = m.getBlock4().getFieldByNumber(98, "TRAD");
-				}
-				if (f != null && f instanceof DateContainer) {
-					return ((DateContainer) f).dates().get(0);
-				}
-			}
-		}
-		return null;
+		return MtMetadataExtractor.extract(m, MtMetadataExtractor.TRADE_DATE).getTradeDate();
 	}
 
 	/**
@@ -289,10 +192,7 @@ public class SwiftMessageUtils {
 	 */
 	public static String calculateChecksum(final SwiftMessage model) {
 		if (model != null) {
-			final StringWriter writer = new StringWriter();
-			SwiftWriter.writeMessage(model, writer, true);
-			final String fin = writer.getBuffer().toString();
-			return md5(fin);
+			return checksums(model).getChecksum();
 		} else {
 			return null;
 		}
@@ -311,43 +211,23 @@ public class SwiftMessageUtils {
 	 */
 	public static String calculateChecksum(final SwiftBlock4 b4) {
 		if (b4 != null) {
-			final StringWriter writer = new StringWriter();
-			SwiftWriter.writeBlock4(b4, writer);
-			final String fin = writer.getBuffer().toString();
-			return md5(fin);
+			return CHECKSUM_WRITER.get().update(b4).getChecksumBody();
 		} else {
 			return null;
 		}
 	}
-	
+
 	/**
-	 * Computes an MD5 hash on the parameter text
-	 * @param text the text to hash
-	 * @return computed hash or null if exceptions are thrown reading bytes or processing the digest
-	 * @since 7.9.5
+	 * Computes both the message and the text block checksums in a single serialization of the message.
+	 * The returned writer is reused by the current thread, so the checksums must be read before the next call.
+	 *
+	 * @param model the message, must not be null
+	 * @return the writer with the computed checksums
+	 * @see ChecksumWriter#update(SwiftMessage)
+	 * @since 8.0.2
 	 */
-	//TODO add base 64 encoding on top when upgraded to Java 8
-	private static String md5(final String text) {
-		try {
-			byte[] bytesOfMessage = text.getBytes(StandardCharsets.UTF_8);
-			MessageDigest md = MessageDigest.getInstance("MD5");
-			byte[] thedigest = md.digest(bytesOfMessage);
-
-			//Converting the bytes to a Hex string
-			StringBuilder buff = new StringBuilder();
-			for (byte b : thedigest) {
-				String conversion = Integer.toString(b & 0xFF,16);
-				while (conversion.length() < 2) {
-					conversion = "0" + conversion;
-				}
-				buff.append(conversion);
-			}
-
-			return buff.toString();
-		} catch (NoSuchAlgorithmException e) {
-			log.log(Level.FINEST, e.getMessage(), e);
-		}
-		return null;
+	static ChecksumWriter checksums(final SwiftMessage model) {
+		return CHECKSUM_WRITER.get().update(model);
 	}
 
 	/**
@@ -443,30 +323,11 @@ public class SwiftMessageUtils {
 	 * If no Field20 or 20C are found and MUR is present, returns the MUR value (field 108 from block 3).
 	 * @param m the message where the reference is to be found
 	 * @return found reference or null if the message does not defines a reference, or if the defined reference field is not present in the message
+	 * @see MtMetadataExtractor
 	 * @since 7.8
 	 */
 	public static String reference(final SwiftMessage m) {
-		if (m != null) {
-			final SwiftBlock4 b4 = m.getBlock4();
-			if (b4 != null && !b4.isEmpty()) {
-				final Tag t = b4.getTagByName("20");
-				if (t != null) {
-					return t.getValue();
-				}
-				if (m.getType() != null && m.getType().startsWith("5")) {
-					final Field f = b4.getFieldByNumber(20, "SEME");
-					if (f != null) {
-						return f.getComponent(2);
-					}
-				}
-				final Tag mur = b4.getTagByName("108");
-				if (mur != null) {
-					return mur.getValue();
-				}
-				
-			}
-		}
-		return null;
+		return MtMetadataExtractor.extract(m, MtMetadataExtractor.REFERENCE).getReference();
 	}
 	
 	/**
@@ -581,126 +442,11 @@ public class SwiftMessageUtils {
 	 * 
 	 * @param m a message with some amount field
 	 * @return the currency and amount object extracted from the message or null if non is present or cannot be created from its fields
+	 * @see MtMetadataExtractor
 	 * @since 8.0.1
 	 */
-	/*
-	 * Do not use API from MTs and Field classes here to avoid cyclic dependency in code generation.
-	 * Keep in sync special case for 104 and 107 with MT104 and MT107 getSequenceC logic.
-	 */
 	public static Money money(final SwiftMessage m) {
-		if (m == null || m.isServiceMessage21()) {
-			return null;
-		}
-		final SwiftBlock4 b4 = m.getBlock4();
-		if (b4 == null || b4.isEmpty()) {
-			return null;
-		}
-		if (m.isType(102, 103, 200, 202, 205, 256, 450, 455, 643, 644, 646, 734, 802, 900, 910)) {
-			return Money.of(b4.getFieldByName("32A"));
-		} else if (m.isType(191, 291, 300, 304, 305, 320, 391, 491, 591, 691, 791, 891, 991, 340, 341, 350, 360, 361, 364, 365, 620, 700, 705, 710, 720, 732, 740, 742, 756)) {
-			return Money.of(b4.getFieldByName("32B"));
-		} else if (m.isType(321, 370, 508, 509, 535, 536, 537, 540, 541, 542, 543, 544, 545, 546, 547, 548, 558, 559, 569, 574, 575, 576, 578, 586)) {
-			return Money.of(b4.getFieldByName("19A"));
-		} else if (m.isType(330, 362)) {
-			return Money.of(b4.getFieldByName("32H"));
-		} else if (m.isType(306, 581, 707, 747)) {
-			return Money.of(b4.getFieldByName("34B"));
-		} else if (m.isType(380, 381, 505, 564, 566, 567)) {
-			return Money.of(b4.getFieldByName("19B"));
-		} else if (m.isType(800)) {
-			return Money.of(b4.getFieldByName("33B"));
-		} else if (m.isType(941)) {
-			return Money.of(b4.getFieldByName("62F"));
-
-		} else if (m.isType(600, 601)) {
-			return Money.ofAny(b4, "34P", "34R");
-		} else if (m.isType(609)) {
-			return Money.ofAny(b4, "68B", "68C");
-		} else if (m.isType(111, 112, 516, 649) || m.isType(754)) {
-			return Money.ofAny(b4, "32A", "32B");
-		} else if (m.isType(190, 290, 390, 490, 590, 690, 790, 890, 990)) {
-			return Money.ofAny(b4, "32C", "32D");
-		} else if (m.isType(730) || m.isType(768)) {
-			return Money.ofAny(b4, "32B", "32D");
-		} else if (m.isType(400, 410)) {
-			return Money.ofAny(b4, "32A", "32B", "32K");
-		} else if (m.isType(430)) {
-			return Money.ofAny(b4, "33A", "33K", "32A", "32K");
-		} else if (m.isType(750)) {
-			return Money.ofAny(b4, "34B", "32B");
-		} else if (m.isType(752)) {
-			return Money.ofAny(b4, "33A", "33B", "32B");
-		} else if (m.isType(769)) {
-			return Money.ofAny(b4, "32B", "32D", "33B", "34B");
-		} else if (m.isType(940, 950, 970)) {
-			return Money.ofAny(b4, "62F", "62M");
-		} else if (m.isType(101, 201, 203, 204, 207, 210)) {
-			return Money.ofSum(b4.getFieldsByName("32B"));
-		} else if (m.isType(110, 416, 420, 422, 456)) {
-			return Money.ofSum(b4.getFieldsByName("32a"));
-		} else if (m.isType(509)) {
-			return Money.ofSum(b4.getFieldsByName("19A"));
-		} else if (m.isType(112)) {
-			return Money.ofSum(b4.getFieldsByName("32A"));
-		} else if (m.isType(801)) {
-			return Money.ofSum(b4.getFieldsByName("33B"));
-		} else if (m.isType(824)) {
-			return Money.ofSum(b4.getFieldsByName("68A"));
-			
-		} else if (m.isType(104, 107)) {
-			// we pick field 32B from sequence C
-			// find last mandatory tag of mandatory sequence B
-			int last59 = b4.indexOfAnyLast("59", "59A");
-			if (last59 >= 0) {
-				int startIndexOfC = b4.indexOfAnyFirstAfterIndex(last59, "32B");
-				if (startIndexOfC >= 0) {
-					Tag t = b4.getTags().get(startIndexOfC);
-					if (t != null) {
-						return Money.of(t.asField());
-					}
-				}
-			}
-			
-		} else if (m.isType(502, 513)) {
-			/*
-			 * we pick the first available 19A from the order detail
-			 * for MT513 will be only one
-			 */
-			SwiftTagListBlock seq = b4.getSubBlock("ORDRDET");
-			if (seq != null) {
-				return Money.of(seq.getFieldByName("19A"));
-			}
-		
-		} else if (m.isType(514, 515, 518)) {
-			/*
-			 * we pick the first available 19A from the confirmation detail
-			 * for 515 and 518 will be only one
-			 */
-			SwiftTagListBlock seq = b4.getSubBlock("CONFDET");
-			if (seq != null) {
-				return Money.of(seq.getFieldByName("19A"));
-			}
-			
-		} else if (m.isType(503, 504, 506)) {
-			/*
-			 * we pick the first available 19B from the summary
-			 */
-			SwiftTagListBlock seq = b4.getSubBlock("SUMM");
-			if (seq != null) {
-				return Money.of(seq.getFieldByName("19B"));
-			}
-			
-		} else if (m.isType(527)) {
-			/*
-			 * we pick the first available 19A from the deal transaction details
-			 */
-			SwiftTagListBlock seq = b4.getSubBlock("DEALTRAN");
-			if (seq != null) {
-				return Money.of(seq.getFieldByName("19A"));
-			}
-		}
-		
-		return null;
+		return MtMetadataExtractor.extract(m, MtMetadataExtractor.MONEY).getMoney();
 	}
 
 }
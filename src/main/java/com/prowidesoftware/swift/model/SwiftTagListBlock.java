@@ -15,8 +15,6 @@
  */
 package com.prowidesoftware.swift.model;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.prowidesoftware.deprecation.DeprecationUtils;
 import com.prowidesoftware.deprecation.ProwideDeprecated;
 import com.prowidesoftware.deprecation.TargetYear;
@@ -24,6 +22,7 @@ import com.prowidesoftware.swift.model.field.Field;
 import com.prowidesoftware.swift.model.field.Field16R;
 import com.prowidesoftware.swift.model.field.Field16S;
 import com.prowidesoftware.swift.model.field.GenericField;
+import com.prowidesoftware.swift.utils.JsonUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
@@ -2013,8 +2012,7 @@ public class SwiftTagListBlock extends SwiftBlock implements Serializable, Itera
      * @return a string with the message content serialized as JSON
 	 */
 	public String toJson() {
-		final Gson gson = new GsonBuilder().create();
-		return gson.toJson(this);
+		return JsonUtils.gson().toJson(this);
 	}
 
 	 /**
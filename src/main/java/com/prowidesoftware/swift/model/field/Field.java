@@ -15,9 +15,11 @@
  */
 package com.prowidesoftware.swift.model.field;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.prowidesoftware.JsonSerializable;
 import com.prowidesoftware.deprecation.DeprecationUtils;
 import com.prowidesoftware.deprecation.ProwideDeprecated;
@@ -30,8 +32,10 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.time.DateFormatUtils;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
@@ -48,6 +52,12 @@ import java.util.logging.Level;
 public abstract class Field implements PatternContainer, JsonSerializable {
 	private static final transient java.util.logging.Logger log = java.util.logging.Logger.getLogger(Field.class.getName());
 
+	/**
+	 * Caches for the JSON serialization, by field class and by field name
+	 */
+	private static final Map<Class<?>, String[]> JSON_LABELS = new java.util.concurrent.ConcurrentHashMap<>();
+	private static final Map<String, Constructor<? extends Field>> JSON_CONSTRUCTORS = new java.util.concurrent.ConcurrentHashMap<>();
+
 	/**
 	 * Zero based list of field components in String format.<br>
 	 * For example: for field content ":FOO//EUR1234 will be components[0]=FOO, components[1]=EUR and components[1]=1234
@@ -1181,18 +1191,35 @@ public abstract class Field implements PatternContainer, JsonSerializable {
 	 */
 	@Override
 	public String toJson() {
-		JsonObject field = new JsonObject();
-		field.addProperty("name", this.getName());
+		final StringWriter out = new StringWriter();
+		final JsonWriter writer = new JsonWriter(out);
+		writer.setLenient(true);
+		try {
+			toJson(writer);
+		} catch (final IOException e) {
+			throw new JsonIOException(e);
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Writes the JSON representation of this field into the stream, as an object with the same content returned by
+	 * {@link #toJson()}.
+	 *
+	 * @param out the JSON stream
+	 * @throws IOException if an error occurs writing the stream
+	 * @since 8.0.2
+	 */
+	public void toJson(final JsonWriter out) throws IOException {
+		final String[] labels = jsonLabels(this);
+		out.beginObject();
+		out.name("name").value(this.getName());
 		for (int i=1; i<=this.getComponents().size(); i++){
 			if (this.getComponent(i) != null) {
-				String label = this.getComponentLabelCamelCase(i);
-				if (label == null) {
-					label = "value";
-				}
-				field.addProperty(label, this.getComponent(i));
+				out.name(label(labels, i)).value(this.getComponent(i));
 			}
 		}
-		return field.toString();
+		out.endObject();
 	}
 
 	/**
@@ -1205,24 +1232,118 @@ public abstract class Field implements PatternContainer, JsonSerializable {
 	 * @see #toJson()
 	 */
 	public static Field fromJson(final String json) {
-		JsonParser parser = new JsonParser();
-		JsonObject jsonObject = (JsonObject) parser.parse(json);
-		JsonElement nameElement = jsonObject.get("name");
-		if (nameElement != null) {
-			String name = nameElement.getAsString();
-			Object r = null;
+		final JsonReader reader = new JsonReader(new StringReader(json));
+		reader.setLenient(true);
+		try {
+			return fromJson(reader);
+		} catch (final IOException | IllegalStateException e) {
+			throw new JsonParseException(e);
+		}
+	}
+
+	/**
+	 * Creates a specific field instance reading its JSON representation from the stream.
+	 *
+	 * <p>The field object is read in full; the "name" property can be placed anywhere in the object. The component
+	 * values are set by their camel case labels, as written by {@link #toJson(JsonWriter)}.
+	 *
+	 * @param in the JSON stream, positioned at the field object
+	 * @return a specific field, for example Field32A, or null if the JSON data has no name or contains an unrecognized field name
+	 * @throws IOException if an error occurs reading the stream
+	 * @see #fromJson(String)
+	 * @since 8.0.2
+	 */
+	public static Field fromJson(final JsonReader in) throws IOException {
+		String name = null;
+		final Map<String, String> values = new HashMap<>();
+		in.beginObject();
+		while (in.hasNext()) {
+			final String property = in.nextName();
+			final JsonToken token = in.peek();
+			if (token == JsonToken.STRING || token == JsonToken.NUMBER || token == JsonToken.BOOLEAN) {
+				final String value = token == JsonToken.BOOLEAN ? String.valueOf(in.nextBoolean()) : in.nextString();
+				if ("name".equals(property)) {
+					name = value;
+				} else {
+					values.put(property, value);
+				}
+			} else {
+				in.skipValue();
+			}
+		}
+		in.endObject();
+		if (name == null) {
+			return null;
+		}
+		final Constructor<? extends Field> constructor = jsonConstructor(name);
+		if (constructor == null) {
+			return null;
+		}
+		try {
+			final Field field = constructor.newInstance();
+			final String[] labels = jsonLabels(field);
+			for (int i = 1; i < labels.length; i++) {
+				final String value = values.get(label(labels, i));
+				if (value != null) {
+					field.setComponent(i, value);
+				}
+			}
+			return field;
+		} catch (final Exception e) {
+			log.log(Level.WARNING, "An error occured while creating an instance of " + name, e);
+		}
+		return null;
+	}
+
+	private static String label(final String[] labels, final int number) {
+		if (number < labels.length) {
+			return labels[number];
+		}
+		return "value" + number;
+	}
+
+	/**
+	 * Camel case labels of the field components indexed by component number, position zero is not used.
+	 * Components without label are named "value" for the first one and "value" plus the component number for the
+	 * rest, so that fields with several unlabeled components such as 422 do not repeat the same key.
+	 */
+	private static String[] jsonLabels(final Field field) {
+		String[] labels = JSON_LABELS.get(field.getClass());
+		if (labels == null) {
+			final Map<Integer, String> map = field.getComponentMap();
+			int size = field.getComponents().size();
+			if (map != null) {
+				for (final Integer number : map.keySet()) {
+					size = Math.max(size, number);
+				}
+			}
+			labels = new String[size + 1];
+			boolean unlabeled = false;
+			for (int i = 1; i <= size; i++) {
+				labels[i] = field.getComponentLabelCamelCase(i);
+				if (labels[i] == null) {
+					labels[i] = unlabeled ? "value" + i : "value";
+					unlabeled = true;
+				}
+			}
+			JSON_LABELS.put(field.getClass(), labels);
+		}
+		return labels;
+	}
+
+	private static Constructor<? extends Field> jsonConstructor(final String name) {
+		Constructor<? extends Field> constructor = JSON_CONSTRUCTORS.get(name);
+		if (constructor == null) {
 			try {
-				final Class<?> c = Class.forName("com.prowidesoftware.swift.model.field.Field" + name);
-				Method method = c.getMethod("fromJson", String.class);
-				return (Field) method.invoke(null, json);
+				constructor = Class.forName("com.prowidesoftware.swift.model.field.Field" + name).asSubclass(Field.class).getConstructor();
+				JSON_CONSTRUCTORS.put(name, constructor);
 			} catch (final ClassNotFoundException e) {
 				log.warning("Field class for Field" + name + " not found. This is normally caused by an unrecognized field in the message or a malformed message block structure.");
 			} catch (final Exception e) {
 				log.log(Level.WARNING, "An error occured while creating an instance of " + name, e);
 			}
-			return (Field) r;
 		}
-		return null;
+		return constructor;
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,494 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model.field;
+
+import com.prowidesoftware.swift.model.SwiftTagListBlock;
+import com.prowidesoftware.swift.model.Tag;
+import org.apache.commons.lang3.Validate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Specialized, allocation free decoder for field 61 (statement line) values.
+ *
+ * <p>This is a high throughput alternative to {@link Field61} for statements reconciliation, where a
+ * large number of lines must be processed. Instead of splitting the value into a list of String
+ * components, the decoder keeps a reference to the original value and the position of each component,
+ * and it exposes the dates and amount as primitive values. String getters are also provided; they create
+ * the String only when called.
+ *
+ * <p>Components are split with the same rules as {@link Field61#parse(String)}.
+ *
+ * <p>Instances are mutable and not thread safe. A single instance is meant to be reused to decode many
+ * values, for example through {@link #iterator(SwiftTagListBlock)}, which returns the same decoder instance
+ * on every iteration as a flyweight view of the current statement line.
+ *
+ * @since 8.0.2
+ */
+public final class Field61Decoder {
+
+	/**
+	 * Two digits years greater than this value are considered in the 20th century, matching the
+	 * default behavior of SimpleDateFormat used by {@link Field61#getValueDateAsCalendar()}
+	 */
+	private static final int SHORT_YEAR_PIVOT = (Year.now().getValue() + 20) % 100;
+
+	private CharSequence value;
+	private Tag tag86;
+
+	private int valueYear;
+	private int valueMonth;
+	private int valueDay;
+	private int entryMonth;
+	private int entryDay;
+
+	private int dcMarkStart;
+	private int dcMarkEnd;
+	private char fundsCode;
+	private long amountUnscaled;
+	private int amountScale;
+	private boolean amountPresent;
+	private char transactionType;
+	private int identificationCodeStart;
+	private int identificationCodeEnd;
+	private int referenceStart;
+	private int referenceEnd;
+	private int servicingReferenceStart;
+	private int servicingReferenceEnd;
+	private int supplementaryStart;
+	private int supplementaryEnd;
+
+	/**
+	 * Decodes a field 61 value, overwriting the previous content of this decoder.
+	 *
+	 * @param value the complete field value, including the optional supplementary details line
+	 * @return true if at least the value date and the debit/credit mark where found, false otherwise
+	 * @throws IllegalArgumentException if the value is null
+	 */
+	public boolean decode(final CharSequence value) {
+		Validate.notNull(value, "value to decode must not be null");
+		reset(value);
+		final int length = value.length();
+
+		int lineEnd = 0;
+		while (lineEnd < length && value.charAt(lineEnd) != '\r' && value.charAt(lineEnd) != '\n') {
+			lineEnd++;
+		}
+
+		/*
+		 * dates: value date YYMMDD and optional entry date MMDD
+		 */
+		int i = 0;
+		while (i < lineEnd && isDigit(value.charAt(i))) {
+			i++;
+		}
+		if (i < 6) {
+			return false;
+		}
+		final int yy = digits(value, 0, 2);
+		this.valueYear = yy > SHORT_YEAR_PIVOT ? 1900 + yy : 2000 + yy;
+		this.valueMonth = digits(value, 2, 2);
+		this.valueDay = digits(value, 4, 2);
+		if (i >= 10) {
+			this.entryMonth = digits(value, 6, 2);
+			this.entryDay = digits(value, 8, 2);
+		}
+
+		/*
+		 * debit/credit mark (C, D, RC, RD, EC, ED) and optional funds code
+		 */
+		final int alphaStart = i;
+		while (i < lineEnd && !isDigit(value.charAt(i))) {
+			i++;
+		}
+		if (i == alphaStart) {
+			return false;
+		}
+		final char first = value.charAt(alphaStart);
+		final int markLength = (first == 'R' || first == 'E') ? Math.min(2, i - alphaStart) : 1;
+		this.dcMarkStart = alphaStart;
+		this.dcMarkEnd = alphaStart + markLength;
+		if (i > dcMarkEnd) {
+			this.fundsCode = value.charAt(dcMarkEnd);
+		}
+
+		/*
+		 * amount
+		 */
+		long unscaled = 0;
+		int scale = -1;
+		final int amountStart = i;
+		while (i < lineEnd) {
+			final char c = value.charAt(i);
+			if (isDigit(c)) {
+				unscaled = unscaled * 10 + (c - '0');
+				if (scale >= 0) {
+					scale++;
+				}
+			} else if (c == ',' && scale < 0) {
+				scale = 0;
+			} else {
+				break;
+			}
+			i++;
+		}
+		this.amountPresent = i > amountStart;
+		this.amountUnscaled = unscaled;
+		this.amountScale = scale < 0 ? 0 : scale;
+
+		/*
+		 * transaction type and identification code
+		 */
+		if (i < lineEnd) {
+			this.transactionType = value.charAt(i);
+			this.identificationCodeStart = i + 1;
+			this.identificationCodeEnd = Math.min(i + 4, lineEnd);
+			i = identificationCodeEnd;
+		}
+
+		/*
+		 * reference for the account owner and optional reference of the account servicing institution
+		 */
+		this.referenceStart = i;
+		this.referenceEnd = lineEnd;
+		for (int j = i; j + 1 < lineEnd; j++) {
+			if (value.charAt(j) == '/' && value.charAt(j + 1) == '/') {
+				this.referenceEnd = j;
+				this.servicingReferenceStart = j + 2;
+				this.servicingReferenceEnd = lineEnd;
+				break;
+			}
+		}
+
+		/*
+		 * supplementary details in the second line
+		 */
+		if (lineEnd < length) {
+			int start = lineEnd;
+			if (value.charAt(start) == '\r' && start + 1 < length && value.charAt(start + 1) == '\n') {
+				start++;
+			}
+			start++;
+			int end = start;
+			while (end < length && value.charAt(end) != '\r' && value.charAt(end) != '\n') {
+				end++;
+			}
+			this.supplementaryStart = start;
+			this.supplementaryEnd = end;
+		}
+		return true;
+	}
+
+	private void reset(final CharSequence value) {
+		this.value = value;
+		this.tag86 = null;
+		this.valueYear = 0;
+		this.valueMonth = 0;
+		this.valueDay = 0;
+		this.entryMonth = 0;
+		this.entryDay = 0;
+		this.dcMarkStart = 0;
+		this.dcMarkEnd = 0;
+		this.fundsCode = 0;
+		this.amountUnscaled = 0;
+		this.amountScale = 0;
+		this.amountPresent = false;
+		this.transactionType = 0;
+		this.identificationCodeStart = 0;
+		this.identificationCodeEnd = 0;
+		this.referenceStart = 0;
+		this.referenceEnd = 0;
+		this.servicingReferenceStart = -1;
+		this.servicingReferenceEnd = -1;
+		this.supplementaryStart = -1;
+		this.supplementaryEnd = -1;
+	}
+
+	private static boolean isDigit(final char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static int digits(final CharSequence s, final int start, final int count) {
+		int result = 0;
+		for (int i = start; i < start + count; i++) {
+			result = result * 10 + (s.charAt(i) - '0');
+		}
+		return result;
+	}
+
+	private String substring(final int start, final int end) {
+		return start < 0 || end <= start ? null : value.subSequence(start, end).toString();
+	}
+
+	/**
+	 * @return the value date year, or zero if no value was decoded
+	 */
+	public int getValueDateYear() {
+		return valueYear;
+	}
+
+	/**
+	 * @return the value date month (1 to 12), or zero if no value was decoded
+	 */
+	public int getValueDateMonth() {
+		return valueMonth;
+	}
+
+	/**
+	 * @return the value date day of month, or zero if no value was decoded
+	 */
+	public int getValueDateDay() {
+		return valueDay;
+	}
+
+	/**
+	 * @return the value date or null if no value was decoded
+	 * @throws java.time.DateTimeException if the value date is not a valid date
+	 */
+	public LocalDate getValueDate() {
+		return valueMonth == 0 ? null : LocalDate.of(valueYear, valueMonth, valueDay);
+	}
+
+	/**
+	 * @return true if the optional entry date is present
+	 */
+	public boolean hasEntryDate() {
+		return entryMonth != 0;
+	}
+
+	/**
+	 * Gets the entry date.
+	 *
+	 * <p>Since the entry date contains only month and day, the year is taken from the value date, adjusted
+	 * to the previous or next year when the months are more than six months apart (for example for a value
+	 * date on December 31 and an entry date on January 2).
+	 *
+	 * @return the entry date or null if not present
+	 * @throws java.time.DateTimeException if the entry date is not a valid date
+	 */
+	public LocalDate getEntryDate() {
+		if (entryMonth == 0) {
+			return null;
+		}
+		int year = valueYear;
+		if (entryMonth - valueMonth > 6) {
+			year--;
+		} else if (valueMonth - entryMonth > 6) {
+			year++;
+		}
+		return LocalDate.of(year, entryMonth, entryDay);
+	}
+
+	/**
+	 * @return the debit/credit mark: C, D, RC, RD, EC or ED; or null if no value was decoded
+	 */
+	public String getDCMark() {
+		if (dcMarkEnd == dcMarkStart) {
+			return null;
+		}
+		final int length = dcMarkEnd - dcMarkStart;
+		if (length == 1) {
+			switch (value.charAt(dcMarkStart)) {
+				case 'C': return "C";
+				case 'D': return "D";
+				default: break;
+			}
+		} else if (length == 2) {
+			final char c1 = value.charAt(dcMarkStart);
+			final char c2 = value.charAt(dcMarkStart + 1);
+			if (c1 == 'R' && c2 == 'C') return "RC";
+			if (c1 == 'R' && c2 == 'D') return "RD";
+			if (c1 == 'E' && c2 == 'C') return "EC";
+			if (c1 == 'E' && c2 == 'D') return "ED";
+		}
+		return substring(dcMarkStart, dcMarkEnd);
+	}
+
+	/**
+	 * @return true if the entry is a debit (D) or a reversal of credit (RC) or an expected debit (ED)
+	 */
+	public boolean isDebit() {
+		if (dcMarkEnd == dcMarkStart) {
+			return false;
+		}
+		if (dcMarkEnd - dcMarkStart == 1) {
+			return value.charAt(dcMarkStart) == 'D';
+		}
+		final char c1 = value.charAt(dcMarkStart);
+		final char c2 = value.charAt(dcMarkStart + 1);
+		return (c1 == 'R' && c2 == 'C') || (c1 == 'E' && c2 == 'D');
+	}
+
+	/**
+	 * @return the funds code (third character of the currency code) or zero if not present
+	 */
+	public char getFundsCode() {
+		return fundsCode;
+	}
+
+	/**
+	 * @return true if the amount was present in the value
+	 */
+	public boolean hasAmount() {
+		return amountPresent;
+	}
+
+	/**
+	 * The amount as an unscaled long value. The actual amount is this value divided by ten
+	 * to the power of {@link #getAmountScale()}; for example 1234,5 is returned as 12345 with scale 1.
+	 * @return the amount digits as a long or zero if not present
+	 */
+	public long getAmountUnscaled() {
+		return amountUnscaled;
+	}
+
+	/**
+	 * @return the number of decimal digits in the amount
+	 */
+	public int getAmountScale() {
+		return amountScale;
+	}
+
+	/**
+	 * Gets the amount as a long scaled to the given number of decimals, for example with scale 2
+	 * the amount 1234,5 is returned as 123450. Exceeding decimals are truncated.
+	 * @param scale number of decimals for the result
+	 * @return the scaled amount
+	 */
+	public long getAmount(final int scale) {
+		long result = amountUnscaled;
+		for (int i = amountScale; i < scale; i++) {
+			result *= 10;
+		}
+		for (int i = scale; i < amountScale; i++) {
+			result /= 10;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the amount as a new BigDecimal or null if not present
+	 */
+	public BigDecimal getAmount() {
+		return amountPresent ? BigDecimal.valueOf(amountUnscaled, amountScale) : null;
+	}
+
+	/**
+	 * @return the transaction type (S, N or F) or zero if not present
+	 */
+	public char getTransactionType() {
+		return transactionType;
+	}
+
+	/**
+	 * @return the three characters identification code or null if not present
+	 */
+	public String getIdentificationCode() {
+		return substring(identificationCodeStart, identificationCodeEnd);
+	}
+
+	/**
+	 * @return the reference for the account owner or null if not present
+	 */
+	public String getReferenceForTheAccountOwner() {
+		return substring(referenceStart, referenceEnd);
+	}
+
+	/**
+	 * @return the reference of the account servicing institution or null if not present
+	 */
+	public String getReferenceOfTheAccountServicingInstitution() {
+		return substring(servicingReferenceStart, servicingReferenceEnd);
+	}
+
+	/**
+	 * @return the supplementary details from the second line or null if not present
+	 */
+	public String getSupplementaryDetails() {
+		return substring(supplementaryStart, supplementaryEnd);
+	}
+
+	/**
+	 * @return the decoded value
+	 */
+	public CharSequence getValue() {
+		return value;
+	}
+
+	/**
+	 * When the decoder is used through {@link #iterator(SwiftTagListBlock)} this is the
+	 * information to account owner (field 86) immediately following the statement line.
+	 * @return the field 86 tag or null if not present
+	 */
+	public Tag getTag86() {
+		return tag86;
+	}
+
+	/**
+	 * Iterates the statement lines (field 61) in the given block.
+	 *
+	 * <p>The iterator returns always the same decoder instance, updated with the content of the
+	 * current statement line, thus the decoder must not be kept between iterations. Lines that cannot
+	 * be decoded are skipped.
+	 *
+	 * @param block usually the block 4 of an MT940, MT942 or MT950
+	 * @return an iterator over the decoded statement lines
+	 */
+	public static Iterator<Field61Decoder> iterator(final SwiftTagListBlock block) {
+		Validate.notNull(block, "block must not be null");
+		final List<Tag> tags = block.getTags();
+		final Field61Decoder decoder = new Field61Decoder();
+		return new Iterator<Field61Decoder>() {
+			private int index = 0;
+			private boolean ready = false;
+
+			@Override
+			public boolean hasNext() {
+				while (!ready && index < tags.size()) {
+					final Tag t = tags.get(index++);
+					if (Field61.NAME.equals(t.getName()) && t.getValue() != null && decoder.decode(t.getValue())) {
+						decoder.tag86 = null;
+						if (index < tags.size() && Field86.NAME.equals(tags.get(index).getName())) {
+							decoder.tag86 = tags.get(index++);
+						}
+						ready = true;
+					}
+				}
+				return ready;
+			}
+
+			@Override
+			public Field61Decoder next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException("no more statement lines");
+				}
+				ready = false;
+				return decoder;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException("remove() not available in this implementation");
+			}
+		};
+	}
+
+}
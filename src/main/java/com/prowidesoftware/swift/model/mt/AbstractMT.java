@@ -15,8 +15,6 @@
  */
 package com.prowidesoftware.swift.model.mt;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.prowidesoftware.JsonSerializable;
 import com.prowidesoftware.deprecation.DeprecationUtils;
 import com.prowidesoftware.deprecation.ProwideDeprecated;
@@ -27,6 +25,7 @@ import com.prowidesoftware.swift.io.parser.SwiftParser;
 import com.prowidesoftware.swift.io.writer.SwiftWriter;
 import com.prowidesoftware.swift.model.*;
 import com.prowidesoftware.swift.model.field.Field;
+import com.prowidesoftware.swift.utils.JsonUtils;
 import com.prowidesoftware.swift.utils.Lib;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
@@ -861,11 +860,7 @@ public abstract class AbstractMT extends AbstractMessage implements JsonSerializ
 	 */
 	@Override
 	public String toJson() {
-		final Gson gson = new GsonBuilder()
-			.registerTypeAdapter(AbstractMT.class, new AbstractMTAdapter())
-			.setPrettyPrinting()
-			.create();
-		return gson.toJson(this,AbstractMT.class);
+		return JsonUtils.prettyGson().toJson(this,AbstractMT.class);
 	}
 
 	/**
@@ -875,11 +870,7 @@ public abstract class AbstractMT extends AbstractMessage implements JsonSerializ
 	 * @since 7.10.3
 	 */
 	public static AbstractMT fromJson(String json) {
-		final Gson gson = new GsonBuilder()
-				.registerTypeAdapter(AbstractMT.class, new AbstractMTAdapter())
-				.registerTypeAdapter(SwiftBlock2.class, new SwiftBlock2Adapter())
-				.create();
-		return gson.fromJson(json, AbstractMT.class);
+		return JsonUtils.gson().fromJson(json, AbstractMT.class);
 	}
 
 	/**
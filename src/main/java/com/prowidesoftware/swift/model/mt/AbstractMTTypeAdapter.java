@@ -0,0 +1,52 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model.mt;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.prowidesoftware.swift.model.SwiftMessage;
+import com.prowidesoftware.swift.model.SwiftMessageTypeAdapter;
+import com.prowidesoftware.swift.utils.JsonUtils;
+
+import java.io.IOException;
+
+/**
+ * Streaming JSON serialization for AbstractMT and subclasses, writing the same structure as {@link AbstractMTAdapter}
+ * directly into the Gson stream, without building intermediate JSON trees.
+ *
+ * @see SwiftMessageTypeAdapter#writeMT(JsonWriter, SwiftMessage)
+ * @see JsonUtils
+ * @since 8.0.2
+ */
+public class AbstractMTTypeAdapter extends TypeAdapter<AbstractMT> {
+
+	@Override
+	public void write(final JsonWriter out, final AbstractMT mt) throws IOException {
+		if (mt == null || mt.getSwiftMessage() == null) {
+			out.nullValue();
+			return;
+		}
+		SwiftMessageTypeAdapter.writeMT(out, mt.getSwiftMessage());
+	}
+
+	@Override
+	public AbstractMT read(final JsonReader in) throws IOException {
+		final SwiftMessage sm = JsonUtils.gson().getAdapter(SwiftMessage.class).read(in);
+		return sm != null ? sm.toMT() : null;
+	}
+
+}
@@ -23,7 +23,6 @@ import java.util.TimeZone;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
@@ -31,6 +30,8 @@ import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.dom.DOMResult;
 
 import com.prowidesoftware.swift.model.mx.dic.*;
@@ -261,31 +262,28 @@ public class BusinessHeader {
 	 * @since 7.8
 	 */
 	public String xml(final String prefix, boolean includeXMLDeclaration) {
-		Object header;
-		if (this.businessApplicationHeader != null) {
-			header = this.businessApplicationHeader;
-		} else if (this.applicationHeader != null) {
-			header = this.applicationHeader;
-		} else {
+		if (this.businessApplicationHeader == null && this.applicationHeader == null) {
 			return null;
 		}
 		try {
-			JAXBContext context = JAXBContext.newInstance(header.getClass());
-			final Marshaller marshaller = context.createMarshaller();
-			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-			 
 			final StringWriter sw = new StringWriter();
-			marshaller.marshal(_element(header), new XmlEventWriter(sw, prefix, includeXMLDeclaration, APPHDR));
+			final XmlEventStreamWriter writer = new XmlEventStreamWriter(new XmlEventWriter(sw, prefix, includeXMLDeclaration, APPHDR));
+			writer.writeStartDocument("UTF-8", "1.0");
+			write(writer, prefix);
+			writer.writeEndDocument();
+			writer.close();
 			return sw.getBuffer().toString();
-			
-		} catch (JAXBException e) {
-			log.log(Level.SEVERE, "Error writing XML:" + e + "\n for header: " + header);
+
+		} catch (XMLStreamException e) {
+			log.log(Level.SEVERE, "Error writing XML:" + e + "\n for header: " + (this.businessApplicationHeader != null ? this.businessApplicationHeader : this.applicationHeader));
 		}
 		return null;
-	 }
+	}
 	
 	/**
 	 * Gets the header as an Element object.
+	 * <p>Unlike {@link #xml(String, boolean)} the element is still built with JAXB, because its DOM is expected to
+	 * hold the header children unqualified, as in the JAXB header model.
 	 *  
 	 * @return Element this header parsed into Element or null if header is null
 	 * @since 7.8
@@ -300,8 +298,7 @@ public class BusinessHeader {
 			return null;
 		}
 		try {
-			JAXBContext context = JAXBContext.newInstance(header.getClass());
-			final Marshaller marshaller = context.createMarshaller();
+			final Marshaller marshaller = JaxbContextCache.marshaller(header.getClass());
 			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
 			 
 			DOMResult res = new DOMResult();
@@ -315,6 +312,28 @@ public class BusinessHeader {
 		return null;
 	}
 
+	/**
+	 * Writes the header into the writer, with the same rules as {@link #xml(String, boolean)} to pick the header
+	 * version. The header models are written directly as StAX events, without JAXB.
+	 *
+	 * @param writer the target writer, used by {@link MxStreamWriter}
+	 * @param prefix optional prefix for the header namespace, null or empty to declare it as default namespace
+	 * @return false if neither header version is present
+	 * @throws XMLStreamException if the header cannot be written
+	 * @since 8.0.2
+	 */
+	boolean write(final XMLStreamWriter writer, final String prefix) throws XMLStreamException {
+		final BusinessHeaderStaxWriter w = new BusinessHeaderStaxWriter(writer, prefix);
+		if (this.businessApplicationHeader != null) {
+			w.write(this.businessApplicationHeader);
+		} else if (this.applicationHeader != null) {
+			w.write(this.applicationHeader);
+		} else {
+			return false;
+		}
+		return true;
+	}
+
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	private JAXBElement _element(final Object header) {
 		if (header instanceof BusinessApplicationHeaderV01) {
@@ -0,0 +1,389 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model.mx;
+
+import com.prowidesoftware.swift.model.mx.dic.*;
+import org.apache.commons.lang3.StringUtils;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.dom.DOMResult;
+import java.util.List;
+
+/**
+ * Non-public helper class used by {@link BusinessHeader} to write the header models directly into a StAX writer,
+ * without JAXB.
+ *
+ * <p>The output has the same elements and order as the JAXB marshalling, with all the header elements written in the
+ * header namespace, as done by the {@link XmlEventWriter}. Only the signature content, when it is not a DOM element
+ * or a text, is marshalled with JAXB into a DOM element first.
+ *
+ * @since 8.0.2
+ */
+final class BusinessHeaderStaxWriter {
+	private static final String APPHDR = "AppHdr";
+
+	private final XMLStreamWriter writer;
+	private final String prefix;
+	private String namespace;
+
+	/**
+	 * @param writer the target writer
+	 * @param prefix prefix for the header namespace, null or empty to declare it as default namespace
+	 */
+	BusinessHeaderStaxWriter(final XMLStreamWriter writer, final String prefix) {
+		this.writer = writer;
+		this.prefix = StringUtils.defaultString(prefix);
+	}
+
+	void write(final ApplicationHeader h) throws XMLStreamException {
+		startRoot(BusinessHeader.NAMESPACE_AH);
+		entityIdentification("From", h.getFrom());
+		entityIdentification("To", h.getTo());
+		element("SvcName", h.getSvcName());
+		element("MsgName", h.getMsgName());
+		element("MsgRef", h.getMsgRef());
+		element("CrDate", h.getCrDate());
+		if (h.getDup() != null) {
+			start("Dup");
+			element("Ref", h.getDup().getRef());
+			element("Info", h.getDup().getInfo());
+			this.writer.writeEndElement();
+		}
+		this.writer.writeEndElement();
+	}
+
+	void write(final BusinessApplicationHeaderV01 h) throws XMLStreamException {
+		startRoot(BusinessHeader.NAMESPACE_BAH);
+		element("CharSet", h.getCharSet());
+		party9Choice("Fr", h.getFr());
+		party9Choice("To", h.getTo());
+		element("BizMsgIdr", h.getBizMsgIdr());
+		element("MsgDefIdr", h.getMsgDefIdr());
+		element("BizSvc", h.getBizSvc());
+		element("CreDt", h.getCreDt());
+		element("CpyDplct", h.getCpyDplct() != null ? h.getCpyDplct().value() : null);
+		element("PssblDplct", h.isPssblDplct());
+		element("Prty", h.getPrty());
+		signatureEnvelope(h.getSgntr());
+		final BusinessApplicationHeader1 rltd = h.getRltd();
+		if (rltd != null) {
+			start("Rltd");
+			element("CharSet", rltd.getCharSet());
+			party9Choice("Fr", rltd.getFr());
+			party9Choice("To", rltd.getTo());
+			element("BizMsgIdr", rltd.getBizMsgIdr());
+			element("MsgDefIdr", rltd.getMsgDefIdr());
+			element("BizSvc", rltd.getBizSvc());
+			element("CreDt", rltd.getCreDt());
+			element("CpyDplct", rltd.getCpyDplct() != null ? rltd.getCpyDplct().value() : null);
+			element("PssblDplct", rltd.isPssblDplct());
+			element("Prty", rltd.getPrty());
+			signatureEnvelope(rltd.getSgntr());
+			this.writer.writeEndElement();
+		}
+		this.writer.writeEndElement();
+	}
+
+	private void startRoot(final String namespace) throws XMLStreamException {
+		this.namespace = namespace;
+		this.writer.writeStartElement(this.prefix, APPHDR, namespace);
+		if (this.prefix.isEmpty()) {
+			this.writer.writeDefaultNamespace(namespace);
+		} else {
+			this.writer.writeNamespace(this.prefix, namespace);
+		}
+	}
+
+	private void entityIdentification(final String name, final EntityIdentification e) throws XMLStreamException {
+		if (e != null) {
+			start(name);
+			element("Type", e.getType());
+			element("Id", e.getId());
+			this.writer.writeEndElement();
+		}
+	}
+
+	private void party9Choice(final String name, final Party9Choice p) throws XMLStreamException {
+		if (p != null) {
+			start(name);
+			partyIdentification42(p.getOrgId());
+			branchAndFinancialInstitutionIdentification5(p.getFIId());
+			this.writer.writeEndElement();
+		}
+	}
+
+	private void partyIdentification42(final PartyIdentification42 p) throws XMLStreamException {
+		if (p != null) {
+			start("OrgId");
+			element("Nm", p.getNm());
+			postalAddress6(p.getPstlAdr());
+			party10Choice(p.getId());
+			element("CtryOfRes", p.getCtryOfRes());
+			contactDetails2(p.getCtctDtls());
+			this.writer.writeEndElement();
+		}
+	}
+
+	private void branchAndFinancialInstitutionIdentification5(final BranchAndFinancialInstitutionIdentification5 b) throws XMLStreamException {
+		if (b != null) {
+			start("FIId");
+			final FinancialInstitutionIdentification8 f = b.getFinInstnId();
+			if (f != null) {
+				start("FinInstnId");
+				element("BICFI", f.getBICFI());
+				clearingSystemMemberIdentification2(f.getClrSysMmbId());
+				element("Nm", f.getNm());
+				postalAddress6(f.getPstlAdr());
+				genericFinancialIdentification1(f.getOthr());
+				this.writer.writeEndElement();
+			}
+			final BranchData2 brnchId = b.getBrnchId();
+			if (brnchId != null) {
+				start("BrnchId");
+				element("Id", brnchId.getId());
+				element("Nm", brnchId.getNm());
+				postalAddress6(brnchId.getPstlAdr());
+				this.writer.writeEndElement();
+			}
+			this.writer.writeEndElement();
+		}
+	}
+
+	private void clearingSystemMemberIdentification2(final ClearingSystemMemberIdentification2 c) throws XMLStreamException {
+		if (c != null) {
+			start("ClrSysMmbId");
+			if (c.getClrSysId() != null) {
+				start("ClrSysId");
+				element("Cd", c.getClrSysId().getCd());
+				element("Prtry", c.getClrSysId().getPrtry());
+				this.writer.writeEndElement();
+			}
+			element("MmbId", c.getMmbId());
+			this.writer.writeEndElement();
+		}
+	}
+
+	private void genericFinancialIdentification1(final GenericFinancialIdentification1 g) throws XMLStreamException {
+		if (g != null) {
+			start("Othr");
+			element("Id", g.getId());
+			if (g.getSchmeNm() != null) {
+				start("SchmeNm");
+				element("Cd", g.getSchmeNm().getCd());
+				element("Prtry", g.getSchmeNm().getPrtry());
+				this.writer.writeEndElement();
+			}
+			element("Issr", g.getIssr());
+			this.writer.writeEndElement();
+		}
+	}
+
+	private void postalAddress6(final PostalAddress6 a) throws XMLStreamException {
+		if (a != null) {
+			start("PstlAdr");
+			element("AdrTp", a.getAdrTp() != null ? a.getAdrTp().value() : null);
+			element("Dept", a.getDept());
+			element("SubDept", a.getSubDept());
+			element("StrtNm", a.getStrtNm());
+			element("BldgNb", a.getBldgNb());
+			element("PstCd", a.getPstCd());
+			element("TwnNm", a.getTwnNm());
+			element("CtrySubDvsn", a.getCtrySubDvsn());
+			element("Ctry", a.getCtry());
+			elements("AdrLine", a.getAdrLine());
+			this.writer.writeEndElement();
+		}
+	}
+
+	private void party10Choice(final Party10Choice p) throws XMLStreamException {
+		if (p != null) {
+			start("Id");
+			final OrganisationIdentification7 orgId = p.getOrgId();
+			if (orgId != null) {
+				start("OrgId");
+				element("AnyBIC", orgId.getAnyBIC());
+				for (final GenericOrganisationIdentification1 othr : orgId.getOthr()) {
+					start("Othr");
+					element("Id", othr.getId());
+					if (othr.getSchmeNm() != null) {
+						start("SchmeNm");
+						element("Cd", othr.getSchmeNm().getCd());
+						element("Prtry", othr.getSchmeNm().getPrtry());
+						this.writer.writeEndElement();
+					}
+					element("Issr", othr.getIssr());
+					this.writer.writeEndElement();
+				}
+				this.writer.writeEndElement();
+			}
+			final PersonIdentification5 prvtId = p.getPrvtId();
+			if (prvtId != null) {
+				start("PrvtId");
+				final DateAndPlaceOfBirth birth = prvtId.getDtAndPlcOfBirth();
+				if (birth != null) {
+					start("DtAndPlcOfBirth");
+					element("BirthDt", birth.getBirthDt());
+					element("PrvcOfBirth", birth.getPrvcOfBirth());
+					element("CityOfBirth", birth.getCityOfBirth());
+					element("CtryOfBirth", birth.getCtryOfBirth());
+					this.writer.writeEndElement();
+				}
+				for (final GenericPersonIdentification1 othr : prvtId.getOthr()) {
+					start("Othr");
+					element("Id", othr.getId());
+					if (othr.getSchmeNm() != null) {
+						start("SchmeNm");
+						element("Cd", othr.getSchmeNm().getCd());
+						element("Prtry", othr.getSchmeNm().getPrtry());
+						this.writer.writeEndElement();
+					}
+					element("Issr", othr.getIssr());
+					this.writer.writeEndElement();
+				}
+				this.writer.writeEndElement();
+			}
+			this.writer.writeEndElement();
+		}
+	}
+
+	private void contactDetails2(final ContactDetails2 c) throws XMLStreamException {
+		if (c != null) {
+			start("CtctDtls");
+			element("NmPrfx", c.getNmPrfx() != null ? c.getNmPrfx().value() : null);
+			element("Nm", c.getNm());
+			element("PhneNb", c.getPhneNb());
+			element("MobNb", c.getMobNb());
+			element("FaxNb", c.getFaxNb());
+			element("EmailAdr", c.getEmailAdr());
+			element("Othr", c.getOthr());
+			this.writer.writeEndElement();
+		}
+	}
+
+	private void signatureEnvelope(final SignatureEnvelope s) throws XMLStreamException {
+		if (s == null) {
+			return;
+		}
+		start("Sgntr");
+		final Object any = s.getAny();
+		if (any instanceof Element) {
+			dom((Element) any);
+		} else if (any instanceof String) {
+			this.writer.writeCharacters((String) any);
+		} else if (any != null) {
+			try {
+				final Marshaller marshaller = JaxbContextCache.marshaller(any.getClass());
+				marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.FALSE);
+				final DOMResult result = new DOMResult();
+				marshaller.marshal(any, result);
+				dom(((Document) result.getNode()).getDocumentElement());
+			} catch (final JAXBException e) {
+				throw new XMLStreamException("error writing header signature", e);
+			}
+		}
+		this.writer.writeEndElement();
+	}
+
+	/**
+	 * Writes a DOM element with its own namespaces
+	 */
+	private void dom(final Element e) throws XMLStreamException {
+		final String uri = StringUtils.defaultString(e.getNamespaceURI());
+		final String elementPrefix = StringUtils.defaultString(e.getPrefix());
+		// checked before the start element, that binds the prefix in the writer context
+		boolean declared = uri.isEmpty() || uri.equals(this.writer.getNamespaceContext().getNamespaceURI(elementPrefix));
+		this.writer.writeStartElement(elementPrefix, e.getLocalName() != null ? e.getLocalName() : e.getTagName(), uri);
+		final NamedNodeMap attributes = e.getAttributes();
+		for (int i = 0; i < attributes.getLength(); i++) {
+			final Attr a = (Attr) attributes.item(i);
+			if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(a.getNamespaceURI())) {
+				final String declaredPrefix = XMLConstants.XMLNS_ATTRIBUTE.equals(a.getLocalName()) ? "" : a.getLocalName();
+				declared |= declaredPrefix.equals(elementPrefix);
+				if (declaredPrefix.isEmpty()) {
+					this.writer.writeDefaultNamespace(a.getValue());
+				} else {
+					this.writer.writeNamespace(declaredPrefix, a.getValue());
+				}
+			}
+		}
+		if (!declared) {
+			if (elementPrefix.isEmpty()) {
+				this.writer.writeDefaultNamespace(uri);
+			} else {
+				this.writer.writeNamespace(elementPrefix, uri);
+			}
+		}
+		for (int i = 0; i < attributes.getLength(); i++) {
+			final Attr a = (Attr) attributes.item(i);
+			if (!XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(a.getNamespaceURI())) {
+				if (a.getNamespaceURI() == null) {
+					this.writer.writeAttribute(a.getLocalName() != null ? a.getLocalName() : a.getName(), a.getValue());
+				} else {
+					this.writer.writeAttribute(StringUtils.defaultString(a.getPrefix()), a.getNamespaceURI(), a.getLocalName(), a.getValue());
+				}
+			}
+		}
+		for (Node child = e.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE) {
+				dom((Element) child);
+			} else if (child.getNodeType() == Node.TEXT_NODE || child.getNodeType() == Node.CDATA_SECTION_NODE) {
+				this.writer.writeCharacters(child.getNodeValue());
+			}
+		}
+		this.writer.writeEndElement();
+	}
+
+	private void start(final String localName) throws XMLStreamException {
+		this.writer.writeStartElement(this.prefix, localName, this.namespace);
+	}
+
+	private void element(final String localName, final String value) throws XMLStreamException {
+		if (value != null) {
+			start(localName);
+			this.writer.writeCharacters(value);
+			this.writer.writeEndElement();
+		}
+	}
+
+	private void element(final String localName, final XMLGregorianCalendar value) throws XMLStreamException {
+		if (value != null) {
+			element(localName, value.toXMLFormat());
+		}
+	}
+
+	private void element(final String localName, final Boolean value) throws XMLStreamException {
+		if (value != null) {
+			element(localName, value.toString());
+		}
+	}
+
+	private void elements(final String localName, final List<String> values) throws XMLStreamException {
+		for (final String value : values) {
+			element(localName, value);
+		}
+	}
+
+}
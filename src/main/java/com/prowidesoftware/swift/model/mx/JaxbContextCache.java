@@ -0,0 +1,122 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model.mx;
+
+import org.apache.commons.lang3.Validate;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared cache of JAXB contexts for the MX model.
+ *
+ * <p>Creating a {@link JAXBContext} is expensive, it involves introspection of all the bound classes, while the
+ * resulting context is thread safe. This cache creates a single context for each set of classes and keeps it for the
+ * life of the application. The class set is compared regardless of the order.
+ *
+ * <p>Marshallers and unmarshallers are not thread safe but they are cheap to reuse, so one instance per context is
+ * kept for each thread. Since they are reused, the caller must set all the properties needed before each use.
+ *
+ * <p>Implementations of {@link MxRead} and {@link MxWrite} can use this class to share the contexts with the
+ * header and message serialization in {@link BusinessHeader} and {@link AbstractMX}.
+ *
+ * @since 8.0.2
+ */
+public final class JaxbContextCache {
+
+	private static final Map<Set<Class<?>>, JAXBContext> contexts = new ConcurrentHashMap<>();
+	private static final ThreadLocal<Map<JAXBContext, Marshaller>> marshallers = ThreadLocal.withInitial(HashMap::new);
+	private static final ThreadLocal<Map<JAXBContext, Unmarshaller>> unmarshallers = ThreadLocal.withInitial(HashMap::new);
+
+	private JaxbContextCache() {
+		throw new AssertionError();
+	}
+
+	/**
+	 * Gets the context for the parameter classes, creating it on first use
+	 * @param classes the classes to be recognized by the context
+	 * @return a shared context
+	 * @throws JAXBException if the context cannot be created
+	 * @throws IllegalArgumentException if no class is given
+	 */
+	public static JAXBContext get(final Class<?>... classes) throws JAXBException {
+		Validate.notEmpty(classes, "at least one class is required");
+		final Set<Class<?>> key = new HashSet<>(Arrays.asList(classes));
+		JAXBContext context = contexts.get(key);
+		if (context == null) {
+			// concurrent threads may create the context twice, but only one is kept
+			context = JAXBContext.newInstance(classes);
+			final JAXBContext previous = contexts.putIfAbsent(key, context);
+			if (previous != null) {
+				context = previous;
+			}
+		}
+		return context;
+	}
+
+	/**
+	 * Gets a marshaller for the parameter classes, reused by the calling thread
+	 * @param classes the classes to be recognized by the context
+	 * @return a marshaller that must not be shared with other threads
+	 * @throws JAXBException if the context or the marshaller cannot be created
+	 */
+	public static Marshaller marshaller(final Class<?>... classes) throws JAXBException {
+		final JAXBContext context = get(classes);
+		final Map<JAXBContext, Marshaller> cached = marshallers.get();
+		Marshaller marshaller = cached.get(context);
+		if (marshaller == null) {
+			marshaller = context.createMarshaller();
+			cached.put(context, marshaller);
+		}
+		return marshaller;
+	}
+
+	/**
+	 * Gets an unmarshaller for the parameter classes, reused by the calling thread
+	 * @param classes the classes to be recognized by the context
+	 * @return an unmarshaller that must not be shared with other threads
+	 * @throws JAXBException if the context or the unmarshaller cannot be created
+	 */
+	public static Unmarshaller unmarshaller(final Class<?>... classes) throws JAXBException {
+		final JAXBContext context = get(classes);
+		final Map<JAXBContext, Unmarshaller> cached = unmarshallers.get();
+		Unmarshaller unmarshaller = cached.get(context);
+		if (unmarshaller == null) {
+			unmarshaller = context.createUnmarshaller();
+			cached.put(context, unmarshaller);
+		}
+		return unmarshaller;
+	}
+
+	/**
+	 * Discards the cached contexts, and the marshallers and unmarshallers of the calling thread.
+	 * Instances cached by other threads are discarded when those threads end.
+	 */
+	public static void clear() {
+		contexts.clear();
+		marshallers.remove();
+		unmarshallers.remove();
+	}
+
+}
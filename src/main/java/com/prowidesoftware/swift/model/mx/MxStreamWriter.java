@@ -0,0 +1,452 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model.mx;
+
+import com.prowidesoftware.ProwideException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.Closeable;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes MX messages straight into a StAX writer, writing the AppHdr directly from the header model and marshalling
+ * the Document with JAXB into the same {@link XMLStreamWriter}, without intermediate Strings or XML event objects.
+ *
+ * <p>Each message is written as in {@link AbstractMX#message()}: when the header is present, the AppHdr and Document
+ * are wrapped in a {@link AbstractMX#DEFAULT_ROOT_ELEMENT} (configurable with {@link #setMessageElement(String)}),
+ * and the header and document namespaces are bound to the prefixes 'h' and 'Doc' by default. As in the
+ * {@link XmlEventWriter}, all the header elements are written in the header namespace. The output is not indented.
+ *
+ * <p>Many messages can be written into a single file, inside an envelope element:
+ * <pre>
+ * try (MxStreamWriter writer = new MxStreamWriter(stream)) {
+ *     writer.startEnvelope("Batch");
+ *     for (AbstractMX mx : messages) {
+ *         writer.write(mx);
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>Errors are thrown as {@link ProwideException}. Instances are not thread safe.
+ *
+ * @since 8.0.2
+ */
+public class MxStreamWriter implements Closeable {
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+	private final XMLStreamWriter writer;
+	private final boolean ownsDocument;
+	private boolean started = false;
+	private boolean envelope = false;
+	private String headerPrefix = "h";
+	private String documentPrefix = "Doc";
+	private String messageElement = AbstractMX.DEFAULT_ROOT_ELEMENT;
+
+	/**
+	 * Creates a writer into the parameter stream, encoding the content in UTF-8 with an XML declaration
+	 * @param out the target stream, it is not closed by this writer
+	 * @throws ProwideException if the StAX writer cannot be created
+	 */
+	public MxStreamWriter(final OutputStream out) {
+		Validate.notNull(out, "the stream to write cannot be null");
+		try {
+			this.writer = OUTPUT_FACTORY.createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+		} catch (final XMLStreamException e) {
+			throw new ProwideException("error creating XML writer", e);
+		}
+		this.ownsDocument = true;
+	}
+
+	/**
+	 * Creates a writer into the parameter character stream, with an XML declaration for UTF-8
+	 * @param out the target writer, it is not closed by this writer
+	 * @throws ProwideException if the StAX writer cannot be created
+	 */
+	public MxStreamWriter(final Writer out) {
+		Validate.notNull(out, "the writer cannot be null");
+		try {
+			this.writer = OUTPUT_FACTORY.createXMLStreamWriter(out);
+		} catch (final XMLStreamException e) {
+			throw new ProwideException("error creating XML writer", e);
+		}
+		this.ownsDocument = true;
+	}
+
+	/**
+	 * Creates a writer into an existing StAX writer, for example to write the messages inside a bigger document.
+	 * The XML declaration and the end of the document are not written.
+	 * @param writer the target writer
+	 */
+	public MxStreamWriter(final XMLStreamWriter writer) {
+		Validate.notNull(writer, "the writer cannot be null");
+		this.writer = writer;
+		this.ownsDocument = false;
+	}
+
+	/**
+	 * Starts an envelope element containing the messages written next. The envelope is closed by {@link #close()}.
+	 * @param rootElement name of the envelope element
+	 * @throws IllegalStateException if something was already written
+	 * @throws ProwideException if the content cannot be written
+	 */
+	public void startEnvelope(final String rootElement) {
+		Validate.notBlank(rootElement, "the envelope element cannot be blank");
+		Validate.validState(!this.started, "the envelope must be started before writing messages");
+		try {
+			start();
+			this.writer.writeStartElement(rootElement);
+		} catch (final XMLStreamException e) {
+			throw new ProwideException("error writing MX envelope", e);
+		}
+		this.envelope = true;
+	}
+
+	/**
+	 * Writes the message, with its header when present.
+	 * @param mx the message to write
+	 * @throws ProwideException if the message cannot be marshalled
+	 */
+	public void write(final AbstractMX mx) {
+		Validate.notNull(mx, "the message to write cannot be null");
+		try {
+			start();
+			final BusinessHeader header = mx.getBusinessHeader();
+			final boolean wrap = header != null && this.messageElement != null;
+			if (wrap) {
+				this.writer.writeStartElement(this.messageElement);
+			}
+			if (header != null) {
+				header.write(this.writer, this.headerPrefix);
+			}
+			final Marshaller marshaller = JaxbContextCache.marshaller(mx.getClasses());
+			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.FALSE);
+			marshaller.marshal(mx, new NamespaceMapper(this.writer, this.documentPrefix));
+			if (wrap) {
+				this.writer.writeEndElement();
+			}
+		} catch (final XMLStreamException | JAXBException e) {
+			throw new ProwideException("error writing MX message", e);
+		}
+	}
+
+	/**
+	 * Writes a header alone
+	 * @param header the header to write, if it has no content nothing is written
+	 * @throws ProwideException if the header cannot be written
+	 */
+	public void write(final BusinessHeader header) {
+		Validate.notNull(header, "the header to write cannot be null");
+		try {
+			start();
+			header.write(this.writer, this.headerPrefix);
+		} catch (final XMLStreamException e) {
+			throw new ProwideException("error writing MX header", e);
+		}
+	}
+
+	/**
+	 * Closes the envelope if started, ends the XML document and flushes the content into the target.
+	 * The underlying stream or writer is not closed.
+	 * @throws ProwideException if the content cannot be written
+	 */
+	@Override
+	public void close() {
+		try {
+			if (this.envelope) {
+				this.writer.writeEndElement();
+				this.envelope = false;
+			}
+			if (this.ownsDocument && this.started) {
+				this.writer.writeEndDocument();
+			}
+			this.writer.flush();
+		} catch (final XMLStreamException e) {
+			throw new ProwideException("error writing MX content", e);
+		}
+	}
+
+	private void start() throws XMLStreamException {
+		if (!this.started) {
+			if (this.ownsDocument) {
+				this.writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+			}
+			this.started = true;
+		}
+	}
+
+	/**
+	 * @return the prefix for the header elements
+	 */
+	public String getHeaderPrefix() {
+		return headerPrefix;
+	}
+
+	/**
+	 * @param headerPrefix the prefix for the header elements, null or empty to declare the header namespace as default
+	 */
+	public void setHeaderPrefix(final String headerPrefix) {
+		this.headerPrefix = headerPrefix;
+	}
+
+	/**
+	 * @return the prefix for the document elements
+	 */
+	public String getDocumentPrefix() {
+		return documentPrefix;
+	}
+
+	/**
+	 * @param documentPrefix the prefix for the document elements, null or empty to declare the document namespace as default
+	 */
+	public void setDocumentPrefix(final String documentPrefix) {
+		this.documentPrefix = documentPrefix;
+	}
+
+	/**
+	 * @return the element wrapping each message with header
+	 */
+	public String getMessageElement() {
+		return messageElement;
+	}
+
+	/**
+	 * @param messageElement the element wrapping each message with header, null to write the AppHdr and Document
+	 * 	directly into the envelope
+	 */
+	public void setMessageElement(final String messageElement) {
+		this.messageElement = messageElement;
+	}
+
+	/**
+	 * Delegating writer used as the JAXB marshalling target, that binds the namespace of the marshalled root element to
+	 * the configured prefix, and ignores the start and end of document from the marshaller.
+	 */
+	private static final class NamespaceMapper implements XMLStreamWriter {
+		private final XMLStreamWriter delegate;
+		private final String prefix;
+		private String namespace = null;
+		private int depth = 0;
+
+		NamespaceMapper(final XMLStreamWriter delegate, final String prefix) {
+			this.delegate = delegate;
+			this.prefix = StringUtils.defaultString(prefix);
+		}
+
+		private boolean mapped(final String uri) {
+			return StringUtils.isNotEmpty(uri) && uri.equals(this.namespace);
+		}
+
+		/**
+		 * Nested elements without namespace, such as the header content, are written in the root namespace as done
+		 * by the {@link XmlEventWriter}
+		 */
+		private boolean unqualified(final String uri) {
+			return StringUtils.isEmpty(uri) && StringUtils.isNotEmpty(this.namespace);
+		}
+
+		@Override
+		public void writeStartElement(final String localName) throws XMLStreamException {
+			writeStartElement("", localName, "");
+		}
+
+		@Override
+		public void writeStartElement(final String namespaceURI, final String localName) throws XMLStreamException {
+			writeStartElement(StringUtils.defaultString(this.delegate.getPrefix(namespaceURI)), localName, namespaceURI);
+		}
+
+		@Override
+		public void writeStartElement(final String prefix, final String localName, final String namespaceURI) throws XMLStreamException {
+			if (this.depth++ == 0) {
+				this.namespace = namespaceURI;
+			}
+			if (mapped(namespaceURI) || unqualified(namespaceURI)) {
+				this.delegate.writeStartElement(this.prefix, localName, this.namespace);
+			} else {
+				this.delegate.writeStartElement(prefix, localName, namespaceURI);
+			}
+		}
+
+		@Override
+		public void writeEmptyElement(final String namespaceURI, final String localName) throws XMLStreamException {
+			this.delegate.writeEmptyElement(namespaceURI, localName);
+		}
+
+		@Override
+		public void writeEmptyElement(final String prefix, final String localName, final String namespaceURI) throws XMLStreamException {
+			if (mapped(namespaceURI) || unqualified(namespaceURI)) {
+				this.delegate.writeEmptyElement(this.prefix, localName, this.namespace);
+			} else {
+				this.delegate.writeEmptyElement(prefix, localName, namespaceURI);
+			}
+		}
+
+		@Override
+		public void writeEmptyElement(final String localName) throws XMLStreamException {
+			writeEmptyElement("", localName, "");
+		}
+
+		@Override
+		public void writeEndElement() throws XMLStreamException {
+			this.depth--;
+			this.delegate.writeEndElement();
+		}
+
+		@Override
+		public void writeEndDocument() {
+			// the document is handled by the MxStreamWriter
+		}
+
+		@Override
+		public void close() {
+			// the target is closed by the MxStreamWriter
+		}
+
+		@Override
+		public void flush() throws XMLStreamException {
+			this.delegate.flush();
+		}
+
+		@Override
+		public void writeAttribute(final String localName, final String value) throws XMLStreamException {
+			this.delegate.writeAttribute(localName, value);
+		}
+
+		@Override
+		public void writeAttribute(final String prefix, final String namespaceURI, final String localName, final String value) throws XMLStreamException {
+			this.delegate.writeAttribute(mapped(namespaceURI) ? this.prefix : prefix, namespaceURI, localName, value);
+		}
+
+		@Override
+		public void writeAttribute(final String namespaceURI, final String localName, final String value) throws XMLStreamException {
+			this.delegate.writeAttribute(namespaceURI, localName, value);
+		}
+
+		@Override
+		public void writeNamespace(final String prefix, final String namespaceURI) throws XMLStreamException {
+			if (mapped(namespaceURI)) {
+				if (this.prefix.isEmpty()) {
+					this.delegate.writeDefaultNamespace(namespaceURI);
+				} else {
+					this.delegate.writeNamespace(this.prefix, namespaceURI);
+				}
+			} else if (StringUtils.isEmpty(prefix)) {
+				this.delegate.writeDefaultNamespace(namespaceURI);
+			} else {
+				this.delegate.writeNamespace(prefix, namespaceURI);
+			}
+		}
+
+		@Override
+		public void writeDefaultNamespace(final String namespaceURI) throws XMLStreamException {
+			writeNamespace("", namespaceURI);
+		}
+
+		@Override
+		public void writeComment(final String data) throws XMLStreamException {
+			this.delegate.writeComment(data);
+		}
+
+		@Override
+		public void writeProcessingInstruction(final String target) throws XMLStreamException {
+			this.delegate.writeProcessingInstruction(target);
+		}
+
+		@Override
+		public void writeProcessingInstruction(final String target, final String data) throws XMLStreamException {
+			this.delegate.writeProcessingInstruction(target, data);
+		}
+
+		@Override
+		public void writeCData(final String data) throws XMLStreamException {
+			this.delegate.writeCData(data);
+		}
+
+		@Override
+		public void writeDTD(final String dtd) throws XMLStreamException {
+			this.delegate.writeDTD(dtd);
+		}
+
+		@Override
+		public void writeEntityRef(final String name) throws XMLStreamException {
+			this.delegate.writeEntityRef(name);
+		}
+
+		@Override
+		public void writeStartDocument() {
+			// the document is handled by the MxStreamWriter
+		}
+
+		@Override
+		public void writeStartDocument(final String version) {
+			// the document is handled by the MxStreamWriter
+		}
+
+		@Override
+		public void writeStartDocument(final String encoding, final String version) {
+			// the document is handled by the MxStreamWriter
+		}
+
+		@Override
+		public void writeCharacters(final String text) throws XMLStreamException {
+			this.delegate.writeCharacters(text);
+		}
+
+		@Override
+		public void writeCharacters(final char[] text, final int start, final int len) throws XMLStreamException {
+			this.delegate.writeCharacters(text, start, len);
+		}
+
+		@Override
+		public String getPrefix(final String uri) throws XMLStreamException {
+			return mapped(uri) ? this.prefix : this.delegate.getPrefix(uri);
+		}
+
+		@Override
+		public void setPrefix(final String prefix, final String uri) throws XMLStreamException {
+			this.delegate.setPrefix(mapped(uri) ? this.prefix : prefix, uri);
+		}
+
+		@Override
+		public void setDefaultNamespace(final String uri) throws XMLStreamException {
+			this.delegate.setDefaultNamespace(uri);
+		}
+
+		@Override
+		public void setNamespaceContext(final NamespaceContext context) throws XMLStreamException {
+			this.delegate.setNamespaceContext(context);
+		}
+
+		@Override
+		public NamespaceContext getNamespaceContext() {
+			return this.delegate.getNamespaceContext();
+		}
+
+		@Override
+		public Object getProperty(final String name) {
+			return this.delegate.getProperty(name);
+		}
+	}
+
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model.mx;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Non-public helper class exposing an {@link XMLEventWriter} as an {@link XMLStreamWriter}, so that content written
+ * with the StAX stream API, such as the {@link BusinessHeaderStaxWriter} output, can be formatted by the
+ * {@link XmlEventWriter}.
+ *
+ * <p>Each call is converted into the equivalent event. The namespace bindings written are tracked per element to
+ * answer {@link #getNamespaceContext()} and {@link #getPrefix(String)}.
+ *
+ * @since 8.0.2
+ */
+final class XmlEventStreamWriter implements XMLStreamWriter {
+	private static final XMLEventFactory EVENT_FACTORY = XMLEventFactory.newInstance();
+
+	private final XMLEventWriter events;
+	private final Deque<Element> elements = new ArrayDeque<>();
+	private final Map<String, String> rootBindings = new HashMap<>();
+	private boolean emptyElement = false;
+
+	XmlEventStreamWriter(final XMLEventWriter events) {
+		this.events = events;
+	}
+
+	@Override
+	public void writeStartElement(final String localName) throws XMLStreamException {
+		writeStartElement(XMLConstants.DEFAULT_NS_PREFIX, localName, XMLConstants.NULL_NS_URI);
+	}
+
+	@Override
+	public void writeStartElement(final String namespaceURI, final String localName) throws XMLStreamException {
+		final String prefix = getPrefix(namespaceURI);
+		writeStartElement(prefix != null ? prefix : XMLConstants.DEFAULT_NS_PREFIX, localName, namespaceURI);
+	}
+
+	@Override
+	public void writeStartElement(final String prefix, final String localName, final String namespaceURI) throws XMLStreamException {
+		closeEmptyElement();
+		this.elements.push(new Element(prefix, localName, namespaceURI));
+		this.events.add(EVENT_FACTORY.createStartElement(prefix, namespaceURI, localName));
+	}
+
+	@Override
+	public void writeEmptyElement(final String namespaceURI, final String localName) throws XMLStreamException {
+		writeStartElement(namespaceURI, localName);
+		this.emptyElement = true;
+	}
+
+	@Override
+	public void writeEmptyElement(final String prefix, final String localName, final String namespaceURI) throws XMLStreamException {
+		writeStartElement(prefix, localName, namespaceURI);
+		this.emptyElement = true;
+	}
+
+	@Override
+	public void writeEmptyElement(final String localName) throws XMLStreamException {
+		writeStartElement(localName);
+		this.emptyElement = true;
+	}
+
+	@Override
+	public void writeEndElement() throws XMLStreamException {
+		closeEmptyElement();
+		final Element e = this.elements.pop();
+		this.events.add(EVENT_FACTORY.createEndElement(e.prefix, e.namespaceURI, e.localName));
+	}
+
+	@Override
+	public void writeEndDocument() throws XMLStreamException {
+		closeEmptyElement();
+		while (!this.elements.isEmpty()) {
+			writeEndElement();
+		}
+		this.events.add(EVENT_FACTORY.createEndDocument());
+	}
+
+	@Override
+	public void close() throws XMLStreamException {
+		this.events.close();
+	}
+
+	@Override
+	public void flush() throws XMLStreamException {
+		this.events.flush();
+	}
+
+	@Override
+	public void writeAttribute(final String localName, final String value) throws XMLStreamException {
+		this.events.add(EVENT_FACTORY.createAttribute(localName, value));
+	}
+
+	@Override
+	public void writeAttribute(final String prefix, final String namespaceURI, final String localName, final String value) throws XMLStreamException {
+		this.events.add(EVENT_FACTORY.createAttribute(prefix, namespaceURI, localName, value));
+	}
+
+	@Override
+	public void writeAttribute(final String namespaceURI, final String localName, final String value) throws XMLStreamException {
+		final String prefix = getPrefix(namespaceURI);
+		writeAttribute(prefix != null ? prefix : XMLConstants.DEFAULT_NS_PREFIX, namespaceURI, localName, value);
+	}
+
+	@Override
+	public void writeNamespace(final String prefix, final String namespaceURI) throws XMLStreamException {
+		if (prefix == null || prefix.isEmpty() || XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+			writeDefaultNamespace(namespaceURI);
+			return;
+		}
+		bind(prefix, namespaceURI);
+		this.events.add(EVENT_FACTORY.createNamespace(prefix, namespaceURI));
+	}
+
+	@Override
+	public void writeDefaultNamespace(final String namespaceURI) throws XMLStreamException {
+		bind(XMLConstants.DEFAULT_NS_PREFIX, namespaceURI);
+		this.events.add(EVENT_FACTORY.createNamespace(namespaceURI));
+	}
+
+	@Override
+	public void writeComment(final String data) throws XMLStreamException {
+		closeEmptyElement();
+		this.events.add(EVENT_FACTORY.createComment(data));
+	}
+
+	@Override
+	public void writeProcessingInstruction(final String target) throws XMLStreamException {
+		writeProcessingInstruction(target, "");
+	}
+
+	@Override
+	public void writeProcessingInstruction(final String target, final String data) throws XMLStreamException {
+		closeEmptyElement();
+		this.events.add(EVENT_FACTORY.createProcessingInstruction(target, data));
+	}
+
+	@Override
+	public void writeCData(final String data) throws XMLStreamException {
+		closeEmptyElement();
+		this.events.add(EVENT_FACTORY.createCData(data));
+	}
+
+	@Override
+	public void writeDTD(final String dtd) throws XMLStreamException {
+		this.events.add(EVENT_FACTORY.createDTD(dtd));
+	}
+
+	@Override
+	public void writeEntityRef(final String name) throws XMLStreamException {
+		closeEmptyElement();
+		this.events.add(EVENT_FACTORY.createEntityReference(name, null));
+	}
+
+	@Override
+	public void writeStartDocument() throws XMLStreamException {
+		this.events.add(EVENT_FACTORY.createStartDocument());
+	}
+
+	@Override
+	public void writeStartDocument(final String version) throws XMLStreamException {
+		this.events.add(EVENT_FACTORY.createStartDocument("UTF-8", version));
+	}
+
+	@Override
+	public void writeStartDocument(final String encoding, final String version) throws XMLStreamException {
+		this.events.add(EVENT_FACTORY.createStartDocument(encoding, version));
+	}
+
+	@Override
+	public void writeCharacters(final String text) throws XMLStreamException {
+		closeEmptyElement();
+		this.events.add(EVENT_FACTORY.createCharacters(text));
+	}
+
+	@Override
+	public void writeCharacters(final char[] text, final int start, final int len) throws XMLStreamException {
+		writeCharacters(new String(text, start, len));
+	}
+
+	@Override
+	public String getPrefix(final String uri) {
+		for (final Element e : this.elements) {
+			final String prefix = e.prefix(uri);
+			if (prefix != null) {
+				return prefix;
+			}
+		}
+		for (final Map.Entry<String, String> binding : this.rootBindings.entrySet()) {
+			if (binding.getValue().equals(uri)) {
+				return binding.getKey();
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void setPrefix(final String prefix, final String uri) {
+		bind(prefix, uri);
+	}
+
+	@Override
+	public void setDefaultNamespace(final String uri) {
+		bind(XMLConstants.DEFAULT_NS_PREFIX, uri);
+	}
+
+	@Override
+	public void setNamespaceContext(final NamespaceContext context) {
+		throw new UnsupportedOperationException("the namespace context is given by the written namespaces");
+	}
+
+	@Override
+	public NamespaceContext getNamespaceContext() {
+		return new NamespaceContext() {
+			@Override
+			public String getNamespaceURI(final String prefix) {
+				return XmlEventStreamWriter.this.getNamespaceURI(prefix);
+			}
+
+			@Override
+			public String getPrefix(final String namespaceURI) {
+				return XmlEventStreamWriter.this.getPrefix(namespaceURI);
+			}
+
+			@Override
+			public Iterator<String> getPrefixes(final String namespaceURI) {
+				final String prefix = getPrefix(namespaceURI);
+				return prefix != null ? Collections.singleton(prefix).iterator() : Collections.<String>emptyIterator();
+			}
+		};
+	}
+
+	@Override
+	public Object getProperty(final String name) {
+		throw new IllegalArgumentException("property " + name + " is not supported");
+	}
+
+	private String getNamespaceURI(final String prefix) {
+		for (final Element e : this.elements) {
+			if (e.bindings != null && e.bindings.containsKey(prefix)) {
+				return e.bindings.get(prefix);
+			}
+		}
+		final String uri = this.rootBindings.get(prefix);
+		return uri != null ? uri : XMLConstants.NULL_NS_URI;
+	}
+
+	private void bind(final String prefix, final String uri) {
+		final Element current = this.elements.peek();
+		if (current == null) {
+			this.rootBindings.put(prefix, uri);
+			return;
+		}
+		if (current.bindings == null) {
+			current.bindings = new HashMap<>();
+		}
+		current.bindings.put(prefix, uri);
+	}
+
+	private void closeEmptyElement() throws XMLStreamException {
+		if (this.emptyElement) {
+			this.emptyElement = false;
+			writeEndElement();
+		}
+	}
+
+	private static final class Element {
+		private final String prefix;
+		private final String localName;
+		private final String namespaceURI;
+		private Map<String, String> bindings = null;
+
+		private Element(final String prefix, final String localName, final String namespaceURI) {
+			this.prefix = prefix;
+			this.localName = localName;
+			this.namespaceURI = namespaceURI;
+		}
+
+		private String prefix(final String uri) {
+			if (this.bindings != null) {
+				for (final Map.Entry<String, String> binding : this.bindings.entrySet()) {
+					if (binding.getValue().equals(uri)) {
+						return binding.getKey();
+					}
+				}
+			}
+			return null;
+		}
+	}
+
+}
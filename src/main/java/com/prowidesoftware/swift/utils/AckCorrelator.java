@@ -0,0 +1,330 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.utils;
+
+import com.prowidesoftware.swift.model.SwiftBlock1;
+import com.prowidesoftware.swift.model.SwiftMessage;
+import com.prowidesoftware.swift.model.SwiftMessageUtils;
+import com.prowidesoftware.swift.model.field.Field108;
+import com.prowidesoftware.swift.model.mt.ServiceMessage21;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Index of sent messages to correlate the received acknowledges (ACK/NAK service messages 21) with their originals
+ * in constant time.
+ *
+ * <p>Each registered message is indexed by the following keys, and an acknowledge is matched by the first key found,
+ * in this order:
+ * <ol>
+ * <li>the input reference from the header block 1: logical terminal, session and sequence numbers; this is the MIR
+ * without the date, and it is echoed in the acknowledge header</li>
+ * <li>the MUR (field 108 in block 3), echoed in the acknowledge text block</li>
+ * <li>the UETR (field 121 in block 3) of the original message appended to the acknowledge</li>
+ * <li>the checksum of the text block of the original message appended to the acknowledge
+ * (see {@link SwiftMessageUtils#calculateChecksum(com.prowidesoftware.swift.model.SwiftBlock4)})</li>
+ * </ol>
+ * Keys are expected to be unique among the pending messages; if a key is registered twice, the acknowledge will match
+ * the last registered message for that key.
+ *
+ * <p>A matched entry is removed from the index. Entries not matched within the configured maximum age are discarded
+ * and counted as expired.
+ *
+ * <p>This class is thread safe, messages can be registered and acknowledges matched by concurrent threads.
+ *
+ * @param <T> type of the object associated with each registered message, for example the message itself or its persistence id
+ * @see AckMessageComparator
+ * @since 8.0.2
+ */
+public class AckCorrelator<T> {
+	private static final transient java.util.logging.Logger log = java.util.logging.Logger.getLogger(AckCorrelator.class.getName());
+
+	/**
+	 * Default maximum time a sent message waits for its acknowledge: 1 hour
+	 */
+	public static final long DEFAULT_MAX_AGE_MILLIS = 60L * 60 * 1000;
+
+	private final long maxAgeMillis;
+
+	private final ConcurrentHashMap<String, Entry<T>> byInputReference = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Entry<T>> byMUR = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Entry<T>> byUETR = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Entry<T>> byChecksum = new ConcurrentHashMap<>();
+	private final Queue<Entry<T>> arrivalOrder = new ConcurrentLinkedQueue<>();
+
+	private final AtomicLong registered = new AtomicLong();
+	private final AtomicLong matched = new AtomicLong();
+	private final AtomicLong unmatched = new AtomicLong();
+	private final AtomicLong expired = new AtomicLong();
+
+	/**
+	 * Creates a correlator with the default maximum age
+	 * @see #DEFAULT_MAX_AGE_MILLIS
+	 */
+	public AckCorrelator() {
+		this(DEFAULT_MAX_AGE_MILLIS);
+	}
+
+	/**
+	 * Creates a correlator with a specific maximum age
+	 * @param maxAgeMillis maximum time in milliseconds a registered message is kept waiting for its acknowledge
+	 * @throws IllegalArgumentException if the maximum age is not positive
+	 */
+	public AckCorrelator(final long maxAgeMillis) {
+		Validate.isTrue(maxAgeMillis > 0, "maxAgeMillis must be positive");
+		this.maxAgeMillis = maxAgeMillis;
+	}
+
+	/**
+	 * Registers a sent message to be matched with its acknowledge.
+	 *
+	 * @param msg the sent message
+	 * @param value the object to return when the acknowledge is matched
+	 * @return true if the message was indexed, false if the message has none of the correlation keys
+	 * @throws IllegalArgumentException if any of the parameters is null
+	 */
+	public boolean register(final SwiftMessage msg, final T value) {
+		Validate.notNull(msg, "message to register must not be null");
+		Validate.notNull(value, "value must not be null");
+		evictExpired();
+
+		final Entry<T> e = new Entry<>(value, now(),
+				inputReference(msg.getBlock1()),
+				StringUtils.trimToNull(msg.getMUR()),
+				StringUtils.trimToNull(msg.getUETR()),
+				msg.getBlock4() != null ? SwiftMessageUtils.calculateChecksum(msg.getBlock4()) : null);
+		if (e.inputReference == null && e.mur == null && e.uetr == null && e.checksum == null) {
+			log.warning("Message cannot be registered for ACK correlation, no correlation key found");
+			return false;
+		}
+		put(this.byInputReference, e.inputReference, e);
+		put(this.byMUR, e.mur, e);
+		put(this.byUETR, e.uetr, e);
+		put(this.byChecksum, e.checksum, e);
+		this.arrivalOrder.add(e);
+		this.registered.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Finds the registered message for the acknowledge, and removes it from the index.
+	 *
+	 * @param ack an acknowledge
+	 * @return the value registered with the original message, or null if no pending message matches the acknowledge
+	 * @throws IllegalArgumentException if the parameter is null or it is not a service message 21
+	 */
+	public T match(final SwiftMessage ack) {
+		Validate.notNull(ack, "acknowledge to match must not be null");
+		Validate.isTrue(ack.isServiceMessage21(), "message to match must be a service message 21 (ACK/NAK)");
+
+		Entry<T> e = claim(this.byInputReference, inputReference(ack.getBlock1()));
+		if (e == null && ack.getBlock4() != null) {
+			e = claim(this.byMUR, StringUtils.trimToNull(ack.getBlock4().getTagValue(Field108.NAME)));
+		}
+		if (e == null && ack.getUnparsedTextsSize() > 0) {
+			// the original message is only parsed when the acknowledge header is not enough
+			final SwiftMessage original = ack.getUnparsedTexts().getTextAsMessage(0);
+			if (original != null) {
+				e = claim(this.byMUR, StringUtils.trimToNull(original.getMUR()));
+				if (e == null) {
+					e = claim(this.byUETR, StringUtils.trimToNull(original.getUETR()));
+				}
+				if (e == null && original.getBlock4() != null) {
+					e = claim(this.byChecksum, SwiftMessageUtils.calculateChecksum(original.getBlock4()));
+				}
+			}
+		}
+		if (e == null) {
+			this.unmatched.incrementAndGet();
+			return null;
+		}
+		this.matched.incrementAndGet();
+		return e.value;
+	}
+
+	/**
+	 * Finds the registered message for the acknowledge, and removes it from the index.
+	 *
+	 * @param ack an acknowledge
+	 * @return the value registered with the original message, or null if no pending message matches the acknowledge
+	 * @throws IllegalArgumentException if the parameter is null
+	 * @see #match(SwiftMessage)
+	 */
+	public T match(final ServiceMessage21 ack) {
+		Validate.notNull(ack, "acknowledge to match must not be null");
+		return match(ack.getSwiftMessage());
+	}
+
+	/**
+	 * Discards the registered messages older than the maximum age.
+	 * This is done automatically on each registration, so it needs to be called explicitly only to release memory
+	 * when no messages are being registered.
+	 */
+	public void evictExpired() {
+		final long limit = now() - this.maxAgeMillis;
+		Entry<T> head;
+		while ((head = this.arrivalOrder.peek()) != null && (head.done.get() || head.created < limit)) {
+			if (this.arrivalOrder.remove(head) && release(head)) {
+				this.expired.incrementAndGet();
+				if (log.isLoggable(java.util.logging.Level.FINE)) {
+					log.fine("Discarded message not acknowledged in time, MUR " + head.mur + ", input reference " + head.inputReference);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Discards all registered messages
+	 */
+	public void clear() {
+		Entry<T> e;
+		while ((e = this.arrivalOrder.poll()) != null) {
+			release(e);
+		}
+	}
+
+	/**
+	 * @return the number of registered messages waiting for their acknowledge
+	 */
+	public int pendingCount() {
+		int count = 0;
+		for (final Entry<T> e : this.arrivalOrder) {
+			if (!e.done.get()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the total number of registered messages
+	 */
+	public long registeredCount() {
+		return this.registered.get();
+	}
+
+	/**
+	 * @return the total number of acknowledges matched with a registered message
+	 */
+	public long matchedCount() {
+		return this.matched.get();
+	}
+
+	/**
+	 * @return the total number of acknowledges that did not match any registered message
+	 */
+	public long unmatchedCount() {
+		return this.unmatched.get();
+	}
+
+	/**
+	 * @return the total number of registered messages discarded without being matched
+	 */
+	public long expiredCount() {
+		return this.expired.get();
+	}
+
+	/**
+	 * Current time in milliseconds, can be overridden for testing
+	 */
+	protected long now() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Logical terminal, session and sequence numbers from the header, or null if not present or if the session
+	 * and sequence are not yet assigned (all zeros)
+	 */
+	private static String inputReference(final SwiftBlock1 b1) {
+		if (b1 == null) {
+			return null;
+		}
+		final String lt = b1.getLogicalTerminal();
+		final String session = b1.getSessionNumber();
+		final String sequence = b1.getSequenceNumber();
+		if (StringUtils.isAnyBlank(lt, session, sequence) || StringUtils.containsOnly(session + sequence, '0')) {
+			return null;
+		}
+		return lt + session + sequence;
+	}
+
+	private static <T> void put(final ConcurrentHashMap<String, Entry<T>> index, final String key, final Entry<T> e) {
+		if (key != null) {
+			index.put(key, e);
+		}
+	}
+
+	/**
+	 * Gets the entry for the key and marks it as done, so that a concurrent match or eviction cannot return it again
+	 */
+	private Entry<T> claim(final ConcurrentHashMap<String, Entry<T>> index, final String key) {
+		if (key == null) {
+			return null;
+		}
+		final Entry<T> e = index.get(key);
+		if (e != null && release(e)) {
+			return e;
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the entry from all the indexes
+	 * @return true if the entry was pending and is now released by the current thread
+	 */
+	private boolean release(final Entry<T> e) {
+		if (!e.done.compareAndSet(false, true)) {
+			return false;
+		}
+		remove(this.byInputReference, e.inputReference, e);
+		remove(this.byMUR, e.mur, e);
+		remove(this.byUETR, e.uetr, e);
+		remove(this.byChecksum, e.checksum, e);
+		return true;
+	}
+
+	private static <T> void remove(final ConcurrentHashMap<String, Entry<T>> index, final String key, final Entry<T> e) {
+		if (key != null) {
+			index.remove(key, e);
+		}
+	}
+
+	private static final class Entry<T> {
+		private final T value;
+		private final long created;
+		private final String inputReference;
+		private final String mur;
+		private final String uetr;
+		private final String checksum;
+		private final AtomicBoolean done = new AtomicBoolean();
+
+		Entry(final T value, final long created, final String inputReference, final String mur, final String uetr, final String checksum) {
+			this.value = value;
+			this.created = created;
+			this.inputReference = inputReference;
+			this.mur = mur;
+			this.uetr = uetr;
+			this.checksum = checksum;
+		}
+	}
+
+}
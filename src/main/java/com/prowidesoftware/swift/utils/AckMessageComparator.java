@@ -22,9 +22,10 @@ package com.prowidesoftware.swift.utils;
  * The trailer block 5 if present in any of the messages is also ignored. Regarding multiline fields
  * the EOL must be an exact match (meaning CRLF is not the same as just LF)
  * 
+ * <p>For matching a high volume of acknowledges without comparing candidates one by one, see {@link AckCorrelator}
+ * 
  * @author www.prowidesoftware.com
  */
-//TODO nov 2016 sebastian: create message comparator for ack sysmessage to candidates using 108:MUR from ack and MOR from candidate
 public class AckMessageComparator extends SwiftMessageComparator {
 
 	public AckMessageComparator() {
@@ -0,0 +1,469 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.utils;
+
+import com.prowidesoftware.swift.model.AbstractSwiftMessage;
+import com.prowidesoftware.swift.model.MtSwiftMessage;
+import com.prowidesoftware.swift.model.SwiftBlock1;
+import com.prowidesoftware.swift.model.SwiftMessage;
+import com.prowidesoftware.swift.model.SwiftMessageUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory detection of duplicate messages, based on the proprietary message checksum
+ * (see {@link SwiftMessageUtils#calculateChecksum(SwiftMessage)}).
+ *
+ * <p>The detector remembers the checksums seen within a time window, up to a maximum number of entries. When the
+ * capacity is exceeded the least recently seen checksums are discarded first. Each check is answered first by a
+ * Bloom filter, that gives a definitive negative answer for checksums not seen within the window, and then by an
+ * exact set of recent checksums, so the result has no false positives.
+ *
+ * <p>Similar to the {@link AckMessageComparator}, the detector can be set to ignore the session and sequence numbers
+ * in the header block 1 and the trailer block 5. This allows detecting a message retransmitted in another session or
+ * flagged as possible duplicate (PDE/PDM trailers) as a duplicate of the original one. The options should be set
+ * before the detector is used.
+ *
+ * <p>This class is thread safe, checks are non-blocking and can be done by concurrent threads.
+ *
+ * @since 8.0.2
+ */
+public class DuplicateDetector {
+	private static final transient java.util.logging.Logger log = java.util.logging.Logger.getLogger(DuplicateDetector.class.getName());
+
+	/**
+	 * Default maximum number of remembered checksums: 1 million
+	 */
+	public static final int DEFAULT_CAPACITY = 1000000;
+
+	/**
+	 * Default time window for duplicates: 24 hours
+	 */
+	public static final long DEFAULT_WINDOW_MILLIS = 24L * 60 * 60 * 1000;
+
+	/**
+	 * Bloom filter bits per entry and number of hash functions, for a false positive rate of about 1%
+	 */
+	private static final int BITS_PER_ENTRY = 10;
+	private static final int HASHES = 7;
+
+	private final int capacity;
+	private final long windowMillis;
+	private volatile boolean ignoreHeaderSession = false;
+	private volatile boolean ignoreTrailer = false;
+
+	private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+	private final Queue<Entry> accessOrder = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicReference<Generations> filters;
+	private final AtomicLong checks = new AtomicLong();
+	private final AtomicLong duplicates = new AtomicLong();
+	private final AtomicLong evicted = new AtomicLong();
+
+	/**
+	 * Creates a detector with the default capacity and time window
+	 * @see #DEFAULT_CAPACITY
+	 * @see #DEFAULT_WINDOW_MILLIS
+	 */
+	public DuplicateDetector() {
+		this(DEFAULT_CAPACITY, DEFAULT_WINDOW_MILLIS);
+	}
+
+	/**
+	 * Creates a detector with specific limits
+	 * @param capacity maximum number of checksums to remember
+	 * @param windowMillis time in milliseconds a checksum is remembered since it was last seen
+	 * @throws IllegalArgumentException if any of the limits is not positive
+	 */
+	public DuplicateDetector(final int capacity, final long windowMillis) {
+		Validate.isTrue(capacity > 0, "capacity must be positive");
+		Validate.isTrue(windowMillis > 0, "windowMillis must be positive");
+		this.capacity = capacity;
+		this.windowMillis = windowMillis;
+		this.filters = new AtomicReference<>(new Generations(new BloomFilter(capacity), new BloomFilter(capacity), now()));
+	}
+
+	/**
+	 * Checks if the message was already seen within the time window, and registers it as seen.
+	 *
+	 * @param msg the message to check
+	 * @return true if the message is a duplicate, false if it is the first occurrence within the window
+	 * @throws IllegalArgumentException if the message is null
+	 * @see #checksum(SwiftMessage)
+	 */
+	public boolean isDuplicate(final SwiftMessage msg) {
+		Validate.notNull(msg, "message to check must not be null");
+		return isDuplicate(checksum(msg));
+	}
+
+	/**
+	 * Checks if the message was already seen within the time window, and registers it as seen.
+	 *
+	 * <p>When the detector does not ignore any header or trailer content, the checksum already computed in the
+	 * message is used. Otherwise MT messages are parsed to compute the checksum without the ignored content.
+	 *
+	 * @param msg the message to check
+	 * @return true if the message is a duplicate, false if it is the first occurrence within the window
+	 * @throws IllegalArgumentException if the message is null or its checksum cannot be determined
+	 */
+	public boolean isDuplicate(final AbstractSwiftMessage msg) {
+		Validate.notNull(msg, "message to check must not be null");
+		String checksum = msg.getChecksum();
+		if ((this.ignoreHeaderSession || this.ignoreTrailer) && msg instanceof MtSwiftMessage) {
+			final SwiftMessage model = ((MtSwiftMessage) msg).modelMessage();
+			if (model != null) {
+				checksum = checksum(model);
+			}
+		}
+		return isDuplicate(checksum);
+	}
+
+	/**
+	 * Checks if the checksum was already seen within the time window, and registers it as seen.
+	 *
+	 * @param checksum a message checksum, a 32 characters hexadecimal MD5 hash
+	 * @return true if the checksum is a duplicate, false if it is the first occurrence within the window
+	 * @throws IllegalArgumentException if the checksum is null or not a valid hash
+	 */
+	public boolean isDuplicate(final String checksum) {
+		final Key key = Key.of(checksum);
+		final long now = now();
+		this.checks.incrementAndGet();
+		final Generations gen = currentFilters(now);
+		final Entry entry = new Entry(key, now);
+
+		if (!gen.mightContain(key)) {
+			// fast path, definitely not seen within the window
+			final Entry previous = this.entries.putIfAbsent(key, entry);
+			if (previous == null) {
+				registered(entry, gen);
+				return false;
+			}
+		}
+
+		while (true) {
+			final Entry previous = this.entries.get(key);
+			if (previous == null) {
+				if (this.entries.putIfAbsent(key, entry) == null) {
+					registered(entry, gen);
+					return false;
+				}
+			} else if (this.entries.replace(key, previous, entry)) {
+				registered(entry, gen);
+				if (now - previous.time <= this.windowMillis) {
+					this.duplicates.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Checks if the checksum was seen within the time window, without registering it.
+	 *
+	 * @param checksum a message checksum, a 32 characters hexadecimal MD5 hash
+	 * @return true if the checksum was seen within the time window
+	 * @throws IllegalArgumentException if the checksum is null or not a valid hash
+	 */
+	public boolean contains(final String checksum) {
+		final Key key = Key.of(checksum);
+		final long now = now();
+		if (!currentFilters(now).mightContain(key)) {
+			return false;
+		}
+		final Entry e = this.entries.get(key);
+		return e != null && now - e.time <= this.windowMillis;
+	}
+
+	/**
+	 * Computes the checksum used to detect duplicates, ignoring the session and sequence numbers and the trailer
+	 * block if the detector is set to do so.
+	 *
+	 * @param msg the message
+	 * @return the message checksum
+	 */
+	public String checksum(final SwiftMessage msg) {
+		if (!this.ignoreHeaderSession && !this.ignoreTrailer) {
+			return SwiftMessageUtils.calculateChecksum(msg);
+		}
+		final SwiftMessage copy = new SwiftMessage(false);
+		if (msg.getBlock1() != null) {
+			if (this.ignoreHeaderSession) {
+				final SwiftBlock1 b1 = new SwiftBlock1(msg.getBlock1());
+				b1.setSessionNumber(null);
+				b1.setSequenceNumber(null);
+				copy.setBlock1(b1);
+			} else {
+				copy.setBlock1(msg.getBlock1());
+			}
+		}
+		copy.setBlock2(msg.getBlock2());
+		copy.setBlock3(msg.getBlock3());
+		copy.setBlock4(msg.getBlock4());
+		if (!this.ignoreTrailer) {
+			copy.setBlock5(msg.getBlock5());
+		}
+		if (msg.getUserBlocks() != null) {
+			copy.setUserBlocks(msg.getUserBlocks());
+		}
+		return SwiftMessageUtils.calculateChecksum(copy);
+	}
+
+	/**
+	 * Discards all remembered checksums
+	 */
+	public void clear() {
+		this.entries.clear();
+		this.accessOrder.clear();
+		this.queued.set(0);
+		this.filters.set(new Generations(new BloomFilter(this.capacity), new BloomFilter(this.capacity), now()));
+	}
+
+	/**
+	 * @return the number of remembered checksums
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * @return the total number of checks done with any of the isDuplicate methods
+	 */
+	public long checkCount() {
+		return this.checks.get();
+	}
+
+	/**
+	 * @return the total number of duplicates detected
+	 */
+	public long duplicateCount() {
+		return this.duplicates.get();
+	}
+
+	/**
+	 * @return the total number of checksums discarded because of the capacity or the time window
+	 */
+	public long evictedCount() {
+		return this.evicted.get();
+	}
+
+	public boolean isIgnoreHeaderSession() {
+		return ignoreHeaderSession;
+	}
+
+	/**
+	 * @param ignoreHeaderSession true to ignore the session and sequence numbers of the header block 1
+	 */
+	public void setIgnoreHeaderSession(final boolean ignoreHeaderSession) {
+		this.ignoreHeaderSession = ignoreHeaderSession;
+	}
+
+	public boolean isIgnoreTrailer() {
+		return ignoreTrailer;
+	}
+
+	/**
+	 * @param ignoreTrailer true to ignore the trailer block 5, including the PDE and PDM possible duplicate flags
+	 */
+	public void setIgnoreTrailer(final boolean ignoreTrailer) {
+		this.ignoreTrailer = ignoreTrailer;
+	}
+
+	/**
+	 * Current time in milliseconds, can be overridden for testing
+	 */
+	protected long now() {
+		return System.currentTimeMillis();
+	}
+
+	private void registered(final Entry entry, final Generations gen) {
+		gen.current.add(entry.key);
+		this.accessOrder.add(entry);
+		this.queued.incrementAndGet();
+		evict(entry.time);
+	}
+
+	/**
+	 * Discards the least recently seen entries while the capacity is exceeded or they are out of the time window.
+	 * Queue elements replaced by a later access of the same checksum are just dropped.
+	 */
+	private void evict(final long now) {
+		Entry head;
+		while ((head = this.accessOrder.peek()) != null) {
+			final boolean stale = this.entries.get(head.key) != head;
+			final boolean expired = now - head.time > this.windowMillis;
+			final boolean overflow = this.entries.size() > this.capacity || this.queued.get() > 2 * this.capacity;
+			if (!stale && !expired && !overflow) {
+				return;
+			}
+			if (this.accessOrder.remove(head)) {
+				this.queued.decrementAndGet();
+				if (!stale && this.entries.remove(head.key, head)) {
+					this.evicted.incrementAndGet();
+					if (log.isLoggable(java.util.logging.Level.FINEST)) {
+						log.finest("Discarded checksum " + head.key + (expired ? ", out of time window" : ", capacity exceeded"));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the Bloom filters, starting a new generation if the current one is older than the time window.
+	 * Two generations are kept so that every checksum seen within the window is present in one of them.
+	 */
+	private Generations currentFilters(final long now) {
+		while (true) {
+			final Generations gen = this.filters.get();
+			if (now - gen.started <= this.windowMillis) {
+				return gen;
+			}
+			final Generations next = new Generations(new BloomFilter(this.capacity), gen.current, now);
+			if (this.filters.compareAndSet(gen, next)) {
+				return next;
+			}
+		}
+	}
+
+	/**
+	 * Checksum as a 128 bits number
+	 */
+	private static final class Key {
+		private final long high;
+		private final long low;
+
+		private Key(final long high, final long low) {
+			this.high = high;
+			this.low = low;
+		}
+
+		static Key of(final String checksum) {
+			Validate.isTrue(checksum != null && checksum.length() == 32, "checksum must be a 32 characters hexadecimal hash");
+			return new Key(parse(checksum, 0), parse(checksum, 16));
+		}
+
+		private static long parse(final String s, final int from) {
+			long result = 0;
+			for (int i = from; i < from + 16; i++) {
+				final int digit = Character.digit(s.charAt(i), 16);
+				Validate.isTrue(digit >= 0, "invalid hexadecimal checksum %s", s);
+				result = (result << 4) | digit;
+			}
+			return result;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			final Key key = (Key) o;
+			return high == key.high && low == key.low;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (low ^ (low >>> 32));
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%016x%016x", high, low);
+		}
+	}
+
+	private static final class Entry {
+		private final Key key;
+		private final long time;
+
+		Entry(final Key key, final long time) {
+			this.key = key;
+			this.time = time;
+		}
+	}
+
+	private static final class Generations {
+		private final BloomFilter current;
+		private final BloomFilter previous;
+		private final long started;
+
+		Generations(final BloomFilter current, final BloomFilter previous, final long started) {
+			this.current = current;
+			this.previous = previous;
+			this.started = started;
+		}
+
+		boolean mightContain(final Key key) {
+			return current.mightContain(key) || previous.mightContain(key);
+		}
+	}
+
+	/**
+	 * Bloom filter with bits set atomically. Since the keys are MD5 hashes, their two halves are used directly
+	 * as independent hash values.
+	 */
+	private static final class BloomFilter {
+		private final AtomicLongArray bits;
+		private final long size;
+
+		BloomFilter(final int capacity) {
+			final int words = (int) Math.min(Integer.MAX_VALUE, ((long) capacity * BITS_PER_ENTRY + 63) / 64);
+			this.bits = new AtomicLongArray(words);
+			this.size = words * 64L;
+		}
+
+		void add(final Key key) {
+			for (int i = 0; i < HASHES; i++) {
+				final long bit = index(key, i);
+				final int word = (int) (bit >>> 6);
+				final long mask = 1L << bit;
+				long current;
+				while (((current = this.bits.get(word)) & mask) == 0) {
+					if (this.bits.compareAndSet(word, current, current | mask)) {
+						break;
+					}
+				}
+			}
+		}
+
+		boolean mightContain(final Key key) {
+			for (int i = 0; i < HASHES; i++) {
+				final long bit = index(key, i);
+				if ((this.bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private long index(final Key key, final int i) {
+			final long h = key.low + i * key.high;
+			return (h & Long.MAX_VALUE) % this.size;
+		}
+	}
+
+}
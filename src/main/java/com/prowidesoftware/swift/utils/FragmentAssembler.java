@@ -0,0 +1,396 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.utils;
+
+import com.prowidesoftware.swift.model.SwiftBlock4;
+import com.prowidesoftware.swift.model.SwiftMessage;
+import com.prowidesoftware.swift.model.SwiftMessageUtils;
+import com.prowidesoftware.swift.model.Tag;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Reassembles fragmented MT messages (messages split in several parts with fields 202 and 203).
+ *
+ * <p>Fragments are grouped by the message reference (see {@link SwiftMessageUtils#reference(SwiftMessage)})
+ * and the sender address. Each call to {@link #add(SwiftMessage)} buffers the fragment and, when all the
+ * fragments of the group are present, the merged message is returned and the group is released.
+ *
+ * <p>The merged message contains the header blocks of the first fragment, the trailer of the last fragment
+ * and a text block with the concatenation of all fragments text blocks, in fragment number order. Fields 202
+ * and 203 are removed, and field 20 is kept only from the first fragment.
+ *
+ * <p>Memory used by pending fragments is bounded by an approximate budget in bytes; when a new fragment
+ * exceeds the budget the oldest pending groups are discarded. Pending groups older than the configured
+ * maximum age are discarded as well. Discarded fragments are logged and counted, but not returned.
+ *
+ * <p>This class is thread safe and can be fed by concurrent producers.
+ *
+ * @since 8.0.2
+ */
+public class FragmentAssembler {
+	private static final transient java.util.logging.Logger log = java.util.logging.Logger.getLogger(FragmentAssembler.class.getName());
+
+	/**
+	 * Default memory budget for pending fragments: 64 MB
+	 */
+	public static final long DEFAULT_MAX_BUFFERED_BYTES = 64L * 1024 * 1024;
+
+	/**
+	 * Default maximum time a group of fragments is kept waiting for the rest of its fragments: 1 hour
+	 */
+	public static final long DEFAULT_MAX_AGE_MILLIS = 60L * 60 * 1000;
+
+	/**
+	 * Approximate fixed overhead in bytes for each buffered tag (object headers and references)
+	 */
+	private static final int TAG_OVERHEAD = 64;
+
+	private final long maxBufferedBytes;
+	private final long maxAgeMillis;
+
+	private final ConcurrentHashMap<Key, Group> pending = new ConcurrentHashMap<>();
+	/*
+	 * pending groups by creation order, completed and evicted groups are removed in constant time; guarded by its
+	 * own lock, that is always taken last
+	 */
+	private final Set<Group> arrivalOrder = new LinkedHashSet<>();
+	private final AtomicLong bufferedBytes = new AtomicLong();
+	private final AtomicLong evictedGroups = new AtomicLong();
+
+	/**
+	 * Creates an assembler with the default memory budget and maximum age
+	 * @see #DEFAULT_MAX_BUFFERED_BYTES
+	 * @see #DEFAULT_MAX_AGE_MILLIS
+	 */
+	public FragmentAssembler() {
+		this(DEFAULT_MAX_BUFFERED_BYTES, DEFAULT_MAX_AGE_MILLIS);
+	}
+
+	/**
+	 * Creates an assembler with specific limits
+	 * @param maxBufferedBytes approximate maximum memory in bytes to use for pending fragments
+	 * @param maxAgeMillis maximum time in milliseconds a group of fragments is kept since its first fragment arrived
+	 * @throws IllegalArgumentException if any of the limits is not positive
+	 */
+	public FragmentAssembler(final long maxBufferedBytes, final long maxAgeMillis) {
+		Validate.isTrue(maxBufferedBytes > 0, "maxBufferedBytes must be positive");
+		Validate.isTrue(maxAgeMillis > 0, "maxAgeMillis must be positive");
+		this.maxBufferedBytes = maxBufferedBytes;
+		this.maxAgeMillis = maxAgeMillis;
+	}
+
+	/**
+	 * Adds a message to the assembler.
+	 *
+	 * <p>If the message is not a fragment it is returned as is. If it is a fragment, it is buffered and
+	 * the merged message is returned only when this is the missing fragment that completes its group.
+	 * Fragments with a number already buffered for the same group are ignored.
+	 *
+	 * @param fragment a message, can be a fragment or not
+	 * @return the merged message if the group is complete, the message parameter if it is not a fragment, or null otherwise
+	 * @throws IllegalArgumentException if the message is null
+	 */
+	public SwiftMessage add(final SwiftMessage fragment) {
+		Validate.notNull(fragment, "message to add must not be null");
+		if (!fragment.isFragment()) {
+			return fragment;
+		}
+		evictExpired();
+
+		final int number;
+		final int count;
+		try {
+			number = fragment.fragmentNumber();
+			count = fragment.fragmentCount();
+		} catch (final UnsupportedOperationException e) {
+			log.log(Level.WARNING, "Ignoring fragment with invalid fields 202/203: " + e.getMessage());
+			return null;
+		}
+		if (count < 1 || number < 1 || number > count) {
+			log.warning("Ignoring fragment " + number + " of " + count + ", invalid fragment number");
+			return null;
+		}
+
+		final Key key = new Key(SwiftMessageUtils.reference(fragment), fragment.getSender());
+		final long size = estimateSize(fragment);
+
+		while (true) {
+			final Group group = pending.computeIfAbsent(key, k -> {
+				final Group g = new Group(k, count, now());
+				synchronized (arrivalOrder) {
+					arrivalOrder.add(g);
+				}
+				return g;
+			});
+			SwiftMessage[] complete = null;
+			synchronized (group) {
+				if (group.released) {
+					// the group was evicted or completed concurrently, retry with a fresh one
+					continue;
+				}
+				if (group.fragments.length != count) {
+					log.warning("Ignoring fragment " + number + " of " + count + " for " + key + ", expected " + group.fragments.length + " fragments");
+					return null;
+				}
+				if (group.fragments[number - 1] != null) {
+					log.fine("Ignoring duplicate fragment " + number + " of " + count + " for " + key);
+					return null;
+				}
+				group.fragments[number - 1] = fragment;
+				group.bytes += size;
+				group.received++;
+				bufferedBytes.addAndGet(size);
+				if (group.received == count) {
+					complete = group.fragments;
+					release(group);
+				}
+			}
+			if (complete != null) {
+				return merge(complete);
+			}
+			ensureBudget(group);
+			return null;
+		}
+	}
+
+	/**
+	 * Discards all pending groups whose first fragment arrived more than the maximum age ago.
+	 * This is called automatically on each {@link #add(SwiftMessage)} but can be invoked
+	 * periodically to release memory when no fragments are received.
+	 *
+	 * @return the number of discarded groups
+	 */
+	public int evictExpired() {
+		final long limit = now() - maxAgeMillis;
+		int result = 0;
+		Group oldest;
+		while ((oldest = pollOldest(limit)) != null) {
+			if (evict(oldest, "expired")) {
+				result++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of groups with at least one fragment waiting for the rest of its fragments
+	 */
+	public int pendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * @return the approximate memory in bytes currently used by pending fragments
+	 */
+	public long bufferedBytes() {
+		return bufferedBytes.get();
+	}
+
+	/**
+	 * @return the number of incomplete groups discarded so far, either expired or to keep the memory budget
+	 */
+	public long evictedCount() {
+		return evictedGroups.get();
+	}
+
+	/**
+	 * Discards all pending fragments
+	 */
+	public void clear() {
+		Group g;
+		while ((g = pollOldest(Long.MAX_VALUE)) != null) {
+			synchronized (g) {
+				if (!g.released) {
+					release(g);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Current time in milliseconds, used to expire pending groups
+	 */
+	protected long now() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Discards the oldest groups until the buffered fragments fit into the memory budget.
+	 * The group receiving the fragment is discarded only if it is the only one left.
+	 */
+	private void ensureBudget(final Group current) {
+		Group oldest;
+		while (bufferedBytes.get() > maxBufferedBytes && (oldest = pollOldest(Long.MAX_VALUE)) != null) {
+			evict(oldest, "memory budget exceeded");
+			if (oldest == current) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Removes the oldest group from the arrival order
+	 * @param limit maximum creation time of the group to remove
+	 * @return the removed group, or null if there are no groups created up to the limit
+	 */
+	private Group pollOldest(final long limit) {
+		synchronized (arrivalOrder) {
+			final Iterator<Group> it = arrivalOrder.iterator();
+			if (!it.hasNext()) {
+				return null;
+			}
+			final Group oldest = it.next();
+			if (oldest.created > limit) {
+				return null;
+			}
+			it.remove();
+			return oldest;
+		}
+	}
+
+	/**
+	 * @return the number of groups in the arrival order, for testing
+	 */
+	int queuedCount() {
+		synchronized (arrivalOrder) {
+			return arrivalOrder.size();
+		}
+	}
+
+	private boolean evict(final Group g, final String reason) {
+		synchronized (g) {
+			if (g.released) {
+				return false;
+			}
+			log.warning("Discarding " + g.received + " of " + g.fragments.length + " fragments for " + g.key + ": " + reason);
+			release(g);
+		}
+		evictedGroups.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Must be called while holding the group lock. The group is removed from the pending map and from the
+	 * arrival order, and its fragments are dropped.
+	 */
+	private void release(final Group g) {
+		g.released = true;
+		g.fragments = null;
+		pending.remove(g.key, g);
+		synchronized (arrivalOrder) {
+			arrivalOrder.remove(g);
+		}
+		bufferedBytes.addAndGet(-g.bytes);
+	}
+
+	/**
+	 * Builds the complete message from the ordered fragments
+	 */
+	private static SwiftMessage merge(final SwiftMessage[] fragments) {
+		final SwiftMessage first = fragments[0];
+		final SwiftMessage last = fragments[fragments.length - 1];
+		final SwiftMessage result = new SwiftMessage(false);
+		result.setBlock1(first.getBlock1());
+		result.setBlock2(first.getBlock2());
+		result.setBlock3(first.getBlock3());
+		final SwiftBlock4 b4 = new SwiftBlock4();
+		for (int i = 0; i < fragments.length; i++) {
+			final SwiftBlock4 fb4 = fragments[i].getBlock4();
+			for (final Tag t : fb4.getTags()) {
+				final String name = t.getName();
+				if (!StringUtils.equals(name, "202") && !StringUtils.equals(name, "203") && !(i > 0 && StringUtils.equals(name, "20"))) {
+					b4.append(t);
+				}
+			}
+		}
+		result.setBlock4(b4);
+		result.setBlock5(last.getBlock5());
+		if (first.getUserBlocks() != null) {
+			result.setUserBlocks(first.getUserBlocks());
+		}
+		return result;
+	}
+
+	/**
+	 * Approximate heap size of the fragment text block
+	 */
+	private static long estimateSize(final SwiftMessage m) {
+		long size = 0;
+		for (final Tag t : m.getBlock4().getTags()) {
+			size += TAG_OVERHEAD + 2L * (StringUtils.length(t.getName()) + StringUtils.length(t.getValue()));
+		}
+		return size;
+	}
+
+	/**
+	 * Identification of a fragmented message
+	 */
+	private static final class Key {
+		private final String reference;
+		private final String sender;
+
+		Key(final String reference, final String sender) {
+			this.reference = reference;
+			this.sender = sender;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			final Key key = (Key) o;
+			return Objects.equals(reference, key.reference) && Objects.equals(sender, key.sender);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(reference, sender);
+		}
+
+		@Override
+		public String toString() {
+			return "reference=" + reference + ", sender=" + sender;
+		}
+	}
+
+	/**
+	 * Fragments received so far for a given key
+	 */
+	private static final class Group {
+		private final Key key;
+		private final long created;
+		private SwiftMessage[] fragments;
+		private int received = 0;
+		private long bytes = 0;
+		private boolean released = false;
+
+		Group(final Key key, final int count, final long created) {
+			this.key = key;
+			this.fragments = new SwiftMessage[count];
+			this.created = created;
+		}
+	}
+
+}
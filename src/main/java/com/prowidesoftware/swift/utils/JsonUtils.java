@@ -0,0 +1,68 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.prowidesoftware.swift.model.SwiftBlock2;
+import com.prowidesoftware.swift.model.SwiftBlock2TypeAdapter;
+import com.prowidesoftware.swift.model.SwiftMessage;
+import com.prowidesoftware.swift.model.SwiftMessageTypeAdapter;
+import com.prowidesoftware.swift.model.mt.AbstractMT;
+import com.prowidesoftware.swift.model.mt.AbstractMTTypeAdapter;
+
+/**
+ * Shared Gson instances for the JSON serialization of the MT model.
+ *
+ * <p>Gson instances are thread safe and cache the type adapters resolved by reflection, so creating a new instance
+ * for each conversion repeats that work for every message. The instances provided here are created once, with the
+ * streaming adapters for {@link SwiftMessage}, {@link SwiftBlock2} and {@link AbstractMT} registered; any other class,
+ * such as the header blocks, is serialized with the default Gson reflective strategy.
+ *
+ * @since 8.0.2
+ */
+public class JsonUtils {
+
+	private static final Gson GSON = builder().create();
+	private static final Gson PRETTY_GSON = builder().setPrettyPrinting().create();
+
+	// Suppress default constructor for noninstantiability
+	private JsonUtils() {
+		throw new AssertionError();
+	}
+
+	private static GsonBuilder builder() {
+		return new GsonBuilder()
+				.registerTypeAdapter(SwiftMessage.class, new SwiftMessageTypeAdapter())
+				.registerTypeAdapter(SwiftBlock2.class, new SwiftBlock2TypeAdapter())
+				.registerTypeHierarchyAdapter(AbstractMT.class, new AbstractMTTypeAdapter());
+	}
+
+	/**
+	 * @return a shared Gson instance producing compact JSON
+	 */
+	public static Gson gson() {
+		return GSON;
+	}
+
+	/**
+	 * @return a shared Gson instance producing JSON with pretty printing
+	 */
+	public static Gson prettyGson() {
+		return PRETTY_GSON;
+	}
+
+}
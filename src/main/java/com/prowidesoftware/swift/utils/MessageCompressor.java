@@ -0,0 +1,186 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.utils;
+
+import com.prowidesoftware.ProwideException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression of raw message content (FIN or XML) for storage.
+ *
+ * <p>The content is deflated with a preset dictionary of the most common SWIFT block and field tokens and
+ * ISO 20022 element names, so that even small messages compress well, since the first occurrences of the tags are
+ * already known by the compressor. The compressed bytes start with a two bytes header with a zero byte and the
+ * dictionary version, that no FIN or XML text starts with. Content that would not get smaller is kept as plain UTF-8
+ * bytes, and {@link #decompress(byte[])} accepts both, so existing plain content can be read after enabling the
+ * compression.
+ *
+ * <p>The native compressor and decompressor are created for each call and ended right after, so their native
+ * memory is released without waiting for finalization. This class is thread safe.
+ *
+ * @see com.prowidesoftware.swift.model.CompressedMessageConverter
+ * @since 8.0.2
+ */
+public final class MessageCompressor {
+
+	private static final byte MARKER = 0;
+	private static final byte VERSION_1 = 1;
+	private static final int HEADER_LENGTH = 2;
+
+	/*
+	 * Version 1 dictionary. Deflate references closer strings with fewer bits, so the most frequent tokens are at
+	 * the end. This content must never change, a different dictionary requires a new version.
+	 */
+	private static final byte[] DICTIONARY_1 = (
+			// ISO 20022 elements
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<RequestPayload><AppHdr xmlns=\"urn:iso:std:iso:20022:tech:xsd:head.001.001.01\">"
+			+ "<AppHdr xmlns=\"urn:iso:std:iso:20022:tech:xsd:head.001.001.02\">"
+			+ "<CharSet></CharSet><BizSvc>swift.cbprplus.01</BizSvc><CpyDplct>COPY</CpyDplct><PssblDplct>false</PssblDplct><Prty>NORM</Prty>"
+			+ "<Document xmlns=\"urn:iso:std:iso:20022:tech:xsd:"
+			+ " xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">"
+			+ "<FIToFICstmrCdtTrf><FICdtTrf><FIToFIPmtStsRpt><BkToCstmrStmt><BkToCstmrDbtCdtNtfctn><CstmrCdtTrfInitn>"
+			+ "<Stmt><ElctrncSeqNb></ElctrncSeqNb><FrToDt><FrDtTm></FrDtTm><ToDtTm></ToDtTm></FrToDt>"
+			+ "<Bal><Tp><CdOrPrtry><Cd>OPBD</Cd></CdOrPrtry></Tp><Cd>CLBD</Cd><Dt><Dt></Dt></Dt></Bal>"
+			+ "<Ntry><NtryRef></NtryRef><Sts><Cd>BOOK</Cd></Sts><BookgDt></BookgDt><ValDt></ValDt><AcctSvcrRef></AcctSvcrRef>"
+			+ "<BkTxCd><Domn><Fmly><SubFmlyCd></SubFmlyCd></Fmly></Domn><Prtry></Prtry></BkTxCd>"
+			+ "<NtryDtls><TxDtls><Refs></Refs><AmtDtls><InstdAmt></InstdAmt><TxAmt></TxAmt></AmtDtls><RltdPties></RltdPties><RltdAgts></RltdAgts></TxDtls></NtryDtls></Ntry>"
+			+ "<TxSts>ACSP</TxSts><StsRsnInf><Rsn></Rsn><AddtlInf></AddtlInf></StsRsnInf><OrgnlGrpInf><OrgnlMsgId></OrgnlMsgId><OrgnlMsgNmId></OrgnlMsgNmId></OrgnlGrpInf>"
+			+ "<OrgnlInstrId></OrgnlInstrId><OrgnlEndToEndId></OrgnlEndToEndId><OrgnlTxId></OrgnlTxId><OrgnlUETR></OrgnlUETR>"
+			+ "<PmtInf><PmtInfId></PmtInfId><PmtMtd>TRF</PmtMtd><ReqdExctnDt></ReqdExctnDt>"
+			+ "<PmtTpInf><InstrPrty>NORM</InstrPrty><SvcLvl><Cd>SEPA</Cd></SvcLvl><LclInstrm></LclInstrm><CtgyPurp></CtgyPurp></PmtTpInf>"
+			+ "<SttlmInf><SttlmMtd>INDA</SttlmMtd><SttlmMtd>INGA</SttlmMtd><SttlmMtd>COVE</SttlmMtd><SttlmAcct></SttlmAcct><ClrSys></ClrSys></SttlmInf>"
+			+ "<IntrBkSttlmDt></IntrBkSttlmDt><ChrgBr>SHAR</ChrgBr><ChrgBr>DEBT</ChrgBr><ChrgBr>CRED</ChrgBr><ChrgsInf></ChrgsInf>"
+			+ "<UltmtDbtr></UltmtDbtr><UltmtCdtr></UltmtCdtr><InitgPty></InitgPty><IntrmyAgt1></IntrmyAgt1><IntrmyAgt1Acct></IntrmyAgt1Acct>"
+			+ "<PrvsInstgAgt1></PrvsInstgAgt1><Purp></Purp><RgltryRptg></RgltryRptg>"
+			+ "<RmtInf><Ustrd></Ustrd><Strd><RfrdDocInf></RfrdDocInf><CdtrRefInf></CdtrRefInf></Strd></RmtInf>"
+			+ "<PstlAdr><AdrTp></AdrTp><Dept></Dept><StrtNm></StrtNm><BldgNb></BldgNb><PstCd></PstCd><TwnNm></TwnNm><CtrySubDvsn></CtrySubDvsn><Ctry></Ctry><AdrLine></AdrLine></PstlAdr>"
+			+ "<Id><OrgId><AnyBIC></AnyBIC><LEI></LEI><Othr><Id></Id><SchmeNm><Cd></Cd><Prtry></Prtry></SchmeNm><Issr></Issr></Othr></OrgId><PrvtId></PrvtId></Id>"
+			+ "<Acct><Id><IBAN></IBAN></Id><Ccy></Ccy><Svcr></Svcr><Ownr></Ownr></Acct>"
+			+ "<ClrSysMmbId><ClrSysId><Cd></Cd></ClrSysId><MmbId></MmbId></ClrSysMmbId>"
+			+ "<Dbtr><Nm></Nm></Dbtr><DbtrAcct></DbtrAcct><DbtrAgt></DbtrAgt><DbtrAgtAcct></DbtrAgtAcct>"
+			+ "<Cdtr><Nm></Nm></Cdtr><CdtrAcct></CdtrAcct><CdtrAgt></CdtrAgt><CdtrAgtAcct></CdtrAgtAcct>"
+			+ "<InstgAgt></InstgAgt><InstdAgt></InstdAgt>"
+			+ "<CdtTrfTxInf><PmtId><InstrId></InstrId><EndToEndId></EndToEndId><TxId></TxId><UETR></UETR></PmtId>"
+			+ "<IntrBkSttlmAmt Ccy=\"EUR\"></IntrBkSttlmAmt><InstdAmt Ccy=\"USD\"></InstdAmt><Amt Ccy=\"\"></Amt><CdtDbtInd>CRDT</CdtDbtInd><CdtDbtInd>DBIT</CdtDbtInd>"
+			+ "<GrpHdr><MsgId></MsgId><CreDtTm></CreDtTm><NbOfTxs>1</NbOfTxs><CtrlSum></CtrlSum><TtlIntrBkSttlmAmt></TtlIntrBkSttlmAmt></GrpHdr>"
+			+ "<Fr><FIId><FinInstnId><BICFI></BICFI></FinInstnId></FIId></Fr><To><FIId><FinInstnId><BICFI></BICFI></FinInstnId></FIId></To>"
+			+ "<BizMsgIdr></BizMsgIdr><MsgDefIdr></MsgDefIdr><CreDt></CreDt></AppHdr></Document></RequestPayload>"
+			// FIN blocks and fields
+			+ "{5:{MAC:}{CHK:}{TNG:}{PDE:}{PDM:}}{S:{SAC:}{COP:P}}"
+			+ "\r\n:13C:/CLSTIME/\r\n:23E:\r\n:26T:\r\n:33B:\r\n:36:\r\n:51A:\r\n:52D:\r\n:53B:\r\n:54A:\r\n:55A:\r\n:56A:\r\n:58D:"
+			+ "\r\n:77B:/ORDERRES/\r\n:21:NONREF\r\n:28C:\r\n:25:\r\n:60F:C\r\n:60M:\r\n:61:\r\n:86:\r\n:62F:C\r\n:62M:\r\n:64:C\r\n:65:"
+			+ "\r\n:30:\r\n:30V:\r\n:30T:\r\n:22A:NEWT\r\n:94A:AGNT\r\n:82A:\r\n:87A:\r\n:15A:\r\n:15B:\r\n:17R:\r\n:57D:\r\n:58A:"
+			+ "\r\n:16R:GENL\r\n:16S:GENL\r\n:20C::SEME//\r\n:23G:NEWM\r\n:98A::PREP//\r\n:16R:LINK\r\n:20C::PREV//\r\n:16S:LINK"
+			+ "{1:F01}{2:O}{3:{103:}{108:}{111:001}{121:}{433:}}"
+			+ "{1:F21}{4:{177:}{451:0}}"
+			+ "{1:F01XXXXXXXXAXXX0000000000}{2:I103XXXXXXXXXXXXN}{2:I202XXXXXXXXXXXXN}{3:{108:}{121:}}"
+			+ "{4:\r\n:20:\r\n:23B:CRED\r\n:32A:\r\n:50K:/\r\n:50A:\r\n:52A:\r\n:53A:\r\n:57A:\r\n:59:/\r\n:59A:\r\n:70:/\r\n:71A:SHA\r\n:71A:OUR\r\n:72:/\r\n-}"
+			).getBytes(StandardCharsets.UTF_8);
+
+	private MessageCompressor() {
+	}
+
+	/**
+	 * Compresses the content
+	 * @param content the raw message content
+	 * @return the compressed bytes, or the plain UTF-8 bytes if the content does not get smaller, or null if the content is null
+	 */
+	public static byte[] compress(final String content) {
+		if (content == null) {
+			return null;
+		}
+		final byte[] plain = content.getBytes(StandardCharsets.UTF_8);
+		if (plain.length <= HEADER_LENGTH) {
+			return plain;
+		}
+		final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			deflater.setDictionary(DICTIONARY_1);
+			deflater.setInput(plain);
+			deflater.finish();
+			// anything not smaller than the plain content is discarded
+			final byte[] result = new byte[plain.length];
+			result[0] = MARKER;
+			result[1] = VERSION_1;
+			int length = HEADER_LENGTH;
+			while (!deflater.finished() && length < result.length) {
+				length += deflater.deflate(result, length, result.length - length);
+			}
+			if (!deflater.finished()) {
+				return plain;
+			}
+			return Arrays.copyOf(result, length);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Restores the content
+	 * @param data content returned by {@link #compress(String)}, or plain UTF-8 content
+	 * @return the raw message content or null if the data is null
+	 * @throws ProwideException if the data is compressed but it is corrupted or uses an unknown dictionary version
+	 */
+	public static String decompress(final byte[] data) {
+		if (data == null) {
+			return null;
+		}
+		if (!isCompressed(data)) {
+			return new String(data, StandardCharsets.UTF_8);
+		}
+		if (data[1] != VERSION_1) {
+			throw new ProwideException("unknown compressed message version " + data[1]);
+		}
+		final Inflater inflater = new Inflater(true);
+		try {
+			// raw deflate data does not signal the dictionary, it is always set
+			inflater.setDictionary(DICTIONARY_1);
+			inflater.setInput(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+			byte[] result = new byte[Math.max(64, data.length * 4)];
+			int length = 0;
+			while (!inflater.finished()) {
+				if (length == result.length) {
+					result = Arrays.copyOf(result, result.length * 2);
+				}
+				final int inflated = inflater.inflate(result, length, result.length - length);
+				if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new ProwideException("truncated compressed message");
+				}
+				length += inflated;
+			}
+			return new String(result, 0, length, StandardCharsets.UTF_8);
+		} catch (final DataFormatException e) {
+			throw new ProwideException("corrupted compressed message", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * @param data stored content
+	 * @return true if the data was compressed by {@link #compress(String)}, false if it is plain content
+	 */
+	public static boolean isCompressed(final byte[] data) {
+		return data != null && data.length > HEADER_LENGTH && data[0] == MARKER;
+	}
+
+}
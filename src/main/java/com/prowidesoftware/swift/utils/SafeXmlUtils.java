@@ -6,9 +6,14 @@ import org.xml.sax.SAXNotRecognizedException;
 import org.xml.sax.SAXNotSupportedException;
 import org.xml.sax.XMLReader;
 
+import java.io.InputStream;
+import java.io.Reader;
+
 import javax.xml.XMLConstants;
 import javax.xml.parsers.*;
 import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
@@ -19,11 +24,28 @@ import javax.xml.validation.Validator;
 /**
  * Reusable safe XML document builder to prevent XXE
  * https://cheatsheetseries.owasp.org/cheatsheets/XML_External_Entity_Prevention_Cheat_Sheet.html
+ *
+ * <p>The hardened factories are created once and cached, the StAX input factory is shared internally by the
+ * createXMLStreamReader methods and the JAXP factories, that are not thread safe, are kept per thread. Parsers can also be reused per thread, with
+ * {@link #reusableReader(boolean)} and {@link #reusableDocumentBuilder(boolean)}.
  * @since 8.0.5
  */
 public class SafeXmlUtils {
     private static transient final java.util.logging.Logger log = java.util.logging.Logger.getLogger(SafeXmlUtils.class.getName());
 
+    private static final XMLInputFactory INPUT_FACTORY = inputFactory();
+
+    private static final ThreadLocal<DocumentBuilderFactory> DOCUMENT_BUILDER_FACTORY = ThreadLocal.withInitial(() -> documentBuilderFactory(false));
+    private static final ThreadLocal<DocumentBuilderFactory> DOCUMENT_BUILDER_FACTORY_NS = ThreadLocal.withInitial(() -> documentBuilderFactory(true));
+    private static final ThreadLocal<SAXParserFactory> PARSER_FACTORY = ThreadLocal.withInitial(() -> parserFactory(false, null));
+    private static final ThreadLocal<SAXParserFactory> PARSER_FACTORY_NS = ThreadLocal.withInitial(() -> parserFactory(true, null));
+    private static final ThreadLocal<TransformerFactory> TRANSFORMER_FACTORY = ThreadLocal.withInitial(SafeXmlUtils::transformerFactory);
+
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER = ThreadLocal.withInitial(() -> documentBuilder(false));
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER_NS = ThreadLocal.withInitial(() -> documentBuilder(true));
+    private static final ThreadLocal<XMLReader> READER = ThreadLocal.withInitial(() -> reader(false, null));
+    private static final ThreadLocal<XMLReader> READER_NS = ThreadLocal.withInitial(() -> reader(true, null));
+
     // Suppress default constructor for noninstantiability
     private SafeXmlUtils() {
         throw new AssertionError();
@@ -39,11 +61,35 @@ public class SafeXmlUtils {
     }
 
     /**
-     * Safe DOM parsing
+     * Safe DOM parsing, the builder is created from a cached factory
      * @param namespaceAware factory awareness
      * @throws ProwideException if the parser cannot be configured
      */
     public static DocumentBuilder documentBuilder(boolean namespaceAware) {
+        try {
+            return (namespaceAware ? DOCUMENT_BUILDER_FACTORY_NS : DOCUMENT_BUILDER_FACTORY).get().newDocumentBuilder();
+
+        } catch (ParserConfigurationException e) {
+            throw new ProwideException("Error configuring the XML document builder.", e);
+        }
+    }
+
+    /**
+     * Safe DOM parsing, reusing a builder per thread.
+     * <p>The returned builder is reset and it is the same instance for all calls from the current thread, so it must
+     * not be kept or shared with other threads, and a new call will reset it. For a new builder use
+     * {@link #documentBuilder(boolean)}.
+     * @param namespaceAware factory awareness
+     * @throws ProwideException if the parser cannot be configured
+     * @since 8.0.2
+     */
+    public static DocumentBuilder reusableDocumentBuilder(boolean namespaceAware) {
+        DocumentBuilder builder = (namespaceAware ? DOCUMENT_BUILDER_NS : DOCUMENT_BUILDER).get();
+        builder.reset();
+        return builder;
+    }
+
+    private static DocumentBuilderFactory documentBuilderFactory(boolean namespaceAware) {
         String feature = null;
         try {
             DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
@@ -65,7 +111,7 @@ public class SafeXmlUtils {
             // set parameter
             dbf.setNamespaceAware(namespaceAware);
 
-            return dbf.newDocumentBuilder();
+            return dbf;
 
         } catch (ParserConfigurationException e) {
             throw new ProwideException("Error configuring the XML document builder. " +
@@ -83,7 +129,7 @@ public class SafeXmlUtils {
     }
 
     /**
-     * Safe SAX parser
+     * Safe SAX parser, the reader is created from a cached factory when the schema is not set
      * @param namespaceAware SAX factory awareness
      * @param schema optional schema if the reader will be used for validaiton, null to ignore
      * @throws ProwideException if the parser cannot be configured
@@ -91,26 +137,11 @@ public class SafeXmlUtils {
     public static XMLReader reader(boolean namespaceAware, Schema schema) throws ProwideException {
         String feature = null;
         try {
-            SAXParserFactory spf = SAXParserFactory.newInstance();
-
-            feature = XMLConstants.FEATURE_SECURE_PROCESSING;
-            spf.setFeature(feature, true );
-
-            // Xerces 1 - http://xerces.apache.org/xerces-j/features.html#external-general-entities
-            // Xerces 2 - http://xerces.apache.org/xerces2-j/features.html#external-general-entities
-
-            // Using the SAXParserFactory's setFeature
-            feature = "http://xml.org/sax/features/external-general-entities";
-            spf.setFeature(feature, false);
-
-            // Xerces 2 only - http://xerces.apache.org/xerces-j/features.html#external-general-entities
-            feature = "http://apache.org/xml/features/disallow-doctype-decl";
-            spf.setFeature(feature, true);
-
-            // set parameters
-            spf.setNamespaceAware(namespaceAware);
+            SAXParserFactory spf;
             if (schema != null) {
-                spf.setSchema(schema);
+                spf = parserFactory(namespaceAware, schema);
+            } else {
+                spf = (namespaceAware ? PARSER_FACTORY_NS : PARSER_FACTORY).get();
             }
 
             SAXParser saxParser = spf.newSAXParser();
@@ -140,7 +171,61 @@ public class SafeXmlUtils {
     }
 
     /**
-     * Safe StAX parser
+     * Safe SAX parser, reusing a reader per thread.
+     * <p>The returned reader has no handlers set, and it is the same instance for all calls from the current thread,
+     * so it must not be kept or shared with other threads, and it cannot be used to parse a nested document while
+     * parsing. For a new reader use {@link #reader(boolean, Schema)}.
+     * @param namespaceAware SAX factory awareness
+     * @throws ProwideException if the parser cannot be configured
+     * @since 8.0.2
+     */
+    public static XMLReader reusableReader(boolean namespaceAware) {
+        XMLReader reader = (namespaceAware ? READER_NS : READER).get();
+        reader.setContentHandler(null);
+        reader.setErrorHandler(null);
+        reader.setDTDHandler(null);
+        reader.setEntityResolver(null);
+        return reader;
+    }
+
+    private static SAXParserFactory parserFactory(boolean namespaceAware, Schema schema) {
+        String feature = null;
+        try {
+            SAXParserFactory spf = SAXParserFactory.newInstance();
+
+            feature = XMLConstants.FEATURE_SECURE_PROCESSING;
+            spf.setFeature(feature, true );
+
+            // Xerces 1 - http://xerces.apache.org/xerces-j/features.html#external-general-entities
+            // Xerces 2 - http://xerces.apache.org/xerces2-j/features.html#external-general-entities
+
+            // Using the SAXParserFactory's setFeature
+            feature = "http://xml.org/sax/features/external-general-entities";
+            spf.setFeature(feature, false);
+
+            // Xerces 2 only - http://xerces.apache.org/xerces-j/features.html#external-general-entities
+            feature = "http://apache.org/xml/features/disallow-doctype-decl";
+            spf.setFeature(feature, true);
+
+            // set parameters
+            spf.setNamespaceAware(namespaceAware);
+            if (schema != null) {
+                spf.setSchema(schema);
+            }
+
+            return spf;
+
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new ProwideException("Error configuring the XML parser. " +
+                    "The feature " + feature + " is probably not supported by your XML processor.", e);
+        }
+    }
+
+    /**
+     * Safe StAX parser.
+     * <p>Each call returns a new factory that can be configured by the caller. To just create a reader use
+     * {@link #createXMLStreamReader(Reader)} or {@link #createXMLStreamReader(InputStream)}, that reuse a cached
+     * factory.
      * @throws ProwideException if the parser cannot be configured
      */
     public static XMLInputFactory inputFactory() {
@@ -156,9 +241,39 @@ public class SafeXmlUtils {
     }
 
     /**
-     * Safe transformer
+     * Creates a safe StAX reader from a shared hardened factory, that is created once and never exposed
+     * @param reader the XML source
+     * @throws XMLStreamException if the reader cannot be created
+     * @since 8.0.2
+     */
+    public static XMLStreamReader createXMLStreamReader(Reader reader) throws XMLStreamException {
+        return INPUT_FACTORY.createXMLStreamReader(reader);
+    }
+
+    /**
+     * Creates a safe StAX reader from a shared hardened factory, that is created once and never exposed.
+     * The encoding is detected from the XML declaration.
+     * @param stream the XML source
+     * @throws XMLStreamException if the reader cannot be created
+     * @since 8.0.2
+     */
+    public static XMLStreamReader createXMLStreamReader(InputStream stream) throws XMLStreamException {
+        return INPUT_FACTORY.createXMLStreamReader(stream);
+    }
+
+    /**
+     * Safe transformer, created from a cached factory
      */
     public static Transformer transformer() {
+        try {
+            return TRANSFORMER_FACTORY.get().newTransformer();
+
+        } catch (TransformerConfigurationException e) {
+            throw new ProwideException("Error configuring the XML transformer.", e);
+        }
+    }
+
+    private static TransformerFactory transformerFactory() {
         String feature = null;
         try {
             TransformerFactory tf = TransformerFactory.newInstance();
@@ -169,9 +284,9 @@ public class SafeXmlUtils {
             feature = XMLConstants.ACCESS_EXTERNAL_STYLESHEET;
             tf.setAttribute(feature, "");
 
-            return tf.newTransformer();
+            return tf;
 
-        } catch (TransformerConfigurationException e) {
+        } catch (IllegalArgumentException e) {
             throw new ProwideException("Error configuring the XML transformer factory. " +
                     "The feature " + feature + " is probably not supported by your XML processor.", e);
         }
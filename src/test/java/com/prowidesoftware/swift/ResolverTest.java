@@ -0,0 +1,79 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.prowidesoftware.swift.model.MxId;
+import com.prowidesoftware.swift.model.mx.AbstractMX;
+import com.prowidesoftware.swift.model.mx.MxRead;
+import com.prowidesoftware.swift.model.mx.MxWrite;
+
+/**
+ * Tests for {@link Resolver}
+ *
+ * @since 8.0.2
+ */
+public class ResolverTest {
+
+	@After
+	public void reset() {
+		Resolver.register((MxRead) null);
+		Resolver.register((MxWrite) null);
+	}
+
+	@Test
+	public void testDefaultsAreCached() {
+		assertEquals(MxReadCoreV1.class, Resolver.mxRead().getClass());
+		assertSame(Resolver.mxRead(), Resolver.mxRead());
+		assertEquals(MxWriteCoreV1.class, Resolver.mxWrite().getClass());
+		assertSame(Resolver.mxWrite(), Resolver.mxWrite());
+	}
+
+	@Test
+	public void testRegister() {
+		MxWrite write = new MxWrite() {
+			@Override
+			public String message(String namespace, AbstractMX obj, @SuppressWarnings("rawtypes") Class[] classes, String prefix, boolean includeXMLDeclaration) {
+				return "<Document/>";
+			}
+		};
+		MxRead read = new MxRead() {
+			@Override
+			public AbstractMX read(Class<? extends AbstractMX> targetClass, String xml, Class<? extends Object>[] classes) {
+				return null;
+			}
+
+			@Override
+			public AbstractMX read(String xml, MxId id) {
+				return null;
+			}
+		};
+		Resolver.register(write);
+		Resolver.register(read);
+		assertSame(write, Resolver.mxWrite());
+		assertSame(read, Resolver.mxRead());
+
+		// back to the default resolution
+		Resolver.register((MxWrite) null);
+		assertEquals(MxWriteCoreV1.class, Resolver.mxWrite().getClass());
+	}
+
+}
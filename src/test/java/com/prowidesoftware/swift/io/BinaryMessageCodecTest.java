@@ -0,0 +1,181 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.text.StringEscapeUtils;
+import org.junit.Test;
+
+import com.prowidesoftware.ProwideException;
+import com.prowidesoftware.swift.model.SwiftBlockUser;
+import com.prowidesoftware.swift.model.SwiftMessage;
+import com.prowidesoftware.swift.model.Tag;
+import com.prowidesoftware.swift.model.mt.mt1xx.MT103;
+
+/**
+ * Tests for {@link BinaryMessageCodec}
+ *
+ * @since 8.0.2
+ */
+public class BinaryMessageCodecTest {
+
+	private static final String FIN = "{1:F01AAAAUSC0ADDD0344000050}{2:O1030919010321BBBBGB22AXXX00570001710103210920N}{3:{108:MUR}}{4:\r\n" +
+			":20:5387354\r\n" +
+			":23B:CRED\r\n" +
+			":32A:000526USD1101,50\r\n" +
+			":50K:/12345\r\n" +
+			"JOHN DOE\r\n" +
+			":59:/54321\r\n" +
+			"JANE DOE\r\n" +
+			":71A:OUR\r\n" +
+			"-}{5:{CHK:ABCDEF123456}}";
+
+	private final BinaryMessageCodec codec = new BinaryMessageCodec();
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		SwiftMessage m = SwiftMessage.parse(FIN);
+		m.getUnparsedTexts().addText("{1:F01AAAAUSC0ADDD0344000050}");
+		m.getBlock4().append(new Tag("70", "PAGO ESPAÑA"));
+		m.addUserBlock(new SwiftBlockUser("S"));
+		m.getUserBlock("S").append(new Tag("SAC", ""));
+
+		byte[] bytes = codec.encode(m);
+		assertEquals(codec.encodedLength(m), bytes.length);
+		SwiftMessage back = codec.decode(bytes);
+		assertSameMessage(m, back);
+		assertEquals("PAGO ESPAÑA", back.getBlock4().getTagValue("70"));
+	}
+
+	@Test
+	public void testEmptyMessage() {
+		SwiftMessage m = new SwiftMessage(false);
+		SwiftMessage back = codec.decode(codec.encode(m));
+		assertNull(back.getBlock1());
+		assertNull(back.getBlock4());
+		assertEquals(0, (int) back.getUnparsedTextsSize());
+
+		m = new SwiftMessage(true);
+		assertSameMessage(m, codec.decode(codec.encode(m)));
+	}
+
+	@Test
+	public void testSize() throws IOException {
+		SwiftMessage m = new MT103(SwiftMessage.parse(FIN)).getSwiftMessage();
+		int length = codec.encodedLength(m);
+		assertTrue(length < FIN.length());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(out);
+		oos.writeObject(m);
+		oos.close();
+		assertTrue(length < out.size());
+	}
+
+	@Test
+	public void testSequenceInBuffer() throws IOException {
+		SwiftMessage m1 = SwiftMessage.parse(FIN);
+		SwiftMessage m2 = new MT103().getSwiftMessage();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+		int length = codec.encode(m1, buffer);
+		length += codec.encode(m2, buffer);
+		assertEquals(length, buffer.position());
+		buffer.flip();
+		assertSameMessage(m1, codec.decode(buffer));
+		assertSameMessage(m2, codec.decode(buffer));
+		assertEquals(0, buffer.remaining());
+	}
+
+	@Test(expected = BufferOverflowException.class)
+	public void testOverflow() throws IOException {
+		codec.encode(SwiftMessage.parse(FIN), ByteBuffer.allocate(10));
+	}
+
+	@Test
+	public void testInvalid() throws IOException {
+		byte[] bytes = codec.encode(SwiftMessage.parse(FIN));
+		assertInvalid(new byte[] {'F', 'O', 'O'});
+		assertInvalid(Arrays.copyOf(bytes, bytes.length / 2));
+		bytes[3] = 99;
+		assertInvalid(bytes);
+	}
+
+	private static void assertSameMessage(final SwiftMessage expected, final SwiftMessage actual) {
+		assertEquals(expected.getBlock1(), actual.getBlock1());
+		assertEquals(expected.getBlock2(), actual.getBlock2());
+		assertEquals(expected.getBlock3(), actual.getBlock3());
+		assertEquals(expected.getBlock4(), actual.getBlock4());
+		assertEquals(expected.getBlock5(), actual.getBlock5());
+		assertEquals(userBlocks(expected), userBlocks(actual));
+		assertEquals(expected.getUnparsedTextsSize(), actual.getUnparsedTextsSize());
+		assertEquals(new ConversionService().getFIN(expected), new ConversionService().getFIN(actual));
+	}
+
+	private static List<SwiftBlockUser> userBlocks(final SwiftMessage m) {
+		return m.getUserBlocks() != null ? m.getUserBlocks() : Collections.<SwiftBlockUser>emptyList();
+	}
+
+	private void assertInvalid(final byte[] bytes) {
+		try {
+			codec.decode(bytes);
+			fail("content should not be decoded");
+		} catch (final ProwideException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Messages encoded with each format version must be always decoded, and the encoding of a message must not
+	 * change within the same version.
+	 */
+	@Test
+	public void testCompatibilityCorpus() throws IOException {
+		int entries = 0;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(getClass().getResourceAsStream("/binary_codec_v1.txt"), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				byte[] encoded = Base64.getDecoder().decode(line);
+				String fin = StringEscapeUtils.unescapeJava(reader.readLine());
+				assertEquals(fin, new ConversionService().getFIN(codec.decode(encoded)));
+				assertArrayEquals(encoded, codec.encode(SwiftMessage.parse(fin)));
+				entries++;
+			}
+		}
+		assertEquals(6, entries);
+	}
+
+}
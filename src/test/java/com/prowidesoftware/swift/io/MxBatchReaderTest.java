@@ -0,0 +1,140 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.prowidesoftware.ProwideException;
+import com.prowidesoftware.swift.model.MxSwiftMessage;
+
+/**
+ * Tests for {@link MxBatchReader}
+ *
+ * @since 8.0.2
+ */
+public class MxBatchReaderTest {
+
+	private static String header(final String id) {
+		return "<h:AppHdr><h:Fr><h:FIId><h:FinInstnId><h:BICFI>AAAAUSXX</h:BICFI></h:FinInstnId></h:FIId></h:Fr>"
+				+ "<h:BizMsgIdr>" + id + "</h:BizMsgIdr><h:MsgDefIdr>pacs.008.001.08</h:MsgDefIdr></h:AppHdr>";
+	}
+
+	private static String document(final String id) {
+		return "<Document xmlns=\"urn:iso:std:iso:20022:tech:xsd:pacs.008.001.08\"><FIToFICstmrCdtTrf><GrpHdr>"
+				+ "<MsgId>" + id + "</MsgId></GrpHdr></FIToFICstmrCdtTrf></Document>";
+	}
+
+	private static String batch(final int count) {
+		StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		sb.append("<w:Batch xmlns:w=\"urn:example:batch\" xmlns:h=\"urn:iso:std:iso:20022:tech:xsd:head.001.001.01\">\n");
+		for (int i = 0; i < count; i++) {
+			sb.append("<w:Item>\n").append(header("H" + i)).append('\n').append(document("D" + i)).append("\n</w:Item>\n");
+		}
+		return sb.append("</w:Batch>").toString();
+	}
+
+	@Test
+	public void testOrder() {
+		MxBatchReader reader = new MxBatchReader(new ByteArrayInputStream(batch(500).getBytes(StandardCharsets.UTF_8)));
+		int count = 0;
+		while (reader.hasNext()) {
+			MxSwiftMessage msg = reader.next();
+			assertEquals("H" + count, msg.getReference());
+			assertEquals("pacs.008.001.08", msg.getIdentifier());
+			assertEquals("AAAAUSXXXXX", msg.getSender());
+			// the header prefix declared in the wrapper is declared in the extracted message
+			assertTrue(msg.message().contains("xmlns:h=\"urn:iso:std:iso:20022:tech:xsd:head.001.001.01\""));
+			count++;
+		}
+		assertEquals(500, count);
+		assertFalse(reader.hasNext());
+	}
+
+	@Test
+	public void testExecutor() {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			MxBatchReader reader = new MxBatchReader(new StringReader(batch(20)), executor);
+			int count = 0;
+			while (reader.hasNext()) {
+				assertEquals("H" + count++, reader.next().getReference());
+			}
+			assertEquals(20, count);
+			// the given executor is not shut down
+			assertFalse(executor.isShutdown());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testUnpaired() {
+		String xml = "<Batch xmlns:h=\"urn:iso:std:iso:20022:tech:xsd:head.001.001.01\">"
+				+ document("D1") + header("H2") + header("H3") + document("D3") + header("H4") + "</Batch>";
+		MxBatchReader reader = new MxBatchReader(xml);
+		MxSwiftMessage msg = reader.next();
+		assertEquals("D1", msg.getReference());
+		assertTrue(msg.message().startsWith("<Document"));
+		msg = reader.next();
+		assertEquals("H2", msg.getReference());
+		assertFalse(msg.message().contains("Document"));
+		assertEquals("H3", reader.next().getReference());
+		msg = reader.next();
+		assertEquals("H4", msg.getReference());
+		assertFalse(reader.hasNext());
+	}
+
+	@Test
+	public void testSingleMessage() {
+		MxBatchReader reader = new MxBatchReader("<RequestPayload xmlns:h=\"urn:iso:std:iso:20022:tech:xsd:head.001.001.01\">"
+				+ header("H1") + document("D1") + "</RequestPayload>");
+		assertEquals("H1", reader.next().getReference());
+		assertFalse(reader.hasNext());
+	}
+
+	@Test
+	public void testEmpty() {
+		MxBatchReader reader = new MxBatchReader("<Batch><Other>text</Other></Batch>");
+		assertFalse(reader.hasNext());
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testNoMoreMessages() {
+		MxBatchReader reader = new MxBatchReader("<Batch/>");
+		reader.next();
+	}
+
+	@Test(expected = ProwideException.class)
+	public void testMalformed() {
+		MxBatchReader reader = new MxBatchReader("<Batch>" + document("D1") + "<Document></Batch>");
+		while (reader.hasNext()) {
+			assertNull(reader.next().getReference());
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import com.prowidesoftware.swift.model.SwiftMessage;
+import com.prowidesoftware.swift.model.mt.AbstractMT;
+import com.prowidesoftware.swift.model.mt.mt1xx.MT103;
+import com.prowidesoftware.swift.model.mt.mt2xx.MT202;
+
+/**
+ * Tests for {@link NDJsonReader} and {@link NDJsonWriter}
+ *
+ * @since 8.0.2
+ */
+public class NDJsonReaderTest {
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		MT103 mt103 = new MT103();
+		mt103.setSender("AAAAUSC0XXXX");
+		mt103.setReceiver("BBBBGB22XXXX");
+		mt103.append(new com.prowidesoftware.swift.model.field.Field20("REF1"));
+		MT202 mt202 = new MT202();
+		mt202.append(new com.prowidesoftware.swift.model.field.Field20("REF2"));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		NDJsonWriter writer = new NDJsonWriter(out);
+		writer.write(mt103);
+		writer.write(mt202.getSwiftMessage());
+		writer.close();
+
+		String content = out.toString("UTF-8");
+		assertEquals(2, content.split("\n").length);
+		assertTrue(content.endsWith("\n"));
+
+		NDJsonReader reader = new NDJsonReader(new ByteArrayInputStream(out.toByteArray()));
+		AbstractMT first = reader.nextMT();
+		assertEquals(MT103.class, first.getClass());
+		assertEquals(mt103.message(), first.message());
+		SwiftMessage second = reader.nextSwiftMessage();
+		assertEquals("202", second.getType());
+		assertEquals("REF2", second.getBlock4().getTagValue("20"));
+		assertFalse(reader.hasNext());
+		assertNull(reader.nextSwiftMessage());
+	}
+
+	@Test
+	public void testBlankLines() throws IOException {
+		StringWriter out = new StringWriter();
+		NDJsonWriter writer = new NDJsonWriter(out);
+		writer.write(new MT103());
+		NDJsonReader reader = new NDJsonReader("\n  \n" + out + "\n\n");
+		assertTrue(reader.hasNext());
+		assertTrue(reader.hasNext());
+		assertEquals(out.toString().trim(), reader.next());
+		assertFalse(reader.hasNext());
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidLine() throws IOException {
+		new NDJsonReader("{\"data\":[\n").nextSwiftMessage();
+	}
+
+}
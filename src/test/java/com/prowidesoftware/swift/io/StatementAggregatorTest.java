@@ -0,0 +1,140 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link StatementAggregator}
+ *
+ * @since 8.0.2
+ */
+public class StatementAggregatorTest {
+
+	private static String page(final String type, final String account, final String statement, final String closing, final String... lines) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{1:F01FOOBARXXAXXX0000000000}{2:I").append(type).append("FOOBARXXXXXXN}{4:\n");
+		sb.append(":20:REF").append(statement).append("\n");
+		sb.append(":25:").append(account).append("\n");
+		sb.append(":28C:").append(statement).append("\n");
+		sb.append(":60M:C100915ZAR100,00\n");
+		for (String l : lines) {
+			sb.append(":61:1009150915C").append(l).append(",00FTRF").append(l).append("//").append(l).append("\n");
+			sb.append(":86:INFO ").append(l).append("\n");
+		}
+		sb.append(":").append(closing).append(":C100915ZAR200,00\n");
+		sb.append("-}");
+		return sb.toString();
+	}
+
+	private static List<String> references(final StatementAggregator.Statement s) {
+		List<String> result = new ArrayList<>();
+		for (StatementAggregator.Line l : s) {
+			result.add(l.getField61().getReferenceForTheAccountOwner());
+		}
+		return result;
+	}
+
+	@Test
+	public void testMultiPage() {
+		String rje = page("940", "ACC1", "00147/00001", "62M", "1", "2")
+				+ "$" + page("940", "ACC1", "00147/00002", "62M", "3")
+				+ "$" + page("940", "ACC1", "00147/00003", "62F", "4", "5")
+				+ "$" + page("950", "ACC2", "00010", "62F", "6");
+		StatementAggregator aggregator = new StatementAggregator(new RJEReader(rje));
+
+		assertTrue(aggregator.hasNext());
+		StatementAggregator.Statement s = aggregator.next();
+		assertEquals("ACC1", s.getAccount());
+		assertEquals("00147", s.getStatementNumber());
+		assertEquals("REF00147/00001", s.getReference());
+		assertEquals("940", s.getType());
+		assertEquals(Arrays.asList("1", "2", "3", "4", "5"), references(s));
+		assertEquals(3, s.getPageCount());
+		assertEquals("62F", s.getClosingBalance().getName());
+		assertTrue(s.isComplete());
+
+		assertTrue(aggregator.hasNext());
+		s = aggregator.next();
+		assertEquals("ACC2", s.getAccount());
+		StatementAggregator.Line line = s.iterator().next();
+		assertEquals("6,00", line.getField61().getAmount());
+		assertEquals("INFO 6", line.getField86().getNarrative());
+		assertEquals(1, line.getPage());
+		assertTrue(s.isComplete());
+
+		assertFalse(aggregator.hasNext());
+	}
+
+	@Test
+	public void testMissingAndDuplicatePages() {
+		String rje = page("940", "ACC1", "00147/00001", "62M", "1")
+				+ "$" + page("940", "ACC1", "00147/00001", "62M", "1")
+				+ "$" + page("940", "ACC1", "00147/00003", "62F", "3")
+				+ "$" + page("940", "ACC1", "00147/00003", "62F", "3");
+		StatementAggregator aggregator = new StatementAggregator(new RJEReader(rje));
+
+		StatementAggregator.Statement s = aggregator.next();
+		assertEquals(Arrays.asList("1", "3"), references(s));
+		assertEquals(Collections.singletonList(2), s.getMissingPages());
+		assertEquals(Collections.singletonList(1), s.getDuplicatePages());
+		assertFalse(s.isComplete());
+
+		// the repeated final page is detected when moving to the next statement
+		assertFalse(aggregator.hasNext());
+		assertEquals(Arrays.asList(1, 3), s.getDuplicatePages());
+	}
+
+	@Test
+	public void testIncompleteStatement() {
+		String rje = page("940", "ACC1", "00147/00001", "62M", "1", "2")
+				+ "$" + page("940", "ACC1", "00148/00001", "62F", "3");
+		StatementAggregator aggregator = new StatementAggregator(new RJEReader(rje));
+
+		StatementAggregator.Statement s = aggregator.next();
+		// next statement is requested without iterating the lines of the first one
+		StatementAggregator.Statement s2 = aggregator.next();
+		assertFalse(s.isComplete());
+		assertEquals("62M", s.getClosingBalance().getName());
+		assertEquals("00148", s2.getStatementNumber());
+		assertEquals(Collections.singletonList("3"), references(s2));
+		assertTrue(s2.isComplete());
+		assertFalse(aggregator.hasNext());
+	}
+
+	@Test
+	public void testOtherMessagesIgnored() {
+		String rje = "{1:F01FOOBARXXAXXX0000000000}{2:I103FOOBARXXXXXXN}{4:\n:20:REF\n-}"
+				+ "$" + page("950", "ACC1", "00001", "62F");
+		StatementAggregator aggregator = new StatementAggregator(new RJEReader(rje));
+		StatementAggregator.Statement s = aggregator.next();
+		assertEquals("950", s.getType());
+		assertFalse(s.iterator().hasNext());
+		assertTrue(s.isComplete());
+		assertEquals("60M", s.getOpeningBalance().getName());
+		assertFalse(aggregator.hasNext());
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import com.prowidesoftware.swift.io.parser.XMLParser;
+import com.prowidesoftware.swift.io.writer.FINWriterVisitor;
+import com.prowidesoftware.swift.model.SwiftMessage;
+
+/**
+ * Tests for {@link XMLBatchConverter}
+ *
+ * @since 8.0.2
+ */
+public class XMLBatchConverterTest {
+
+	private static final String MT103 = "{1:F01FOOBARXXAXXX0000000000}{2:I103FOOBARXXXXXXN}{4:\r\n:20:REF&1\r\n:23B:CRED\r\n:32A:180910EUR1234,56\r\n:50K:/12345\r\nJOHN DOE\r\n:59:FOO\r\n:71A:SHA\r\n-}";
+	private static final String MT202 = "{1:F01FOOBARXXAXXX0000000000}{2:I202FOOBARXXXXXXN}{3:{108:MUR}}{4:\r\n:20:REF<2>\r\n:21:RELATED\r\n:32A:180910USD100,\r\n:58A:FOOBARXX\r\n-}";
+
+	private static String rje(final String... messages) {
+		final String sep = FINWriterVisitor.SWIFT_EOL + RJEReader.SPLITCHAR + FINWriterVisitor.SWIFT_EOL;
+		return String.join(sep, messages);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		XMLBatchConverter converter = new XMLBatchConverter();
+		StringWriter xml = new StringWriter();
+		assertEquals(2, converter.rjeToXml(new StringReader(rje(MT103, MT202)), xml));
+		assertTrue(xml.toString().startsWith("<messages>"));
+
+		StringWriter out = new StringWriter();
+		assertEquals(2, converter.xmlToRje(new StringReader(xml.toString()), out));
+		assertEquals(rje(MT103, MT202), out.toString());
+	}
+
+	@Test
+	public void testUseField() throws IOException {
+		XMLBatchConverter converter = new XMLBatchConverter();
+		converter.setUseField(true);
+		StringWriter xml = new StringWriter();
+		converter.rjeToXml(new StringReader(rje(MT103)), xml);
+		assertTrue(xml.toString().contains("<component number=\"3\">1234,56</component>"));
+
+		StringWriter out = new StringWriter();
+		converter.xmlToRje(new StringReader(xml.toString()), out);
+		SwiftMessage m = SwiftMessage.parse(out.toString());
+		assertEquals("REF&1", m.getBlock4().getTagValue("20"));
+		assertEquals("/12345\r\nJOHN DOE", m.getBlock4().getTagValue("50K"));
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		XMLBatchConverter converter = new XMLBatchConverter();
+		StringWriter xml = new StringWriter();
+		assertEquals(0, converter.rjeToXml(new StringReader(""), xml));
+		assertNull(new XMLParser().parse(xml.toString()));
+		assertEquals(0, converter.xmlToRje(new StringReader(xml.toString()), new StringWriter()));
+	}
+
+}
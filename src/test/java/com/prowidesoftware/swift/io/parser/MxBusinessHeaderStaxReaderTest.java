@@ -0,0 +1,184 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io.parser;
+
+import com.prowidesoftware.swift.model.mx.BusinessHeader;
+import com.prowidesoftware.swift.model.mx.dic.ApplicationHeader;
+import com.prowidesoftware.swift.model.mx.dic.BusinessApplicationHeaderV01;
+import com.prowidesoftware.swift.utils.SafeXmlUtils;
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link MxBusinessHeaderStaxReader}
+ *
+ * @since 8.0.2
+ */
+public class MxBusinessHeaderStaxReaderTest {
+
+	private static final String BAH = "<AppHdr xmlns=\"urn:iso:std:iso:20022:tech:xsd:head.001.001.01\">"
+			+ "<CharSet>UTF-8</CharSet>"
+			+ "<Fr><FIId><FinInstnId><BICFI>AAAAUSXXXXX</BICFI>"
+			+ "<ClrSysMmbId><ClrSysId><Cd>USABA</Cd></ClrSysId><MmbId>123</MmbId></ClrSysMmbId>"
+			+ "<Othr><Id>1</Id><SchmeNm><Prtry>S</Prtry></SchmeNm><Issr>I</Issr></Othr></FinInstnId>"
+			+ "<BrnchId><Id>B</Id><Nm>BRANCH</Nm><PstlAdr><AdrTp>BIZZ</AdrTp><Dept>D</Dept><SubDept>SD</SubDept><Ctry>US</Ctry></PstlAdr></BrnchId></FIId></Fr>"
+			+ "<To><OrgId><Nm>RECEIVER</Nm><Id><OrgId><AnyBIC>BBBBUSXXXXX</AnyBIC></OrgId></Id><CtryOfRes>US</CtryOfRes>"
+			+ "<CtctDtls><NmPrfx>MIST</NmPrfx><Nm>JOHN</Nm><EmailAdr>foo@bar.com</EmailAdr></CtctDtls></OrgId></To>"
+			+ "<BizMsgIdr>REF</BizMsgIdr><MsgDefIdr>pacs.008.001.08</MsgDefIdr><BizSvc>swift.cbprplus.01</BizSvc>"
+			+ "<CreDt>2018-10-01T10:00:00Z</CreDt><CpyDplct>COPY</CpyDplct><PssblDplct>true</PssblDplct><Prty>NORM</Prty>"
+			+ "<Rltd><Fr><FIId><FinInstnId><BICFI>CCCCUSXXXXX</BICFI></FinInstnId></FIId></Fr><BizMsgIdr>RELATED</BizMsgIdr></Rltd>"
+			+ "</AppHdr>";
+
+	private static final String AH = "<AppHdr>"
+			+ "<From><Type>DN</Type><Id>cn=foo,ou=bar,o=aaaausxx,o=swift</Id></From><To><Type>BIC</Type><Id>BBBBUSXXXXX</Id></To>"
+			+ "<SvcName>swift.finplus</SvcName><MsgName>pacs.008.001.08</MsgName><MsgRef>REF</MsgRef>"
+			+ "<CrDate>2018-10-01T10:00:00</CrDate><Dup><Ref>DUP</Ref><Info>INFO</Info></Dup>"
+			+ "</AppHdr>";
+
+	private static BusinessHeader read(final String xml) throws Exception {
+		final XMLStreamReader reader = SafeXmlUtils.createXMLStreamReader(new StringReader("<Message>" + xml + "<Document/></Message>"));
+		reader.nextTag();
+		reader.nextTag();
+		final BusinessHeader header = MxParser.parseBusinessHeader(reader);
+		// left at the header end
+		assertEquals(XMLStreamConstants.END_ELEMENT, reader.getEventType());
+		assertEquals("AppHdr", reader.getLocalName());
+		reader.nextTag();
+		assertEquals("Document", reader.getLocalName());
+		return header;
+	}
+
+	@Test
+	public void testBusinessApplicationHeader() throws Exception {
+		final BusinessHeader header = read(BAH);
+		assertNull(header.getApplicationHeader());
+		final BusinessApplicationHeaderV01 bah = header.getBusinessApplicationHeader();
+		// same content as the tree based parser, that does not read the related header content
+		final BusinessApplicationHeaderV01 expected = MxBusinessHeaderParser.parseBusinessApplicationHeaderV01(new MxParser(BAH).parse());
+		expected.setRltd(bah.getRltd());
+		assertEquals(expected, bah);
+		assertEquals("AAAAUSXXXXX", header.from());
+		assertEquals("BBBBUSXXXXX", header.to());
+		assertEquals("RELATED", bah.getRltd().getBizMsgIdr());
+		assertEquals("CCCCUSXXXXX", bah.getRltd().getFr().getFIId().getFinInstnId().getBICFI());
+		assertEquals("I", bah.getFr().getFIId().getFinInstnId().getOthr().getIssr());
+	}
+
+	@Test
+	public void testApplicationHeader() throws Exception {
+		final BusinessHeader header = read(AH);
+		assertNull(header.getBusinessApplicationHeader());
+		final ApplicationHeader ah = header.getApplicationHeader();
+		assertEquals(MxBusinessHeaderParser.parseApplicationHeader(new MxParser(AH).parse()), ah);
+		assertEquals("AAAAUSXX", header.from());
+		assertEquals("INFO", ah.getDup().getInfo());
+
+		// without namespace and without From element the ISO header is assumed
+		final String content = "<To><Type>BIC</Type><Id>BBBBUSXXXXX</Id></To><MsgRef>REF</MsgRef>";
+		assertNotNull(read("<AppHdr>" + content + "</AppHdr>").getBusinessApplicationHeader());
+		final BusinessHeader byNamespace = read("<h:AppHdr xmlns:h=\"" + BusinessHeader.NAMESPACE_AH + "\">" + content + "</h:AppHdr>");
+		assertEquals("BBBBUSXXXXX", byNamespace.getApplicationHeader().getTo().getId());
+		assertEquals("REF", byNamespace.reference());
+	}
+
+	@Test
+	public void testRepeatedAndUnknownElements() throws Exception {
+		final String xml = "<AppHdr xmlns=\"urn:iso:std:iso:20022:tech:xsd:head.001.001.01\">"
+				+ "<Fr><FIId><FinInstnId><PstlAdr><AdrLine>ONE</AdrLine><AdrLine>TWO</AdrLine></PstlAdr></FinInstnId></FIId></Fr>"
+				+ "<Foo><Bar>ignored</Bar></Foo>"
+				+ "<BizMsgIdr><![CDATA[R&1]]></BizMsgIdr><PssblDplct>maybe</PssblDplct><CpyDplct>XXXX</CpyDplct><CreDt>wrong</CreDt>"
+				+ "</AppHdr>";
+		final BusinessApplicationHeaderV01 bah = read(xml).getBusinessApplicationHeader();
+		assertEquals(2, bah.getFr().getFIId().getFinInstnId().getPstlAdr().getAdrLine().size());
+		assertEquals("TWO", bah.getFr().getFIId().getFinInstnId().getPstlAdr().getAdrLine().get(1));
+		assertEquals("R&1", bah.getBizMsgIdr());
+		assertNull(bah.isPssblDplct());
+		assertNull(bah.getCpyDplct());
+		assertNull(bah.getCreDt());
+	}
+
+	@Test
+	public void testSignature() throws Exception {
+		final String xml = "<AppHdr xmlns=\"urn:iso:std:iso:20022:tech:xsd:head.001.001.01\"><BizMsgIdr>REF</BizMsgIdr>"
+				+ "<Sgntr><ds:Signature xmlns:ds=\"http://www.w3.org/2000/09/xmldsig#\" Id=\"S1\"><ds:SignatureValue>abc=</ds:SignatureValue></ds:Signature></Sgntr>"
+				+ "</AppHdr>";
+		final BusinessApplicationHeaderV01 bah = read(xml).getBusinessApplicationHeader();
+		final Element signature = (Element) bah.getSgntr().getAny();
+		assertEquals("Signature", signature.getLocalName());
+		assertEquals("http://www.w3.org/2000/09/xmldsig#", signature.getNamespaceURI());
+		assertEquals("S1", signature.getAttribute("Id"));
+		assertEquals("abc=", signature.getTextContent());
+
+		final String text = "<AppHdr><Fr/><Sgntr>plain</Sgntr></AppHdr>";
+		assertEquals("plain", read(text).getBusinessApplicationHeader().getSgntr().getAny());
+	}
+
+	@Test
+	public void testParseBusinessHeader() {
+		final MxParser parser = new MxParser("<Message>" + BAH + "<Document><broken></Message>");
+		// the content after the header is not read
+		assertEquals("REF", parser.parseBusinessHeader().reference());
+		assertNull(new MxParser("<Document/>").parseBusinessHeader());
+	}
+
+	@Test
+	public void testApplicationHeaderDetection() throws Exception {
+		// no namespace and the From element is not the first one
+		final String xml = "<AppHdr><To><Type>BIC</Type><Id>BBBBUSXXXXX</Id></To>"
+				+ "<From><Type>BIC</Type><Id>AAAAUSXXXXX</Id></From><MsgRef>REF</MsgRef></AppHdr>";
+		final BusinessHeader header = read(xml);
+		assertNotNull(header.getApplicationHeader());
+		assertEquals("AAAAUSXXXXX", header.from());
+		assertEquals("BBBBUSXXXXX", header.to());
+		assertEquals("REF", header.reference());
+
+		// same result as the tree based detection
+		final BusinessHeader tree = MxParser.parseBusinessHeader(new MxParser(xml).parse());
+		assertEquals(tree.getApplicationHeader(), header.getApplicationHeader());
+
+		// the ISO header namespace is bound directly, From is not part of its model
+		final BusinessHeader iso = read("<AppHdr xmlns=\"" + BusinessHeader.NAMESPACE_BAH + "\"><From><Type>BIC</Type></From>"
+				+ "<BizMsgIdr>REF</BizMsgIdr></AppHdr>");
+		assertNull(iso.getApplicationHeader());
+		assertEquals("REF", iso.reference());
+	}
+
+	@Test
+	public void testNestedMarkup() throws Exception {
+		final String xml = "<AppHdr xmlns=\"urn:iso:std:iso:20022:tech:xsd:head.001.001.01\"><BizMsgIdr>RE<b>x</b>F</BizMsgIdr>"
+				+ "<MsgDefIdr>pacs.008.001.08</MsgDefIdr></AppHdr>";
+		final BusinessApplicationHeaderV01 bah = read(xml).getBusinessApplicationHeader();
+		assertEquals("REF", bah.getBizMsgIdr());
+		assertEquals("pacs.008.001.08", bah.getMsgDefIdr());
+	}
+
+	@Test
+	public void testPrefixesAndCase() {
+		// prefix declared in the enclosing element
+		MxParser parser = new MxParser("<Message xmlns:h=\"urn:iso:std:iso:20022:tech:xsd:head.001.001.01\"><h:AppHdr><h:BizMsgIdr>REF</h:BizMsgIdr></h:AppHdr></Message>");
+		assertEquals("REF", parser.parseBusinessHeader().reference());
+		// header element name is not case sensitive
+		parser = new MxParser("<Message><apphdr><BizMsgIdr>REF</BizMsgIdr></apphdr></Message>");
+		assertEquals("REF", parser.parseBusinessHeader().reference());
+	}
+
+}
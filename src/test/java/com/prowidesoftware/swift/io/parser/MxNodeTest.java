@@ -20,6 +20,9 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -431,4 +434,94 @@ public class MxNodeTest {
 		assertNull(doc);
 	}
 
+	private static void assertSameTree(final MxNode expected, final MxNode actual) {
+		assertEquals(expected.path(), actual.path());
+		assertEquals(expected.getAttributes(), actual.getAttributes());
+		if (expected.getChildren().isEmpty()) {
+			assertEquals(expected.path(), expected.getValue(), actual.getValue());
+		}
+		assertEquals(expected.getChildren().size(), actual.getChildren().size());
+		for (int i = 0; i < expected.getChildren().size(); i++) {
+			assertSameTree(expected.getChildren().get(i), actual.getChildren().get(i));
+		}
+	}
+
+	@Test
+	public void testParseCompact() throws IOException {
+		for (String sample : new String[] {"mx_sample_bah.xml", "mx_sample_document.xml", "mx_sample_payload.xml",
+				"mx_sample_request_wrapper.xml", "app_to_mqsq.xml"}) {
+			try (InputStream inputStream = getClass().getResourceAsStream("/" + sample)) {
+				final MxParser parser = new MxParser(inputStream);
+				assertSameTree(parser.parse(), parser.parseCompact());
+			}
+		}
+	}
+
+	@Test
+	public void testParseCompactValues() {
+		final String xml = "<Doc:Document xmlns:Doc=\"urn:swift:xsd:camt.053.001.02\"><Doc:Amt Ccy=\"EUR\">12.5</Doc:Amt>"
+				+ "<Doc:Nm>A &amp; B</Doc:Nm><Doc:Inf><![CDATA[<free>]]></Doc:Inf><Doc:Empty/></Doc:Document>";
+		final MxNode doc = new MxParser(xml).parseCompact();
+		assertEquals("urn:swift:xsd:camt.053.001.02", doc.getAttribute("xmlns"));
+		final MxNode amt = doc.findFirst("/Document/Amt");
+		assertEquals("12.5", amt.getValue());
+		assertEquals("EUR", amt.getAttribute("Ccy"));
+		assertNull(amt.getAttribute("xmlns"));
+		assertEquals("A & B", doc.singlePathValue("/Document/Nm"));
+		assertEquals("<free>", doc.singlePathValue("/Document/Inf"));
+		assertNull(doc.singlePathValue("/Document/Empty"));
+		assertTrue(doc.findFirst("/Document/Empty").getChildren().isEmpty());
+		assertNull(new MxParser("<Document><broken").parseCompact());
+	}
+
+	@Test
+	public void testCompactNode() {
+		final MxNode root = new MxNode(null, new String("Document"));
+		final MxNode child = new MxNode(root, new String("Document"));
+		// element names are shared
+		assertSame(root.getLocalName(), child.getLocalName());
+		assertNull(root.getAttributes());
+		root.addAttribute("a", "1");
+		root.addAttribute("b", "2");
+		root.addAttribute("a", "3");
+		assertEquals("3", root.getAttribute("a"));
+		assertEquals(2, root.getAttributes().size());
+		child.setValue("xx<v>12</v>", 5, 7);
+		assertEquals("12", child.getValue());
+		child.setValue("other");
+		assertEquals("other", child.getValue());
+	}
+
+	@Test
+	public void testLiveCollections() {
+		final MxNode root = new MxNode(null, "Document");
+		final MxNode leaf = new MxNode(null, "Leaf");
+		// children list of a leaf can be modified
+		root.getChildren().add(leaf);
+		assertEquals(1, root.getChildren().size());
+		assertSame(leaf, root.getChildren().get(0));
+		root.getChildren().remove(leaf);
+		assertTrue(root.getChildren().isEmpty());
+
+		root.addAttribute("a", "1");
+		root.addAttribute("b", "2");
+		final Map<String, String> attributes = root.getAttributes();
+		attributes.put("c", "3");
+		attributes.put("a", "4");
+		attributes.remove("b");
+		assertEquals("4", root.getAttribute("a"));
+		assertNull(root.getAttribute("b"));
+		assertEquals("3", root.getAttribute("c"));
+		for (final Map.Entry<String, String> e : attributes.entrySet()) {
+			e.setValue(e.getValue() + "0");
+		}
+		assertEquals("40", root.getAttribute("a"));
+		final Iterator<Map.Entry<String, String>> it = attributes.entrySet().iterator();
+		it.next();
+		it.remove();
+		assertEquals(1, root.getAttributes().size());
+		assertEquals("30", root.getAttribute("c"));
+		assertEquals(root.getAttributes(), Collections.singletonMap("c", "30"));
+	}
+
 }
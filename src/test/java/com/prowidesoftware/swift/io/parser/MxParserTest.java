@@ -18,9 +18,12 @@ package com.prowidesoftware.swift.io.parser;
 import com.prowidesoftware.swift.io.parser.MxParser.MxStructureInfo;
 import com.prowidesoftware.swift.model.MxBusinessProcess;
 import com.prowidesoftware.swift.model.MxId;
+import com.prowidesoftware.swift.model.MxNode;
 import com.prowidesoftware.swift.model.mx.BusinessHeader;
 import com.prowidesoftware.swift.model.mx.dic.ApplicationHeader;
 import com.prowidesoftware.swift.model.mx.dic.BusinessApplicationHeaderV01;
+import com.prowidesoftware.swift.utils.Lib;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 import org.xml.sax.SAXException;
 import org.xmlunit.builder.DiffBuilder;
@@ -520,4 +523,96 @@ public class MxParserTest {
 		assertMxId(id);
 	}
 
+	private static final String PACS_008 = "<Document xmlns=\"urn:iso:std:iso:20022:tech:xsd:pacs.008.001.02\">"
+			+ "<FIToFICstmrCdtTrf><GrpHdr><MsgId>MSGID001</MsgId><NbOfTxs>1</NbOfTxs>"
+			+ "<InstgAgt><FinInstnId><BIC>AAAAUSXXXXX</BIC></FinInstnId></InstgAgt>"
+			+ "<InstdAgt><FinInstnId><BIC>BBBBUSXX</BIC></FinInstnId></InstdAgt>"
+			+ "</GrpHdr><CdtTrfTxInf><PmtId><EndToEndId>E2E</EndToEndId></PmtId></CdtTrfTxInf></FIToFICstmrCdtTrf></Document>";
+
+	/**
+	 * Checks the single pass analysis against the separate header, tree and message type parsing
+	 */
+	private void assertSameIdentification(final String xml) {
+		final MxParser parser = new MxParser(xml);
+		final MxParser.MxIdentification identification = parser.analyzeIdentification();
+		assertEquals(parser.detectMessage(), identification.getMxId());
+		final BusinessHeader h = parser.parseBusinessHeader();
+		if (h == null) {
+			assertNull(identification.getBusinessHeader());
+		} else {
+			assertNotNull(identification.getBusinessHeader());
+			assertEquals(h.from(), identification.getBusinessHeader().from());
+			assertEquals(h.to(), identification.getBusinessHeader().to());
+			assertEquals(h.reference(), identification.getBusinessHeader().reference());
+		}
+		if (h != null && (h.from() != null || h.to() != null || h.reference() != null)) {
+			assertEquals(h.from(), identification.getSender());
+			assertEquals(h.to(), identification.getReceiver());
+			assertEquals(h.reference(), identification.getReference());
+		} else {
+			final MxNode tree = parser.parse();
+			final MxNode grpHdr = tree != null ? tree.findFirstByName("GrpHdr") : null;
+			assertEquals(grpHdr != null ? grpHdr.singlePathValue("./InstgAgt/FinInstnId/BIC") : null, identification.getSender());
+			assertEquals(grpHdr != null ? grpHdr.singlePathValue("./InstdAgt/FinInstnId/BIC") : null, identification.getReceiver());
+			assertEquals(grpHdr != null ? grpHdr.singlePathValue("./MsgId") : null, identification.getReference());
+		}
+	}
+
+	@Test
+	public void testAnalyzeIdentification_samples() throws IOException {
+		for (String sample : new String[] {"mx_sample_bah.xml", "mx_sample_document.xml", "mx_sample_document-nsfoo.xml",
+				"mx_sample_header.xml", "mx_sample_payload.xml", "mx_sample_request_wrapper.xml", "app_to_mqsq.xml"}) {
+			try (InputStream inputStream = getClass().getResourceAsStream("/" + sample)) {
+				assertSameIdentification(Lib.readStream(inputStream));
+			}
+		}
+	}
+
+	@Test
+	public void testAnalyzeIdentification_groupHeader() {
+		assertSameIdentification(PACS_008);
+		MxParser.MxIdentification identification = new MxParser(PACS_008).analyzeIdentification();
+		assertEquals("pacs.008.001.02", identification.getMxId().id());
+		assertNull(identification.getBusinessHeader());
+		assertEquals("AAAAUSXXXXX", identification.getSender());
+		assertEquals("BBBBUSXX", identification.getReceiver());
+		assertEquals("MSGID001", identification.getReference());
+	}
+
+	@Test
+	public void testAnalyzeIdentification_header() {
+		final String xml = "<Message><AppHdr xmlns=\"urn:iso:std:iso:20022:tech:xsd:head.001.001.01\">"
+				+ "<Fr><FIId><FinInstnId><BICFI>CCCCUSXXXXX</BICFI></FinInstnId></FIId></Fr>"
+				+ "<To><FIId><FinInstnId><BICFI>DDDDUSXXXXX</BICFI></FinInstnId></FIId></To>"
+				+ "<BizMsgIdr>BIZREF</BizMsgIdr><MsgDefIdr>pacs.008.001.02</MsgDefIdr></AppHdr>" + PACS_008 + "</Message>";
+		assertSameIdentification(xml);
+		MxParser.MxIdentification identification = new MxParser(xml).analyzeIdentification();
+		assertNotNull(identification.getBusinessHeader().getBusinessApplicationHeader());
+		assertEquals("CCCCUSXXXXX", identification.getSender());
+		assertEquals("DDDDUSXXXXX", identification.getReceiver());
+		assertEquals("BIZREF", identification.getReference());
+	}
+
+	/**
+	 * The reading stops once all the information is found, so broken content after the group header is never parsed
+	 */
+	@Test
+	public void testAnalyzeIdentification_stopsEarly() {
+		final String xml = StringUtils.substringBefore(PACS_008, "<CdtTrfTxInf>") + "<CdtTrfTxInf><broken";
+		assertNull(new MxParser(xml).parse());
+		MxParser.MxIdentification identification = new MxParser(xml).analyzeIdentification();
+		assertEquals("pacs.008.001.02", identification.getMxId().id());
+		assertEquals("MSGID001", identification.getReference());
+	}
+
+	@Test
+	public void testAnalyzeIdentification_empty() {
+		MxParser.MxIdentification identification = new MxParser("").analyzeIdentification();
+		assertNull(identification.getMxId());
+		assertNull(identification.getSender());
+		identification = new MxParser("<Document><broken").analyzeIdentification();
+		assertNull(identification.getMxId());
+		assertNull(identification.getReference());
+	}
+
 }
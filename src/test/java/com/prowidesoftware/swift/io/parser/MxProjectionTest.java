@@ -0,0 +1,125 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.prowidesoftware.ProwideException;
+import com.prowidesoftware.swift.model.MxNode;
+import com.prowidesoftware.swift.utils.Lib;
+
+/**
+ * Tests for {@link MxProjection}
+ *
+ * @since 8.0.2
+ */
+public class MxProjectionTest {
+
+	private static final String XML = "<Document xmlns=\"urn:iso:std:iso:20022:tech:xsd:pacs.008.001.08\"><FIToFICstmrCdtTrf>"
+			+ "<GrpHdr><MsgId>MSG</MsgId></GrpHdr>"
+			+ "<CdtTrfTxInf><PmtId><EndToEndId>E1</EndToEndId><UETR>eb6305c9-1f7f-49de-aed0-16487c27b42d</UETR></PmtId>"
+			+ "<IntrBkSttlmAmt Ccy=\"EUR\">10</IntrBkSttlmAmt><InstgAgt><FinInstnId><BICFI>AAAAUSXX</BICFI></FinInstnId></InstgAgt></CdtTrfTxInf>"
+			+ "<CdtTrfTxInf><PmtId><EndToEndId>E2 &amp; more</EndToEndId></PmtId>"
+			+ "<IntrBkSttlmAmt Ccy=\"USD\">20</IntrBkSttlmAmt><RmtInf><Ustrd><![CDATA[<inv>]]></Ustrd></RmtInf></CdtTrfTxInf>"
+			+ "</FIToFICstmrCdtTrf></Document>";
+
+	private static final String[] PATHS = {
+			"/Document/FIToFICstmrCdtTrf/GrpHdr/MsgId",
+			"/Document/FIToFICstmrCdtTrf/CdtTrfTxInf/PmtId/UETR",
+			"/Document/FIToFICstmrCdtTrf/CdtTrfTxInf/IntrBkSttlmAmt",
+			"/Document/FIToFICstmrCdtTrf/CdtTrfTxInf[2]/PmtId/EndToEndId",
+			"/Document/FIToFICstmrCdtTrf/CdtTrfTxInf/IntrBkSttlmAmt[@Ccy='USD']",
+			"/Document/FIToFICstmrCdtTrf/CdtTrfTxInf/./FinInstnId/BICFI",
+			"/Document/FIToFICstmrCdtTrf/CdtTrfTxInf/RmtInf/Ustrd",
+			"/Document/FIToFICstmrCdtTrf/CdtTrfTxInf[2]/InstgAgt",
+			"/Document/FIToFICstmrCdtTrf/GrpHdr",
+			"/Foo/FIToFICstmrCdtTrf"};
+
+	/**
+	 * Checks the projection against the path evaluation on the complete tree
+	 */
+	private static void assertSameAsTree(final String xml, final String... paths) {
+		final MxNode tree = new MxParser(xml).parseCompact();
+		final Map<String, String> values = MxProjection.compile(paths).extract(xml);
+		assertEquals(Arrays.asList(paths), new java.util.ArrayList<>(values.keySet()));
+		for (String path : paths) {
+			assertEquals(path, tree.singlePathValue(path), values.get(path));
+		}
+	}
+
+	@Test
+	public void testExtract() {
+		assertSameAsTree(XML, PATHS);
+		Map<String, String> values = new MxParser(XML).extract(PATHS);
+		assertEquals("MSG", values.get(PATHS[0]));
+		assertEquals("eb6305c9-1f7f-49de-aed0-16487c27b42d", values.get(PATHS[1]));
+		assertEquals("10", values.get(PATHS[2]));
+		assertEquals("E2 & more", values.get(PATHS[3]));
+		assertEquals("20", values.get(PATHS[4]));
+		assertEquals("AAAAUSXX", values.get(PATHS[5]));
+		assertEquals("<inv>", values.get(PATHS[6]));
+		assertNull(values.get(PATHS[7]));
+		assertNull(values.get(PATHS[9]));
+	}
+
+	@Test
+	public void testSamples() throws IOException {
+		for (String sample : new String[] {"mx_sample_bah.xml", "mx_sample_payload.xml", "mx_sample_request_wrapper.xml"}) {
+			try (InputStream inputStream = getClass().getResourceAsStream("/" + sample)) {
+				final String xml = Lib.readStream(inputStream);
+				assertSameAsTree(xml, "/AppHdr/Fr/FIId/FinInstnId/BICFI", "/AppHdr/BizMsgIdr", "./AppHdr/To",
+						"/Request/RequestPayload/AppHdr/From/Id", "/Request/RequestPayload/Document/camt.003.001.04/GetAcct/MsgId/Id",
+						"/Message/AppHdr/MsgRef", "/Message/Document/.");
+			}
+		}
+	}
+
+	@Test
+	public void testStopsEarly() {
+		final String xml = XML.substring(0, XML.indexOf("<CdtTrfTxInf>")) + "<CdtTrfTxInf><broken";
+		MxProjection projection = MxProjection.compile(PATHS[0]);
+		assertEquals("MSG", projection.extract(xml).get(PATHS[0]));
+		try {
+			MxProjection.compile(PATHS[0], PATHS[1]).extract(xml);
+		} catch (ProwideException e) {
+			// expected, the second path cannot be resolved before the broken content
+			assertNull(new MxParser(xml).extract(PATHS[0], PATHS[1]));
+			return;
+		}
+		throw new AssertionError("expected exception");
+	}
+
+	@Test
+	public void testStream() {
+		MxProjection projection = MxProjection.compile(Arrays.asList(PATHS[0], PATHS[3]));
+		Map<String, String> values = projection.extract(new ByteArrayInputStream(("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + XML).getBytes(StandardCharsets.UTF_8)));
+		assertEquals("MSG", values.get(PATHS[0]));
+		assertEquals("E2 & more", values.get(PATHS[3]));
+		assertTrue(projection.toString().contains(PATHS[3]));
+	}
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link MxSchemaRegistry}
+ *
+ * @since 8.0.2
+ */
+public class MxSchemaRegistryTest {
+
+	private static final String NAMESPACE = "urn:iso:std:iso:20022:tech:xsd:pacs.008.001.08";
+
+	private static String message(final String msgId, final String amount) {
+		return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><RequestPayload>"
+				+ "<AppHdr xmlns=\"urn:iso:std:iso:20022:tech:xsd:head.001.001.01\">"
+				+ "<Fr><FIId><FinInstnId><BICFI>AAAAUSXXXXX</BICFI></FinInstnId></FIId></Fr>"
+				+ "<To><FIId><FinInstnId><BICFI>BBBBUSXXXXX</BICFI></FinInstnId></FIId></To>"
+				+ "<BizMsgIdr>REF</BizMsgIdr><MsgDefIdr>pacs.008.001.08</MsgDefIdr></AppHdr>"
+				+ "<Doc:Document xmlns:Doc=\"" + NAMESPACE + "\"><Doc:FIToFICstmrCdtTrf>"
+				+ "<Doc:GrpHdr><Doc:MsgId>" + msgId + "</Doc:MsgId><Doc:NbOfTxs>1</Doc:NbOfTxs></Doc:GrpHdr>"
+				+ "<Doc:CdtTrfTxInf><Doc:EndToEndId>E2E</Doc:EndToEndId><Doc:IntrBkSttlmAmt Ccy=\"EUR\">" + amount + "</Doc:IntrBkSttlmAmt></Doc:CdtTrfTxInf>"
+				+ "</Doc:FIToFICstmrCdtTrf></Doc:Document></RequestPayload>";
+	}
+
+	@Test
+	public void testValid() {
+		MxSchemaRegistry registry = new MxSchemaRegistry(null, "xsd");
+		MxSchemaRegistry.ValidationResult result = registry.validate(message("MSG", "10.5"));
+		assertTrue(result.toString(), result.isValid());
+		assertEquals(1, result.getNamespaces().size());
+		assertEquals(NAMESPACE, result.getNamespaces().get(0));
+		// identification read in the same pass
+		assertEquals("pacs.008.001.08", result.getIdentification().getMxId().id());
+		assertEquals("REF", result.getIdentification().getReference());
+		assertEquals("AAAAUSXXXXX", result.getIdentification().getSender());
+	}
+
+	@Test
+	public void testInvalid() {
+		MxSchemaRegistry registry = new MxSchemaRegistry(null, "xsd/");
+		MxSchemaRegistry.ValidationResult result = new MxParser(message("", "ABC")).validate(registry);
+		assertFalse(result.isValid());
+		assertEquals(result.toString(), 4, result.getErrors().size());
+		assertTrue(result.getErrors().get(0).startsWith("line 1 column "));
+		// the identification is read even when the content is invalid
+		assertEquals("REF", result.getIdentification().getReference());
+	}
+
+	@Test
+	public void testNotWellFormed() {
+		MxSchemaRegistry registry = new MxSchemaRegistry(null, "xsd");
+		MxSchemaRegistry.ValidationResult result = registry.validate(message("MSG", "1").replace("</Doc:GrpHdr>", ""));
+		assertFalse(result.isValid());
+		assertFalse(result.getErrors().isEmpty());
+	}
+
+	@Test
+	public void testNoSchema() {
+		MxSchemaRegistry registry = new MxSchemaRegistry(null, "foo");
+		assertNull(registry.schema(NAMESPACE));
+		MxSchemaRegistry.ValidationResult result = registry.validate(new ByteArrayInputStream(message("MSG", "1").getBytes(StandardCharsets.UTF_8)));
+		assertFalse(result.isValid());
+		assertTrue(result.getErrors().isEmpty());
+		assertTrue(result.getNamespaces().isEmpty());
+		assertEquals("pacs.008.001.08", result.getIdentification().getMxId().id());
+	}
+
+	@Test
+	public void testDirectoryAndCache() throws Exception {
+		File dir = Files.createTempDirectory("xsd").toFile();
+		File xsd = new File(dir, "pacs.008.001.08.xsd");
+		try (InputStream in = getClass().getClassLoader().getResourceAsStream("xsd/pacs.008.001.08.xsd")) {
+			Files.copy(in, xsd.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		try {
+			MxSchemaRegistry registry = new MxSchemaRegistry(dir);
+			assertNotNull(registry.schema(NAMESPACE));
+			assertSame(registry.schema(NAMESPACE), registry.schema(NAMESPACE));
+			assertTrue(registry.validate(message("MSG", "1")).isValid());
+
+			MxSchemaRegistry other = new MxSchemaRegistry(null, "foo");
+			other.register(NAMESPACE, registry.schema(NAMESPACE));
+			assertTrue(other.validate(message("MSG", "1")).isValid());
+		} finally {
+			xsd.delete();
+			dir.delete();
+		}
+	}
+
+	@Test
+	public void testPathTraversal() throws Exception {
+		File parent = Files.createTempDirectory("xsd").toFile();
+		File dir = new File(parent, "schemas");
+		assertTrue(dir.mkdir());
+		File xsd = new File(parent, "pacs.008.001.08.xsd");
+		try (InputStream in = getClass().getClassLoader().getResourceAsStream("xsd/pacs.008.001.08.xsd")) {
+			Files.copy(in, xsd.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		try {
+			MxSchemaRegistry registry = new MxSchemaRegistry(dir);
+			assertNull(registry.schema("urn:x:../pacs.008.001.08"));
+			assertNull(registry.schema("urn:x:.."));
+			assertNull(registry.schema("urn:x:" + xsd.getAbsolutePath().replace(".xsd", "")));
+
+			MxSchemaRegistry classpath = new MxSchemaRegistry(null, "xsd/foo");
+			assertNull(classpath.schema("urn:x:../pacs.008.001.08"));
+		} finally {
+			xsd.delete();
+			dir.delete();
+			parent.delete();
+		}
+	}
+
+	@Test
+	public void testMissesBounded() {
+		MxSchemaRegistry registry = new MxSchemaRegistry(null, "xsd");
+		assertNotNull(registry.schema(NAMESPACE));
+		for (int i = 0; i < 10000; i++) {
+			assertNull(registry.schema("urn:iso:std:iso:20022:tech:xsd:foo.001.001." + i));
+		}
+		assertTrue(registry.size() <= 257);
+		assertNotNull(registry.schema(NAMESPACE));
+	}
+
+	@Test
+	public void testConcurrent() throws Exception {
+		final MxSchemaRegistry registry = new MxSchemaRegistry(null, "xsd");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				final boolean valid = i % 2 == 0;
+				results.add(executor.submit(() -> registry.validate(message("MSG", valid ? "1" : "X")).isValid() == valid));
+			}
+			for (Future<Boolean> f : results) {
+				assertTrue(f.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import com.prowidesoftware.ProwideException;
+import com.prowidesoftware.swift.model.MxNode;
+
+/**
+ * Tests for {@link MxSplitter}
+ *
+ * @since 8.0.2
+ */
+public class MxSplitterTest {
+
+	private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<Document xmlns=\"urn:iso:std:iso:20022:tech:xsd:camt.053.001.02\"><BkToCstmrStmt>"
+			+ "<GrpHdr><MsgId>MSG</MsgId><CreDtTm>2018-09-10T10:00:00</CreDtTm></GrpHdr>"
+			+ "<Stmt><Id>S1</Id><Acct><Id><IBAN>ACCT1</IBAN></Id></Acct>"
+			+ "<Ntry><Amt Ccy=\"EUR\">10</Amt><NtryRef>N1</NtryRef></Ntry>"
+			+ "<Ntry><Amt Ccy=\"USD\">20</Amt><NtryRef>N2 &amp; more</NtryRef></Ntry>"
+			+ "</Stmt>"
+			+ "<Stmt><Id>S2</Id><Acct><Id><IBAN>ACCT2</IBAN></Id></Acct>"
+			+ "<Ntry><Amt Ccy=\"EUR\">30</Amt><NtryRef>N3</NtryRef></Ntry>"
+			+ "</Stmt>"
+			+ "</BkToCstmrStmt></Document>";
+
+	@Test
+	public void testEntries() {
+		MxSplitter splitter = new MxSplitter(new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8)), "/Document/BkToCstmrStmt/Stmt/Ntry");
+		assertNull(splitter.getContext());
+
+		assertTrue(splitter.hasNext());
+		MxNode entry = splitter.next();
+		assertEquals("Ntry", entry.getLocalName());
+		assertNull(entry.getParent());
+		assertEquals("10", entry.singlePathValue("/Ntry/Amt"));
+		assertEquals("EUR", entry.findFirstByName("Amt").getAttribute("Ccy"));
+		assertEquals("MSG", splitter.getGroupHeader().singlePathValue("./MsgId"));
+		assertEquals("ACCT1", splitter.getContext().singlePathValue("/Document/BkToCstmrStmt/Stmt/Acct/Id/IBAN"));
+		// entries are not kept in the context
+		assertNull(splitter.getContext().findFirstByName("Ntry"));
+
+		entry = splitter.next();
+		assertEquals("N2 & more", entry.singlePathValue("/Ntry/NtryRef"));
+
+		entry = splitter.next();
+		assertEquals("30", entry.singlePathValue("/Ntry/Amt"));
+		// the previous statement is discarded
+		assertEquals(1, splitter.getContext().find("/Document/BkToCstmrStmt/Stmt").size());
+		assertEquals("ACCT2", splitter.getContext().singlePathValue("/Document/BkToCstmrStmt/Stmt/Acct/Id/IBAN"));
+		assertEquals("MSG", splitter.getGroupHeader().singlePathValue("./MsgId"));
+
+		assertFalse(splitter.hasNext());
+		splitter.close();
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testNoMoreEntries() {
+		MxSplitter splitter = new MxSplitter(new StringReader(XML), "/Document/BkToCstmrStmt/Stmt/Foo");
+		assertFalse(splitter.hasNext());
+		splitter.next();
+	}
+
+	@Test
+	public void testPredicates() {
+		assertEquals(3, values(XML, "/Document/BkToCstmrStmt/Stmt/Ntry").size());
+		List<String> values = values(XML, "/Document/BkToCstmrStmt/Stmt/Ntry[@Ccy='USD']");
+		assertTrue(values.isEmpty());
+		values = values(XML, "/Document/BkToCstmrStmt/Stmt[2]/Ntry");
+		assertEquals(1, values.size());
+		assertEquals("N3", values.get(0));
+		values = values(XML, "/Document/BkToCstmrStmt/Stmt/Ntry[2]");
+		assertEquals(1, values.size());
+		assertEquals("N2 & more", values.get(0));
+	}
+
+	@Test
+	public void testAttributePredicate() {
+		String xml = "<Doc><Tx Tp=\"A\"><Ref>1</Ref></Tx><Tx Tp=\"B\"><Ref>2</Ref></Tx><Tx Tp=\"A\"><Ref>3</Ref></Tx></Doc>";
+		MxSplitter splitter = new MxSplitter(new StringReader(xml), "/Doc/Tx[@Tp='A']");
+		List<String> refs = new ArrayList<>();
+		while (splitter.hasNext()) {
+			refs.add(splitter.next().singlePathValue("/Tx/Ref"));
+		}
+		assertEquals(2, refs.size());
+		assertEquals("3", refs.get(1));
+		// the non matching element is skipped
+		assertNull(splitter.getContext().findFirstByName("Tx"));
+	}
+
+	@Test
+	public void testPositionalPredicateContext() {
+		MxSplitter splitter = new MxSplitter(new StringReader(XML), "/Document/BkToCstmrStmt/Stmt[2]/Ntry");
+		assertTrue(splitter.hasNext());
+		assertEquals("N3", splitter.next().singlePathValue("/Ntry/NtryRef"));
+		// the first statement is not kept in the context
+		assertEquals(1, splitter.getContext().find("/Document/BkToCstmrStmt/Stmt").size());
+		assertEquals("S2", splitter.getContext().singlePathValue("/Document/BkToCstmrStmt/Stmt/Id"));
+		assertEquals("MSG", splitter.getGroupHeader().singlePathValue("./MsgId"));
+		assertFalse(splitter.hasNext());
+	}
+
+	@Test(expected = ProwideException.class)
+	public void testMalformed() {
+		MxSplitter splitter = new MxSplitter(new StringReader("<Doc><Tx></Doc>"), "/Doc/Tx");
+		splitter.hasNext();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyPath() {
+		new MxSplitter(new StringReader(XML), "/");
+	}
+
+	private static List<String> values(final String xml, final String path) {
+		List<String> result = new ArrayList<>();
+		MxSplitter splitter = new MxSplitter(new StringReader(xml), path);
+		while (splitter.hasNext()) {
+			result.add(splitter.next().singlePathValue("/Ntry/NtryRef"));
+		}
+		return result;
+	}
+
+}
@@ -15,6 +15,7 @@
  */
 package com.prowidesoftware.swift.io.parser;
 
+import com.prowidesoftware.swift.io.ConversionService;
 import com.prowidesoftware.swift.io.writer.FINWriterVisitor;
 import com.prowidesoftware.swift.model.SwiftMessage;
 import com.prowidesoftware.swift.model.mt.mt1xx.MT103;
@@ -455,5 +456,29 @@ public class XMLParserTest {
 		assertNull(m);
 	}
 
-}
+	/**
+	 * Special XML characters in the values are escaped by the writer and restored by the parser
+	 */
+	@Test
+	public void testRoundTripEscaped() throws IOException {
+		SwiftMessage m = SwiftMessage.parse("{1:F01FOOBARXXAXXX0000000000}{2:I103FOOBARXXXXXXN}{3:{108:A&B}}{4:\r\n:20:<REF>\r\n:70:LINE 1 & \"2\"\r\nLINE 3\r\n-}");
+		m.getUnparsedTexts().addText("{1:F21FOOBARXXAXXX0000000000}{4:{177:1808011200}{451:0}}");
+		ConversionService srv = new ConversionService();
+		String xml = srv.getXml(m);
+		SwiftMessage parsed = new XMLParser().parse(xml);
+		assertNotNull(parsed);
+		assertEquals("A&B", parsed.getBlock3().getTagValue("108"));
+		assertEquals("<REF>", parsed.getBlock4().getTagValue("20"));
+		assertEquals("LINE 1 & \"2\"\r\nLINE 3", parsed.getBlock4().getTagValue("70"));
+		assertEquals(1, parsed.getUnparsedTextsSize().intValue());
+		assertEquals(srv.getFIN(m), srv.getFIN(parsed));
+	}
 
+	@Test
+	public void testMoreThanOneMessage() {
+		assertNull(new XMLParser().parse("<messages><message/><message/></messages>"));
+		assertNull(new XMLParser().parse("<foo/>"));
+		assertNotNull(new XMLParser().parse("<messages><message/></messages>"));
+	}
+
+}
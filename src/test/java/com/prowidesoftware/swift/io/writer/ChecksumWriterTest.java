@@ -0,0 +1,134 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import org.junit.Test;
+
+import com.prowidesoftware.swift.io.parser.SwiftParser;
+import com.prowidesoftware.swift.model.SwiftBlock4;
+import com.prowidesoftware.swift.model.SwiftMessage;
+import com.prowidesoftware.swift.model.SwiftMessageUtils;
+import com.prowidesoftware.swift.model.Tag;
+
+/**
+ * Tests for {@link ChecksumWriter}
+ *
+ * @since 8.0.2
+ */
+public class ChecksumWriterTest {
+
+	private static final String MT103 = "{1:F01FOOBARXXAXXX0000000000}{2:I103FOOBARXXXXXXN}{3:{108:MUR}}{4:\r\n" +
+			":20:REFERENCE\r\n" +
+			":23B:CRED\r\n" +
+			":32A:180910EUR1234,56\r\n" +
+			":50K:/12345\r\nJOHN DOE\r\n" +
+			":59:FOO\r\n" +
+			":71A:SHA\r\n" +
+			"-}{5:{CHK:ABCDEF123456}}";
+
+	private static String md5(final String text) throws Exception {
+		MessageDigest md = MessageDigest.getInstance("MD5");
+		StringBuilder sb = new StringBuilder();
+		for (byte b : md.digest(text.getBytes(StandardCharsets.UTF_8))) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+	private static String finChecksum(final SwiftMessage m) throws Exception {
+		StringWriter w = new StringWriter();
+		SwiftWriter.writeMessage(m, w, true);
+		return md5(w.toString());
+	}
+
+	private static String finChecksum(final SwiftBlock4 b4) throws Exception {
+		return md5(SwiftWriter.writeBlock4(b4));
+	}
+
+	private static void assertChecksums(final SwiftMessage m) throws Exception {
+		ChecksumWriter writer = new ChecksumWriter().update(m);
+		assertEquals(finChecksum(m), writer.getChecksum());
+		assertEquals(finChecksum(m.getBlock4()), writer.getChecksumBody());
+		assertEquals(writer.getChecksum(), SwiftMessageUtils.calculateChecksum(m));
+		assertEquals(writer.getChecksumBody(), SwiftMessageUtils.calculateChecksum(m.getBlock4()));
+	}
+
+	@Test
+	public void testUserMessage() throws Exception {
+		assertChecksums(SwiftMessage.parse(MT103));
+	}
+
+	@Test
+	public void testSystemMessage() throws Exception {
+		assertChecksums(SwiftMessage.parse("{1:F01FOOBARXXAXXX0000000000}{2:I094FOOBARXXXXXXN}{4:{135:Y}{130:/ABC/}}"));
+		assertChecksums(SwiftMessage.parse("{1:F21FOOBARXXAXXX0000000000}{4:{177:1702090741}{451:0}}"));
+	}
+
+	@Test
+	public void testEmptyBody() throws Exception {
+		SwiftMessage m = SwiftMessage.parse("{1:F01FOOBARXXAXXX0000000000}{2:I103FOOBARXXXXXXN}");
+		m.setBlock4(new SwiftBlock4());
+		assertChecksums(m);
+
+		m.setBlock4(null);
+		ChecksumWriter writer = new ChecksumWriter().update(m);
+		assertEquals(finChecksum(m), writer.getChecksum());
+		assertNull(writer.getChecksumBody());
+	}
+
+	@Test
+	public void testEncoding() throws Exception {
+		SwiftMessage m = SwiftMessage.parse(MT103);
+		m.getBlock4().append(new Tag("72", "áé 日本 \uD83D\uDE00 \uD800 end"));
+		assertChecksums(m);
+
+		// reuse of the same instance
+		ChecksumWriter writer = new ChecksumWriter();
+		writer.update(m);
+		writer.update(SwiftMessage.parse(MT103));
+		assertEquals(finChecksum(SwiftMessage.parse(MT103)), writer.getChecksum());
+	}
+
+	@Test
+	public void testLargeBody() throws Exception {
+		SwiftMessage m = SwiftMessage.parse(MT103);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			sb.append("LINE ").append(i).append("\r\n");
+		}
+		m.getBlock4().append(new Tag("79", sb.toString()));
+		assertChecksums(m);
+	}
+
+	@Test
+	public void testRawParse() throws IOException {
+		ChecksumWriter writer = new ChecksumWriter();
+		SwiftParser parser = new SwiftParser(MT103);
+		parser.setChecksumWriter(writer);
+		SwiftMessage m = parser.message();
+		assertEquals(SwiftMessageUtils.calculateChecksum(m), writer.getChecksum());
+		assertEquals(SwiftMessageUtils.calculateChecksum(m.getBlock4()), writer.getChecksumBody());
+	}
+
+}
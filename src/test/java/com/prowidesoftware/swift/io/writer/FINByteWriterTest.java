@@ -0,0 +1,154 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.io.writer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.prowidesoftware.swift.io.ConversionService;
+import com.prowidesoftware.swift.io.PPCReader;
+import com.prowidesoftware.swift.io.PPCWriter;
+import com.prowidesoftware.swift.io.RJEReader;
+import com.prowidesoftware.swift.io.RJEWriter;
+import com.prowidesoftware.swift.model.SwiftBlock4;
+import com.prowidesoftware.swift.model.SwiftMessage;
+import com.prowidesoftware.swift.model.Tag;
+import com.prowidesoftware.swift.model.mt.mt1xx.MT103;
+
+/**
+ * Tests for {@link FINByteWriter}
+ *
+ * @since 8.0.2
+ */
+public class FINByteWriterTest {
+
+	private static SwiftMessage message() throws IOException {
+		SwiftMessage m = SwiftMessage.parse("{1:F01FOOBARXXAXXX0000000000}{2:I103FOOBARXXXXXXN}{3:{108:MUR}}{4:\n:20:REFERENCE\n-}");
+		SwiftBlock4 b4 = m.getBlock4();
+		// mixed line breaks and non ASCII content
+		b4.append(new Tag("50K", "/12345\nJOHN DOE\r\nSTREET\rCIUDADÑ"));
+		b4.append(new Tag("70", " TRAILING \r\n\n"));
+		return m;
+	}
+
+	@Test
+	public void testSameAsFIN() throws IOException {
+		SwiftMessage m = message();
+		String fin = new ConversionService().getFIN(m);
+		FINByteWriter w = new FINByteWriter(16);
+		int length = w.write(m);
+		byte[] expected = fin.getBytes(StandardCharsets.UTF_8);
+		assertEquals(expected.length, length);
+		assertEquals(length, w.length());
+		assertArrayEquals(expected, w.toByteArray());
+		assertEquals(fin, w.toString());
+
+		// reused for another message
+		MT103 mt = new MT103();
+		w.write(mt.getSwiftMessage());
+		assertEquals(mt.message(), w.toString());
+	}
+
+	@Test
+	public void testTrimTagValues() throws IOException {
+		SwiftMessage m = message();
+		FINByteWriter w = new FINByteWriter();
+		w.setTrimTagValues(true);
+		w.write(m);
+		StringWriter expected = new StringWriter();
+		SwiftWriter.writeMessage(m, expected, true, true);
+		assertEquals(SwiftWriter.ensureEols(expected.toString()), w.toString());
+	}
+
+	@Test
+	public void testEols() throws IOException {
+		FINByteWriter w = new FINByteWriter();
+		assertEquals(0, w.write(new SwiftMessage(false)));
+		assertEquals("", w.toString());
+		SwiftMessage m = SwiftMessage.parse("{4:\r\r\n:20:A\n\n-}");
+		w.write(m);
+		assertEquals(new ConversionService().getFIN(m), w.toString());
+	}
+
+	@Test
+	public void testByteBuffer() throws IOException {
+		MT103 mt = new MT103();
+		FINByteWriter w = new FINByteWriter();
+		int length = w.write(mt.getSwiftMessage());
+		ByteBuffer target = ByteBuffer.allocate(length + 10);
+		target.put((byte) 1);
+		w.writeTo(target);
+		assertEquals(length + 1, target.position());
+		assertEquals(length, w.toByteBuffer().remaining());
+	}
+
+	@Test
+	public void testRJEWriterStream() throws IOException {
+		MT103 mt = new MT103();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RJEWriter w = new RJEWriter(out);
+		w.write(mt);
+		w.write("{1:F01FOOBARXXAXXX0000000000}");
+		w.write(mt.getSwiftMessage());
+		w.close();
+		String sep = FINWriterVisitor.SWIFT_EOL + RJEReader.SPLITCHAR + FINWriterVisitor.SWIFT_EOL;
+		assertEquals(mt.message() + sep + "{1:F01FOOBARXXAXXX0000000000}" + sep + mt.message(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testRJEWriterStreamEncoding() throws IOException {
+		SwiftMessage m = message();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RJEWriter w = new RJEWriter(out);
+		String fin = new ConversionService().getFIN(m);
+		// same encoding for messages and plain text
+		w.write(m);
+		w.write(fin);
+		w.close();
+		String sep = FINWriterVisitor.SWIFT_EOL + RJEReader.SPLITCHAR + FINWriterVisitor.SWIFT_EOL;
+		assertEquals(fin + sep + fin, new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testPPCWriterStream() throws IOException {
+		SwiftMessage m = message();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PPCWriter w = new PPCWriter(out);
+		w.write(m);
+		w.write(m);
+		w.close();
+		byte[] bytes = out.toByteArray();
+		assertEquals(1024, bytes.length);
+		assertEquals(0x01, bytes[0]);
+
+		PPCReader reader = new PPCReader(new String(bytes, StandardCharsets.UTF_8));
+		String fin = new ConversionService().getFIN(m);
+		for (int i = 0; i < 2; i++) {
+			assertTrue(reader.hasNext());
+			assertEquals(fin, reader.next());
+		}
+	}
+
+}
@@ -70,4 +70,38 @@ public class AbstractSwiftMessageTest {
 		assertEquals("camt", mx.getCategory());
 	}
 
+	@Test
+	public void deltaRevisions() {
+		MtSwiftMessage mt = new MtSwiftMessage();
+		String fin = "{1:F01AAAAUSXXAXXX0000000000}{2:I103BBBBUSXXXXXXN}{4:\r\n:20:REF\r\n:23B:CRED\r\n:32A:181001USD1234,56\r\n:50K:/12345\r\nJOHN DOE\r\n:59:/67890\r\nJANE DOE\r\n:71A:SHA\r\n-}";
+		String[] contents = new String[7];
+		for (int i = 0; i < contents.length; i++) {
+			contents[i] = fin.replace(":20:REF", ":20:REF" + i).replace("JANE", i % 2 == 0 ? "JANE" : "JOHN");
+			mt.setMessage(contents[i]);
+			mt.createDeltaRevision(3);
+		}
+		// a full snapshot each three revisions
+		for (int i = 0; i < contents.length; i++) {
+			assertEquals(i % 3 != 0, mt.getRevisions().get(i).isDelta());
+			assertEquals(contents[i], mt.getRevisionContent(i));
+		}
+		assertTrue(mt.getRevisions().get(1).getMessage().length() < contents[1].length());
+
+		// mixed with full revisions
+		mt.createRevision();
+		assertFalse(mt.getRevisions().get(7).isDelta());
+		assertEquals(contents[6], mt.getRevisionContent(7));
+	}
+
+	@Test
+	public void deltaRevisionsMx() {
+		MxSwiftMessage mx = new MxSwiftMessage();
+		mx.setMessage("<Doc:Document xmlns:Doc=\"urn:iso:std:iso:20022:tech:xsd:pacs.008.001.07\">\n  <Doc:FIToFICstmrCdtTrf>\n    <Doc:GrpHdr>\n      <Doc:MsgId>1</Doc:MsgId>\n    </Doc:GrpHdr>\n  </Doc:FIToFICstmrCdtTrf>\n</Doc:Document>");
+		assertFalse(mx.createDeltaRevision().isDelta());
+		mx.setMessage(mx.message().replace("<Doc:MsgId>1", "<Doc:MsgId>2"));
+		assertTrue(mx.createDeltaRevision().isDelta());
+		assertEquals(mx.message(), mx.getRevisionContent(1));
+		assertEquals(mx.message().replace("<Doc:MsgId>2", "<Doc:MsgId>1"), mx.getRevisionContent(0));
+	}
+
 }
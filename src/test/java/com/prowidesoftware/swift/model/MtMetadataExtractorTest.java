@@ -0,0 +1,148 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link MtMetadataExtractor}
+ *
+ * @since 8.0.2
+ */
+public class MtMetadataExtractorTest {
+
+	private static SwiftMessage message(final String type, final String block4) throws IOException {
+		return SwiftMessage.parse("{1:F01FOOBARXXAXXX0000000000}{2:I" + type + "FOOBARXXXXXXN}{3:{108:MUR}}{4:\n" + block4 + "-}");
+	}
+
+	private static void assertDate(final int year, final int month, final int day, final Calendar cal) {
+		assertEquals(year, cal.get(Calendar.YEAR));
+		assertEquals(month, cal.get(Calendar.MONTH) + 1);
+		assertEquals(day, cal.get(Calendar.DAY_OF_MONTH));
+	}
+
+	@Test
+	public void testMT103() throws IOException {
+		SwiftMessage m = message("103", ":20:REF103\n:23B:CRED\n:32A:180910EUR1234,56\n:50K:FOO\n:59:BAR\n:71A:SHA\n");
+		MtMetadata md = MtMetadataExtractor.extract(m);
+		assertEquals("REF103", md.getReference());
+		assertEquals("EUR", md.getMoney().getCurrency());
+		assertEquals(new BigDecimal("1234.56"), md.getMoney().getAmount());
+		assertDate(2018, 9, 10, md.getValueDate());
+		assertNull(md.getTradeDate());
+
+		// same result as the individual accessors
+		assertEquals(SwiftMessageUtils.reference(m), md.getReference());
+		assertEquals(SwiftMessageUtils.money(m).getAmount(), md.getMoney().getAmount());
+		assertEquals(SwiftMessageUtils.valueDate(m), md.getValueDate());
+	}
+
+	@Test
+	public void testMT300() throws IOException {
+		SwiftMessage m = message("300", ":15A:\n:20:REF300\n:22A:NEWT\n:15B:\n:30T:20180905\n:30V:20180907\n:36:1,2\n:32B:USD1000,\n:33B:EUR1200,\n");
+		MtMetadata md = MtMetadataExtractor.extract(m);
+		assertEquals("REF300", md.getReference());
+		assertEquals(new BigDecimal("1000"), md.getMoney().getAmount());
+		assertDate(2018, 9, 7, md.getValueDate());
+		assertDate(2018, 9, 5, md.getTradeDate());
+	}
+
+	@Test
+	public void testSum() throws IOException {
+		SwiftMessage m = message("101", ":20:REF101\n:28D:1/1\n:30:180910\n:21:A\n:32B:EUR10,\n:59:X\n:71A:SHA\n:21:B\n:32B:EUR5,5\n:59:Y\n:71A:SHA\n");
+		assertEquals(new BigDecimal("15.5"), MtMetadataExtractor.extract(m).getMoney().getAmount());
+	}
+
+	@Test
+	public void testMT104SequenceC() throws IOException {
+		SwiftMessage m = message("104", ":20:REF104\n:23E:AUTH\n:30:180910\n:21:A\n:32B:EUR10,\n:59:X\n:21:B\n:32B:EUR20,\n:59A:FOOBARXX\n:32B:EUR30,\n");
+		assertEquals(new BigDecimal("30"), MtMetadataExtractor.extract(m).getMoney().getAmount());
+	}
+
+	@Test
+	public void testSecurities() throws IOException {
+		SwiftMessage m = message("502",
+				":16R:GENL\n:20C::SEME//REF502\n:23G:NEWM\n:98A::PREP//20180901\n:16S:GENL\n" +
+				":16R:ORDRDET\n:98A::TRAD//20180903\n:19A::ORDR//USD100,\n:16S:ORDRDET\n" +
+				":19A::SETT//USD999,\n" +
+				":16R:AMT\n:98A::VALU//20180905\n:16S:AMT\n");
+		MtMetadata md = MtMetadataExtractor.extract(m);
+		assertEquals("REF502", md.getReference());
+		assertEquals(new BigDecimal("100"), md.getMoney().getAmount());
+		assertDate(2018, 9, 5, md.getValueDate());
+		assertDate(2018, 9, 3, md.getTradeDate());
+	}
+
+	@Test
+	public void testSettlementDateFallback() throws IOException {
+		SwiftMessage m = message("543",
+				":16R:GENL\n:20C::SEME//REF543\n:16S:GENL\n" +
+				":16R:AMT\n:98A::VALU//20180905\n:16S:AMT\n");
+		assertDate(2018, 9, 5, MtMetadataExtractor.extract(m).getValueDate());
+
+		m = message("543",
+				":16R:GENL\n:20C::SEME//REF543\n:16S:GENL\n" +
+				":16R:TRADDET\n:98A::TRAD//20180901\n:16S:TRADDET\n" +
+				":16R:AMT\n:98A::VALU//20180905\n:16S:AMT\n");
+		assertNull(MtMetadataExtractor.extract(m).getValueDate());
+
+		m = message("543",
+				":16R:GENL\n:20C::SEME//REF543\n:16S:GENL\n" +
+				":16R:TRADDET\n:98A::SETT//20180904\n:98A::TRAD//20180901\n:16S:TRADDET\n" +
+				":16R:AMT\n:98A::VALU//20180905\n:16S:AMT\n");
+		MtMetadata md = MtMetadataExtractor.extract(m);
+		assertDate(2018, 9, 4, md.getValueDate());
+		assertDate(2018, 9, 1, md.getTradeDate());
+	}
+
+	@Test
+	public void testUnknownType() throws IOException {
+		SwiftMessage m = message("999", ":20:REF999\n:79:FREE FORMAT\n");
+		MtMetadata md = MtMetadataExtractor.extract(m);
+		assertEquals("REF999", md.getReference());
+		assertNull(md.getMoney());
+		assertNull(md.getValueDate());
+	}
+
+	@Test
+	public void testNoBlock2() throws IOException {
+		SwiftMessage m = SwiftMessage.parse("{1:F01AAAAUSXXAXXX0000000000}{4:\n:20:REFNOB2\n-}");
+		assertEquals("REFNOB2", MtMetadataExtractor.extract(m).getReference());
+	}
+
+	@Test
+	public void testBatch() throws IOException {
+		SwiftMessage m1 = message("103", ":20:REF1\n:32A:180910EUR1,\n");
+		SwiftMessage m2 = message("202", ":20:REF2\n:32A:180911USD2,\n");
+		List<MtMetadata> l = MtMetadataExtractor.extract(Arrays.asList(m1, null, m2));
+		assertEquals(3, l.size());
+		assertEquals("REF1", l.get(0).getReference());
+		assertSame(MtMetadata.EMPTY, l.get(1));
+		assertEquals("USD", l.get(2).getMoney().getCurrency());
+		assertSame(MtMetadata.EMPTY, MtMetadataExtractor.extract(new SwiftMessage()));
+	}
+
+}
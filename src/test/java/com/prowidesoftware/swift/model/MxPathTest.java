@@ -0,0 +1,124 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.prowidesoftware.swift.io.parser.MxParser;
+
+/**
+ * Tests for {@link MxPath}
+ *
+ * @since 8.0.2
+ */
+public class MxPathTest {
+
+	private static final String XML = "<Document xmlns=\"urn:iso:std:iso:20022:tech:xsd:pacs.008.001.02\"><FIToFICstmrCdtTrf>"
+			+ "<GrpHdr><MsgId>MSG</MsgId></GrpHdr>"
+			+ "<CdtTrfTxInf><PmtId><EndToEndId>E1</EndToEndId></PmtId><IntrBkSttlmAmt Ccy=\"EUR\">10</IntrBkSttlmAmt></CdtTrfTxInf>"
+			+ "<CdtTrfTxInf><PmtId><EndToEndId>E2</EndToEndId></PmtId><IntrBkSttlmAmt Ccy=\"USD\">20</IntrBkSttlmAmt></CdtTrfTxInf>"
+			+ "<CdtTrfTxInf><PmtId><EndToEndId>E3</EndToEndId></PmtId><IntrBkSttlmAmt Ccy=\"USD\">30</IntrBkSttlmAmt></CdtTrfTxInf>"
+			+ "</FIToFICstmrCdtTrf></Document>";
+
+	private static MxNode tree() {
+		return new MxParser(XML).parse();
+	}
+
+	@Test
+	public void testPaths() {
+		MxNode doc = tree();
+		MxPath path = MxPath.compile("/Document/FIToFICstmrCdtTrf/CdtTrfTxInf/IntrBkSttlmAmt");
+		assertEquals("/Document/FIToFICstmrCdtTrf/CdtTrfTxInf/IntrBkSttlmAmt", path.toString());
+		assertEquals(3, doc.find(path).size());
+		assertEquals("10", doc.singlePathValue(path));
+		// absolute paths are evaluated from the root regardless of the context node
+		assertEquals("10", doc.findFirst("/Document/FIToFICstmrCdtTrf/CdtTrfTxInf[3]").singlePathValue(path));
+
+		MxNode grpHdr = doc.findFirstByName("GrpHdr");
+		assertEquals("MSG", grpHdr.singlePathValue("./MsgId"));
+		assertEquals("MSG", grpHdr.singlePathValue("GrpHdr/MsgId"));
+		assertEquals("MSG", doc.singlePathValue("/document/fitoficstmrcdttrf/grphdr/msgid"));
+		assertNull(grpHdr.findFirst("./Foo"));
+		assertTrue(doc.find("").isEmpty());
+		assertTrue(doc.find("/Foo/GrpHdr").isEmpty());
+	}
+
+	@Test
+	public void testPositionalPredicate() {
+		MxNode doc = tree();
+		assertEquals("E2", doc.singlePathValue("/Document/FIToFICstmrCdtTrf/CdtTrfTxInf[2]/PmtId/EndToEndId"));
+		assertEquals("E3", doc.singlePathValue("/Document/FIToFICstmrCdtTrf/CdtTrfTxInf[3]/PmtId[1]/EndToEndId"));
+		assertNull(doc.findFirst("/Document/FIToFICstmrCdtTrf/CdtTrfTxInf[4]"));
+		assertEquals(1, doc.find("/Document/FIToFICstmrCdtTrf/CdtTrfTxInf[2]/PmtId/EndToEndId").size());
+		assertEquals(1, doc.find("/Document[1]/FIToFICstmrCdtTrf").size());
+		assertTrue(doc.find("/Document[2]/FIToFICstmrCdtTrf").isEmpty());
+	}
+
+	@Test
+	public void testAttributePredicate() {
+		MxNode doc = tree();
+		List<MxNode> usd = doc.find("/Document/FIToFICstmrCdtTrf/CdtTrfTxInf/IntrBkSttlmAmt[@Ccy='USD']");
+		assertEquals(2, usd.size());
+		assertEquals("20", usd.get(0).getValue());
+		assertEquals("30", doc.singlePathValue("/Document/FIToFICstmrCdtTrf/CdtTrfTxInf[3]/IntrBkSttlmAmt[@Ccy=\"USD\"]"));
+		// positions are relative to the parent, as in XPath
+		assertNull(doc.findFirst("/Document/FIToFICstmrCdtTrf/CdtTrfTxInf/IntrBkSttlmAmt[@Ccy='USD'][2]"));
+		assertEquals(2, doc.find("/Document/FIToFICstmrCdtTrf/CdtTrfTxInf/IntrBkSttlmAmt[@Ccy='USD'][1]").size());
+		assertEquals(3, doc.find("/Document/FIToFICstmrCdtTrf/CdtTrfTxInf/IntrBkSttlmAmt[@Ccy]").size());
+		assertTrue(doc.find("/Document/FIToFICstmrCdtTrf/CdtTrfTxInf/IntrBkSttlmAmt[@Ccy='A/B]']").isEmpty());
+	}
+
+	@Test
+	public void testIndex() {
+		MxNode doc = tree();
+		MxNodeIndex index = new MxNodeIndex(doc);
+		assertEquals(3, index.get("endtoendid").size());
+		assertTrue(index.get("Foo").isEmpty());
+		for (String p : new String[] {"/Document/FIToFICstmrCdtTrf/CdtTrfTxInf/IntrBkSttlmAmt",
+				"/Document/FIToFICstmrCdtTrf/CdtTrfTxInf[2]/PmtId/EndToEndId",
+				"/Document/FIToFICstmrCdtTrf/CdtTrfTxInf/IntrBkSttlmAmt[@Ccy='USD'][1]",
+				"/Document/FIToFICstmrCdtTrf/GrpHdr/.", "/Foo/GrpHdr", "./GrpHdr/MsgId"}) {
+			MxPath path = MxPath.compile(p);
+			assertEquals(p, path.find(doc), path.find(doc, index));
+			assertSame(p, path.findFirst(doc), path.findFirst(doc, index));
+		}
+		MxNode grpHdr = doc.findFirstByName("GrpHdr");
+		assertEquals("MSG", MxPath.compile("./MsgId").findFirst(grpHdr, index).getValue());
+		assertNull(MxPath.compile("./MsgId").findFirst(doc, index));
+	}
+
+	@Test
+	public void testInvalidPaths() {
+		for (String p : new String[] {"/Document/Foo[", "/Document/Foo[a]", "/Document/Foo[0]", "/Document/Foo[@Ccy=EUR]",
+				"/Document/Foo[1]x", "/Document/[1]", "/Document/Foo[1][2]", "/Document/Foo[@]"}) {
+			try {
+				MxPath.compile(p);
+				fail("expected exception for " + p);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+}
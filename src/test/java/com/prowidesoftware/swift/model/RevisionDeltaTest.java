@@ -0,0 +1,143 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model;
+
+import com.prowidesoftware.ProwideException;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link RevisionDelta}
+ *
+ * @since 8.0.2
+ */
+public class RevisionDeltaTest {
+
+	private static final String FIN = "{1:F01AAAAUSXXAXXX0000000000}{2:I103BBBBUSXXXXXXN}{3:{108:MUR}}{4:\r\n"
+			+ ":20:REFERENCE\r\n:23B:CRED\r\n:32A:181001USD1234,56\r\n:50K:/12345\r\nJOHN DOE\r\n:59:/67890\r\nJANE DOE\r\n:71A:SHA\r\n-}{5:{CHK:123456789ABC}}";
+
+	private static void assertRoundTrip(final String base, final String target) {
+		final String delta = RevisionDelta.encode(base, target);
+		assertNotNull(delta);
+		assertTrue(RevisionDelta.isDelta(delta));
+		assertEquals(target, RevisionDelta.apply(base, delta));
+	}
+
+	@Test
+	public void testSplit() {
+		assertEquals(Arrays.asList("{1:F01AAAAUSXXAXXX0000000000}", "{2:I103BBBBUSXXXXXXN}", "{3:", "{108:MUR}}", "{4:\r\n",
+				":20:REFERENCE\r\n", ":23B:CRED\r\n", ":32A:181001USD1234,56\r\n", ":50K:/12345\r\nJOHN DOE\r\n", ":59:/67890\r\nJANE DOE\r\n",
+				":71A:SHA\r\n-}", "{5:", "{CHK:123456789ABC}}"), RevisionDelta.split(FIN));
+		assertEquals(Arrays.asList("<a>", "<b>x", "</b>\n", "</a>"), RevisionDelta.split("<a><b>x</b>\n</a>"));
+	}
+
+	@Test
+	public void testFieldChanges() {
+		// changed, added and removed fields
+		assertRoundTrip(FIN, FIN.replace("JANE", "JOHN"));
+		assertRoundTrip(FIN, FIN.replace(":71A:SHA", ":70:/INV/123\r\n:71A:OUR"));
+		assertRoundTrip(FIN, FIN.replace(":23B:CRED\r\n", ""));
+		assertRoundTrip(FIN, FIN.replace("{3:{108:MUR}}", "{3:{108:MUR}{121:eb6305c9-1f7f-49de-aed0-16487c27b42d}}"));
+
+		final String delta = RevisionDelta.encode(FIN, FIN.replace("JANE", "JOHN"));
+		assertEquals(RevisionDelta.PREFIX + "=9-1+22::59:/67890\r\nJOHN DOE\r\n=3", delta);
+	}
+
+	@Test
+	public void testNoGain() {
+		assertNull(RevisionDelta.encode(FIN, "{1:F01}"));
+		assertNull(RevisionDelta.encode("", FIN));
+	}
+
+	@Test
+	public void testLargeChange() {
+		final StringBuilder base = new StringBuilder("<Document>");
+		final StringBuilder target = new StringBuilder("<Document>");
+		for (int i = 0; i < 1000; i++) {
+			base.append("<Ntry><Amt>").append(i).append("</Amt></Ntry>");
+			target.append("<Ntry><Amt>").append(i % 3 == 0 ? i + 1 : i).append("</Amt></Ntry>");
+		}
+		base.append("</Document>");
+		target.append("</Document>");
+		assertEquals(target.toString(), RevisionDelta.apply(base.toString(), RevisionDelta.encode(base.toString(), target.toString())));
+	}
+
+	@Test
+	public void testDistantEdits() {
+		final StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<Document xmlns=\"urn:iso:std:iso:20022:tech:xsd:camt.053.001.02\">\n<BkToCstmrStmt>\n");
+		for (int i = 0; i < 300; i++) {
+			sb.append("\t<Ntry><NtryRef>").append(i).append("</NtryRef><Amt Ccy=\"EUR\">").append(i).append(".00</Amt><CdtDbtInd>CRDT</CdtDbtInd></Ntry>\n");
+		}
+		sb.append("</BkToCstmrStmt>\n</Document>");
+		final String base = sb.toString();
+		final int first = base.indexOf("<NtryRef>1<") + 9;
+		final int last = base.lastIndexOf("<NtryRef>298<") + 9;
+		final String target = base.substring(0, first) + "X" + base.substring(first + 1, last) + "Y" + base.substring(last + 1);
+		assertTrue(RevisionDelta.split(base).size() > 1500);
+
+		final String delta = RevisionDelta.encode(base, target);
+		assertNotNull(delta);
+		assertTrue(delta, delta.length() < 100);
+		assertEquals(target, RevisionDelta.apply(base, delta));
+	}
+
+	@Test
+	public void testRandomEdits() {
+		final java.util.Random random = new java.util.Random(1);
+		final String[] tags = { "<A>", "<B>", "<C>", "</A>", "</B>", "<D>x", "<E>y" };
+		for (int t = 0; t < 200; t++) {
+			final StringBuilder base = new StringBuilder();
+			final StringBuilder target = new StringBuilder();
+			for (int i = 0; i < 200; i++) {
+				final String tag = tags[random.nextInt(tags.length)];
+				base.append(tag);
+				final int edit = random.nextInt(20);
+				if (edit == 0) {
+					target.append(tags[random.nextInt(tags.length)]);
+				} else if (edit == 1) {
+					target.append(tag).append(tags[random.nextInt(tags.length)]);
+				} else if (edit != 2) {
+					target.append(tag);
+				}
+			}
+			final String delta = RevisionDelta.encode(base.toString(), target.toString());
+			if (delta != null) {
+				assertEquals(target.toString(), RevisionDelta.apply(base.toString(), delta));
+			}
+		}
+	}
+
+	@Test
+	public void testWrongBase() {
+		final String delta = RevisionDelta.encode(FIN, FIN.replace("JANE", "JOHN"));
+		try {
+			RevisionDelta.apply("{1:F01}", delta);
+			fail();
+		} catch (final ProwideException e) {
+			// expected
+		}
+		try {
+			RevisionDelta.apply(FIN, RevisionDelta.PREFIX + "=x");
+			fail();
+		} catch (final ProwideException e) {
+			// expected
+		}
+	}
+
+}
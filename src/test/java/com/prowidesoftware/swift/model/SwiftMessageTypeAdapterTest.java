@@ -0,0 +1,127 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.prowidesoftware.swift.model.mt.AbstractMT;
+import com.prowidesoftware.swift.model.mt.AbstractMTAdapter;
+import com.prowidesoftware.swift.model.mt.mt1xx.MT103;
+import com.prowidesoftware.swift.utils.JsonUtils;
+
+/**
+ * Tests for {@link SwiftMessageTypeAdapter}
+ *
+ * @since 8.0.2
+ */
+public class SwiftMessageTypeAdapterTest {
+
+	private static final String FIN = "{1:F01AAAAUSC0ADDD0344000050}{2:O1030919010321BBBBGB22AXXX00570001710103210920N}{3:{108:MYREF<&>}}{4:\n" +
+			":20:5387354\n" +
+			":23B:CRED\n" +
+			":32A:000526USD1101,50\n" +
+			":50K:/12345\n" +
+			"JOHN DOE\n" +
+			":59:/54321\n" +
+			"JANE DOE\n" +
+			":71A:OUR\n" +
+			"-}{5:{CHK:ABCDEF123456}{PDE:}}";
+
+	private static String withoutTimestamp(final String json) {
+		return json.replaceAll("\"timestamp\": ?\"[^\"]*\"", "");
+	}
+
+	@Test
+	public void testSameAsSwiftMessageAdapter() throws IOException {
+		SwiftMessage m = SwiftMessage.parse(FIN);
+		Gson old = new GsonBuilder()
+				.registerTypeAdapter(SwiftMessage.class, new SwiftMessageAdapter())
+				.registerTypeAdapter(SwiftBlock2.class, new SwiftBlock2Adapter())
+				.setPrettyPrinting()
+				.create();
+		assertEquals(withoutTimestamp(old.toJson(m)), withoutTimestamp(m.toJson()));
+		assertEquals(withoutTimestamp(old.toJson(m)), withoutTimestamp(JsonUtils.prettyGson().toJson(m)));
+		assertEquals(m.getBlock2().toJson(), old.toJson(m.getBlock2(), SwiftBlock2.class));
+	}
+
+	@Test
+	public void testSameAsAbstractMTAdapter() throws IOException {
+		MT103 mt = new MT103(SwiftMessage.parse(FIN));
+		Gson old = new GsonBuilder()
+				.registerTypeAdapter(AbstractMT.class, new AbstractMTAdapter())
+				.setPrettyPrinting()
+				.create();
+		assertEquals(old.toJson(mt, AbstractMT.class), mt.toJson());
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		SwiftMessage m = SwiftMessage.parse(FIN);
+		String json = JsonUtils.gson().toJson(m);
+		SwiftMessage back = JsonUtils.gson().fromJson(json, SwiftMessage.class);
+		assertEquals(m.getBlock1(), back.getBlock1());
+		assertEquals(m.getBlock2(), back.getBlock2());
+		assertEquals(m.getBlock3(), back.getBlock3());
+		assertEquals(m.getBlock4(), back.getBlock4());
+		assertEquals(m.getBlock5(), back.getBlock5());
+
+		AbstractMT mt = AbstractMT.fromJson(m.toMT().toJson());
+		assertEquals(MT103.class, mt.getClass());
+		// line breaks in field values are normalized to CRLF
+		assertEquals(m.toMT().message(), mt.message());
+	}
+
+	@Test
+	public void testReadMTStructure() throws IOException {
+		// the message adapter accepts the MT structure as well
+		MT103 mt = new MT103(SwiftMessage.parse(FIN));
+		SwiftMessage m = SwiftMessage.fromJson(mt.toJson());
+		assertEquals("103", m.getType());
+		assertEquals("5387354", m.getBlock4().getTagValue("20"));
+		assertEquals("MYREF<&>", m.getMUR());
+	}
+
+	@Test
+	public void testReadUserBlocks() {
+		String json = "{\"data\":{\"block1\":{\"applicationId\":\"F\",\"serviceId\":\"01\",\"logicalTerminal\":\"AAAAUSC0ADDD\",\"sessionNumber\":\"0344\",\"sequenceNumber\":\"000050\"},"
+				+ "\"userBlocks\":[{\"blockName\":\"S\",\"tags\":[{\"name\":\"SAC\",\"value\":\"\"}]}],\"unknown\":[1,2]}}";
+		SwiftMessage m = SwiftMessage.fromJson(json);
+		assertEquals("AAAAUSC0ADDD", m.getBlock1().getLogicalTerminal());
+		assertNull(m.getBlock4());
+		assertEquals(1, m.getUserBlocks().size());
+		assertNotNull(m.getUserBlock("S").getTagByName("SAC"));
+		assertNull(JsonUtils.gson().fromJson("null", SwiftMessage.class));
+	}
+
+	@Test
+	public void testUserBlocksRoundTrip() throws IOException {
+		SwiftMessage m = SwiftMessage.parse(FIN + "{S:{SAC:}{COP:P}}");
+		assertEquals(1, m.getUserBlocks().size());
+		SwiftMessage back = SwiftMessage.fromJson(m.toJson());
+		assertEquals(1, back.getUserBlocks().size());
+		assertEquals(m.getUserBlock("S").getTags(), back.getUserBlock("S").getTags());
+		assertEquals(m.getBlock4(), back.getBlock4());
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model.field;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Iterator;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import com.prowidesoftware.swift.model.SwiftBlock4;
+import com.prowidesoftware.swift.model.Tag;
+
+/**
+ * Test for {@link Field61Decoder}
+ *
+ * @since 8.0.2
+ */
+public class Field61DecoderTest {
+
+	private static final String[] VALUES = {
+		"0710241024DF4105400,0FMSC1234567890\nTEST LIBELLE",
+		"1009150915C228,00FTRF019440587//019440587\r\nSUPPLEMENTARY",
+		"090402C1951,77NSECNONREF",
+		"1804190419D93366,00NTRFREFERENCE_BB_ACCOUNTOWNER//NNN 123456789012",
+		"190907D5675,S103AZMES11071950766",
+		"980625C5700000,NFEX036960//8954321",
+		"1804190419RD56716,17NTRFNONREF",
+		"1804190419RCE10,5NCHGNONREF//ABC\nDETAILS",
+	};
+
+	/**
+	 * Decoded components must match the generic field parser
+	 */
+	@Test
+	public void testCompatibility() {
+		Field61Decoder decoder = new Field61Decoder();
+		for (String value : VALUES) {
+			Field61 f = new Field61(value);
+			assertTrue(value, decoder.decode(value));
+			assertEquals(value, f.getComponent1AsCalendar().get(java.util.Calendar.YEAR), decoder.getValueDateYear());
+			assertEquals(value, f.getComponent1AsCalendar().get(java.util.Calendar.MONTH) + 1, decoder.getValueDateMonth());
+			assertEquals(value, f.getComponent1AsCalendar().get(java.util.Calendar.DAY_OF_MONTH), decoder.getValueDateDay());
+			assertEquals(value, f.getComponent2() != null, decoder.hasEntryDate());
+			assertEquals(value, f.getDCMark(), decoder.getDCMark());
+			assertEquals(value, f.getFundsCode(), decoder.getFundsCode() == 0 ? null : String.valueOf(decoder.getFundsCode()));
+			assertEquals(value, 0, f.amount().compareTo(decoder.getAmount()));
+			assertEquals(value, f.getTransactionType(), String.valueOf(decoder.getTransactionType()));
+			assertEquals(value, f.getIdentificationCode(), decoder.getIdentificationCode());
+			assertEquals(value, StringUtils.trimToNull(f.getReferenceForTheAccountOwner()), decoder.getReferenceForTheAccountOwner());
+			assertEquals(value, StringUtils.trimToNull(f.getReferenceOfTheAccountServicingInstitution()), decoder.getReferenceOfTheAccountServicingInstitution());
+			assertEquals(value, f.getSupplementaryDetails(), decoder.getSupplementaryDetails());
+		}
+	}
+
+	@Test
+	public void testPrimitives() {
+		Field61Decoder decoder = new Field61Decoder();
+		assertTrue(decoder.decode("1912310102RD1234,5NTRFREF"));
+		assertEquals(LocalDate.of(2019, 12, 31), decoder.getValueDate());
+		// entry date in the following year
+		assertEquals(LocalDate.of(2020, 1, 2), decoder.getEntryDate());
+		assertEquals(12345, decoder.getAmountUnscaled());
+		assertEquals(1, decoder.getAmountScale());
+		assertEquals(123450, decoder.getAmount(2));
+		assertEquals(1234, decoder.getAmount(0));
+		assertEquals(new BigDecimal("1234.5"), decoder.getAmount());
+		assertFalse(decoder.isDebit());
+		assertEquals('N', decoder.getTransactionType());
+
+		assertTrue(decoder.decode("200102D1,NTRFREF"));
+		assertNull(decoder.getEntryDate());
+		assertTrue(decoder.isDebit());
+		assertEquals(100, decoder.getAmount(2));
+
+		assertFalse(decoder.decode("2001C1,"));
+		assertFalse(decoder.decode("200102"));
+	}
+
+	@Test
+	public void testIterator() {
+		SwiftBlock4 b4 = new SwiftBlock4();
+		b4.append(new Tag("20", "REF"));
+		b4.append(new Tag("61", VALUES[0]));
+		b4.append(new Tag("86", "INFO 1"));
+		b4.append(new Tag("61", VALUES[1]));
+		b4.append(new Tag("61", VALUES[2]));
+		b4.append(new Tag("86", "INFO 3"));
+		b4.append(new Tag("62F", "C100915ZAR200,00"));
+		b4.append(new Tag("86", "FINAL INFO"));
+
+		Iterator<Field61Decoder> it = Field61Decoder.iterator(b4);
+		assertTrue(it.hasNext());
+		Field61Decoder first = it.next();
+		assertEquals("1234567890", first.getReferenceForTheAccountOwner());
+		assertEquals("INFO 1", first.getTag86().getValue());
+
+		Field61Decoder second = it.next();
+		assertSame(first, second);
+		assertEquals("019440587", second.getReferenceForTheAccountOwner());
+		assertNull(second.getTag86());
+
+		Field61Decoder third = it.next();
+		assertEquals("NONREF", third.getReferenceForTheAccountOwner());
+		assertEquals("INFO 3", third.getTag86().getValue());
+		assertFalse(it.hasNext());
+	}
+
+}
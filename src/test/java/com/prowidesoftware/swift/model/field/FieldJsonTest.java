@@ -17,8 +17,14 @@ package com.prowidesoftware.swift.model.field;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
@@ -84,4 +90,50 @@ public class FieldJsonTest {
         assertEquals(f50D, f50Dbis);
     }
 
+    @Test
+    public void streaming() throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginArray();
+        new Field32A("010203USD123,45").toJson(writer);
+        new Field50D("/D/1234\nFoo1\nFoo2\nFoo3").toJson(writer);
+        writer.endArray();
+        writer.close();
+
+        JsonReader reader = new JsonReader(new StringReader(out.toString()));
+        reader.beginArray();
+        assertEquals(new Field32A("010203USD123,45"), Field.fromJson(reader));
+        assertEquals(new Field50D("/D/1234\nFoo1\nFoo2\nFoo3"), Field.fromJson(reader));
+        reader.endArray();
+
+        // name is not required to be the first property
+        reader = new JsonReader(new StringReader("{\"amount\":\"123,45\",\"name\":\"32A\",\"currency\":\"USD\",\"date\":\"010203\"}"));
+        assertEquals(new Field32A("010203USD123,45"), Field.fromJson(reader));
+
+        assertNull(Field.fromJson("{\"date\":\"010203\"}"));
+        assertNull(Field.fromJson("{\"name\":\"ZZZ\"}"));
+    }
+
+    @Test
+    public void unlabeledComponents() {
+        Field422 f = new Field422();
+        f.setComponent(1, "V1");
+        f.setComponent(2, "V2");
+        f.setComponent(24, "V24");
+
+        // each unlabeled component has its own key
+        String json = f.toJson();
+        JsonObject o = parser.parse(json).getAsJsonObject();
+        assertEquals(4, o.size());
+        assertEquals("V1", o.get("value").getAsString());
+        assertEquals("V2", o.get("value2").getAsString());
+        assertEquals("V24", o.get("value24").getAsString());
+
+        Field422 copy = (Field422) Field.fromJson(json);
+        assertEquals("V1", copy.getComponent(1));
+        assertEquals("V2", copy.getComponent(2));
+        assertNull(copy.getComponent(3));
+        assertEquals("V24", copy.getComponent(24));
+    }
+
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model.mx;
+
+import com.prowidesoftware.swift.io.parser.MxParser;
+import com.prowidesoftware.swift.model.MxId;
+import com.prowidesoftware.swift.model.mx.dic.*;
+import com.prowidesoftware.swift.utils.SafeXmlUtils;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link BusinessHeaderStaxWriter}
+ *
+ * @since 8.0.2
+ */
+public class BusinessHeaderStaxWriterTest {
+
+	private static String write(final BusinessHeader header, final String prefix) throws Exception {
+		final StringWriter out = new StringWriter();
+		final XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+		assertTrue(header.write(writer, prefix));
+		writer.flush();
+		return out.toString();
+	}
+
+	private static BusinessHeader read(final String xml) throws Exception {
+		final XMLStreamReader reader = SafeXmlUtils.createXMLStreamReader(new StringReader(xml));
+		reader.nextTag();
+		return MxParser.parseBusinessHeader(reader);
+	}
+
+	/**
+	 * Same output as the JAXB marshalling, without indentation
+	 */
+	private static void assertSameAsJaxb(final BusinessHeader header, final String prefix, final String xml) {
+		assertEquals(header.xml(prefix, false).replaceAll(">\\s+<", "><").trim(), xml);
+	}
+
+	@Test
+	public void testBusinessApplicationHeader() throws Exception {
+		final BusinessApplicationHeaderV01 bah = BusinessHeader.createBusinessApplicationHeaderV01("AAAAUSXXXXX", null, "REF", new MxId("pacs.008.001.08"));
+		bah.setCharSet("UTF-8");
+		bah.getFr().getFIId().getFinInstnId().setClrSysMmbId(new ClearingSystemMemberIdentification2());
+		bah.getFr().getFIId().getFinInstnId().getClrSysMmbId().setClrSysId(new ClearingSystemIdentification2Choice());
+		bah.getFr().getFIId().getFinInstnId().getClrSysMmbId().getClrSysId().setCd("USABA");
+		bah.getFr().getFIId().getFinInstnId().getClrSysMmbId().setMmbId("123");
+		bah.getFr().getFIId().setBrnchId(new BranchData2());
+		bah.getFr().getFIId().getBrnchId().setPstlAdr(new PostalAddress6());
+		bah.getFr().getFIId().getBrnchId().getPstlAdr().setAdrTp(AddressType2Code.BIZZ);
+		bah.getFr().getFIId().getBrnchId().getPstlAdr().getAdrLine().add("LINE 1");
+		bah.getFr().getFIId().getBrnchId().getPstlAdr().getAdrLine().add("LINE <2> & 3");
+
+		bah.setTo(new Party9Choice());
+		bah.getTo().setOrgId(new PartyIdentification42());
+		bah.getTo().getOrgId().setNm("RECEIVER");
+		bah.getTo().getOrgId().setId(new Party10Choice());
+		bah.getTo().getOrgId().getId().setOrgId(new OrganisationIdentification7());
+		bah.getTo().getOrgId().getId().getOrgId().setAnyBIC("BBBBUSXXXXX");
+		final GenericOrganisationIdentification1 othr = new GenericOrganisationIdentification1();
+		othr.setId("OTHER");
+		othr.setSchmeNm(new OrganisationIdentificationSchemeName1Choice());
+		othr.getSchmeNm().setPrtry("SCHEME");
+		bah.getTo().getOrgId().getId().getOrgId().getOthr().add(othr);
+		bah.getTo().getOrgId().setCtctDtls(new ContactDetails2());
+		bah.getTo().getOrgId().getCtctDtls().setNmPrfx(NamePrefix1Code.MIST);
+		bah.getTo().getOrgId().getCtctDtls().setEmailAdr("foo@bar.com");
+
+		bah.setCpyDplct(CopyDuplicate1Code.COPY);
+		bah.setPssblDplct(Boolean.TRUE);
+		bah.setPrty("NORM");
+		bah.setRltd(new BusinessApplicationHeader1());
+		bah.getRltd().setBizMsgIdr("RELATED");
+		bah.getRltd().setCreDt(DatatypeFactory.newInstance().newXMLGregorianCalendar("2018-10-01T10:00:00Z"));
+
+		final String xml = write(new BusinessHeader(bah), "h");
+		assertTrue(xml, xml.startsWith("<h:AppHdr xmlns:h=\"" + BusinessHeader.NAMESPACE_BAH + "\"><h:CharSet>UTF-8</h:CharSet><h:Fr><h:FIId>"));
+		assertSameAsJaxb(new BusinessHeader(bah), "h", xml);
+		assertEquals(bah, read(xml).getBusinessApplicationHeader());
+	}
+
+	@Test
+	public void testApplicationHeader() throws Exception {
+		final ApplicationHeader ah = BusinessHeader.createApplicationHeader("AAAAUSXXXXX", "BBBBUSXXXXX", "REF", new MxId("pacs.008.001.08"));
+		ah.setSvcName("swift.finplus");
+		ah.setDup(new DuplicateIndication());
+		ah.getDup().setRef("DUP");
+
+		final String xml = write(new BusinessHeader(ah), null);
+		assertTrue(xml, xml.startsWith("<AppHdr xmlns=\"" + BusinessHeader.NAMESPACE_AH + "\"><From><Type>BIC</Type>"));
+		assertSameAsJaxb(new BusinessHeader(ah), null, xml);
+		assertEquals(ah, read(xml).getApplicationHeader());
+	}
+
+	@Test
+	public void testSignature() throws Exception {
+		final BusinessApplicationHeaderV01 bah = BusinessHeader.createBusinessApplicationHeaderV01("AAAAUSXXXXX", "BBBBUSXXXXX", "REF", null);
+		final Document doc = SafeXmlUtils.documentBuilder(true).newDocument();
+		final Element signature = doc.createElementNS("http://www.w3.org/2000/09/xmldsig#", "ds:Signature");
+		signature.setAttributeNS(null, "Id", "S1");
+		final Element value = doc.createElementNS("http://www.w3.org/2000/09/xmldsig#", "ds:SignatureValue");
+		value.setTextContent("abc=");
+		signature.appendChild(value);
+		bah.setSgntr(new SignatureEnvelope());
+		bah.getSgntr().setAny(signature);
+
+		final String xml = write(new BusinessHeader(bah), "h");
+		assertTrue(xml, xml.contains("<h:Sgntr><ds:Signature xmlns:ds=\"http://www.w3.org/2000/09/xmldsig#\" Id=\"S1\"><ds:SignatureValue>abc=</ds:SignatureValue></ds:Signature></h:Sgntr>"));
+		final Element read = (Element) read(xml).getBusinessApplicationHeader().getSgntr().getAny();
+		assertEquals("Signature", read.getLocalName());
+		assertEquals("abc=", read.getTextContent());
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		final XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(new StringWriter());
+		assertFalse(new BusinessHeader().write(writer, "h"));
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model.mx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import org.junit.Test;
+
+import com.prowidesoftware.swift.model.mx.dic.ApplicationHeader;
+import com.prowidesoftware.swift.model.mx.dic.BusinessApplicationHeaderV01;
+
+/**
+ * Tests for {@link JaxbContextCache}
+ *
+ * @since 8.0.2
+ */
+public class JaxbContextCacheTest {
+
+	@Test
+	public void testContextReuse() throws JAXBException {
+		JAXBContext context = JaxbContextCache.get(ApplicationHeader.class, BusinessApplicationHeaderV01.class);
+		// the class set is compared regardless of the order
+		assertSame(context, JaxbContextCache.get(BusinessApplicationHeaderV01.class, ApplicationHeader.class));
+		assertNotSame(context, JaxbContextCache.get(ApplicationHeader.class));
+	}
+
+	@Test
+	public void testMarshallerPerThread() throws Exception {
+		final Marshaller marshaller = JaxbContextCache.marshaller(ApplicationHeader.class);
+		assertSame(marshaller, JaxbContextCache.marshaller(ApplicationHeader.class));
+		assertSame(JaxbContextCache.unmarshaller(ApplicationHeader.class), JaxbContextCache.unmarshaller(ApplicationHeader.class));
+
+		final AtomicReference<Marshaller> other = new AtomicReference<>();
+		Thread t = new Thread(() -> {
+			try {
+				other.set(JaxbContextCache.marshaller(ApplicationHeader.class));
+			} catch (JAXBException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		t.start();
+		t.join();
+		assertNotSame(marshaller, other.get());
+	}
+
+	@Test
+	public void testHeaderSerialization() {
+		BusinessHeader header = BusinessHeader.create("AAAAUSXXXXX", "BBBBUSXXXXX", "REF", new com.prowidesoftware.swift.model.MxId("pacs.008.001.07"));
+		final String xml = header.xml();
+		assertTrue(xml.contains("AAAAUSXXXXX"));
+		// repeated calls reuse the cached context and marshaller
+		assertEquals(xml, header.xml());
+		assertEquals("AppHdr", header.element().getLocalName());
+	}
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.model.mx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.junit.Test;
+
+import com.prowidesoftware.swift.io.parser.MxParser;
+import com.prowidesoftware.swift.model.MxId;
+import com.prowidesoftware.swift.model.MxNode;
+
+/**
+ * Tests for {@link MxStreamWriter}
+ *
+ * @since 8.0.2
+ */
+public class MxStreamWriterTest {
+
+	private static final String NAMESPACE = "urn:iso:std:iso:20022:tech:xsd:pacs.008.001.08";
+
+	@XmlRootElement(name = "Document", namespace = NAMESPACE)
+	@XmlAccessorType(XmlAccessType.FIELD)
+	static final class MockDocument extends AbstractMX {
+		@XmlElement(name = "MsgId", namespace = NAMESPACE)
+		private String msgId;
+
+		MockDocument() {
+		}
+
+		MockDocument(final String msgId, final BusinessHeader header) {
+			super(header);
+			this.msgId = msgId;
+		}
+
+		@SuppressWarnings("rawtypes")
+		@Override
+		public Class[] getClasses() {
+			return new Class[]{MockDocument.class};
+		}
+
+		@Override
+		public String getNamespace() {
+			return NAMESPACE;
+		}
+
+		@Override
+		public String getBusinessProcess() {
+			return "pacs";
+		}
+
+		@Override
+		public int getFunctionality() {
+			return 8;
+		}
+
+		@Override
+		public int getVariant() {
+			return 1;
+		}
+
+		@Override
+		public int getVersion() {
+			return 8;
+		}
+	}
+
+	private static MockDocument message(final String id) {
+		return new MockDocument(id, BusinessHeader.create("AAAAUSXXXXX", "BBBBUSXXXXX", "H" + id, new MxId(NAMESPACE)));
+	}
+
+	@Test
+	public void testSingleMessage() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		MxStreamWriter writer = new MxStreamWriter(out);
+		writer.write(message("1"));
+		writer.close();
+		String xml = new String(out.toByteArray(), StandardCharsets.UTF_8);
+		assertTrue(xml.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?><RequestPayload><h:AppHdr xmlns:h=\""));
+		// the header content is written in the header namespace
+		assertTrue(xml.contains("<h:BizMsgIdr>H1</h:BizMsgIdr>"));
+		assertTrue(xml.contains("<Doc:Document xmlns:Doc=\"" + NAMESPACE + "\"><Doc:MsgId>1</Doc:MsgId></Doc:Document></RequestPayload>"));
+
+		MxParser parser = new MxParser(xml);
+		assertEquals("H1", parser.analyzeIdentification().getReference());
+		assertEquals("1", parser.parse().singlePathValue("/RequestPayload/Document/MsgId"));
+	}
+
+	@Test
+	public void testEnvelope() {
+		StringWriter out = new StringWriter();
+		MxStreamWriter writer = new MxStreamWriter(out);
+		writer.startEnvelope("Batch");
+		for (int i = 0; i < 3; i++) {
+			writer.write(message(String.valueOf(i)));
+		}
+		writer.write(new MockDocument("3", null));
+		writer.close();
+
+		MxNode tree = new MxParser(out.toString()).parse();
+		List<MxNode> payloads = tree.find("/Batch/RequestPayload");
+		assertEquals(3, payloads.size());
+		assertEquals("H2", payloads.get(2).singlePathValue("./AppHdr/BizMsgIdr"));
+		assertEquals("2", payloads.get(2).singlePathValue("./Document/MsgId"));
+		// the message without header is not wrapped
+		assertEquals("3", tree.singlePathValue("/Batch/Document/MsgId"));
+	}
+
+	@Test
+	public void testPrefixes() {
+		StringWriter out = new StringWriter();
+		MxStreamWriter writer = new MxStreamWriter(out);
+		writer.setHeaderPrefix(null);
+		writer.setDocumentPrefix("");
+		writer.setMessageElement(null);
+		writer.startEnvelope("Batch");
+		writer.write(message("1"));
+		writer.close();
+		String xml = out.toString();
+		assertTrue(xml.contains("<AppHdr xmlns=\""));
+		assertTrue(xml.contains("<Document xmlns=\"" + NAMESPACE + "\"><MsgId>1</MsgId></Document></Batch>"));
+		assertFalse(xml.contains("RequestPayload"));
+	}
+
+	@Test
+	public void testSameContentAsElement() {
+		MockDocument mx = message("1");
+		StringWriter out = new StringWriter();
+		MxStreamWriter writer = new MxStreamWriter(out);
+		writer.write(mx.getBusinessHeader());
+		writer.close();
+		MxNode written = new MxParser(out.toString()).parse();
+		MxNode expected = new MxParser(mx.getBusinessHeader().xml()).parse();
+		assertEquals(expected.singlePathValue("/AppHdr/BizMsgIdr"), written.singlePathValue("/AppHdr/BizMsgIdr"));
+		assertEquals(expected.singlePathValue("/AppHdr/Fr/FIId/FinInstnId/BICFI"), written.singlePathValue("/AppHdr/Fr/FIId/FinInstnId/BICFI"));
+		assertEquals(expected.singlePathValue("/AppHdr/CreDt"), written.singlePathValue("/AppHdr/CreDt"));
+	}
+
+}
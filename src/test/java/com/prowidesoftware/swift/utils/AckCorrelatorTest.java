@@ -0,0 +1,117 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.prowidesoftware.swift.model.SwiftMessage;
+import com.prowidesoftware.swift.model.mt.ServiceMessage21;
+
+/**
+ * ACK correlation tests.
+ *
+ * @since 8.0.2
+ */
+public class AckCorrelatorTest {
+
+	private static final String ORIGINAL_BODY = "{4:\n:20:REFERENCE\n:32A:180910EUR1234,56\n-}";
+
+	private static SwiftMessage sent(final String sessionSequence, final String block3) throws IOException {
+		return SwiftMessage.parse("{1:F01BNPAFRPPZXXX" + sessionSequence + "}{2:I103MGTCBEBBXXXXN}" + block3 + ORIGINAL_BODY);
+	}
+
+	private static SwiftMessage ack(final String sessionSequence, final String block4, final String original) throws IOException {
+		return SwiftMessage.parse("{1:F21BNPAFRPPZXXX" + sessionSequence + "}{4:{177:1702040914}{451:0}" + block4 + "}" + original);
+	}
+
+	@Test
+	public void testMatchByInputReference() throws IOException {
+		AckCorrelator<String> correlator = new AckCorrelator<>();
+		assertTrue(correlator.register(sent("0066000079", ""), "one"));
+		assertTrue(correlator.register(sent("0066000080", ""), "two"));
+		assertEquals(2, correlator.pendingCount());
+
+		assertEquals("two", correlator.match(ack("0066000080", "", "")));
+		assertEquals("one", correlator.match(new ServiceMessage21(ack("0066000079", "", ""))));
+		// already matched
+		assertNull(correlator.match(ack("0066000079", "", "")));
+		assertEquals(0, correlator.pendingCount());
+		assertEquals(2, correlator.matchedCount());
+		assertEquals(1, correlator.unmatchedCount());
+	}
+
+	@Test
+	public void testMatchByMUR() throws IOException {
+		AckCorrelator<String> correlator = new AckCorrelator<>();
+		correlator.register(sent("0000000000", "{3:{108:MUR1}}"), "one");
+		correlator.register(sent("0000000000", "{3:{108:MUR2}}"), "two");
+
+		// MUR echoed in the acknowledge text block
+		assertEquals("one", correlator.match(ack("0000000000", "{108:MUR1}", "")));
+		// MUR from the appended original
+		assertEquals("two", correlator.match(ack("0000000000", "", "{1:F01BNPAFRPPZXXX0000000000}{2:I103MGTCBEBBXXXXN}{3:{108:MUR2}}" + ORIGINAL_BODY)));
+	}
+
+	@Test
+	public void testMatchByUETRAndChecksum() throws IOException {
+		AckCorrelator<String> correlator = new AckCorrelator<>();
+		correlator.register(sent("0000000000", "{3:{121:eb6305c9-1f7f-49de-aed0-16487c27b42d}}"), "gpi");
+		correlator.register(SwiftMessage.parse("{1:F01BNPAFRPPZXXX0000000000}{2:I202MGTCBEBBXXXXN}{4:\n:20:OTHER\n-}"), "body");
+
+		assertEquals("gpi", correlator.match(ack("0000000000", "", "{1:F01BNPAFRPPZXXX0000000000}{2:I103MGTCBEBBXXXXN}{3:{121:eb6305c9-1f7f-49de-aed0-16487c27b42d}}{4:\n:20:CHANGED\n-}")));
+		assertEquals("body", correlator.match(ack("0000000000", "", "{1:F01BNPAFRPPZXXX0000000000}{2:I202MGTCBEBBXXXXN}{4:\n:20:OTHER\n-}")));
+		assertNull(correlator.match(ack("0000000000", "", "")));
+	}
+
+	@Test
+	public void testExpiry() throws IOException {
+		final long[] time = {0};
+		AckCorrelator<String> correlator = new AckCorrelator<String>(1000) {
+			@Override
+			protected long now() {
+				return time[0];
+			}
+		};
+		correlator.register(sent("0066000079", ""), "old");
+		time[0] = 600;
+		correlator.register(sent("0066000080", ""), "new");
+		time[0] = 1200;
+		correlator.evictExpired();
+		assertEquals(1, correlator.pendingCount());
+		assertEquals(1, correlator.expiredCount());
+		assertNull(correlator.match(ack("0066000079", "", "")));
+		assertEquals("new", correlator.match(ack("0066000080", "", "")));
+		assertEquals(2, correlator.registeredCount());
+
+		correlator.register(sent("0066000081", ""), "other");
+		correlator.clear();
+		assertEquals(0, correlator.pendingCount());
+	}
+
+	@Test
+	public void testNoKeys() {
+		AckCorrelator<String> correlator = new AckCorrelator<>();
+		assertFalse(correlator.register(new SwiftMessage(false), "none"));
+	}
+
+}
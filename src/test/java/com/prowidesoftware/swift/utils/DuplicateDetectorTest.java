@@ -0,0 +1,163 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.prowidesoftware.swift.model.MtSwiftMessage;
+import com.prowidesoftware.swift.model.SwiftMessage;
+
+/**
+ * Duplicate detector tests.
+ *
+ * @since 8.0.2
+ */
+public class DuplicateDetectorTest {
+
+	private static final String MT103 = "{1:F01FOOBARXXAXXX0001000001}{2:I103FOOBARXXXXXXN}{4:\n:20:REFERENCE\n:32A:180910EUR1234,56\n-}";
+	private static final String MT103_RESENT = "{1:F01FOOBARXXAXXX0002000007}{2:I103FOOBARXXXXXXN}{4:\n:20:REFERENCE\n:32A:180910EUR1234,56\n-}{5:{PDE:}}";
+
+	private static String checksum(final int i) {
+		return String.format("%032x", i * 7919L);
+	}
+
+	private static class Clock extends DuplicateDetector {
+		private final AtomicLong time = new AtomicLong();
+
+		Clock(final int capacity, final long windowMillis) {
+			super(capacity, windowMillis);
+		}
+
+		@Override
+		protected long now() {
+			// called from the super constructor before the field is initialized
+			return time == null ? 0 : time.get();
+		}
+	}
+
+	@Test
+	public void testDuplicate() throws Exception {
+		DuplicateDetector detector = new DuplicateDetector();
+		assertFalse(detector.isDuplicate(SwiftMessage.parse(MT103)));
+		assertTrue(detector.isDuplicate(SwiftMessage.parse(MT103)));
+		// different session and possible duplicate trailer
+		assertFalse(detector.isDuplicate(SwiftMessage.parse(MT103_RESENT)));
+		assertEquals(2, detector.size());
+		assertEquals(3, detector.checkCount());
+		assertEquals(1, detector.duplicateCount());
+	}
+
+	@Test
+	public void testIgnoreHeaderSessionAndTrailer() throws Exception {
+		DuplicateDetector detector = new DuplicateDetector();
+		detector.setIgnoreHeaderSession(true);
+		detector.setIgnoreTrailer(true);
+		assertFalse(detector.isDuplicate(SwiftMessage.parse(MT103)));
+		assertTrue(detector.isDuplicate(SwiftMessage.parse(MT103_RESENT)));
+		assertTrue(detector.isDuplicate(new MtSwiftMessage(MT103_RESENT)));
+
+		// persisted checksum is used when nothing is ignored
+		DuplicateDetector plain = new DuplicateDetector();
+		MtSwiftMessage mt = new MtSwiftMessage(MT103);
+		assertFalse(plain.isDuplicate(mt));
+		assertTrue(plain.isDuplicate(SwiftMessage.parse(MT103)));
+		assertTrue(plain.contains(mt.getChecksum()));
+	}
+
+	@Test
+	public void testTimeWindow() {
+		Clock detector = new Clock(100, 1000);
+		assertFalse(detector.isDuplicate(checksum(1)));
+		detector.time.set(500);
+		assertTrue(detector.isDuplicate(checksum(1)));
+		assertFalse(detector.isDuplicate(checksum(2)));
+
+		// checksum 1 was seen again at 500
+		detector.time.set(1400);
+		assertTrue(detector.contains(checksum(1)));
+		assertTrue(detector.contains(checksum(2)));
+
+		// after two rotations of the Bloom filters
+		detector.time.set(2600);
+		assertFalse(detector.contains(checksum(1)));
+		// expired checksum is registered again
+		assertFalse(detector.isDuplicate(checksum(2)));
+		assertEquals(1, detector.evictedCount());
+		assertEquals(1, detector.size());
+	}
+
+	@Test
+	public void testCapacity() {
+		DuplicateDetector detector = new DuplicateDetector(10, DuplicateDetector.DEFAULT_WINDOW_MILLIS);
+		for (int i = 0; i < 10; i++) {
+			assertFalse(detector.isDuplicate(checksum(i)));
+		}
+		// touch the first one so that it becomes the most recently seen
+		assertTrue(detector.isDuplicate(checksum(0)));
+		assertFalse(detector.isDuplicate(checksum(10)));
+		assertEquals(10, detector.size());
+		assertTrue(detector.contains(checksum(0)));
+		assertFalse(detector.contains(checksum(1)));
+		assertTrue(detector.contains(checksum(2)));
+		assertEquals(1, detector.evictedCount());
+
+		detector.clear();
+		assertEquals(0, detector.size());
+		assertFalse(detector.contains(checksum(0)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidChecksum() {
+		new DuplicateDetector().isDuplicate("not a checksum");
+	}
+
+	@Test
+	public void testConcurrent() throws Exception {
+		final DuplicateDetector detector = new DuplicateDetector(100000, DuplicateDetector.DEFAULT_WINDOW_MILLIS);
+		final AtomicInteger firstSeen = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < 5000; i++) {
+					if (!detector.isDuplicate(checksum(i))) {
+						firstSeen.incrementAndGet();
+					}
+				}
+			}));
+		}
+		for (Future<?> f : futures) {
+			f.get();
+		}
+		executor.shutdown();
+		assertEquals(5000, firstSeen.get());
+		assertEquals(15000, detector.duplicateCount());
+		assertEquals(5000, detector.size());
+	}
+
+}
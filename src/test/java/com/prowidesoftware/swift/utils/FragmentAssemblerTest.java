@@ -0,0 +1,176 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.prowidesoftware.swift.Constants;
+import com.prowidesoftware.swift.model.SwiftMessage;
+import com.prowidesoftware.swift.model.Tag;
+
+/**
+ * Fragment assembler tests.
+ *
+ * @since 8.0.2
+ */
+public class FragmentAssemblerTest {
+
+	private static SwiftMessage fragment(final String reference, final int number, final int count, final String ... values) {
+		SwiftMessage m = new SwiftMessage(true);
+		m.getBlock1().setValue(Constants.B1_DATA);
+		m.getBlock2().setValue(Constants.B2_INPUT);
+		m.getBlock4().append(new Tag("20", reference));
+		for (String v : values) {
+			m.getBlock4().append(new Tag("79", v));
+		}
+		m.getBlock4().append(new Tag("202", String.format("%04d", number)));
+		m.getBlock4().append(new Tag("203", String.format("%04d", count)));
+		return m;
+	}
+
+	@Test
+	public void testNotFragment() {
+		FragmentAssembler assembler = new FragmentAssembler();
+		SwiftMessage m = new SwiftMessage(true);
+		m.getBlock4().append(new Tag("20", "REF"));
+		assertSame(m, assembler.add(m));
+		assertEquals(0, assembler.pendingCount());
+	}
+
+	@Test
+	public void testOutOfOrder() {
+		FragmentAssembler assembler = new FragmentAssembler();
+		assertNull(assembler.add(fragment("REF1", 2, 3, "two")));
+		assertNull(assembler.add(fragment("REF1", 3, 3, "three")));
+		assertNull(assembler.add(fragment("REF2", 1, 2, "other")));
+		// duplicate is ignored
+		assertNull(assembler.add(fragment("REF1", 2, 3, "two")));
+		assertEquals(2, assembler.pendingCount());
+
+		SwiftMessage merged = assembler.add(fragment("REF1", 1, 3, "one"));
+		assertNotNull(merged);
+		assertEquals(1, assembler.pendingCount());
+		assertEquals(4, merged.getBlock4().size());
+		assertEquals("REF1", merged.getBlock4().getTagValue("20"));
+		assertEquals("one", merged.getBlock4().getTag(1).getValue());
+		assertEquals("two", merged.getBlock4().getTag(2).getValue());
+		assertEquals("three", merged.getBlock4().getTag(3).getValue());
+		assertEquals(Boolean.FALSE, merged.isFragment());
+		assertEquals(Constants.B1_DATA, merged.getBlock1().getValue());
+	}
+
+	@Test
+	public void testEvictExpired() {
+		final AtomicLong clock = new AtomicLong(1000);
+		FragmentAssembler assembler = new FragmentAssembler(Long.MAX_VALUE, 100) {
+			@Override
+			protected long now() {
+				return clock.get();
+			}
+		};
+		assertNull(assembler.add(fragment("REF1", 1, 2)));
+		clock.set(1050);
+		assertNull(assembler.add(fragment("REF2", 1, 2)));
+		assertEquals(2, assembler.pendingCount());
+
+		clock.set(1100);
+		assertEquals(1, assembler.evictExpired());
+		assertEquals(1, assembler.pendingCount());
+		assertEquals(1, assembler.evictedCount());
+
+		// the second fragment of the expired group starts a new group
+		assertNull(assembler.add(fragment("REF1", 2, 2)));
+		assertNotNull(assembler.add(fragment("REF2", 2, 2)));
+		assertEquals(1, assembler.pendingCount());
+	}
+
+	@Test
+	public void testMemoryBudget() {
+		FragmentAssembler assembler = new FragmentAssembler(1000, Long.MAX_VALUE);
+		assertNull(assembler.add(fragment("REF1", 1, 2, "first group")));
+		assertNull(assembler.add(fragment("REF2", 1, 2, "second group")));
+		assertEquals(2, assembler.pendingCount());
+		assertNull(assembler.add(fragment("REF3", 1, 2, new String(new char[300]).replace('\0', 'x'))));
+		// oldest groups are discarded to fit into the budget
+		assertEquals(1, assembler.pendingCount());
+		assertEquals(2, assembler.evictedCount());
+		assertTrue(assembler.bufferedBytes() <= 1000);
+		assertNotNull(assembler.add(fragment("REF3", 2, 2)));
+		assertEquals(0, assembler.bufferedBytes());
+	}
+
+	@Test
+	public void testConcurrentProducers() throws Exception {
+		final FragmentAssembler assembler = new FragmentAssembler();
+		final int groups = 200;
+		final int count = 5;
+		final List<SwiftMessage> fragments = new ArrayList<>();
+		for (int g = 0; g < groups; g++) {
+			for (int n = 1; n <= count; n++) {
+				fragments.add(fragment("REF" + g, n, count, "v" + n));
+			}
+		}
+		Collections.shuffle(fragments);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<SwiftMessage>> results = new ArrayList<>();
+		for (final SwiftMessage f : fragments) {
+			results.add(executor.submit(() -> assembler.add(f)));
+		}
+		int merged = 0;
+		for (Future<SwiftMessage> r : results) {
+			SwiftMessage m = r.get();
+			if (m != null) {
+				assertEquals(count + 1, m.getBlock4().size());
+				merged++;
+			}
+		}
+		executor.shutdown();
+		assertEquals(groups, merged);
+		assertEquals(0, assembler.pendingCount());
+		assertEquals(0, assembler.bufferedBytes());
+		assertEquals(0, assembler.queuedCount());
+	}
+
+	@Test
+	public void testCompletedGroupsReleased() {
+		FragmentAssembler assembler = new FragmentAssembler();
+		for (int g = 0; g < 100; g++) {
+			assertNull(assembler.add(fragment("REF" + g, 1, 2, "one")));
+		}
+		assertEquals(100, assembler.queuedCount());
+		for (int g = 0; g < 100; g++) {
+			assertNotNull(assembler.add(fragment("REF" + g, 2, 2, "two")));
+			assertEquals(99 - g, assembler.queuedCount());
+		}
+		assertEquals(0, assembler.pendingCount());
+		assertEquals(0, assembler.bufferedBytes());
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.utils;
+
+import com.prowidesoftware.ProwideException;
+import com.prowidesoftware.swift.model.CompressedMessageConverter;
+import com.prowidesoftware.swift.model.mt.mt1xx.MT103;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link MessageCompressor}
+ *
+ * @since 8.0.2
+ */
+public class MessageCompressorTest {
+
+	private static final String FIN = "{1:F01AAAAUSXXAXXX0000000000}{2:I103BBBBUSXXXXXXN}{3:{108:MUR}{121:eb6305c9-1f7f-49de-aed0-16487c27b42d}}{4:\r\n"
+			+ ":20:REFERENCE\r\n:23B:CRED\r\n:32A:181001USD1234,56\r\n:50K:/12345\r\nJOHN DOE\r\n:59:/67890\r\nJANE DOE\r\n:71A:SHA\r\n-}";
+
+	private static int deflatedWithoutDictionary(final String content) {
+		final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		deflater.setInput(content.getBytes(StandardCharsets.UTF_8));
+		deflater.finish();
+		final byte[] buffer = new byte[content.length() * 2];
+		int length = 0;
+		while (!deflater.finished()) {
+			length += deflater.deflate(buffer, length, buffer.length - length);
+		}
+		deflater.end();
+		return length;
+	}
+
+	@Test
+	public void testFIN() {
+		final byte[] data = MessageCompressor.compress(FIN);
+		assertTrue(MessageCompressor.isCompressed(data));
+		assertEquals(FIN, MessageCompressor.decompress(data));
+		// the dictionary makes a difference for small messages
+		assertTrue(data.length + " vs " + deflatedWithoutDictionary(FIN), data.length < deflatedWithoutDictionary(FIN));
+	}
+
+	@Test
+	public void testXML() throws Exception {
+		final String xml = Lib.readResource("mx_sample_request_wrapper.xml");
+		final byte[] data = MessageCompressor.compress(xml);
+		assertEquals(xml, MessageCompressor.decompress(data));
+		assertTrue(data.length + " vs " + xml.length(), data.length * 2 < xml.length());
+	}
+
+	@Test
+	public void testLarge() {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			sb.append("<Ntry><Amt Ccy=\"EUR\">").append(i).append(",00</Amt><Nm>ÑANDÚ ").append(i % 7).append("</Nm></Ntry>");
+		}
+		final String content = sb.toString();
+		assertEquals(content, MessageCompressor.decompress(MessageCompressor.compress(content)));
+		// reused by the thread
+		assertEquals(FIN, MessageCompressor.decompress(MessageCompressor.compress(FIN)));
+	}
+
+	@Test
+	public void testPlain() {
+		assertNull(MessageCompressor.compress(null));
+		assertNull(MessageCompressor.decompress(null));
+		assertEquals("", MessageCompressor.decompress(MessageCompressor.compress("")));
+		assertEquals("{", MessageCompressor.decompress(MessageCompressor.compress("{")));
+
+		// not compressible content is kept as is
+		final String random = "q8Zk2Lm0Xv";
+		final byte[] data = MessageCompressor.compress(random);
+		assertFalse(MessageCompressor.isCompressed(data));
+		assertArrayEquals(random.getBytes(StandardCharsets.UTF_8), data);
+
+		// existing plain content
+		assertEquals(FIN, MessageCompressor.decompress(FIN.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void testCorrupted() {
+		final byte[] data = MessageCompressor.compress(FIN);
+		try {
+			MessageCompressor.decompress(Arrays.copyOf(data, data.length / 2));
+			fail();
+		} catch (final ProwideException e) {
+			// expected
+		}
+		data[1] = 9;
+		try {
+			MessageCompressor.decompress(data);
+			fail();
+		} catch (final ProwideException e) {
+			assertTrue(e.getMessage().contains("version"));
+		}
+	}
+
+	@Test
+	public void testConverter() {
+		final CompressedMessageConverter converter = new CompressedMessageConverter();
+		final String fin = new MT103().message();
+		assertEquals(fin, converter.convertToEntityAttribute(converter.convertToDatabaseColumn(fin)));
+		assertNull(converter.convertToDatabaseColumn(null));
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2006-2018 Prowide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.prowidesoftware.swift.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests for {@link SafeXmlUtils}
+ *
+ * @since 8.0.2
+ */
+public class SafeXmlUtilsTest {
+
+	private static final String XXE = "<!DOCTYPE foo [ <!ENTITY xxe SYSTEM \"file:///etc/passwd\" >]><foo>&xxe;</foo>";
+
+	@Test
+	public void testReusableInstances() throws Exception {
+		// a new factory on each call, so that changes by a caller do not affect the shared one
+		assertNotSame(SafeXmlUtils.inputFactory(), SafeXmlUtils.inputFactory());
+		assertSame(SafeXmlUtils.reusableReader(true), SafeXmlUtils.reusableReader(true));
+		assertNotSame(SafeXmlUtils.reusableReader(true), SafeXmlUtils.reusableReader(false));
+		assertSame(SafeXmlUtils.reusableDocumentBuilder(false), SafeXmlUtils.reusableDocumentBuilder(false));
+		assertNotSame(SafeXmlUtils.documentBuilder(), SafeXmlUtils.documentBuilder());
+
+		final AtomicReference<XMLReader> other = new AtomicReference<>();
+		Thread t = new Thread(() -> other.set(SafeXmlUtils.reusableReader(true)));
+		t.start();
+		t.join();
+		assertNotSame(SafeXmlUtils.reusableReader(true), other.get());
+	}
+
+	@Test
+	public void testReusableReader() throws Exception {
+		XMLReader reader = SafeXmlUtils.reusableReader(true);
+		final StringBuilder names = new StringBuilder();
+		reader.setContentHandler(new DefaultHandler() {
+			@Override
+			public void startElement(String uri, String localName, String qName, org.xml.sax.Attributes attributes) {
+				names.append(localName);
+			}
+		});
+		reader.parse(new InputSource(new StringReader("<a><b/></a>")));
+		assertEquals("ab", names.toString());
+		// handlers are cleared for the next use
+		assertNull(SafeXmlUtils.reusableReader(true).getContentHandler());
+	}
+
+	@Test
+	public void testReusableDocumentBuilder() throws Exception {
+		DocumentBuilder builder = SafeXmlUtils.reusableDocumentBuilder(true);
+		Document doc = builder.parse(new InputSource(new StringReader("<a xmlns=\"urn:x\"/>")));
+		assertEquals("urn:x", doc.getDocumentElement().getNamespaceURI());
+		doc = SafeXmlUtils.reusableDocumentBuilder(true).parse(new InputSource(new StringReader("<b/>")));
+		assertEquals("b", doc.getDocumentElement().getNodeName());
+	}
+
+	@Test
+	public void testXxeDisabled() throws Exception {
+		try {
+			SafeXmlUtils.reusableReader(false).parse(new InputSource(new StringReader(XXE)));
+			fail("DOCTYPE must be rejected");
+		} catch (SAXException e) {
+			// expected
+		}
+		try {
+			SafeXmlUtils.reusableDocumentBuilder(false).parse(new InputSource(new StringReader(XXE)));
+			fail("DOCTYPE must be rejected");
+		} catch (SAXException e) {
+			// expected
+		}
+		try {
+			SafeXmlUtils.documentBuilder(true).parse(new InputSource(new StringReader(XXE)));
+			fail("DOCTYPE must be rejected");
+		} catch (SAXException e) {
+			// expected
+		}
+		// reconfiguring a returned factory does not affect the readers created internally
+		SafeXmlUtils.inputFactory().setProperty(XMLInputFactory.SUPPORT_DTD, true);
+		try {
+			XMLStreamReader reader = SafeXmlUtils.createXMLStreamReader(new StringReader(XXE));
+			while (reader.hasNext()) {
+				reader.next();
+			}
+			fail("external entity must not be resolved");
+		} catch (XMLStreamException e) {
+			// expected
+		}
+	}
+
+}